@@ -0,0 +1,108 @@
+package com.project.inventory.benchmark;
+
+import com.project.inventory.domain.entity.Product;
+import com.project.inventory.domain.entity.ProductCompositionItem;
+import com.project.inventory.domain.entity.RawMaterial;
+import com.project.inventory.domain.enumtype.UnitOfMeasurement;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+// Catálogo sintético e determinístico (mesma semente, mesmo catálogo) para os benchmarks do planejamento.
+// bomDensity: fração das matérias-primas usada por cada produto (pelo menos uma).
+// stockTightness: estoque de cada matéria-prima como fração do que seria preciso para fabricar
+// UNITS_PER_PRODUCT unidades de todos os produtos que a usam; abaixo de 1 o estoque é disputado
+public record BenchmarkCatalog(List<Product> products, List<RawMaterial> rawMaterials) {
+
+    static final int UNITS_PER_PRODUCT = 10;
+
+    public enum PriceDistribution {
+        // De 1,00 a 99,99, todos os valores com a mesma chance
+        UNIFORM,
+        // Poucos produtos caros e muitos baratos (log-uniforme entre 1,00 e 999,99)
+        SKEWED,
+        // Só três preços (10,00, 20,00 e 30,00): muitos empates e produtos equivalentes
+        PLATEAU
+    }
+
+    static BenchmarkCatalog generate(
+            long seed,
+            int productCount,
+            int materialCount,
+            double bomDensity,
+            PriceDistribution prices,
+            double stockTightness
+    ) {
+        Random random = new Random(seed);
+
+        int itemsPerProduct = Math.max(1, (int) Math.round(bomDensity * materialCount));
+        long[] demand = new long[materialCount];
+
+        List<Product> products = new ArrayList<>();
+        List<int[]> compositions = new ArrayList<>();
+        for (int p = 0; p < productCount; p++) {
+            Product product = Product.builder()
+                    .id(p + 1L)
+                    .code(String.format("P-%05d", p + 1))
+                    .name("Produto " + (p + 1))
+                    .price(price(random, prices))
+                    .compositionItems(new ArrayList<>())
+                    .build();
+            products.add(product);
+
+            // Varia em torno da densidade pedida: de metade a uma vez e meia os itens médios
+            int itemCount = Math.min(materialCount, Math.max(1, itemsPerProduct / 2 + random.nextInt(itemsPerProduct + 1)));
+            Set<Integer> materials = new LinkedHashSet<>();
+            while (materials.size() < itemCount) {
+                materials.add(random.nextInt(materialCount));
+            }
+
+            int[] composition = new int[2 * itemCount];
+            int i = 0;
+            for (int material : materials) {
+                int required = 1 + random.nextInt(20);
+                composition[i++] = material;
+                composition[i++] = required;
+                demand[material] += (long) required * UNITS_PER_PRODUCT;
+            }
+            compositions.add(composition);
+        }
+
+        List<RawMaterial> rawMaterials = new ArrayList<>();
+        for (int m = 0; m < materialCount; m++) {
+            long stock = Math.max(1L, Math.round(demand[m] * stockTightness));
+            rawMaterials.add(RawMaterial.builder()
+                    .id(m + 1L)
+                    .code(String.format("MP-%05d", m + 1))
+                    .name("Matéria-prima " + (m + 1))
+                    .stockQuantity(BigDecimal.valueOf(stock))
+                    .unitOfMeasurement(UnitOfMeasurement.KILOGRAM)
+                    .build());
+        }
+
+        for (int p = 0; p < productCount; p++) {
+            int[] composition = compositions.get(p);
+            for (int i = 0; i < composition.length; i += 2) {
+                products.get(p).adicionarItemComposition(ProductCompositionItem.builder()
+                        .rawMaterial(rawMaterials.get(composition[i]))
+                        .requiredQuantity(BigDecimal.valueOf(composition[i + 1]))
+                        .build());
+            }
+        }
+
+        return new BenchmarkCatalog(products, rawMaterials);
+    }
+
+    private static BigDecimal price(Random random, PriceDistribution prices) {
+        return switch (prices) {
+            case UNIFORM -> BigDecimal.valueOf(100 + random.nextInt(9900), 2);
+            case SKEWED -> BigDecimal.valueOf(Math.round(Math.pow(10.0, 2.0 + 3.0 * random.nextDouble())) - 1, 2)
+                    .max(BigDecimal.valueOf(100, 2));
+            case PLATEAU -> BigDecimal.valueOf(1000L * (1 + random.nextInt(3)), 2);
+        };
+    }
+}
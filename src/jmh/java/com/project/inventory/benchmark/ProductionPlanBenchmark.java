@@ -0,0 +1,149 @@
+package com.project.inventory.benchmark;
+
+import com.project.inventory.domain.repository.ProductRepository;
+import com.project.inventory.domain.repository.RawMaterialRepository;
+import com.project.inventory.dto.planproduction.ProductionPlanSuggestionRequest;
+import com.project.inventory.dto.planproduction.ProductionPlanSuggestionResponse;
+import com.project.inventory.service.CatalogVersion;
+import com.project.inventory.service.catalog.ProductionModelRegistry;
+import com.project.inventory.service.optimization.PlannerMetrics;
+import com.project.inventory.service.optimization.ProductionPlanCache;
+import com.project.inventory.service.optimization.ProductionPlanService;
+import com.project.inventory.service.optimization.ProductionPlanSolver;
+import com.project.inventory.service.optimization.SearchMode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Planejamento chamado direto no ProductionPlanService, sem HTTP nem banco: os repositórios são stubs que
+// devolvem o catálogo sintético. Throughput dá planos por segundo e SampleTime os percentis de latência;
+// a taxa de alocação vem do profiler de GC (-prof gc, já incluído no perfil benchmark do pom)
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ProductionPlanBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    private int productCount;
+
+    @Param({"50"})
+    private int materialCount;
+
+    @Param({"0.05"})
+    private double bomDensity;
+
+    @Param({"UNIFORM", "SKEWED", "PLATEAU"})
+    private BenchmarkCatalog.PriceDistribution prices;
+
+    @Param({"0.5"})
+    private double stockTightness;
+
+    @Param({"1"})
+    private int parallelism;
+
+    @Param({"DEPTH_FIRST", "BEST_FIRST"})
+    private SearchMode searchMode;
+
+    @Param({"200"})
+    private long timeBudgetMs;
+
+    @Param({"42"})
+    private long seed;
+
+    private ProductionPlanSolver solver;
+    private ProductionPlanService uncachedService;
+    private ProductionPlanService cachedService;
+    private ProductionPlanSuggestionRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkCatalog catalog = BenchmarkCatalog.generate(
+                seed, productCount, materialCount, bomDensity, prices, stockTightness
+        );
+
+        ProductRepository productRepository = mock(ProductRepository.class);
+        RawMaterialRepository rawMaterialRepository = mock(RawMaterialRepository.class);
+        when(productRepository.findAll()).thenReturn(catalog.products());
+        when(rawMaterialRepository.findAll()).thenReturn(catalog.rawMaterials());
+
+        CatalogVersion catalogVersion = new CatalogVersion();
+        ProductionModelRegistry registry = new ProductionModelRegistry(
+                productRepository,
+                rawMaterialRepository,
+                catalogVersion,
+                TransactionOperations.withoutTransaction()
+        );
+
+        solver = new ProductionPlanSolver(new SimpleMeterRegistry(), parallelism, timeBudgetMs, timeBudgetMs, 65536, searchMode, 100000);
+        PlannerMetrics metrics = new PlannerMetrics(new SimpleMeterRegistry());
+        uncachedService = new ProductionPlanService(
+                registry, solver, new ProductionPlanCache(new SimpleMeterRegistry(), false), catalogVersion, metrics);
+        cachedService = new ProductionPlanService(
+                registry, solver, new ProductionPlanCache(new SimpleMeterRegistry(), true), catalogVersion, metrics);
+        request = new ProductionPlanSuggestionRequest(timeBudgetMs, false);
+
+        // O retrato do catálogo é montado uma vez, como no primeiro acesso da aplicação
+        cachedService.suggestOptimalPlan(request);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        solver.shutdown();
+    }
+
+    // Plano completo a cada chamada: compilação do problema, ponto de partida (o plano anterior), busca e resposta
+    @Benchmark
+    public ProductionPlanSuggestionResponse suggestPlan() {
+        return uncachedService.suggestOptimalPlan(request);
+    }
+
+    // Catálogo sem escritas: o plano sai do cache da versão atual
+    @Benchmark
+    public ProductionPlanSuggestionResponse cachedPlan() {
+        return cachedService.suggestOptimalPlan(request);
+    }
+
+    // Nós explorados por milissegundo dentro do prazo fixo; a razão entre -p parallelism=N e 1 é o ganho do
+    // fork-join. Os nós de threads diferentes podem repetir trabalho, então em catálogos que a busca prova
+    // dentro do prazo o tempo de suggestPlan completa a comparação
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public ProductionPlanSuggestionResponse searchNodes(SearchNodes counter) {
+        ProductionPlanSuggestionResponse response = uncachedService.suggestOptimalPlan(request);
+        counter.nodes += response.nodesExplored();
+        return response;
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class SearchNodes {
+
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            nodes = 0;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.project.inventory.controller;
 
+import com.project.inventory.dto.production.ProductionBatchRequest;
+import com.project.inventory.dto.production.ProductionBatchResponse;
 import com.project.inventory.dto.production.ProductionRequest;
 import com.project.inventory.service.ProductionService;
 import jakarta.validation.Valid;
@@ -20,4 +22,9 @@ public class ProductionController {
         productionService.produce(request);
         return ResponseEntity.status(HttpStatus.CREATED).build();
     }
+
+    @PostMapping("/batch")
+    public ResponseEntity<ProductionBatchResponse> produceBatch(@Valid @RequestBody ProductionBatchRequest request) {
+        return ResponseEntity.ok(productionService.produceBatch(request));
+    }
 }
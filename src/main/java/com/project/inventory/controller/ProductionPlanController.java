@@ -1,10 +1,25 @@
 package com.project.inventory.controller;
 
+import com.project.inventory.dto.planproduction.PlanCacheStatsResponse;
+import com.project.inventory.dto.planproduction.PlannerMetricsResponse;
+import com.project.inventory.dto.planproduction.ProductionPlanJobResponse;
+import com.project.inventory.dto.planproduction.ProductionPlanScenarioResponse;
+import com.project.inventory.dto.planproduction.ProductionPlanScenariosRequest;
+import com.project.inventory.dto.planproduction.ProductionPlanSuggestionRequest;
 import com.project.inventory.dto.planproduction.ProductionPlanSuggestionResponse;
+import com.project.inventory.service.optimization.ProductionPlanJobService;
+import com.project.inventory.service.optimization.ProductionPlanScenarioService;
 import com.project.inventory.service.optimization.ProductionPlanService;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/plans-production")
@@ -12,9 +27,52 @@ import org.springframework.web.bind.annotation.*;
 public class ProductionPlanController {
 
     private final ProductionPlanService productionPlanService;
+    private final ProductionPlanJobService productionPlanJobService;
+    private final ProductionPlanScenarioService productionPlanScenarioService;
 
     @PostMapping("/suggest")
-    public ResponseEntity<ProductionPlanSuggestionResponse> suggestOptimalPlan() {
-        return ResponseEntity.ok(productionPlanService.suggestOptimalPlan());
+    public DeferredResult<ProductionPlanSuggestionResponse> suggestOptimalPlan(
+            @Valid @RequestBody(required = false) ProductionPlanSuggestionRequest request
+    ) {
+        return productionPlanService.suggestOptimalPlanAsync(request);
+    }
+
+    @PostMapping("/scenarios")
+    public DeferredResult<List<ProductionPlanScenarioResponse>> evaluateScenarios(
+            @Valid @RequestBody ProductionPlanScenariosRequest request
+    ) {
+        return productionPlanScenarioService.evaluateAsync(request);
+    }
+
+    @GetMapping("/cache")
+    public ResponseEntity<PlanCacheStatsResponse> cacheStats() {
+        return ResponseEntity.ok(productionPlanService.cacheStats());
+    }
+
+    @GetMapping("/metrics")
+    public ResponseEntity<PlannerMetricsResponse> metrics() {
+        return ResponseEntity.ok(productionPlanService.metrics());
+    }
+
+    @PostMapping("/jobs")
+    public ResponseEntity<ProductionPlanJobResponse> submitJob(
+            @Valid @RequestBody(required = false) ProductionPlanSuggestionRequest request
+    ) {
+        return ResponseEntity.accepted().body(productionPlanJobService.submit(request));
+    }
+
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<ProductionPlanJobResponse> findJob(@PathVariable UUID id) {
+        return ResponseEntity.ok(productionPlanJobService.find(id));
+    }
+
+    @GetMapping(value = "/jobs/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamJob(@PathVariable UUID id) {
+        return productionPlanJobService.subscribe(id);
+    }
+
+    @DeleteMapping("/jobs/{id}")
+    public ResponseEntity<ProductionPlanJobResponse> cancelJob(@PathVariable UUID id) {
+        return ResponseEntity.ok(productionPlanJobService.cancel(id));
     }
 }
@@ -1,5 +1,7 @@
 package com.project.inventory.controller;
 
+import com.project.inventory.dto.rawmaterial.RawMaterialConflictsResponse;
+import com.project.inventory.dto.rawmaterial.StockAdjustmentRequest;
 import com.project.inventory.dto.rawmaterial.UpdateRawMaterialRequest;
 import com.project.inventory.dto.rawmaterial.CreateRawMaterialRequest;
 import com.project.inventory.dto.rawmaterial.RawMaterialResponse;
@@ -24,6 +26,11 @@ public class RawMaterialController {
         return ResponseEntity.ok(rawMaterialService.findAll());
     }
 
+    @GetMapping("/conflicts")
+    public ResponseEntity<RawMaterialConflictsResponse> conflicts() {
+        return ResponseEntity.ok(rawMaterialService.conflicts());
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<RawMaterialResponse> findById(@PathVariable Long id) {
         return ResponseEntity.ok(rawMaterialService.findById(id));
@@ -43,6 +50,14 @@ public class RawMaterialController {
         return ResponseEntity.ok(rawMaterialService.update(id, request));
     }
 
+    @PostMapping("/{id}/stock-adjustments")
+    public ResponseEntity<RawMaterialResponse> adjustStock(
+            @PathVariable Long id,
+            @Valid @RequestBody StockAdjustmentRequest request
+    ) {
+        return ResponseEntity.ok(rawMaterialService.adjustStock(id, request));
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> delete(@PathVariable Long id) {
         rawMaterialService.delete(id);
@@ -0,0 +1,39 @@
+package com.project.inventory.controller;
+
+import com.project.inventory.dto.reservation.CreateStockReservationRequest;
+import com.project.inventory.dto.reservation.StockReservationResponse;
+import com.project.inventory.service.reservation.StockReservationService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/reservations")
+@RequiredArgsConstructor
+public class StockReservationController {
+
+    private final StockReservationService stockReservationService;
+
+    @PostMapping
+    public ResponseEntity<StockReservationResponse> create(@Valid @RequestBody CreateStockReservationRequest request) {
+        StockReservationResponse response = stockReservationService.create(request);
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<StockReservationResponse> findById(@PathVariable Long id) {
+        return ResponseEntity.ok(stockReservationService.findById(id));
+    }
+
+    @PostMapping("/{id}/commit")
+    public ResponseEntity<StockReservationResponse> commit(@PathVariable Long id) {
+        return ResponseEntity.ok(stockReservationService.commit(id));
+    }
+
+    @PostMapping("/{id}/release")
+    public ResponseEntity<StockReservationResponse> release(@PathVariable Long id) {
+        return ResponseEntity.ok(stockReservationService.release(id));
+    }
+}
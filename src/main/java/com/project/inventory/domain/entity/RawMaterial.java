@@ -3,6 +3,7 @@ package com.project.inventory.domain.entity;
 import com.project.inventory.domain.enumtype.UnitOfMeasurement;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.math.BigDecimal;
 
@@ -27,7 +28,26 @@ public class RawMaterial {
     @Column(name = "stock_quantity", nullable = false, precision = 19, scale = 4)
     private BigDecimal stockQuantity;
 
+    // Parte do estoque presa em reservas ativas; mantida junto com as reservas, para a disponibilidade nunca
+    // precisar somar a tabela de reservas
+    @ColumnDefault("0")
+    @Column(name = "held_quantity", nullable = false, precision = 19, scale = 4)
+    @Builder.Default
+    private BigDecimal heldQuantity = BigDecimal.ZERO;
+
     @Enumerated(EnumType.STRING)
     @Column(name = "unit_of_measurement", nullable = false, length = 20)
     private UnitOfMeasurement unitOfMeasurement;
+
+    // Trava otimista: o default preenche as linhas que já existiam quando a coluna foi criada
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    // Estoque que ainda pode ser consumido: o que está em reservas ativas fica de fora
+    public BigDecimal availableQuantity() {
+        BigDecimal stock = stockQuantity == null ? BigDecimal.ZERO : stockQuantity;
+        return heldQuantity == null ? stock : stock.subtract(heldQuantity);
+    }
 }
@@ -0,0 +1,22 @@
+package com.project.inventory.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+// Última movimentação do diário local do livro de estoque que já está no banco, por instância. Gravada na mesma
+// transação que aplica os deltas, para que a recuperação depois de uma queda nunca aplique um delta duas vezes
+@Entity
+@Table(name = "stock_ledger_checkpoints")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockLedgerCheckpoint {
+    @Id
+    @Column(name = "node_id", length = 100)
+    private String nodeId;
+
+    @Column(name = "last_sequence", nullable = false)
+    private Long lastSequence;
+}
@@ -0,0 +1,54 @@
+package com.project.inventory.domain.entity;
+
+import com.project.inventory.domain.enumtype.StockReservationStatus;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+// Reserva de matérias-primas para uma produção planejada. Enquanto ACTIVE, as quantidades dos itens estão somadas
+// em raw_materials.held_quantity; confirmar, liberar ou expirar tira a reserva de ACTIVE e desfaz essa soma
+@Entity
+@Table(
+        name = "stock_reservations",
+        indexes = {
+                @Index(name = "idx_stock_reservation_status", columnList = "status")
+        }
+)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockReservation {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "reference", length = 120)
+    private String reference;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false, length = 20)
+    private StockReservationStatus status;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    @Column(name = "closed_at")
+    private Instant closedAt;
+
+    @OneToMany(mappedBy = "reservation", cascade = CascadeType.ALL, orphanRemoval = true)
+    @Builder.Default
+    private List<StockReservationItem> items = new ArrayList<>();
+
+    public void adicionarItem(StockReservationItem item) {
+        item.setReservation(this);
+        this.items.add(item);
+    }
+}
@@ -0,0 +1,42 @@
+package com.project.inventory.domain.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+
+// Quantidade presa de uma matéria-prima. Sem chave estrangeira para raw_materials: as reservas encerradas ficam
+// como histórico e não impedem remover a matéria-prima; o código é guardado para o histórico continuar legível
+@Entity
+@Table(
+        name = "stock_reservation_items",
+        uniqueConstraints = {
+                @UniqueConstraint(
+                        name = "uk_stock_reservation_raw_material",
+                        columnNames = {"reservation_id", "raw_material_id"}
+                )
+        }
+)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StockReservationItem {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "reservation_id", nullable = false)
+    private StockReservation reservation;
+
+    @Column(name = "raw_material_id", nullable = false)
+    private Long rawMaterialId;
+
+    @Column(name = "raw_material_code", nullable = false, length = 50)
+    private String rawMaterialCode;
+
+    @Column(name = "quantity", nullable = false, precision = 19, scale = 4)
+    private BigDecimal quantity;
+}
@@ -0,0 +1,9 @@
+package com.project.inventory.domain.enumtype;
+
+public enum PlanJobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    CANCELLED,
+    FAILED
+}
@@ -0,0 +1,6 @@
+package com.project.inventory.domain.enumtype;
+
+public enum ProductionBatchMode {
+    ALL_OR_NOTHING,
+    PER_ITEM
+}
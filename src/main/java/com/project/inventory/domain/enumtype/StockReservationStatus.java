@@ -0,0 +1,8 @@
+package com.project.inventory.domain.enumtype;
+
+public enum StockReservationStatus {
+    ACTIVE,
+    COMMITTED,
+    RELEASED,
+    EXPIRED
+}
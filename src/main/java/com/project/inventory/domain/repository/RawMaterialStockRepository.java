@@ -0,0 +1,36 @@
+package com.project.inventory.domain.repository;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface RawMaterialStockRepository {
+
+    // Baixa condicional do estoque, sem carregar as entidades: cada matéria-prima só é debitada se ainda tiver a
+    // quantidade pedida fora das reservas ativas. Retorna os ids que não foram debitados (estoque insuficiente ou
+    // linha inexistente); quem chama deve desfazer a transação quando a lista não vier vazia
+    List<Long> deductStock(Map<Long, BigDecimal> quantities);
+
+    // Prende as quantidades numa reserva, com a mesma condição da baixa. Retorna os ids que não foram presos;
+    // quem chama deve desfazer a transação quando a lista não vier vazia
+    List<Long> holdStock(Map<Long, BigDecimal> quantities);
+
+    // Solta as quantidades de uma reserva liberada ou expirada
+    void releaseHeldStock(Map<Long, BigDecimal> quantities);
+
+    // Consome as quantidades de uma reserva confirmada: saem do estoque e do que está preso
+    void consumeHeldStock(Map<Long, BigDecimal> quantities);
+
+    // Soma incondicional de deltas já validados fora do banco (pelo livro de estoque em memória), num único batch.
+    // Retorna os ids sem linha (matérias-primas removidas nesse meio tempo)
+    List<Long> applyStockDeltas(Map<Long, BigDecimal> deltas);
+
+    // Estoque disponível (fora das reservas ativas) das matérias-primas pedidas, sem carregar as entidades;
+    // ids sem linha ficam de fora
+    Map<Long, BigDecimal> findAvailableQuantities(Collection<Long> ids);
+
+    // Estoque disponível de todas as matérias-primas, numa única consulta escalar: usado para atualizar os estoques
+    // do retrato do catálogo sem recarregar produtos e composições
+    Map<Long, BigDecimal> findAllAvailableQuantities();
+}
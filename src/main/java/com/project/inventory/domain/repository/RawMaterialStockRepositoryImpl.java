@@ -0,0 +1,141 @@
+package com.project.inventory.domain.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.BiFunction;
+
+// Implementação do fragmento RawMaterialStockRepository, combinada pelo Spring Data ao RawMaterialRepository
+class RawMaterialStockRepositoryImpl implements RawMaterialStockRepository {
+
+    private static final String DEDUCT_STOCK = """
+            UPDATE raw_materials
+               SET stock_quantity = stock_quantity - ?,
+                   version = version + 1
+             WHERE id = ? AND stock_quantity - held_quantity >= ?
+            """;
+
+    private static final String HOLD_STOCK = """
+            UPDATE raw_materials
+               SET held_quantity = held_quantity + ?,
+                   version = version + 1
+             WHERE id = ? AND stock_quantity - held_quantity >= ?
+            """;
+
+    private static final String RELEASE_HELD_STOCK = """
+            UPDATE raw_materials
+               SET held_quantity = held_quantity - ?,
+                   version = version + 1
+             WHERE id = ?
+            """;
+
+    private static final String CONSUME_HELD_STOCK = """
+            UPDATE raw_materials
+               SET stock_quantity = stock_quantity - ?,
+                   held_quantity = held_quantity - ?,
+                   version = version + 1
+             WHERE id = ?
+            """;
+
+    private static final String APPLY_STOCK_DELTA = """
+            UPDATE raw_materials
+               SET stock_quantity = stock_quantity + ?,
+                   version = version + 1
+             WHERE id = ?
+            """;
+
+    private static final String FIND_AVAILABLE_QUANTITIES = """
+            SELECT id, stock_quantity - held_quantity AS available_quantity
+              FROM raw_materials
+             WHERE id IN (:ids)
+            """;
+
+    private static final String FIND_ALL_AVAILABLE_QUANTITIES = """
+            SELECT id, COALESCE(stock_quantity, 0) - COALESCE(held_quantity, 0) AS available_quantity
+              FROM raw_materials
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    RawMaterialStockRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    // A versão avança junto com o estoque: quem leu a linha antes (uma edição da matéria-prima, por exemplo)
+    // falha na trava otimista em vez de gravar por cima o estoque já baixado
+    @Override
+    public List<Long> deductStock(Map<Long, BigDecimal> quantities) {
+        return batchById(DEDUCT_STOCK, quantities, (id, quantity) -> new Object[]{quantity, id, quantity});
+    }
+
+    @Override
+    public List<Long> holdStock(Map<Long, BigDecimal> quantities) {
+        return batchById(HOLD_STOCK, quantities, (id, quantity) -> new Object[]{quantity, id, quantity});
+    }
+
+    @Override
+    public void releaseHeldStock(Map<Long, BigDecimal> quantities) {
+        batchById(RELEASE_HELD_STOCK, quantities, (id, quantity) -> new Object[]{quantity, id});
+    }
+
+    @Override
+    public void consumeHeldStock(Map<Long, BigDecimal> quantities) {
+        batchById(CONSUME_HELD_STOCK, quantities, (id, quantity) -> new Object[]{quantity, quantity, id});
+    }
+
+    @Override
+    public List<Long> applyStockDeltas(Map<Long, BigDecimal> deltas) {
+        return batchById(APPLY_STOCK_DELTA, deltas, (id, delta) -> new Object[]{delta, id});
+    }
+
+    @Override
+    public Map<Long, BigDecimal> findAvailableQuantities(Collection<Long> ids) {
+        Map<Long, BigDecimal> quantities = new HashMap<>();
+        if (ids.isEmpty()) {
+            return quantities;
+        }
+
+        namedParameterJdbcTemplate.query(FIND_AVAILABLE_QUANTITIES, Map.of("ids", ids), row -> {
+            quantities.put(row.getLong("id"), row.getBigDecimal("available_quantity"));
+        });
+        return quantities;
+    }
+
+    @Override
+    public Map<Long, BigDecimal> findAllAvailableQuantities() {
+        Map<Long, BigDecimal> quantities = new HashMap<>();
+        jdbcTemplate.query(FIND_ALL_AVAILABLE_QUANTITIES, row -> {
+            quantities.put(row.getLong("id"), row.getBigDecimal("available_quantity"));
+        });
+        return quantities;
+    }
+
+    // Um único batch JDBC, com as linhas em ordem fixa por id: duas escritas que disputam as mesmas matérias-primas
+    // travam as linhas na mesma sequência e não entram em deadlock. Retorna os ids em que nenhuma linha mudou
+    private List<Long> batchById(String sql, Map<Long, BigDecimal> quantities, BiFunction<Long, BigDecimal, Object[]> row) {
+        List<Long> ids = new ArrayList<>(new TreeMap<>(quantities).keySet());
+        List<Object[]> parameters = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            parameters.add(row.apply(id, quantities.get(id)));
+        }
+
+        int[] updated = jdbcTemplate.batchUpdate(sql, parameters);
+
+        List<Long> unchanged = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            if (updated[i] == 0) {
+                unchanged.add(ids.get(i));
+            }
+        }
+        return unchanged;
+    }
+}
@@ -0,0 +1,7 @@
+package com.project.inventory.domain.repository;
+
+import com.project.inventory.domain.entity.StockLedgerCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface StockLedgerCheckpointRepository extends JpaRepository<StockLedgerCheckpoint, String> {
+}
@@ -0,0 +1,61 @@
+package com.project.inventory.domain.repository;
+
+import com.project.inventory.domain.entity.StockReservation;
+import com.project.inventory.domain.enumtype.StockReservationStatus;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+
+    @EntityGraph(attributePaths = "items")
+    @Query("select r from StockReservation r where r.id = :id")
+    Optional<StockReservation> findByIdWithItems(Long id);
+
+    // Prazos das reservas ativas, para montar a roda de expiração na subida
+    @Query("select r.id as id, r.expiresAt as expiresAt from StockReservation r where r.status = :status")
+    List<ReservationDeadline> findDeadlinesByStatus(StockReservationStatus status);
+
+    // Os três encerramentos só mudam uma reserva ainda ativa e retornam 0 quando outra operação chegou antes: o
+    // update é a única decisão, então confirmação, liberação e expiração concorrentes nunca desfazem a mesma
+    // reserva duas vezes. A confirmação exige o prazo em dia, mesmo que a varredura ainda não tenha passado
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            update StockReservation r
+               set r.status = com.project.inventory.domain.enumtype.StockReservationStatus.COMMITTED, r.closedAt = :now
+             where r.id = :id
+               and r.status = com.project.inventory.domain.enumtype.StockReservationStatus.ACTIVE
+               and r.expiresAt > :now
+            """)
+    int commitActive(Long id, Instant now);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            update StockReservation r
+               set r.status = com.project.inventory.domain.enumtype.StockReservationStatus.RELEASED, r.closedAt = :now
+             where r.id = :id
+               and r.status = com.project.inventory.domain.enumtype.StockReservationStatus.ACTIVE
+            """)
+    int releaseActive(Long id, Instant now);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("""
+            update StockReservation r
+               set r.status = com.project.inventory.domain.enumtype.StockReservationStatus.EXPIRED, r.closedAt = :now
+             where r.id = :id
+               and r.status = com.project.inventory.domain.enumtype.StockReservationStatus.ACTIVE
+               and r.expiresAt <= :now
+            """)
+    int expireActive(Long id, Instant now);
+
+    interface ReservationDeadline {
+        Long getId();
+
+        Instant getExpiresAt();
+    }
+}
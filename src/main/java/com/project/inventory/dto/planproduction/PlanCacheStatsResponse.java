@@ -0,0 +1,10 @@
+package com.project.inventory.dto.planproduction;
+
+public record PlanCacheStatsResponse(
+        Long catalogVersion,
+        Long hits,
+        Long misses,
+        Long transpositionHits,
+        Long transpositionMisses
+) {
+}
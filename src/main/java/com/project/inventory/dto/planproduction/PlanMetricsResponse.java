@@ -0,0 +1,16 @@
+package com.project.inventory.dto.planproduction;
+
+public record PlanMetricsResponse(
+        Boolean cacheHit,
+        Boolean coalesced,
+        Long loadMs,
+        Long modelBuildMs,
+        Long searchMs,
+        Long responseMs,
+        Long boundEvaluations,
+        Long boundPrunes,
+        Long transpositionPrunes,
+        Long incumbentImprovements,
+        Boolean budgetExhausted
+) {
+}
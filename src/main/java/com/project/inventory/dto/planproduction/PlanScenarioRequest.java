@@ -0,0 +1,20 @@
+package com.project.inventory.dto.planproduction;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record PlanScenarioRequest(
+
+        @NotBlank(message = "O name do cenário é obrigatorio.")
+        @Size(max = 120, message = "O name do cenário deve ter no maximo 120 caracteres.")
+        String name,
+
+        // Matérias-primas fora da lista mantêm o estoque atual; lista vazia é o cenário base
+        @NotNull(message = "A lista de estoques do cenário é obrigatoria.")
+        List<@Valid StockOverrideRequest> stockOverrides
+) {
+}
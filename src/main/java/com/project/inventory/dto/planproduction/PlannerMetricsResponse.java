@@ -0,0 +1,17 @@
+package com.project.inventory.dto.planproduction;
+
+import java.util.List;
+
+public record PlannerMetricsResponse(
+        List<PlannerPhaseMetricsResponse> phases,
+        Long searches,
+        Long boundEvaluations,
+        Long boundPrunes,
+        Long transpositionPrunes,
+        Long incumbentImprovements,
+        Long budgetExhausted,
+        Long coalescedRequests,
+        Long abandonedSearches,
+        Long reclaimedSearchMs
+) {
+}
@@ -0,0 +1,9 @@
+package com.project.inventory.dto.planproduction;
+
+public record PlannerPhaseMetricsResponse(
+        String phase,
+        Long count,
+        Long totalMs,
+        Long maxMs
+) {
+}
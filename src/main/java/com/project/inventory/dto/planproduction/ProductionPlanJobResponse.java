@@ -0,0 +1,13 @@
+package com.project.inventory.dto.planproduction;
+
+import com.project.inventory.domain.enumtype.PlanJobStatus;
+
+import java.util.UUID;
+
+public record ProductionPlanJobResponse(
+        UUID jobId,
+        PlanJobStatus status,
+        ProductionPlanSuggestionResponse bestPlan,
+        String errorMessage
+) {
+}
@@ -0,0 +1,7 @@
+package com.project.inventory.dto.planproduction;
+
+public record ProductionPlanScenarioResponse(
+        String name,
+        ProductionPlanSuggestionResponse plan
+) {
+}
@@ -0,0 +1,19 @@
+package com.project.inventory.dto.planproduction;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record ProductionPlanScenariosRequest(
+
+        @NotEmpty(message = "Informe ao menos um cenário.")
+        @Size(max = 100, message = "São permitidos no maximo 100 cenários por requisição.")
+        List<@Valid PlanScenarioRequest> scenarios,
+
+        @Min(value = 1, message = "O tempo limite do planejamento deve ser no mínimo 1 ms")
+        Long timeBudgetMs
+) {
+}
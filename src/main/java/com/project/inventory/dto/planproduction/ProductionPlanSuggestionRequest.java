@@ -0,0 +1,10 @@
+package com.project.inventory.dto.planproduction;
+
+import jakarta.validation.constraints.Min;
+
+public record ProductionPlanSuggestionRequest(
+        @Min(value = 1, message = "O tempo limite do planejamento deve ser no mínimo 1 ms")
+        Long timeBudgetMs,
+
+        Boolean includeMetrics
+) {}
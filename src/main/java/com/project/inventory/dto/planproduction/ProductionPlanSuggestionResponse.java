@@ -8,6 +8,11 @@ public record ProductionPlanSuggestionResponse(
         Integer totalProducedQuantity,
         List<ProductionPlanItemResponse> suggestedItems,
         List<ConsumoRawMaterialResponse> rawMaterialConsumptions,
-        List<SaldoRawMaterialResponse> rawMaterialBalances
+        List<SaldoRawMaterialResponse> rawMaterialBalances,
+        Boolean provenOptimal,
+        BigDecimal optimalityGap,
+        Long nodesExplored,
+        Long elapsedMs,
+        PlanMetricsResponse metrics
 ) {
 }
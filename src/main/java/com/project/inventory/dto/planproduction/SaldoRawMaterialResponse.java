@@ -11,6 +11,7 @@ public record SaldoRawMaterialResponse(
         UnitOfMeasurement unitOfMeasurement,
         BigDecimal initialQuantity,
         BigDecimal consumedQuantity,
-        BigDecimal balanceQuantity
+        BigDecimal balanceQuantity,
+        BigDecimal marginalValue
 ) {
 }
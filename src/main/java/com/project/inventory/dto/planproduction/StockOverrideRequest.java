@@ -0,0 +1,16 @@
+package com.project.inventory.dto.planproduction;
+
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.NotNull;
+
+import java.math.BigDecimal;
+
+public record StockOverrideRequest(
+
+        @NotNull(message = "O id da materia-prima é obrigatorio.")
+        Long rawMaterialId,
+        @NotNull(message = "A quantity em estoque é obrigatoria.")
+        @DecimalMin(value = "0", inclusive = true, message = "A quantity em estoque não pode ser negativa.")
+        BigDecimal stockQuantity
+) {
+}
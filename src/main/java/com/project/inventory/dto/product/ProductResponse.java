@@ -8,6 +8,7 @@ public record ProductResponse(
         String code,
         String name,
         BigDecimal price,
-        List<ProductCompositionItemResponse> compositionItems
+        List<ProductCompositionItemResponse> compositionItems,
+        Long version
 ) {
 }
@@ -23,6 +23,9 @@ public record UpdateProductRequest(
         BigDecimal price,
 
         @NotEmpty(message = "A composition do product é obrigatoria e deve possuir ao menos um item.")
-        List<@Valid ProductCompositionItemRequest> compositionItems
+        List<@Valid ProductCompositionItemRequest> compositionItems,
+
+        // Opcional: a versão lida pelo cliente. Se o produto mudou desde então, a edição é recusada
+        Long version
 ) {
 }
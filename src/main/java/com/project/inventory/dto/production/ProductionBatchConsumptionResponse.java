@@ -0,0 +1,11 @@
+package com.project.inventory.dto.production;
+
+import java.math.BigDecimal;
+
+public record ProductionBatchConsumptionResponse(
+        Long rawMaterialId,
+        String code,
+        BigDecimal consumedQuantity,
+        BigDecimal remainingQuantity
+) {
+}
@@ -0,0 +1,10 @@
+package com.project.inventory.dto.production;
+
+public record ProductionBatchItemResponse(
+        Integer index,
+        Long productId,
+        Integer quantity,
+        Boolean produced,
+        String errorMessage
+) {
+}
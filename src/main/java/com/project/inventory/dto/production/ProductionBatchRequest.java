@@ -0,0 +1,19 @@
+package com.project.inventory.dto.production;
+
+import com.project.inventory.domain.enumtype.ProductionBatchMode;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record ProductionBatchRequest(
+
+        @NotEmpty(message = "Informe ao menos um item de produção.")
+        @Size(max = 5000, message = "São permitidos no maximo 5000 itens por lote.")
+        List<@Valid ProductionRequest> items,
+
+        // Padrão: ALL_OR_NOTHING
+        ProductionBatchMode mode
+) {
+}
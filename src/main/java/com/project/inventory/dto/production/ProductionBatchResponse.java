@@ -0,0 +1,14 @@
+package com.project.inventory.dto.production;
+
+import com.project.inventory.domain.enumtype.ProductionBatchMode;
+
+import java.util.List;
+
+public record ProductionBatchResponse(
+        ProductionBatchMode mode,
+        Integer producedItems,
+        Integer rejectedItems,
+        List<ProductionBatchItemResponse> items,
+        List<ProductionBatchConsumptionResponse> rawMaterialConsumptions
+) {
+}
@@ -0,0 +1,8 @@
+package com.project.inventory.dto.rawmaterial;
+
+public record RawMaterialConflictResponse(
+        Long rawMaterialId,
+        String code,
+        Long conflicts
+) {
+}
@@ -0,0 +1,13 @@
+package com.project.inventory.dto.rawmaterial;
+
+import java.util.List;
+import java.util.Map;
+
+public record RawMaterialConflictsResponse(
+        Long conflicts,
+        Long retries,
+        Long exhaustedRetries,
+        Map<String, Long> conflictsByOperation,
+        List<RawMaterialConflictResponse> rawMaterials
+) {
+}
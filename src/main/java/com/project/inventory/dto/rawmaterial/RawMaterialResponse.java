@@ -9,6 +9,9 @@ public record RawMaterialResponse(
         String code,
         String name,
         BigDecimal stockQuantity,
-        UnitOfMeasurement unitOfMeasurement
+        // Parte do estoque presa em reservas ativas
+        BigDecimal heldQuantity,
+        UnitOfMeasurement unitOfMeasurement,
+        Long version
 ) {
 }
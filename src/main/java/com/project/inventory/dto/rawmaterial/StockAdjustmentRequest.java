@@ -0,0 +1,13 @@
+package com.project.inventory.dto.rawmaterial;
+
+import jakarta.validation.constraints.NotNull;
+
+import java.math.BigDecimal;
+
+public record StockAdjustmentRequest(
+
+        // Positivo para entrada, negativo para saída; é somado ao estoque atual, não o substitui
+        @NotNull(message = "A quantityDelta é obrigatoria.")
+        BigDecimal quantityDelta
+) {
+}
@@ -21,6 +21,9 @@ public record UpdateRawMaterialRequest(
         BigDecimal stockQuantity,
 
         @NotNull(message = "A unit de measurement é obrigatoria.")
-        UnitOfMeasurement unitOfMeasurement
+        UnitOfMeasurement unitOfMeasurement,
+
+        // Opcional: a versão lida pelo cliente. Se a matéria-prima mudou desde então, a edição é recusada
+        Long version
 ) {
 }
@@ -0,0 +1,25 @@
+package com.project.inventory.dto.reservation;
+
+import com.project.inventory.dto.production.ProductionRequest;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record CreateStockReservationRequest(
+
+        // Identificação livre do plano ou da ordem de produção
+        @Size(max = 120, message = "A referência deve ter no máximo 120 caracteres.")
+        String reference,
+
+        @NotEmpty(message = "Informe ao menos um item a reservar.")
+        @Size(max = 5000, message = "São permitidos no maximo 5000 itens por reserva.")
+        List<@Valid ProductionRequest> items,
+
+        // Padrão: inventory.reservations.default-ttl-seconds
+        @Positive(message = "A validade da reserva deve ser maior que zero.")
+        Long ttlSeconds
+) {
+}
@@ -0,0 +1,10 @@
+package com.project.inventory.dto.reservation;
+
+import java.math.BigDecimal;
+
+public record StockReservationItemResponse(
+        Long rawMaterialId,
+        String code,
+        BigDecimal quantity
+) {
+}
@@ -0,0 +1,17 @@
+package com.project.inventory.dto.reservation;
+
+import com.project.inventory.domain.enumtype.StockReservationStatus;
+
+import java.time.Instant;
+import java.util.List;
+
+public record StockReservationResponse(
+        Long id,
+        String reference,
+        StockReservationStatus status,
+        Instant createdAt,
+        Instant expiresAt,
+        Instant closedAt,
+        List<StockReservationItemResponse> items
+) {
+}
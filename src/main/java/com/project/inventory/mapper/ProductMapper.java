@@ -22,7 +22,8 @@ public class ProductMapper {
                 product.getCode(),
                 product.getName(),
                 product.getPrice(),
-                itens
+                itens,
+                product.getVersion()
         );
     }
 
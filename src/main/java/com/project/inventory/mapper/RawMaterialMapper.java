@@ -24,7 +24,9 @@ public class RawMaterialMapper {
                 rawMaterial.getCode(),
                 rawMaterial.getName(),
                 rawMaterial.getStockQuantity(),
-                rawMaterial.getUnitOfMeasurement()
+                rawMaterial.getHeldQuantity(),
+                rawMaterial.getUnitOfMeasurement(),
+                rawMaterial.getVersion()
         );
     }
 
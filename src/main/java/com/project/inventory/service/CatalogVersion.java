@@ -0,0 +1,55 @@
+package com.project.inventory.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Versão do catálogo (produtos, composições e estoque) nesta instância. Toda escrita avança a versão só depois
+// do commit: quem leu a versão antes de carregar os dados nunca associa dados novos a uma versão já superada.
+// A versão da estrutura (produtos, composições e cadastro das matérias-primas) é separada: escritas que só mexem
+// no estoque (produção, ajuste, reservas, descarga do livro) avançam apenas a versão geral, e o retrato do
+// catálogo reaproveita a estrutura, relendo só os estoques
+@Component
+public class CatalogVersion {
+
+    private final AtomicLong version = new AtomicLong();
+    private final AtomicLong structureVersion = new AtomicLong();
+
+    public long current() {
+        return version.get();
+    }
+
+    public long structure() {
+        return structureVersion.get();
+    }
+
+    // Só o estoque mudou
+    public void advance() {
+        afterCommit(version::incrementAndGet);
+    }
+
+    // Produtos, composições ou o cadastro das matérias-primas mudaram; avança também a versão geral. A estrutura
+    // avança primeiro: quem vê a versão geral nova já vê a estrutura nova
+    public void advanceStructure() {
+        afterCommit(() -> {
+            structureVersion.incrementAndGet();
+            version.incrementAndGet();
+        });
+    }
+
+    private static void afterCommit(Runnable increment) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            increment.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                increment.run();
+            }
+        });
+    }
+}
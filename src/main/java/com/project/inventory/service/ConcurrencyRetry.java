@@ -0,0 +1,188 @@
+package com.project.inventory.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+// Runs a write use case in its own transaction and repeats it when it loses a race: a stale @Version (another
+// transaction changed the row after it was read) or a lock conflict reported by the database. Each attempt is a
+// new transaction that reads the rows again, after a random pause that grows with the attempt, so the writers
+// that collided do not collide again at the same instant. Conflicts are Micrometer counters tagged with the use
+// case and the entity row (entity and id, "none" for lock conflicts), and retries are tagged with the use case, so
+// the most contended rows show up under /actuator/metrics; the views below only read those counters
+@Component
+public class ConcurrencyRetry {
+
+    static final String CONFLICTS = "inventory.concurrency.conflicts";
+    static final String RETRIES = "inventory.concurrency.retries";
+    static final String EXHAUSTED = "inventory.concurrency.retries.exhausted";
+    private static final String NONE = "none";
+
+    private final TransactionOperations transaction;
+    private final int maxAttempts;
+    private final long backoffMs;
+    private final long maxBackoffMs;
+    private final MeterRegistry meterRegistry;
+    private final Map<Conflict, Counter> conflicts = new ConcurrentHashMap<>();
+    private final Map<String, Counter> retries = new ConcurrentHashMap<>();
+    private final Map<String, Counter> exhausted = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ConcurrencyRetry(
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry,
+            @Value("${inventory.concurrency.max-attempts:4}") int maxAttempts,
+            @Value("${inventory.concurrency.backoff-ms:10}") long backoffMs,
+            @Value("${inventory.concurrency.max-backoff-ms:200}") long maxBackoffMs
+    ) {
+        this(new TransactionTemplate(transactionManager), meterRegistry, maxAttempts, backoffMs, maxBackoffMs);
+    }
+
+    public ConcurrencyRetry(
+            TransactionOperations transaction,
+            MeterRegistry meterRegistry,
+            int maxAttempts,
+            long backoffMs,
+            long maxBackoffMs
+    ) {
+        this.transaction = transaction;
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMs = backoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+    }
+
+    // For use cases that are safe to repeat from scratch. Called inside an existing transaction the attempt joins
+    // it, and a conflict marks it for rollback, so there is nothing to repeat: it runs once
+    public <T> T execute(String operation, Supplier<T> action) {
+        int attempts = TransactionSynchronizationManager.isActualTransactionActive() ? 1 : maxAttempts;
+        return execute(operation, attempts, action);
+    }
+
+    // For use cases that write values chosen by the client: repeating them would overwrite the concurrent change
+    // that caused the conflict, so the conflict is only counted and goes back to the client
+    public <T> T executeOnce(String operation, Supplier<T> action) {
+        return execute(operation, 1, action);
+    }
+
+    public void run(String operation, Runnable action) {
+        execute(operation, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private <T> T execute(String operation, int attempts, Supplier<T> action) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transaction.execute(status -> action.get());
+            } catch (ConcurrencyFailureException e) {
+                recordConflict(operation, e);
+                if (attempt >= attempts) {
+                    if (attempts > 1) {
+                        counter(exhausted, EXHAUSTED, operation).increment();
+                    }
+                    throw e;
+                }
+
+                counter(retries, RETRIES, operation).increment();
+                pause(attempt, e);
+            }
+        }
+    }
+
+    // Full jitter: a random pause between zero and a ceiling that doubles on each attempt, up to the maximum
+    private void pause(int attempt, ConcurrencyFailureException conflict) {
+        long ceiling = Math.min(maxBackoffMs, backoffMs << Math.min(attempt - 1, 20));
+        if (ceiling <= 0) {
+            return;
+        }
+
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw conflict;
+        }
+    }
+
+    private void recordConflict(String operation, ConcurrencyFailureException e) {
+        // The stale row is only known for version conflicts; lock conflicts count for the use case alone
+        Conflict conflict = e instanceof ObjectOptimisticLockingFailureException stale && stale.getIdentifier() != null
+                ? new Conflict(operation, stale.getPersistentClassName(), stale.getIdentifier())
+                : new Conflict(operation, null, null);
+
+        conflicts.computeIfAbsent(conflict, key -> Counter.builder(CONFLICTS)
+                .description("Write conflicts (stale version or lock conflict) per use case and entity row")
+                .tag("operation", key.operation())
+                .tag("entity", key.entity() == null ? NONE : simpleName(key.entity()))
+                .tag("id", key.id() == null ? NONE : String.valueOf(key.id()))
+                .register(meterRegistry)).increment();
+    }
+
+    private Counter counter(Map<String, Counter> counters, String name, String operation) {
+        return counters.computeIfAbsent(operation, key -> Counter.builder(name)
+                .tag("operation", key)
+                .register(meterRegistry));
+    }
+
+    public long conflicts() {
+        return sum(conflicts.values());
+    }
+
+    public long retries() {
+        return sum(retries.values());
+    }
+
+    public long exhaustedRetries() {
+        return sum(exhausted.values());
+    }
+
+    public Map<String, Long> conflictsByOperation() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        conflicts.forEach((conflict, counter) -> counts.merge(conflict.operation(), (long) counter.count(), Long::sum));
+        return counts;
+    }
+
+    // Conflicts per row id of the given entity, over all use cases
+    public Map<Object, Long> conflictsByRow(Class<?> entity) {
+        Map<Object, Long> counts = new LinkedHashMap<>();
+        conflicts.forEach((conflict, counter) -> {
+            if (entity.getName().equals(conflict.entity())) {
+                counts.merge(conflict.id(), (long) counter.count(), Long::sum);
+            }
+        });
+        return counts;
+    }
+
+    private static long sum(Collection<Counter> counters) {
+        long total = 0;
+        for (Counter counter : counters) {
+            total += (long) counter.count();
+        }
+        return total;
+    }
+
+    private static String simpleName(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+
+    // entity and id are null for lock conflicts, where the row is not known
+    private record Conflict(String operation, String entity, Object id) {
+    }
+}
@@ -13,6 +13,7 @@ import com.project.inventory.exception.ResourceNotFoundException;
 import com.project.inventory.exception.BusinessRuleException;
 import com.project.inventory.mapper.ProductMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -24,9 +25,13 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class ProductService {
 
+    static final String UPDATE_OPERATION = "product-update";
+
     private final ProductRepository productRepository;
     private final RawMaterialRepository rawMaterialRepository;
     private final ProductMapper productMapper;
+    private final CatalogVersion catalogVersion;
+    private final ConcurrencyRetry concurrencyRetry;
 
     @Transactional(readOnly = true)
     public List<ProductResponse> findAll() {
@@ -56,37 +61,43 @@ public class ProductService {
         addCompositionItems(product, request.compositionItems());
 
         Product saved = productRepository.save(product);
+        catalogVersion.advanceStructure();
         Product completeProduct = findEntityWithCompositionById(saved.getId());
 
         return productMapper.toResponse(completeProduct);
     }
 
-    @Transactional
+    // Absolute values chosen by the client: a conflict is counted and goes back to the client, never repeated
     public ProductResponse update(Long id, UpdateProductRequest request) {
-        Product product = findEntityWithCompositionById(id);
+        return concurrencyRetry.executeOnce(UPDATE_OPERATION, () -> {
+            Product product = findEntityWithCompositionById(id);
 
-        validateDuplicateCodeOnUpdate(request.code(), id);
-        validateCompositionItems(request.compositionItems());
+            validateVersion(product, request.version());
+            validateDuplicateCodeOnUpdate(request.code(), id);
+            validateCompositionItems(request.compositionItems());
 
-        product.setCode(request.code());
-        product.setName(request.name());
-        product.setPrice(request.price());
+            product.setCode(request.code());
+            product.setName(request.name());
+            product.setPrice(request.price());
 
-        product.limparItensComposition();
-        productRepository.saveAndFlush(product); // garante remoção no banco antes de re-adicionar
+            product.limparItensComposition();
+            productRepository.saveAndFlush(product); // garante remoção no banco antes de re-adicionar
 
-        addCompositionItems(product, request.compositionItems());
+            addCompositionItems(product, request.compositionItems());
 
-        Product updated = productRepository.save(product);
-        Product completeProduct = findEntityWithCompositionById(updated.getId());
+            Product updated = productRepository.save(product);
+            catalogVersion.advanceStructure();
+            Product completeProduct = findEntityWithCompositionById(updated.getId());
 
-        return productMapper.toResponse(completeProduct);
+            return productMapper.toResponse(completeProduct);
+        });
     }
 
     @Transactional
     public void delete(Long id) {
         Product product = findEntityById(id);
         productRepository.delete(product);
+        catalogVersion.advanceStructure();
     }
 
     private Product findEntityById(Long id) {
@@ -99,6 +110,12 @@ public class ProductService {
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found for id: " + id));
     }
 
+    private void validateVersion(Product product, Long version) {
+        if (version != null && !version.equals(product.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(Product.class, product.getId());
+        }
+    }
+
     private void validateDuplicateCodeOnCreation(String code) {
         if (productRepository.existsByCode(code)) {
             throw new BusinessRuleException("Product with the given code already exists.");
@@ -1,66 +1,349 @@
 package com.project.inventory.service;
 
-import com.project.inventory.domain.entity.Product;
-import com.project.inventory.domain.entity.ProductCompositionItem;
 import com.project.inventory.domain.entity.RawMaterial;
-import com.project.inventory.domain.repository.ProductRepository;
+import com.project.inventory.domain.enumtype.ProductionBatchMode;
 import com.project.inventory.domain.repository.RawMaterialRepository;
+import com.project.inventory.dto.production.ProductionBatchConsumptionResponse;
+import com.project.inventory.dto.production.ProductionBatchItemResponse;
+import com.project.inventory.dto.production.ProductionBatchRequest;
+import com.project.inventory.dto.production.ProductionBatchResponse;
 import com.project.inventory.dto.production.ProductionRequest;
 import com.project.inventory.exception.BusinessRuleException;
 import com.project.inventory.exception.ResourceNotFoundException;
+import com.project.inventory.service.catalog.ProductionModel;
+import com.project.inventory.service.catalog.ProductionModelRegistry;
+import com.project.inventory.service.ledger.StockLedger;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntFunction;
 
 @Service
 @RequiredArgsConstructor
 public class ProductionService {
 
-    private final ProductRepository productRepository;
+    static final String PRODUCE_OPERATION = "production";
+    static final String PRODUCE_BATCH_OPERATION = "production-batch";
+
+    private final ProductionModelRegistry productionModelRegistry;
     private final RawMaterialRepository rawMaterialRepository;
+    private final CatalogVersion catalogVersion;
+    private final ConcurrencyRetry concurrencyRetry;
+    private final StockLedger stockLedger;
 
-    @Transactional
+    // Each attempt runs in its own transaction and reads the stock rows again, so a production that loses a
+    // lock race is repeated instead of failing. With the in-memory stock ledger there is no transaction: the
+    // ledger checks and deducts the stock and the database receives the summed deltas later.
+    // The catalog structure is resolved before any write transaction opens: a rebuild takes a connection of its
+    // own, and waiting for it while an attempt holds one could exhaust the pool under concurrent producers
     public void produce(ProductionRequest request) {
+        validateQuantity(request);
+        ProductionModel catalog = productionModelRegistry.structure();
+        if (stockLedger.isEnabled()) {
+            produceInLedger(catalog, request);
+            return;
+        }
+        concurrencyRetry.run(PRODUCE_OPERATION, () -> produceOnce(catalog, request));
+    }
+
+    // Many lots in one transaction: the demand of the whole batch is summed per raw material, each raw material is
+    // loaded and updated once, and the updates go to the database as a single JDBC batch.
+    // ALL_OR_NOTHING rejects the batch on the first invalid item; PER_ITEM accepts items in the order received while
+    // the summed demand still fits the stock and reports why each of the others was refused
+    public ProductionBatchResponse produceBatch(ProductionBatchRequest request) {
+        ProductionModel catalog = productionModelRegistry.structure();
+        if (stockLedger.isEnabled()) {
+            return produceBatchInLedger(catalog, request);
+        }
+        return concurrencyRetry.execute(PRODUCE_BATCH_OPERATION, () -> produceBatchOnce(catalog, request));
+    }
+
+    private void produceOnce(ProductionModel catalog, ProductionRequest request) {
+        int product = productToProduce(catalog, request);
+
+        BigDecimal multiplier = BigDecimal.valueOf(request.quantity());
+
+        // Pass 1: Sum the demand of the composition. The snapshot stock is not checked: it may be behind the rows
+        // (a write from another instance, for example), and the guarded decrement below is the authority
+        Map<Long, BigDecimal> requiredConsumo = new LinkedHashMap<>();
+        for (int item = catalog.compositionStart(product); item < catalog.compositionEnd(product); item++) {
+            BigDecimal required = catalog.itemRequired(item).multiply(multiplier);
+            requiredConsumo.merge(catalog.materialId(catalog.itemMaterial(item)), required, BigDecimal::add);
+        }
+
+        // Pass 2: Guarded decrement in SQL, one JDBC batch for the whole composition. A row without the stock is
+        // not touched, the shortage is read from the rows and the transaction is rolled back
+        deductStock(requiredConsumo);
+        catalogVersion.advance();
+    }
+
+    // The ledger balance is the only check: the catalog snapshot does not see the deltas that have not been
+    // flushed yet, so it may be below the balance after a stock adjustment
+    private void produceInLedger(ProductionModel catalog, ProductionRequest request) {
+        int product = productToProduce(catalog, request);
+
+        BigDecimal multiplier = BigDecimal.valueOf(request.quantity());
+        Map<Long, BigDecimal> consumption = new LinkedHashMap<>();
+        for (int item = catalog.compositionStart(product); item < catalog.compositionEnd(product); item++) {
+            BigDecimal required = catalog.itemRequired(item).multiply(multiplier);
+            consumption.merge(catalog.materialId(catalog.itemMaterial(item)), required.negate(), BigDecimal::add);
+        }
+
+        StockLedger.Movement movement = stockLedger.apply(consumption);
+        if (!movement.isApplied()) {
+            throw new BusinessRuleException(shortageMessage(catalog, consumption, movement));
+        }
+    }
+
+    private ProductionBatchResponse produceBatchOnce(ProductionModel catalog, ProductionBatchRequest request) {
+        ProductionBatchMode mode = request.mode() == null ? ProductionBatchMode.ALL_OR_NOTHING : request.mode();
+        List<ProductionRequest> items = request.items();
+        String[] errors = new String[items.size()];
+        int[] products = new int[items.size()];
+
+        // Pass 1: Reject unknown products, missing compositions and invalid quantities. Stock is not checked
+        // against the snapshot, which may be behind the rows: an item refused there could still fit the rows
+        for (int i = 0; i < items.size(); i++) {
+            ProductionRequest item = items.get(i);
+            products[i] = catalog.productIndex(item.productId());
+            errors[i] = validateItem(catalog, item, products[i]);
+        }
+        rejectBatch(mode, errors);
+
+        // Pass 2: Load the raw materials of the valid items once and allocate the summed demand against the rows
+        Set<Long> materialIds = acceptedMaterialIds(catalog, products, errors);
+        Map<Long, RawMaterial> rows = new HashMap<>();
+        if (!materialIds.isEmpty()) {
+            for (RawMaterial rawMaterial : rawMaterialRepository.findAllById(materialIds)) {
+                rows.put(rawMaterial.getId(), rawMaterial);
+            }
+        }
+
+        Map<Integer, BigDecimal> demand = allocate(catalog, items, products, errors, material -> {
+            RawMaterial row = rows.get(catalog.materialId(material));
+            return row == null ? BigDecimal.ZERO : row.availableQuantity();
+        });
+        rejectBatch(mode, errors);
+
+        // Pass 3: One aggregated guarded decrement per raw material. The rows were only read, so a concurrent
+        // production may still have consumed them since; then the whole batch is rolled back
+        Map<Long, BigDecimal> deductions = new LinkedHashMap<>();
+        List<ProductionBatchConsumptionResponse> consumptions = new ArrayList<>();
+        for (Map.Entry<Integer, BigDecimal> entry : demand.entrySet()) {
+            RawMaterial rawMaterial = rows.get(catalog.materialId(entry.getKey()));
+            deductions.put(rawMaterial.getId(), entry.getValue());
+            consumptions.add(new ProductionBatchConsumptionResponse(
+                    rawMaterial.getId(),
+                    rawMaterial.getCode(),
+                    entry.getValue(),
+                    rawMaterial.availableQuantity().subtract(entry.getValue())
+            ));
+        }
+
+        if (!deductions.isEmpty()) {
+            deductStock(deductions);
+            catalogVersion.advance();
+        }
+
+        return batchResponse(mode, items, errors, consumptions);
+    }
+
+    // Same allocation as the database path, against the ledger balances, and the summed demand of the batch goes to
+    // the ledger as one movement: all of it is deducted, or none of it if a concurrent movement took the stock
+    private ProductionBatchResponse produceBatchInLedger(ProductionModel catalog, ProductionBatchRequest request) {
+        ProductionBatchMode mode = request.mode() == null ? ProductionBatchMode.ALL_OR_NOTHING : request.mode();
+        List<ProductionRequest> items = request.items();
+        String[] errors = new String[items.size()];
+        int[] products = new int[items.size()];
+
+        for (int i = 0; i < items.size(); i++) {
+            ProductionRequest item = items.get(i);
+            products[i] = catalog.productIndex(item.productId());
+            errors[i] = validateItem(catalog, item, products[i]);
+        }
+
+        Set<Long> materialIds = acceptedMaterialIds(catalog, products, errors);
+        Map<Long, BigDecimal> available = materialIds.isEmpty() ? Map.of() : stockLedger.available(materialIds);
+        Map<Integer, BigDecimal> demand = allocate(catalog, items, products, errors,
+                material -> available.getOrDefault(catalog.materialId(material), BigDecimal.ZERO));
+        rejectBatch(mode, errors);
+
+        Map<Long, BigDecimal> consumption = new LinkedHashMap<>();
+        demand.forEach((material, quantity) -> consumption.put(catalog.materialId(material), quantity.negate()));
+
+        List<ProductionBatchConsumptionResponse> consumptions = new ArrayList<>();
+        if (!consumption.isEmpty()) {
+            StockLedger.Movement movement = stockLedger.apply(consumption);
+            if (!movement.isApplied()) {
+                throw new BusinessRuleException(shortageMessage(catalog, consumption, movement));
+            }
+
+            for (Map.Entry<Integer, BigDecimal> entry : demand.entrySet()) {
+                long id = catalog.materialId(entry.getKey());
+                consumptions.add(new ProductionBatchConsumptionResponse(
+                        id,
+                        catalog.materialCode(entry.getKey()),
+                        entry.getValue(),
+                        movement.balances().get(id)
+                ));
+            }
+        }
+
+        return batchResponse(mode, items, errors, consumptions);
+    }
+
+    private ProductionBatchResponse batchResponse(
+            ProductionBatchMode mode,
+            List<ProductionRequest> items,
+            String[] errors,
+            List<ProductionBatchConsumptionResponse> consumptions
+    ) {
+        List<ProductionBatchItemResponse> results = new ArrayList<>();
+        int produced = 0;
+        for (int i = 0; i < items.size(); i++) {
+            ProductionRequest item = items.get(i);
+            if (errors[i] == null) {
+                produced++;
+            }
+            results.add(new ProductionBatchItemResponse(i, item.productId(), item.quantity(), errors[i] == null, errors[i]));
+        }
+
+        return new ProductionBatchResponse(mode, produced, items.size() - produced, results, consumptions);
+    }
+
+    private Set<Long> acceptedMaterialIds(ProductionModel catalog, int[] products, String[] errors) {
+        Set<Long> materialIds = new LinkedHashSet<>();
+        for (int i = 0; i < products.length; i++) {
+            if (errors[i] == null) {
+                for (int item = catalog.compositionStart(products[i]); item < catalog.compositionEnd(products[i]); item++) {
+                    materialIds.add(catalog.materialId(catalog.itemMaterial(item)));
+                }
+            }
+        }
+        return materialIds;
+    }
+
+    private void deductStock(Map<Long, BigDecimal> quantities) {
+        List<Long> notDeducted = rawMaterialRepository.deductStock(quantities);
+        if (notDeducted.isEmpty()) {
+            return;
+        }
+
+        // Only on failure: read the current rows to report the shortage
+        Map<Long, RawMaterial> current = new HashMap<>();
+        for (RawMaterial rawMaterial : rawMaterialRepository.findAllById(notDeducted)) {
+            current.put(rawMaterial.getId(), rawMaterial);
+        }
+
+        Long id = notDeducted.get(0);
+        RawMaterial rawMaterial = current.get(id);
+        if (rawMaterial == null) {
+            throw new ResourceNotFoundException("Matéria-prima não encontrada para o id: " + id);
+        }
+        throw new BusinessRuleException(
+                stockMessage(rawMaterial.getName(), rawMaterial.getCode(), quantities.get(id), rawMaterial.availableQuantity())
+        );
+    }
+
+    private void validateQuantity(ProductionRequest request) {
         if (request.quantity() <= 0) {
             throw new BusinessRuleException("A quantidade a ser produzida deve ser maior que zero.");
         }
+    }
 
-        Product product = productRepository.findByIdWithComposition(request.productId())
-                .orElseThrow(() -> new ResourceNotFoundException("Produto não encontrado para o id: " + request.productId()));
+    private int productToProduce(ProductionModel catalog, ProductionRequest request) {
+        int product = catalog.productIndex(request.productId());
+        if (product < 0) {
+            throw new ResourceNotFoundException("Produto não encontrado para o id: " + request.productId());
+        }
 
-        if (product.getCompositionItems() == null || product.getCompositionItems().isEmpty()) {
+        if (!catalog.hasComposition(product)) {
             throw new BusinessRuleException("O produto não possui uma composição definida para produção.");
         }
+        return product;
+    }
 
-        BigDecimal multiplier = BigDecimal.valueOf(request.quantity());
+    private String validateItem(ProductionModel catalog, ProductionRequest item, int product) {
+        if (item.quantity() == null || item.quantity() <= 0) {
+            return "A quantidade a ser produzida deve ser maior que zero.";
+        }
+        if (product < 0) {
+            return "Produto não encontrado para o id: " + item.productId();
+        }
+        if (!catalog.hasComposition(product)) {
+            return "O produto não possui uma composição definida para produção.";
+        }
+        return null;
+    }
+
+    // Accepts the items without an error, in the order received, while their summed demand fits the available stock.
+    // Items that do not fit get the shortage as their error. Returns the summed demand of the accepted items
+    private Map<Integer, BigDecimal> allocate(
+            ProductionModel catalog,
+            List<ProductionRequest> items,
+            int[] products,
+            String[] errors,
+            IntFunction<BigDecimal> available
+    ) {
+        Map<Integer, BigDecimal> demand = new LinkedHashMap<>();
+
+        for (int i = 0; i < items.size(); i++) {
+            if (errors[i] != null) {
+                continue;
+            }
 
-        // Pass 1: Validate stock for all items
-        for (ProductCompositionItem item : product.getCompositionItems()) {
-            RawMaterial rawMaterial = item.getRawMaterial();
-            BigDecimal requiredConsumo = item.getRequiredQuantity().multiply(multiplier);
+            int product = products[i];
+            BigDecimal multiplier = BigDecimal.valueOf(items.get(i).quantity());
+            Map<Integer, BigDecimal> required = new LinkedHashMap<>();
+            for (int item = catalog.compositionStart(product); item < catalog.compositionEnd(product); item++) {
+                required.merge(catalog.itemMaterial(item), catalog.itemRequired(item).multiply(multiplier), BigDecimal::add);
+            }
 
-            if (rawMaterial.getStockQuantity().compareTo(requiredConsumo) < 0) {
-                throw new BusinessRuleException(
-                        String.format("Estoque insuficiente para a matéria-prima '%s' (%s). Necessário: %s, Disponível: %s",
-                                rawMaterial.getName(), rawMaterial.getCode(), requiredConsumo, rawMaterial.getStockQuantity())
-                );
+            for (Map.Entry<Integer, BigDecimal> entry : required.entrySet()) {
+                int material = entry.getKey();
+                BigDecimal remaining = available.apply(material).subtract(demand.getOrDefault(material, BigDecimal.ZERO));
+                if (remaining.compareTo(entry.getValue()) < 0) {
+                    errors[i] = stockMessage(catalog.materialName(material), catalog.materialCode(material), entry.getValue(), remaining);
+                    break;
+                }
+            }
+
+            if (errors[i] == null) {
+                required.forEach((material, quantity) -> demand.merge(material, quantity, BigDecimal::add));
             }
         }
 
-        // Pass 2: Deduct stock
-        List<RawMaterial> updatedRawMaterials = new ArrayList<>();
-        for (ProductCompositionItem item : product.getCompositionItems()) {
-            RawMaterial rawMaterial = item.getRawMaterial();
-            BigDecimal requiredConsumo = item.getRequiredQuantity().multiply(multiplier);
+        return demand;
+    }
 
-            rawMaterial.setStockQuantity(rawMaterial.getStockQuantity().subtract(requiredConsumo));
-            updatedRawMaterials.add(rawMaterial);
+    private void rejectBatch(ProductionBatchMode mode, String[] errors) {
+        if (mode != ProductionBatchMode.ALL_OR_NOTHING) {
+            return;
         }
+        for (int i = 0; i < errors.length; i++) {
+            if (errors[i] != null) {
+                throw new BusinessRuleException("Item " + i + " do lote: " + errors[i]);
+            }
+        }
+    }
+
+    private String shortageMessage(ProductionModel catalog, Map<Long, BigDecimal> consumption, StockLedger.Movement movement) {
+        Long id = movement.shortageRawMaterialId();
+        int material = catalog.materialIndex(id);
+        return stockMessage(catalog.materialName(material), catalog.materialCode(material),
+                consumption.get(id).negate(), movement.shortageAvailable());
+    }
 
-        rawMaterialRepository.saveAll(updatedRawMaterials);
+    private String stockMessage(String name, String code, BigDecimal required, BigDecimal available) {
+        return String.format("Estoque insuficiente para a matéria-prima '%s' (%s). Necessário: %s, Disponível: %s",
+                name, code, required, available);
     }
 }
@@ -2,24 +2,39 @@ package com.project.inventory.service;
 
 import com.project.inventory.domain.entity.RawMaterial;
 import com.project.inventory.domain.repository.RawMaterialRepository;
+import com.project.inventory.dto.rawmaterial.RawMaterialConflictResponse;
+import com.project.inventory.dto.rawmaterial.RawMaterialConflictsResponse;
+import com.project.inventory.dto.rawmaterial.StockAdjustmentRequest;
 import com.project.inventory.dto.rawmaterial.UpdateRawMaterialRequest;
 import com.project.inventory.dto.rawmaterial.CreateRawMaterialRequest;
 import com.project.inventory.dto.rawmaterial.RawMaterialResponse;
 import com.project.inventory.exception.ResourceNotFoundException;
 import com.project.inventory.exception.BusinessRuleException;
 import com.project.inventory.mapper.RawMaterialMapper;
+import com.project.inventory.service.ledger.StockLedger;
 import lombok.RequiredArgsConstructor;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
 public class RawMaterialService {
 
+    static final String UPDATE_OPERATION = "raw-material-update";
+    static final String STOCK_ADJUSTMENT_OPERATION = "raw-material-stock-adjustment";
+
     private final RawMaterialRepository rawMaterialRepository;
     private final RawMaterialMapper rawMaterialMapper;
+    private final CatalogVersion catalogVersion;
+    private final ConcurrencyRetry concurrencyRetry;
+    private final StockLedger stockLedger;
 
     @Transactional(readOnly = true)
     public List<RawMaterialResponse> findAll() {
@@ -41,29 +56,113 @@ public class RawMaterialService {
 
         RawMaterial rawMaterial = rawMaterialMapper.toEntity(request);
         RawMaterial saved = rawMaterialRepository.save(rawMaterial);
+        catalogVersion.advanceStructure();
 
         return rawMaterialMapper.toResponse(saved);
     }
 
-    @Transactional
+    // The request carries absolute values, so a conflict goes back to the client instead of being repeated:
+    // repeating it would overwrite the stock that a concurrent production has just deducted
     public RawMaterialResponse update(Long id, UpdateRawMaterialRequest request) {
+        // With the stock ledger, the movements made before the edit reach the row first, and the ledger reads the
+        // edited row again after the commit; movements made meanwhile still apply on top of the edited stock
+        stockLedger.flush();
+        return concurrencyRetry.executeOnce(UPDATE_OPERATION, () -> {
+            RawMaterial rawMaterial = findEntityById(id);
+
+            validateVersion(rawMaterial, request.version());
+            validateDuplicateCodeOnUpdate(request.code(), id);
+            validateHeldStock(rawMaterial, request.stockQuantity(),
+                    "Stock quantity cannot be lower than the quantity held by active reservations.");
+
+            rawMaterial.setCode(request.code());
+            rawMaterial.setName(request.name());
+            rawMaterial.setStockQuantity(request.stockQuantity());
+            rawMaterial.setUnitOfMeasurement(request.unitOfMeasurement());
+
+            // Flushed here so that the response already carries the new version
+            RawMaterial updated = rawMaterialRepository.saveAndFlush(rawMaterial);
+            catalogVersion.advanceStructure();
+            stockLedger.evict(id);
+            return rawMaterialMapper.toResponse(updated);
+        });
+    }
+
+    // Relative change, safe to repeat: on a conflict the row is read again and the delta applied to the new stock
+    public RawMaterialResponse adjustStock(Long id, StockAdjustmentRequest request) {
+        if (stockLedger.isEnabled()) {
+            return adjustStockInLedger(id, request);
+        }
+        return concurrencyRetry.execute(STOCK_ADJUSTMENT_OPERATION, () -> {
+            RawMaterial rawMaterial = findEntityById(id);
+
+            BigDecimal adjusted = rawMaterial.getStockQuantity().add(request.quantityDelta());
+            if (adjusted.signum() < 0) {
+                throw new BusinessRuleException("Stock adjustment would leave the raw material with negative stock.");
+            }
+            validateHeldStock(rawMaterial, adjusted,
+                    "Stock adjustment would leave less stock than the quantity held by active reservations.");
+
+            rawMaterial.setStockQuantity(adjusted);
+            RawMaterial updated = rawMaterialRepository.saveAndFlush(rawMaterial);
+            catalogVersion.advance();
+            return rawMaterialMapper.toResponse(updated);
+        });
+    }
+
+    private RawMaterialResponse adjustStockInLedger(Long id, StockAdjustmentRequest request) {
         RawMaterial rawMaterial = findEntityById(id);
 
-        validateDuplicateCodeOnUpdate(request.code(), id);
+        StockLedger.Movement movement = stockLedger.apply(Map.of(id, request.quantityDelta()));
+        if (!movement.isApplied()) {
+            throw new BusinessRuleException("Stock adjustment would leave the raw material with negative stock.");
+        }
 
-        rawMaterial.setCode(request.code());
-        rawMaterial.setName(request.name());
-        rawMaterial.setStockQuantity(request.stockQuantity());
-        rawMaterial.setUnitOfMeasurement(request.unitOfMeasurement());
+        // Read outside a transaction, so the entity is detached: the balance only goes to the response. The ledger
+        // balance is the available stock, so the quantity held by reservations is added back
+        rawMaterial.setStockQuantity(movement.balances().get(id).add(rawMaterial.getHeldQuantity()));
+        return rawMaterialMapper.toResponse(rawMaterial);
+    }
 
-        RawMaterial updated = rawMaterialRepository.save(rawMaterial);
-        return rawMaterialMapper.toResponse(updated);
+    // Conflicts since startup, with the most contended raw materials first
+    @Transactional(readOnly = true)
+    public RawMaterialConflictsResponse conflicts() {
+        Map<Long, Long> byRawMaterial = new HashMap<>();
+        concurrencyRetry.conflictsByRow(RawMaterial.class)
+                .forEach((id, count) -> byRawMaterial.put((Long) id, count));
+
+        Map<Long, String> codes = new HashMap<>();
+        if (!byRawMaterial.isEmpty()) {
+            for (RawMaterial rawMaterial : rawMaterialRepository.findAllById(byRawMaterial.keySet())) {
+                codes.put(rawMaterial.getId(), rawMaterial.getCode());
+            }
+        }
+
+        List<RawMaterialConflictResponse> rawMaterials = byRawMaterial.entrySet()
+                .stream()
+                .map(entry -> new RawMaterialConflictResponse(entry.getKey(), codes.get(entry.getKey()), entry.getValue()))
+                .sorted(Comparator.comparing(RawMaterialConflictResponse::conflicts).reversed()
+                        .thenComparing(RawMaterialConflictResponse::rawMaterialId))
+                .toList();
+
+        return new RawMaterialConflictsResponse(
+                concurrencyRetry.conflicts(),
+                concurrencyRetry.retries(),
+                concurrencyRetry.exhaustedRetries(),
+                concurrencyRetry.conflictsByOperation(),
+                rawMaterials
+        );
     }
 
     @Transactional
     public void delete(Long id) {
         RawMaterial rawMaterial = findEntityById(id);
+        if (rawMaterial.getHeldQuantity() != null && rawMaterial.getHeldQuantity().signum() > 0) {
+            throw new BusinessRuleException("Raw material has stock held by active reservations.");
+        }
         rawMaterialRepository.delete(rawMaterial);
+        catalogVersion.advanceStructure();
+        stockLedger.evict(id);
     }
 
     private RawMaterial findEntityById(Long id) {
@@ -71,6 +170,20 @@ public class RawMaterialService {
                 .orElseThrow(() -> new ResourceNotFoundException("Raw material not found for id: " + id));
     }
 
+    private void validateVersion(RawMaterial rawMaterial, Long version) {
+        if (version != null && !version.equals(rawMaterial.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(RawMaterial.class, rawMaterial.getId());
+        }
+    }
+
+    // The held quantity belongs to active reservations: the stock may not drop below it
+    private void validateHeldStock(RawMaterial rawMaterial, BigDecimal stockQuantity, String message) {
+        BigDecimal held = rawMaterial.getHeldQuantity() == null ? BigDecimal.ZERO : rawMaterial.getHeldQuantity();
+        if (stockQuantity.compareTo(held) < 0) {
+            throw new BusinessRuleException(message);
+        }
+    }
+
     private void validateDuplicateCodeOnCreation(String code) {
         if (rawMaterialRepository.existsByCode(code)) {
             throw new BusinessRuleException("Raw material with the given code already exists.");
@@ -0,0 +1,243 @@
+package com.project.inventory.service.catalog;
+
+import com.project.inventory.domain.entity.Product;
+import com.project.inventory.domain.entity.ProductCompositionItem;
+import com.project.inventory.domain.entity.RawMaterial;
+import com.project.inventory.domain.enumtype.UnitOfMeasurement;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Retrato imutável do catálogo de produção em uma versão: índices densos de produtos e matérias-primas, a
+// composição em CSR (uma linha por produto) e os preços e estoques. A estrutura é montada uma vez por versão da
+// estrutura a partir das entidades; quando só o estoque muda, withStock troca os estoques e compartilha o resto.
+// Depois de montado é lido sem trava e sem tocar no Hibernate
+public final class ProductionModel {
+
+    private final long version;
+    private final long structureVersion;
+
+    private final long[] productIds;
+    private final String[] productCodes;
+    private final String[] productNames;
+    private final BigDecimal[] productPrices;
+    private final int[] compositionStart;
+    private final int[] itemMaterial;
+    private final BigDecimal[] itemRequired;
+
+    private final long[] materialIds;
+    private final String[] materialCodes;
+    private final String[] materialNames;
+    private final UnitOfMeasurement[] materialUnits;
+    private final BigDecimal[] materialStock;
+
+    private final Map<Long, Integer> productIndexById;
+    private final Map<Long, Integer> materialIndexById;
+
+    private ProductionModel(long version, long structureVersion, List<Product> products, List<RawMaterial> rawMaterials) {
+        this.version = version;
+        this.structureVersion = structureVersion;
+
+        List<RawMaterial> materials = new ArrayList<>(rawMaterials);
+        Map<Long, Integer> materialIndex = new HashMap<>();
+        for (RawMaterial rawMaterial : rawMaterials) {
+            materialIndex.putIfAbsent(rawMaterial.getId(), materialIndex.size());
+        }
+
+        int productCount = products.size();
+        this.productIds = new long[productCount];
+        this.productCodes = new String[productCount];
+        this.productNames = new String[productCount];
+        this.productPrices = new BigDecimal[productCount];
+        this.compositionStart = new int[productCount + 1];
+
+        int totalItems = 0;
+        for (Product product : products) {
+            totalItems += compositionOf(product).size();
+        }
+        this.itemMaterial = new int[totalItems];
+        this.itemRequired = new BigDecimal[totalItems];
+
+        Map<Long, Integer> productIndex = new HashMap<>();
+        int cursor = 0;
+        for (int p = 0; p < productCount; p++) {
+            Product product = products.get(p);
+            productIds[p] = product.getId();
+            productCodes[p] = product.getCode();
+            productNames[p] = product.getName();
+            productPrices[p] = product.getPrice();
+            productIndex.put(product.getId(), p);
+            compositionStart[p] = cursor;
+
+            for (ProductCompositionItem item : compositionOf(product)) {
+                RawMaterial rawMaterial = item.getRawMaterial();
+
+                // Matéria-prima fora da lista carregada entra no fim, com estoque zero
+                Integer index = materialIndex.get(rawMaterial.getId());
+                if (index == null) {
+                    index = materialIndex.size();
+                    materialIndex.put(rawMaterial.getId(), index);
+                    materials.add(RawMaterial.builder()
+                            .id(rawMaterial.getId())
+                            .code(rawMaterial.getCode())
+                            .name(rawMaterial.getName())
+                            .unitOfMeasurement(rawMaterial.getUnitOfMeasurement())
+                            .stockQuantity(BigDecimal.ZERO)
+                            .build());
+                }
+
+                itemMaterial[cursor] = index;
+                itemRequired[cursor] = item.getRequiredQuantity();
+                cursor++;
+            }
+        }
+        compositionStart[productCount] = cursor;
+
+        int materialCount = materialIndex.size();
+        this.materialIds = new long[materialCount];
+        this.materialCodes = new String[materialCount];
+        this.materialNames = new String[materialCount];
+        this.materialUnits = new UnitOfMeasurement[materialCount];
+        this.materialStock = new BigDecimal[materialCount];
+
+        for (RawMaterial rawMaterial : materials) {
+            int m = materialIndex.get(rawMaterial.getId());
+            materialIds[m] = rawMaterial.getId();
+            materialCodes[m] = rawMaterial.getCode();
+            materialNames[m] = rawMaterial.getName();
+            materialUnits[m] = rawMaterial.getUnitOfMeasurement();
+            // Disponível para produzir e planejar: o estoque preso em reservas ativas não entra
+            materialStock[m] = rawMaterial.availableQuantity();
+        }
+
+        this.productIndexById = Map.copyOf(productIndex);
+        this.materialIndexById = Map.copyOf(materialIndex);
+    }
+
+    // Mesma estrutura, com outros estoques
+    private ProductionModel(ProductionModel structure, long version, BigDecimal[] materialStock) {
+        this.version = version;
+        this.structureVersion = structure.structureVersion;
+        this.productIds = structure.productIds;
+        this.productCodes = structure.productCodes;
+        this.productNames = structure.productNames;
+        this.productPrices = structure.productPrices;
+        this.compositionStart = structure.compositionStart;
+        this.itemMaterial = structure.itemMaterial;
+        this.itemRequired = structure.itemRequired;
+        this.materialIds = structure.materialIds;
+        this.materialCodes = structure.materialCodes;
+        this.materialNames = structure.materialNames;
+        this.materialUnits = structure.materialUnits;
+        this.materialStock = materialStock;
+        this.productIndexById = structure.productIndexById;
+        this.materialIndexById = structure.materialIndexById;
+    }
+
+    // Produtos e matérias-primas ficam na ordem recebida; as entidades são apenas lidas
+    public static ProductionModel of(long version, List<Product> products, List<RawMaterial> rawMaterials) {
+        return of(version, version, products, rawMaterials);
+    }
+
+    public static ProductionModel of(long version, long structureVersion, List<Product> products, List<RawMaterial> rawMaterials) {
+        return new ProductionModel(version, structureVersion, products, rawMaterials);
+    }
+
+    // Retrato da mesma estrutura com o estoque disponível por id de matéria-prima; ids ausentes ficam com zero
+    public ProductionModel withStock(long version, Map<Long, BigDecimal> availableById) {
+        BigDecimal[] stock = new BigDecimal[materialIds.length];
+        for (int m = 0; m < stock.length; m++) {
+            stock[m] = availableById.getOrDefault(materialIds[m], BigDecimal.ZERO);
+        }
+        return new ProductionModel(this, version, stock);
+    }
+
+    private static List<ProductCompositionItem> compositionOf(Product product) {
+        return product.getCompositionItems() == null ? List.of() : product.getCompositionItems();
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public long structureVersion() {
+        return structureVersion;
+    }
+
+    public int productCount() {
+        return productIds.length;
+    }
+
+    // -1 quando o produto não existe nesta versão
+    public int productIndex(Long productId) {
+        return productIndexById.getOrDefault(productId, -1);
+    }
+
+    public long productId(int product) {
+        return productIds[product];
+    }
+
+    public String productCode(int product) {
+        return productCodes[product];
+    }
+
+    public String productName(int product) {
+        return productNames[product];
+    }
+
+    public BigDecimal productPrice(int product) {
+        return productPrices[product];
+    }
+
+    public int compositionStart(int product) {
+        return compositionStart[product];
+    }
+
+    public int compositionEnd(int product) {
+        return compositionStart[product + 1];
+    }
+
+    public boolean hasComposition(int product) {
+        return compositionEnd(product) > compositionStart(product);
+    }
+
+    public int itemMaterial(int item) {
+        return itemMaterial[item];
+    }
+
+    public BigDecimal itemRequired(int item) {
+        return itemRequired[item];
+    }
+
+    public int materialCount() {
+        return materialIds.length;
+    }
+
+    // -1 quando a matéria-prima não existe nesta versão
+    public int materialIndex(Long rawMaterialId) {
+        return materialIndexById.getOrDefault(rawMaterialId, -1);
+    }
+
+    public long materialId(int material) {
+        return materialIds[material];
+    }
+
+    public String materialCode(int material) {
+        return materialCodes[material];
+    }
+
+    public String materialName(int material) {
+        return materialNames[material];
+    }
+
+    public UnitOfMeasurement materialUnit(int material) {
+        return materialUnits[material];
+    }
+
+    public BigDecimal materialStock(int material) {
+        return materialStock[material];
+    }
+}
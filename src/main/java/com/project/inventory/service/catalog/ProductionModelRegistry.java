@@ -0,0 +1,134 @@
+package com.project.inventory.service.catalog;
+
+import com.project.inventory.domain.entity.Product;
+import com.project.inventory.domain.entity.RawMaterial;
+import com.project.inventory.domain.repository.ProductRepository;
+import com.project.inventory.domain.repository.RawMaterialRepository;
+import com.project.inventory.service.CatalogVersion;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Guarda o ProductionModel da versão atual do catálogo. A leitura é só uma referência volatile; quando uma
+// escrita avança a CatalogVersion, a próxima leitura remonta o retrato (uma thread por vez) e troca a referência
+// de uma vez, então nenhum leitor vê um modelo pela metade. Se só o estoque mudou, a estrutura é reaproveitada e
+// apenas os estoques são relidos, numa consulta escalar; produtos e composições só são recarregados quando a
+// versão da estrutura muda.
+// A carga roda numa transação curta, própria e somente leitura: o catálogo nunca entra no contexto de persistência
+// de uma escrita (nem na verificação de alterações do commit dela), e o retrato não guarda entidades, então quem
+// o usa (o planejamento, por exemplo) não precisa de transação nem de conexão depois que ele é montado.
+// Quem escreve (produção, reservas) resolve o retrato antes de abrir a sua transação: chamado de dentro dela, a
+// remontagem esperaria uma segunda conexão segurando a primeira e o rebuildLock, e produtores concorrentes
+// esgotariam o pool
+@Component
+public class ProductionModelRegistry {
+
+    private final ProductRepository productRepository;
+    private final RawMaterialRepository rawMaterialRepository;
+    private final CatalogVersion catalogVersion;
+    private final TransactionOperations snapshotTransaction;
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private volatile ProductionModel current;
+
+    @Autowired
+    public ProductionModelRegistry(
+            ProductRepository productRepository,
+            RawMaterialRepository rawMaterialRepository,
+            CatalogVersion catalogVersion,
+            PlatformTransactionManager transactionManager
+    ) {
+        this(productRepository, rawMaterialRepository, catalogVersion, snapshotTransaction(transactionManager));
+    }
+
+    // snapshotTransaction: executa a carga (nos testes, sem transação)
+    public ProductionModelRegistry(
+            ProductRepository productRepository,
+            RawMaterialRepository rawMaterialRepository,
+            CatalogVersion catalogVersion,
+            TransactionOperations snapshotTransaction
+    ) {
+        this.productRepository = productRepository;
+        this.rawMaterialRepository = rawMaterialRepository;
+        this.catalogVersion = catalogVersion;
+        this.snapshotTransaction = snapshotTransaction;
+    }
+
+    // Somente leitura e com leitura repetível, para que produtos e matérias-primas venham do mesmo instante do banco.
+    // Sempre uma transação nova: a de quem chamou fica suspensa durante a carga
+    private static TransactionOperations snapshotTransaction(PlatformTransactionManager transactionManager) {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        template.setReadOnly(true);
+        template.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        return template;
+    }
+
+    // Estrutura e estoque da versão atual: para o planejamento, que lê o estoque do retrato
+    public ProductionModel current() {
+        ProductionModel model = current;
+        if (isCurrent(model, catalogVersion.current(), catalogVersion.structure())) {
+            return model;
+        }
+
+        rebuildLock.lock();
+        try {
+            // As versões são lidas antes de carregar, para nunca associar dados novos a uma versão antiga
+            long version = catalogVersion.current();
+            long structureVersion = catalogVersion.structure();
+            ProductionModel previous = current;
+            if (isCurrent(previous, version, structureVersion)) {
+                return previous;
+            }
+
+            if (previous != null && previous.structureVersion() == structureVersion) {
+                model = snapshotTransaction.execute(status ->
+                        previous.withStock(version, rawMaterialRepository.findAllAvailableQuantities()));
+            } else {
+                model = snapshotTransaction.execute(status -> load(version, structureVersion));
+            }
+            current = model;
+            return model;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    // Só a estrutura atual (produtos, composições, índices), para a produção e as reservas, que conferem o estoque
+    // nas linhas do banco: enquanto a estrutura não muda, não toca o banco, e o estoque do retrato pode estar
+    // atrasado
+    public ProductionModel structure() {
+        ProductionModel model = current;
+        if (model != null && model.structureVersion() == catalogVersion.structure()) {
+            return model;
+        }
+        return current();
+    }
+
+    private static boolean isCurrent(ProductionModel model, long version, long structureVersion) {
+        return model != null && model.version() == version && model.structureVersion() == structureVersion;
+    }
+
+    // Produtos na ordem do planejamento (maior preço primeiro, depois código) e matérias-primas por código
+    private ProductionModel load(long version, long structureVersion) {
+        List<Product> products = productRepository.findAll()
+                .stream()
+                .sorted(Comparator
+                        .comparing(Product::getPrice).reversed()
+                        .thenComparing(Product::getCode))
+                .toList();
+
+        List<RawMaterial> rawMaterials = rawMaterialRepository.findAll()
+                .stream()
+                .sorted(Comparator.comparing(RawMaterial::getCode))
+                .toList();
+
+        return ProductionModel.of(version, structureVersion, products, rawMaterials);
+    }
+}
@@ -0,0 +1,293 @@
+package com.project.inventory.service.ledger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+// Diário local, só de acréscimo, das movimentações do livro de estoque. Cada registro tem um número de sequência,
+// os pares (matéria-prima, delta em unidades de 1/10000) e um CRC; um registro cortado no meio por uma queda
+// falha no CRC e encerra a leitura do segmento. Os registros vão para segmentos: a cada descarga para o banco o
+// segmento atual é fechado, e os fechados são apagados quando o banco confirma o ponto de controle que os cobre.
+// O append não é thread-safe (quem chama serializa); o forceUpTo agrupa: várias threads esperando a mesma
+// sincronização com o disco dividem um único force. Uma falha de disco que não dá para desfazer (um force, ou um
+// registro cortado que não pôde ser removido) para o diário: as gravações seguintes são recusadas, e na próxima
+// subida a recuperação decide o que valeu
+final class StockJournal {
+
+    private static final String PREFIX = "stock-ledger-";
+    private static final String SUFFIX = ".log";
+    private static final String FAILED_MESSAGE = "O diário do livro de estoque está parado depois de uma falha de disco";
+
+    private final Path directory;
+    private final ReentrantLock forceLock = new ReentrantLock();
+    private final List<Path> closedSegments = new ArrayList<>();
+
+    private Path currentSegment;
+    private volatile FileChannel channel;
+    private volatile long writtenSequence;
+    private volatile long durableSequence;
+    private volatile boolean failed;
+    private long nextSequence;
+
+    StockJournal(Path directory) {
+        this.directory = directory;
+    }
+
+    // Lê os segmentos existentes e devolve as movimentações posteriores ao ponto de controle, em ordem.
+    // Os segmentos lidos passam a ser fechados e um segmento novo é aberto para o que vier depois
+    List<Movement> recover(long checkpoint) {
+        List<Movement> movements = new ArrayList<>();
+        long lastSequence = checkpoint;
+
+        try {
+            Files.createDirectories(directory);
+            List<Path> segments;
+            try (Stream<Path> files = Files.list(directory)) {
+                segments = files.filter(StockJournal::isSegment).sorted().toList();
+            }
+
+            for (Path segment : segments) {
+                ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(segment));
+                Movement movement;
+                while ((movement = read(buffer)) != null) {
+                    lastSequence = Math.max(lastSequence, movement.sequence());
+                    if (movement.sequence() > checkpoint) {
+                        movements.add(movement);
+                    }
+                }
+                closedSegments.add(segment);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao ler o diário do livro de estoque em " + directory, e);
+        }
+
+        nextSequence = lastSequence + 1;
+        writtenSequence = lastSequence;
+        durableSequence = lastSequence;
+        channel = open(nextSequence);
+        return movements;
+    }
+
+    // Grava a movimentação e devolve a sequência dela; só é durável depois do forceUpTo
+    long append(long[] materialIds, long[] units) {
+        if (failed) {
+            throw new IllegalStateException(FAILED_MESSAGE);
+        }
+
+        long sequence = nextSequence;
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES + Integer.BYTES + materialIds.length * 2 * Long.BYTES + Integer.BYTES);
+        buffer.putLong(sequence).putInt(materialIds.length);
+        for (int i = 0; i < materialIds.length; i++) {
+            buffer.putLong(materialIds[i]).putLong(units[i]);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+
+        long start = -1L;
+        try {
+            start = channel.size();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            discardTornRecord(start);
+            throw new UncheckedIOException("Falha ao gravar no diário do livro de estoque", e);
+        }
+
+        nextSequence++;
+        writtenSequence = sequence;
+        return sequence;
+    }
+
+    // Sequência da última movimentação gravada (ou a do ponto de controle, se ainda não houve nenhuma)
+    long lastSequence() {
+        return writtenSequence;
+    }
+
+    boolean isFailed() {
+        return failed;
+    }
+
+    // Espera até a sequência estar no disco. Quem pega o lock sincroniza tudo o que já foi gravado, então as
+    // threads que chegaram durante o force anterior normalmente já saem cobertas
+    void forceUpTo(long sequence) {
+        while (durableSequence < sequence) {
+            forceLock.lock();
+            try {
+                if (durableSequence >= sequence) {
+                    return;
+                }
+                if (failed) {
+                    throw new IllegalStateException(FAILED_MESSAGE);
+                }
+
+                // O canal é lido antes da sequência: se o segmento for trocado no meio, o force do canal antigo
+                // falha (a troca já o sincronizou) e o laço tenta de novo
+                FileChannel current = channel;
+                long written = writtenSequence;
+                try {
+                    current.force(false);
+                } catch (ClosedChannelException e) {
+                    continue;
+                } catch (IOException e) {
+                    // Depois de um force que falhou não se sabe o que chegou ao disco
+                    failed = true;
+                    throw new UncheckedIOException("Falha ao sincronizar o diário do livro de estoque", e);
+                }
+                durableSequence = Math.max(durableSequence, written);
+            } finally {
+                forceLock.unlock();
+            }
+        }
+    }
+
+    // Fecha o segmento atual (já sincronizado) e abre outro. Devolve a última sequência do segmento fechado.
+    // Quem chama serializa com o append
+    long roll() {
+        long last = nextSequence - 1;
+        FileChannel previous = channel;
+        try {
+            previous.force(false);
+            previous.close();
+        } catch (IOException e) {
+            failed = true;
+            throw new UncheckedIOException("Falha ao fechar o segmento do diário do livro de estoque", e);
+        }
+
+        closedSegments.add(currentSegment);
+        durableSequence = Math.max(durableSequence, last);
+        try {
+            channel = open(nextSequence);
+        } catch (UncheckedIOException e) {
+            failed = true;
+            throw e;
+        }
+        return last;
+    }
+
+    // Apaga os segmentos fechados; chamado depois que o banco confirmou o ponto de controle. Quem chama serializa
+    // com o roll. Um segmento fechado sem registros tem o mesmo nome do atual, que nunca é apagado
+    void deleteClosedSegments() {
+        boolean deleted = false;
+        for (Path segment : closedSegments) {
+            if (segment.equals(currentSegment)) {
+                continue;
+            }
+            try {
+                deleted |= Files.deleteIfExists(segment);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Falha ao apagar o segmento " + segment, e);
+            }
+        }
+        closedSegments.clear();
+
+        if (deleted) {
+            try {
+                syncDirectory();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Falha ao sincronizar o diretório do diário do livro de estoque", e);
+            }
+        }
+    }
+
+    void close() {
+        try {
+            if (!failed) {
+                channel.force(false);
+            }
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao fechar o diário do livro de estoque", e);
+        }
+    }
+
+    private FileChannel open(long firstSequence) {
+        currentSegment = directory.resolve(PREFIX + String.format("%020d", firstSequence) + SUFFIX);
+        try {
+            FileChannel opened = FileChannel.open(
+                    currentSegment,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND
+            );
+            try {
+                syncDirectory();
+            } catch (IOException e) {
+                opened.close();
+                throw e;
+            }
+            return opened;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao abrir o diário do livro de estoque em " + directory, e);
+        }
+    }
+
+    // Um registro gravado pela metade no fim do segmento faria a recuperação parar nele e perder os seguintes:
+    // o segmento volta ao tamanho de antes do append, e se nem isso der certo o diário para
+    private void discardTornRecord(long start) {
+        if (start < 0) {
+            failed = true;
+            return;
+        }
+        try {
+            channel.truncate(start);
+        } catch (IOException e) {
+            failed = true;
+        }
+    }
+
+    // A criação e a remoção de um segmento só ficam no disco com a sincronização do diretório que o contém
+    private void syncDirectory() throws IOException {
+        try (FileChannel directoryChannel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            directoryChannel.force(true);
+        }
+    }
+
+    private static boolean isSegment(Path path) {
+        String name = path.getFileName().toString();
+        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+    }
+
+    // Nulo no fim do segmento ou num registro incompleto ou corrompido
+    private static Movement read(ByteBuffer buffer) {
+        int start = buffer.position();
+        if (buffer.remaining() < Long.BYTES + Integer.BYTES) {
+            return null;
+        }
+
+        long sequence = buffer.getLong();
+        int count = buffer.getInt();
+        if (count < 0 || buffer.remaining() < (long) count * 2 * Long.BYTES + Integer.BYTES) {
+            return null;
+        }
+
+        long[] materialIds = new long[count];
+        long[] units = new long[count];
+        for (int i = 0; i < count; i++) {
+            materialIds[i] = buffer.getLong();
+            units[i] = buffer.getLong();
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), start, buffer.position() - start);
+        if (buffer.getInt() != (int) crc.getValue()) {
+            return null;
+        }
+        return new Movement(sequence, materialIds, units);
+    }
+
+    record Movement(long sequence, long[] materialIds, long[] units) {
+    }
+}
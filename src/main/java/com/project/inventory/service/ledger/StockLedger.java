@@ -0,0 +1,502 @@
+package com.project.inventory.service.ledger;
+
+import com.project.inventory.domain.entity.StockLedgerCheckpoint;
+import com.project.inventory.domain.repository.RawMaterialRepository;
+import com.project.inventory.domain.repository.StockLedgerCheckpointRepository;
+import com.project.inventory.exception.ResourceNotFoundException;
+import com.project.inventory.service.CatalogVersion;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Livro de estoque em memória (opcional, inventory.stock-ledger.enabled). Guarda o saldo de cada matéria-prima
+// e valida e aplica as movimentações (produção, lote, ajuste) sem ir ao banco: cada movimentação trava só as
+// faixas (stripes) das suas matérias-primas, sempre na mesma ordem, checa todos os saldos e aplica todos de uma
+// vez. Antes de responder, a movimentação vai para um diário local sincronizado com o disco, e os deltas somados
+// por matéria-prima são descarregados no banco a cada intervalo ou a cada N movimentações, junto com o ponto de
+// controle do diário na mesma transação. Na subida, o que está no diário depois do ponto de controle é aplicado.
+// O saldo de uma matéria-prima é sempre a linha do banco mais os deltas ainda não descarregados, então a linha
+// pode ser relida a qualquer momento (evict) sem perder movimentações.
+// Só vale com uma única instância escrevendo no banco: cada instância teria o seu próprio saldo
+@Slf4j
+@Component
+public class StockLedger {
+
+    private static final int SCALE = 4;
+
+    private final RawMaterialRepository rawMaterialRepository;
+    private final StockLedgerCheckpointRepository checkpointRepository;
+    private final CatalogVersion catalogVersion;
+    private final TransactionOperations flushTransaction;
+    private final boolean enabled;
+    private final String nodeId;
+    private final long flushIntervalMs;
+    private final int flushThreshold;
+    private final StockJournal journal;
+    private final ReentrantLock[] stripes;
+    private final Map<Long, Balance> balances = new ConcurrentHashMap<>();
+
+    // journalLock: serializa o diário e a captura dos deltas na descarga. flushLock: uma descarga por vez.
+    // Ordem dos locks: faixas antes do journalLock; a descarga não pega faixas
+    private final ReentrantLock journalLock = new ReentrantLock();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    // Ímpar enquanto uma descarga está em andamento, para quem relê uma linha do banco saber que ela pode mudar
+    private final AtomicLong flushGeneration = new AtomicLong();
+    private final AtomicLong movementsSinceFlush = new AtomicLong();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    private ScheduledExecutorService scheduler;
+    private long checkpointSequence;
+
+    @Autowired
+    public StockLedger(
+            RawMaterialRepository rawMaterialRepository,
+            StockLedgerCheckpointRepository checkpointRepository,
+            CatalogVersion catalogVersion,
+            PlatformTransactionManager transactionManager,
+            @Value("${inventory.stock-ledger.enabled:false}") boolean enabled,
+            @Value("${inventory.stock-ledger.journal-dir:./data/stock-ledger}") String journalDirectory,
+            @Value("${inventory.stock-ledger.node-id:default}") String nodeId,
+            @Value("${inventory.stock-ledger.stripes:64}") int stripes,
+            @Value("${inventory.stock-ledger.flush-interval-ms:200}") long flushIntervalMs,
+            @Value("${inventory.stock-ledger.flush-threshold:1000}") int flushThreshold
+    ) {
+        this(rawMaterialRepository, checkpointRepository, catalogVersion, new TransactionTemplate(transactionManager),
+                enabled, Path.of(journalDirectory), nodeId, stripes, flushIntervalMs, flushThreshold);
+    }
+
+    // flushTransaction: executa a descarga (deltas e ponto de controle). flushIntervalMs 0 desliga a descarga
+    // periódica, e a descarga fica só pelo limite de movimentações e pelas chamadas ao flush
+    public StockLedger(
+            RawMaterialRepository rawMaterialRepository,
+            StockLedgerCheckpointRepository checkpointRepository,
+            CatalogVersion catalogVersion,
+            TransactionOperations flushTransaction,
+            boolean enabled,
+            Path journalDirectory,
+            String nodeId,
+            int stripes,
+            long flushIntervalMs,
+            int flushThreshold
+    ) {
+        this.rawMaterialRepository = rawMaterialRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.catalogVersion = catalogVersion;
+        this.flushTransaction = flushTransaction;
+        this.enabled = enabled;
+        this.nodeId = nodeId;
+        this.flushIntervalMs = flushIntervalMs;
+        this.flushThreshold = Math.max(1, flushThreshold);
+        this.journal = new StockJournal(journalDirectory);
+
+        // Potência de 2, para a faixa sair de uma máscara
+        this.stripes = new ReentrantLock[Integer.highestOneBit(Math.max(1, stripes - 1)) << 1];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    // Recupera o diário antes de aceitar movimentações: aplica no banco o que ficou depois do último ponto de controle
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+
+        checkpointSequence = checkpointRepository.findById(nodeId)
+                .map(StockLedgerCheckpoint::getLastSequence)
+                .orElse(0L);
+
+        List<StockJournal.Movement> recovered = journal.recover(checkpointSequence);
+        for (StockJournal.Movement movement : recovered) {
+            for (int i = 0; i < movement.materialIds().length; i++) {
+                balance(movement.materialIds()[i]).pending.addAndGet(movement.units()[i]);
+            }
+        }
+        if (!recovered.isEmpty()) {
+            log.info("Livro de estoque: {} movimentações recuperadas do diário", recovered.size());
+        }
+        flush();
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stock-ledger-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (flushIntervalMs > 0) {
+            scheduler.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!enabled || scheduler == null) {
+            return;
+        }
+
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushQuietly();
+        journal.close();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Saldo atual das matérias-primas pedidas, carregando do banco as que ainda não estão em memória
+    public Map<Long, BigDecimal> available(Collection<Long> rawMaterialIds) {
+        long[] ids = sortedIds(rawMaterialIds);
+        ensureLoaded(ids);
+
+        Map<Long, BigDecimal> available = new HashMap<>();
+        for (long id : ids) {
+            Balance balance = balance(id);
+            ReentrantLock stripe = stripeOf(id);
+            stripe.lock();
+            try {
+                available.put(id, fromUnits(balance.available));
+            } finally {
+                stripe.unlock();
+            }
+        }
+        return available;
+    }
+
+    // Aplica os deltas (negativos para consumo) de uma vez, ou nenhum: se algum saldo ficaria negativo, nada muda
+    // e o resultado aponta a primeira matéria-prima sem estoque. Retorna depois que a movimentação está no disco.
+    // A memória só muda depois que o registro foi gravado no diário; se a sincronização com o disco falhar, o
+    // diário para e o livro não aceita mais movimentações nem descarrega a memória no banco: na próxima subida
+    // vale o que o diário tiver
+    public Movement apply(Map<Long, BigDecimal> deltas) {
+        if (!enabled) {
+            throw new IllegalStateException("O livro de estoque está desligado.");
+        }
+        if (journal.isFailed()) {
+            throw new IllegalStateException("O livro de estoque parou depois de uma falha no diário; reinicie a aplicação.");
+        }
+
+        long[] ids = sortedIds(deltas.keySet());
+        long[] units = new long[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            units[i] = toUnits(deltas.get(ids[i]));
+        }
+        int[] stripeIndexes = stripeIndexes(ids);
+
+        while (true) {
+            ensureLoaded(ids);
+
+            long sequence;
+            Map<Long, BigDecimal> balancesAfter = new HashMap<>();
+            lock(stripeIndexes);
+            try {
+                Balance[] touched = new Balance[ids.length];
+                boolean evicted = false;
+                for (int i = 0; i < ids.length; i++) {
+                    touched[i] = balance(ids[i]);
+                    evicted |= !touched[i].loaded;
+                }
+                // Relida entre a carga e o lock; carrega de novo
+                if (evicted) {
+                    continue;
+                }
+
+                for (int i = 0; i < ids.length; i++) {
+                    if (touched[i].available + units[i] < 0) {
+                        return Movement.shortage(ids[i], fromUnits(touched[i].available));
+                    }
+                }
+
+                // Diário e deltas pendentes juntos, sob o journalLock: a descarga captura os dois no mesmo ponto.
+                // Um append que falha desfaz o registro cortado e lança antes de qualquer saldo mudar
+                journalLock.lock();
+                try {
+                    sequence = journal.append(ids, units);
+                    for (int i = 0; i < ids.length; i++) {
+                        touched[i].pending.addAndGet(units[i]);
+                    }
+                } finally {
+                    journalLock.unlock();
+                }
+
+                for (int i = 0; i < ids.length; i++) {
+                    touched[i].available += units[i];
+                    balancesAfter.put(ids[i], fromUnits(touched[i].available));
+                }
+            } finally {
+                unlock(stripeIndexes);
+            }
+
+            // Fora das faixas: as threads que esperam o disco ao mesmo tempo dividem uma única sincronização
+            journal.forceUpTo(sequence);
+            requestFlushIfDue();
+            return Movement.applied(balancesAfter);
+        }
+    }
+
+    // Descarta o saldo em memória para que a próxima movimentação releia a linha; os deltas pendentes continuam.
+    // Dentro de uma transação, só depois do commit, para a releitura já ver a escrita
+    public void evict(Long rawMaterialId) {
+        if (!enabled) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evictNow(rawMaterialId);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evictNow(rawMaterialId);
+            }
+        });
+    }
+
+    // Leva ao banco os deltas pendentes somados por matéria-prima e o ponto de controle do diário, numa transação.
+    // Se ela falhar, os deltas voltam a ficar pendentes e os segmentos do diário ficam até a próxima descarga
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+        // A memória pode ter movimentações que não chegaram ao disco; o banco só recebe o que o diário recuperar
+        if (journal.isFailed()) {
+            return;
+        }
+
+        flushLock.lock();
+        try {
+            Map<Long, Long> captured = new TreeMap<>();
+            long lastSequence;
+
+            journalLock.lock();
+            try {
+                if (journal.lastSequence() == checkpointSequence) {
+                    journal.deleteClosedSegments();
+                    return;
+                }
+
+                flushGeneration.incrementAndGet();
+                balances.forEach((id, balance) -> {
+                    long delta = balance.pending.getAndSet(0L);
+                    if (delta != 0L) {
+                        captured.put(id, delta);
+                    }
+                });
+                movementsSinceFlush.set(0L);
+                lastSequence = journal.roll();
+            } finally {
+                journalLock.unlock();
+            }
+
+            try {
+                flushTransaction.executeWithoutResult(status -> {
+                    if (!captured.isEmpty()) {
+                        Map<Long, BigDecimal> deltas = new TreeMap<>();
+                        captured.forEach((id, delta) -> deltas.put(id, fromUnits(delta)));
+                        List<Long> missing = rawMaterialRepository.applyStockDeltas(deltas);
+                        if (!missing.isEmpty()) {
+                            log.warn("Livro de estoque: deltas descartados de matérias-primas removidas {}", missing);
+                        }
+                        catalogVersion.advance();
+                    }
+                    checkpointRepository.save(new StockLedgerCheckpoint(nodeId, lastSequence));
+                });
+                checkpointSequence = lastSequence;
+            } catch (RuntimeException e) {
+                captured.forEach((id, delta) -> balance(id).pending.addAndGet(delta));
+                throw e;
+            } finally {
+                flushGeneration.incrementAndGet();
+            }
+
+            journalLock.lock();
+            try {
+                journal.deleteClosedSegments();
+            } finally {
+                journalLock.unlock();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.error("Falha ao descarregar o livro de estoque no banco", e);
+        }
+    }
+
+    private void requestFlushIfDue() {
+        if (movementsSinceFlush.incrementAndGet() >= flushThreshold && flushRequested.compareAndSet(false, true)) {
+            scheduler.execute(() -> {
+                flushRequested.set(false);
+                flushQuietly();
+            });
+        }
+    }
+
+    // Carrega da linha do banco o saldo das matérias-primas que não estão em memória: linha mais deltas pendentes.
+    // Uma descarga no meio muda a linha e zera os pendentes, então a carga que cruzou com uma é refeita
+    private void ensureLoaded(long[] ids) {
+        while (true) {
+            List<Long> missing = new ArrayList<>();
+            for (long id : ids) {
+                if (!balance(id).loaded) {
+                    missing.add(id);
+                }
+            }
+            if (missing.isEmpty()) {
+                return;
+            }
+
+            long generation = flushGeneration.get();
+            if ((generation & 1L) == 1L) {
+                flushLock.lock();
+                flushLock.unlock();
+                continue;
+            }
+
+            Map<Long, BigDecimal> rows = rawMaterialRepository.findAvailableQuantities(missing);
+            for (Long id : missing) {
+                if (!rows.containsKey(id)) {
+                    throw new ResourceNotFoundException("Matéria-prima não encontrada para o id: " + id);
+                }
+            }
+
+            long[] missingIds = missing.stream().mapToLong(Long::longValue).toArray();
+            int[] stripeIndexes = stripeIndexes(missingIds);
+            lock(stripeIndexes);
+            try {
+                if (flushGeneration.get() != generation) {
+                    continue;
+                }
+                for (long id : missingIds) {
+                    Balance balance = balance(id);
+                    if (!balance.loaded) {
+                        balance.available = toUnits(rows.get(id)) + balance.pending.get();
+                        balance.loaded = true;
+                    }
+                }
+            } finally {
+                unlock(stripeIndexes);
+            }
+        }
+    }
+
+    private void evictNow(Long rawMaterialId) {
+        ReentrantLock stripe = stripeOf(rawMaterialId);
+        stripe.lock();
+        try {
+            balance(rawMaterialId).loaded = false;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    private Balance balance(long id) {
+        return balances.computeIfAbsent(id, key -> new Balance());
+    }
+
+    private ReentrantLock stripeOf(long id) {
+        return stripes[stripeIndex(id)];
+    }
+
+    private int stripeIndex(long id) {
+        long mixed = id * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32)) & (stripes.length - 1);
+    }
+
+    // Faixas distintas e em ordem crescente: todas as threads travam na mesma sequência e não entram em deadlock
+    private int[] stripeIndexes(long[] ids) {
+        TreeSet<Integer> indexes = new TreeSet<>();
+        for (long id : ids) {
+            indexes.add(stripeIndex(id));
+        }
+        return indexes.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private void lock(int[] stripeIndexes) {
+        for (int index : stripeIndexes) {
+            stripes[index].lock();
+        }
+    }
+
+    private void unlock(int[] stripeIndexes) {
+        for (int i = stripeIndexes.length - 1; i >= 0; i--) {
+            stripes[stripeIndexes[i]].unlock();
+        }
+    }
+
+    private static long[] sortedIds(Collection<Long> ids) {
+        long[] sorted = ids.stream().mapToLong(Long::longValue).distinct().toArray();
+        Arrays.sort(sorted);
+        return sorted;
+    }
+
+    // Quantidades em unidades de 1/10000, a escala da coluna stock_quantity
+    private static long toUnits(BigDecimal quantity) {
+        return quantity.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    private static BigDecimal fromUnits(long units) {
+        return BigDecimal.valueOf(units, SCALE);
+    }
+
+    // available e loaded são protegidos pela faixa da matéria-prima; pending é somado sob o journalLock e zerado
+    // pela descarga
+    private static final class Balance {
+        private long available;
+        private volatile boolean loaded;
+        private final AtomicLong pending = new AtomicLong();
+    }
+
+    // Resultado de uma movimentação: os saldos depois dela, ou a matéria-prima que não tinha estoque
+    public record Movement(Long shortageRawMaterialId, BigDecimal shortageAvailable, Map<Long, BigDecimal> balances) {
+
+        static Movement applied(Map<Long, BigDecimal> balances) {
+            return new Movement(null, null, balances);
+        }
+
+        static Movement shortage(Long rawMaterialId, BigDecimal available) {
+            return new Movement(rawMaterialId, available, Map.of());
+        }
+
+        public boolean isApplied() {
+            return shortageRawMaterialId == null;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.project.inventory.service.optimization;
+
+import java.util.PriorityQueue;
+
+// Busca pelo melhor limite: os nós abertos ficam numa fila de prioridade pelo limite superior, e o próximo a
+// expandir é sempre o mais promissor, em vez do próximo na ordem fixa da busca em profundidade. A fila tem um
+// teto de nós; com ela cheia, o nó retirado, ou o filho que não coube, é resolvido por um mergulho em
+// profundidade em vez de entrar na fila.
+// Um único BranchAndBoundSearch mantém o estoque: ir de um nó a outro desfaz o caminho até o ancestral comum e
+// refaz o resto, então cada nó guarda só o pai e a quantidade do seu produto, nunca um vetor de estoque
+final class BestFirstSearch {
+
+    private final PlanningModel model;
+    private final BranchAndBoundSearch worker;
+    private final SharedIncumbent incumbent;
+    private final SearchBudget budget;
+    private final int maxOpenNodes;
+    private final PriorityQueue<OpenNode> open = new PriorityQueue<>(BestFirstSearch::comparePriority);
+    private final OpenNode[] path;
+    private OpenNode current;
+    private int peakOpenNodes;
+
+    private BestFirstSearch(
+            PlanningModel model,
+            BranchAndBoundSearch worker,
+            SharedIncumbent incumbent,
+            SearchBudget budget,
+            int maxOpenNodes
+    ) {
+        this.model = model;
+        this.worker = worker;
+        this.incumbent = incumbent;
+        this.budget = budget;
+        this.maxOpenNodes = maxOpenNodes;
+        this.path = new OpenNode[model.productCount() + 1];
+    }
+
+    static BranchAndBoundSearch.SearchResult solve(PlanningModel model, SearchBudget budget, int maxOpenNodes) {
+        return solve(model, budget, new SharedIncumbent(model.productCount()), null, maxOpenNodes);
+    }
+
+    // table: memória de subproblemas usada nos mergulhos, ou nulo para buscar sem ela
+    static BranchAndBoundSearch.SearchResult solve(
+            PlanningModel model,
+            SearchBudget budget,
+            SharedIncumbent incumbent,
+            TranspositionTable table,
+            int maxOpenNodes
+    ) {
+        return create(model, budget, incumbent, table, maxOpenNodes).search();
+    }
+
+    static BestFirstSearch create(
+            PlanningModel model,
+            SearchBudget budget,
+            SharedIncumbent incumbent,
+            TranspositionTable table,
+            int maxOpenNodes
+    ) {
+        long[] stock = model.copyInitialStock();
+        BranchAndBoundSearch worker = new BranchAndBoundSearch(
+                model,
+                LinearRelaxation.solve(model, stock),
+                incumbent,
+                budget,
+                table,
+                stock,
+                new int[model.productCount()]
+        );
+
+        return new BestFirstSearch(model, worker, incumbent, budget, Math.max(1, maxOpenNodes));
+    }
+
+    BranchAndBoundSearch.SearchResult search() {
+        run();
+        worker.releaseUnusedBudget();
+        return BranchAndBoundSearch.SearchResult.of(incumbent.best(), worker.iterations(), worker.statistics(), budget);
+    }
+
+    // Maior tamanho que a fila chegou a ter; nunca passa de maxOpenNodes
+    int peakOpenNodes() {
+        return peakOpenNodes;
+    }
+
+    private void run() {
+        current = new OpenNode(null, 0, 0, 0L, 0, Long.MAX_VALUE);
+        offer(current);
+
+        while (!open.isEmpty()) {
+            OpenNode node = open.poll();
+
+            // A fila sai em ordem de limite: se o melhor nó aberto não alcança a melhor solução, nenhum outro alcança.
+            // Em empate o nó segue, e o expand decide se ele ainda pode vencer o desempate
+            if (node.bound < incumbent.bestValue()) {
+                open.clear();
+                return;
+            }
+
+            moveTo(node);
+            if (open.size() >= maxOpenNodes) {
+                worker.search(node.productIndex, node.value, node.quantity);
+            } else {
+                expand(node);
+            }
+
+            // O galho em que o orçamento acabou já foi registrado; dos que ficaram na fila, basta o de maior limite
+            if (budget.isExhausted()) {
+                if (!open.isEmpty()) {
+                    budget.recordUnexplored(open.peek().bound);
+                }
+                return;
+            }
+        }
+    }
+
+    // Abre um filho por quantidade do produto do nó, já com o limite; os que não alcançam a melhor solução nem entram.
+    // Com a fila cheia, os filhos restantes são mergulhados a partir do nó, que segue como o nó atual do worker
+    private void expand(OpenNode node) {
+        int productIndex = node.productIndex;
+        int maxUnits = worker.expand(productIndex, node.value, node.quantity);
+        if (maxUnits < 0) {
+            return;
+        }
+
+        long price = model.price(productIndex);
+        for (int quantity = maxUnits; quantity >= 0; quantity--) {
+            long value = Math.addExact(node.value, Math.multiplyExact(price, quantity));
+            long bound = value + worker.childBound(productIndex, quantity);
+            if (bound < incumbent.bestValue()) {
+                continue;
+            }
+            if (open.size() < maxOpenNodes) {
+                offer(new OpenNode(node, productIndex + 1, quantity, value, node.quantity + quantity, bound));
+                continue;
+            }
+
+            worker.place(productIndex, quantity);
+            worker.search(productIndex + 1, value, node.quantity + quantity);
+            worker.remove(productIndex);
+
+            // Os irmãos que nem foram tentados ficam sob o limite do nó
+            if (budget.isExhausted()) {
+                budget.recordUnexplored(node.bound);
+                return;
+            }
+        }
+    }
+
+    private void offer(OpenNode node) {
+        open.add(node);
+        peakOpenNodes = Math.max(peakOpenNodes, open.size());
+    }
+
+    // Leva o estoque e as quantidades do worker do nó atual para o destino, passando pelo ancestral comum
+    private void moveTo(OpenNode target) {
+        OpenNode from = current;
+        OpenNode to = target;
+        int depth = 0;
+
+        while (from.productIndex > to.productIndex) {
+            worker.remove(from.productIndex - 1);
+            from = from.parent;
+        }
+        while (to.productIndex > from.productIndex) {
+            path[depth++] = to;
+            to = to.parent;
+        }
+        while (from != to) {
+            worker.remove(from.productIndex - 1);
+            from = from.parent;
+            path[depth++] = to;
+            to = to.parent;
+        }
+        while (depth > 0) {
+            OpenNode node = path[--depth];
+            path[depth] = null;
+            worker.place(node.productIndex - 1, node.lastQuantity);
+        }
+
+        current = target;
+    }
+
+    // Maior limite primeiro; no empate, o nó mais fundo, que está mais perto de virar uma solução completa
+    private static int comparePriority(OpenNode a, OpenNode b) {
+        if (a.bound != b.bound) {
+            return Long.compare(b.bound, a.bound);
+        }
+        return Integer.compare(b.productIndex, a.productIndex);
+    }
+
+    // productIndex: próximo produto a decidir. lastQuantity: quantidade do produto anterior, escolhida no pai.
+    // value e quantity: totais do caminho; bound: value mais o limite dos produtos restantes
+    private record OpenNode(
+            OpenNode parent,
+            int productIndex,
+            int lastQuantity,
+            long value,
+            int quantity,
+            long bound
+    ) {
+    }
+}
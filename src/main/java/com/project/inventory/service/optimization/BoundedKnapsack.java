@@ -0,0 +1,123 @@
+package com.project.inventory.service.optimization;
+
+// Caminho por programação dinâmica para quando, depois do presolve, sobra uma única matéria-prima: o problema
+// vira uma mochila limitada sobre a capacidade dela. As quantidades de cada produto são divididas em blocos
+// 1, 2, 4, ..., resto, e cada bloco entra como item 0/1. Guardamos uma camada da tabela por sufixo de produtos
+// para reconstruir o plano com o mesmo desempate da busca (maior quantidade total, depois vetor
+// lexicograficamente maior)
+final class BoundedKnapsack {
+
+    // Células da tabela (produtos + 1) x (capacidade + 1); acima disso a busca continua com branch-and-bound
+    static final long MAX_TABLE_CELLS = 1_000_000L;
+
+    private BoundedKnapsack() {
+    }
+
+    // Nulo quando o modelo não é de uma única matéria-prima ou a tabela passaria do limite
+    static int[] solve(PlanningModel model) {
+        if (model.materialCount() != 1) {
+            return null;
+        }
+
+        int productCount = model.productCount();
+        long[] weights = new long[productCount];
+        long step = 0L;
+        for (int p = 0; p < productCount; p++) {
+            for (int item = model.rowStart(p); item < model.rowEnd(p); item++) {
+                weights[p] += model.requiredAt(item);
+            }
+            step = gcd(step, weights[p]);
+        }
+
+        // Sem consumo nenhum produto é produzível, como na busca; senão a capacidade cai para unidades do MDC
+        long stock = model.copyInitialStock()[0];
+        if (step == 0L || stock < 0L) {
+            return new int[productCount];
+        }
+        long capacity = stock / step;
+        if (capacity >= MAX_TABLE_CELLS || (capacity + 1) * (productCount + 1) > MAX_TABLE_CELLS) {
+            return null;
+        }
+
+        int width = (int) capacity + 1;
+        int[] maxUnits = new int[productCount];
+        for (int p = 0; p < productCount; p++) {
+            weights[p] /= step;
+            maxUnits[p] = model.isBlocked(p) || weights[p] == 0L ? 0 : (int) (capacity / weights[p]);
+        }
+
+        // Camada p: melhor (valor, quantidade) usando os produtos p..n-1 com capacidade até c
+        long[][] values = new long[productCount + 1][];
+        int[][] quantities = new int[productCount + 1][];
+        values[productCount] = new long[width];
+        quantities[productCount] = new int[width];
+
+        for (int p = productCount - 1; p >= 0; p--) {
+            long[] value = values[p + 1].clone();
+            int[] quantity = quantities[p + 1].clone();
+
+            int remaining = maxUnits[p];
+            for (int piece = 1; remaining > 0; piece <<= 1) {
+                int units = Math.min(piece, remaining);
+                remaining -= units;
+                addItem(value, quantity, (int) (weights[p] * units), model.price(p) * units, units);
+            }
+
+            values[p] = value;
+            quantities[p] = quantity;
+        }
+
+        return reconstruct(model, weights, maxUnits, values, quantities, (int) capacity);
+    }
+
+    // Item 0/1 percorrendo a capacidade de trás para frente, para cada bloco entrar no máximo uma vez
+    private static void addItem(long[] value, int[] quantity, int weight, long itemValue, int units) {
+        for (int c = value.length - 1; c >= weight; c--) {
+            long candidateValue = value[c - weight] + itemValue;
+            int candidateQuantity = quantity[c - weight] + units;
+            if (candidateValue > value[c] || (candidateValue == value[c] && candidateQuantity > quantity[c])) {
+                value[c] = candidateValue;
+                quantity[c] = candidateQuantity;
+            }
+        }
+    }
+
+    // Em cada produto, a maior quantidade que ainda permite completar o ótimo com os produtos seguintes
+    private static int[] reconstruct(
+            PlanningModel model,
+            long[] weights,
+            int[] maxUnits,
+            long[][] values,
+            int[][] quantities,
+            int capacity
+    ) {
+        int[] plan = new int[model.productCount()];
+        int remaining = capacity;
+
+        for (int p = 0; p < plan.length; p++) {
+            long targetValue = values[p][remaining];
+            int targetQuantity = quantities[p][remaining];
+            int weight = (int) weights[p];
+
+            for (int units = Math.min(maxUnits[p], weight == 0 ? 0 : remaining / weight); units >= 0; units--) {
+                int rest = remaining - weight * units;
+                if (values[p + 1][rest] + model.price(p) * units == targetValue
+                        && quantities[p + 1][rest] + units == targetQuantity) {
+                    plan[p] = units;
+                    remaining = rest;
+                    break;
+                }
+            }
+        }
+        return plan;
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0L) {
+            long next = a % b;
+            a = b;
+            b = next;
+        }
+        return a;
+    }
+}
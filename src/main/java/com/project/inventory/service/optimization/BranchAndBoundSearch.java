@@ -0,0 +1,328 @@
+package com.project.inventory.service.optimization;
+
+import java.util.Arrays;
+
+// Núcleo da busca em ponto fixo: nenhum objeto é alocado dentro da busca.
+// Cada instância é usada por uma única thread; a melhor solução e o orçamento de nós são compartilhados.
+final class BranchAndBoundSearch {
+
+    private static final int MIN_RESERVATION = 16;
+    private static final int MAX_RESERVATION = 1024;
+    private static final int DEADLINE_CHECK_MASK = 63; // consulta o relógio a cada 64 nós
+
+    private final PlanningModel model;
+    private final IncrementalBound bound;
+    private final SharedIncumbent incumbent;
+    private final SearchBudget budget;
+    private final TranspositionTable table;
+    private final int[] currentQuantities;
+    private final long[] levelValue;
+    private final int[] levelQuantity;
+    private final long[] nodeKey;
+    private final long[] nodeCheck;
+    private long nodeLimit;
+    private int reservationSize = MIN_RESERVATION;
+    private long iterations;
+    private long boundEvaluations;
+    private long boundPrunes;
+    private long transpositionPrunes;
+    private long incumbentImprovements;
+    private boolean stopped;
+
+    BranchAndBoundSearch(
+            PlanningModel model,
+            LinearRelaxation relaxation,
+            SharedIncumbent incumbent,
+            SearchBudget budget,
+            TranspositionTable table,
+            long[] availableStock,
+            int[] currentQuantities
+    ) {
+        this.model = model;
+        this.bound = new IncrementalBound(model, relaxation, availableStock, table != null);
+        this.incumbent = incumbent;
+        this.budget = budget;
+        this.table = table;
+        this.currentQuantities = currentQuantities;
+        this.levelValue = new long[model.productCount() + 1];
+        this.levelQuantity = new int[model.productCount() + 1];
+        this.nodeKey = table == null ? null : new long[model.productCount()];
+        this.nodeCheck = table == null ? null : new long[model.productCount()];
+    }
+
+    static SearchResult solve(PlanningModel model, SearchBudget budget) {
+        return solve(model, budget, new SharedIncumbent(model.productCount()));
+    }
+
+    static SearchResult solve(PlanningModel model, SearchBudget budget, SharedIncumbent incumbent) {
+        return solve(model, budget, incumbent, null);
+    }
+
+    // table: memória de subproblemas desta busca, ou nulo para buscar sem ela
+    static SearchResult solve(PlanningModel model, SearchBudget budget, SharedIncumbent incumbent, TranspositionTable table) {
+        long[] stock = model.copyInitialStock();
+        BranchAndBoundSearch search = new BranchAndBoundSearch(
+                model,
+                LinearRelaxation.solve(model, stock),
+                incumbent,
+                budget,
+                table,
+                stock,
+                new int[model.productCount()]
+        );
+
+        search.search(0, 0L, 0);
+        return SearchResult.of(incumbent.best(), search.iterations(), search.statistics(), budget);
+    }
+
+    void search(int productIndex, long priceTotalAtual, int totalQuantityAtual) {
+        findBestCombination(productIndex, priceTotalAtual, totalQuantityAtual);
+        releaseUnusedBudget();
+    }
+
+    void releaseUnusedBudget() {
+        budget.release(nodeLimit - iterations);
+        nodeLimit = iterations;
+    }
+
+    // Visita o nó: conta a iteração, avalia folhas e aplica a poda. Retorna o máximo de unidades do produto
+    // do nó, ou um valor negativo quando não há filhos a explorar
+    int expand(int productIndex, long priceTotalAtual, int totalQuantityAtual) {
+        iterations++;
+
+        // Caso base: chegamos ao fim da lista de produtos
+        if (productIndex == model.productCount()) {
+            evaluateBestSolution(priceTotalAtual, totalQuantityAtual);
+            return -1;
+        }
+
+        // Orçamento esgotado: a solução parcial é viável, e o galho inteiro fica registrado como não explorado
+        if (!withinBudget()) {
+            evaluateBestSolution(priceTotalAtual, totalQuantityAtual);
+            recordUnexplored(productIndex, priceTotalAtual, Integer.MAX_VALUE);
+            return -1;
+        }
+
+        SharedIncumbent.Incumbent best = incumbent.best();
+        if (table != null && isTransposedBelow(productIndex, priceTotalAtual, best)) {
+            transpositionPrunes++;
+            return -1;
+        }
+
+        // PODA: se o valor máximo possível deste galho não supera o melhor valor já encontrado, pulamos.
+        // Em empate exato, o galho só segue se ainda puder vencer o desempate
+        boundEvaluations++;
+        long potentialValue = priceTotalAtual + bound.upperBound(productIndex, Integer.MAX_VALUE);
+        if (potentialValue < best.totalValue()
+                || (potentialValue == best.totalValue() && cannotWinTie(productIndex, totalQuantityAtual, best))) {
+            boundPrunes++;
+            return -1;
+        }
+
+        // O máximo muda com o estoque dos níveis seguintes, então o chamador o lê antes de descer
+        return bound.units(productIndex);
+    }
+
+    long iterations() {
+        return iterations;
+    }
+
+    // Fixa a quantidade do produto no caminho atual; com remove, deixa a busca pelo melhor limite trocar de nó
+    // sem recriar o estoque
+    void place(int productIndex, int quantity) {
+        currentQuantities[productIndex] = quantity;
+        if (quantity > 0) {
+            bound.consume(productIndex, quantity);
+        }
+    }
+
+    void remove(int productIndex) {
+        int quantity = currentQuantities[productIndex];
+        if (quantity > 0) {
+            bound.release(productIndex, quantity);
+        }
+        currentQuantities[productIndex] = 0;
+    }
+
+    // Limite dos produtos seguintes com `quantity` unidades do produto do nível, sem mudar o estoque
+    long childBound(int productIndex, int quantity) {
+        boundEvaluations++;
+        if (quantity > 0) {
+            bound.consume(productIndex, quantity);
+        }
+        long childBound = bound.upperBound(productIndex + 1, Integer.MAX_VALUE);
+        if (quantity > 0) {
+            bound.release(productIndex, quantity);
+        }
+        return childBound;
+    }
+
+    SearchStatistics statistics() {
+        return new SearchStatistics(boundEvaluations, boundPrunes, transpositionPrunes, incumbentImprovements);
+    }
+
+    // Busca em profundidade com pilha explícita: a profundidade é o número de produtos, que em catálogos grandes
+    // passaria do limite da pilha de chamadas. O nível `level` guarda em currentQuantities a quantidade do seu
+    // produto no galho atual e em levelValue/levelQuantity os totais acumulados antes dele
+    private void findBestCombination(int productIndex, long priceTotalAtual, int totalQuantityAtual) {
+        int level = productIndex;
+        levelValue[level] = priceTotalAtual;
+        levelQuantity[level] = totalQuantityAtual;
+
+        while (true) {
+            int quantity = expand(level, levelValue[level], levelQuantity[level]);
+
+            // Sobe enquanto o nível não tiver mais quantidades a tentar
+            while (quantity < 0) {
+                if (level == productIndex) {
+                    return;
+                }
+                level--;
+                quantity = nextQuantity(level);
+            }
+
+            // Tentamos do máximo para o mínimo para encontrar soluções boas mais rápido (ajuda na poda)
+            currentQuantities[level] = quantity;
+            if (quantity > 0) {
+                bound.consume(level, quantity);
+            }
+            levelValue[level + 1] = Math.addExact(levelValue[level], Math.multiplyExact(model.price(level), quantity));
+            levelQuantity[level + 1] = levelQuantity[level] + quantity;
+            level++;
+        }
+    }
+
+    // Volta do filho com a quantidade atual do nível e devolve a próxima a tentar, ou -1 quando o nível acabou
+    private int nextQuantity(int level) {
+        int quantity = currentQuantities[level];
+        if (quantity > 0) {
+            bound.release(level, quantity);
+        }
+
+        // Se o orçamento acabou durante a descida, paramos e registramos o limite das quantidades restantes
+        if (stopped) {
+            if (quantity > 0) {
+                recordUnexplored(level, levelValue[level], quantity - 1);
+            }
+        } else if (quantity > 0) {
+            return quantity - 1;
+        }
+
+        currentQuantities[level] = 0;
+
+        // Galho explorado por inteiro: nenhuma folha dele passa da melhor solução atual
+        if (table != null && !stopped) {
+            table.store(nodeKey[level], nodeCheck[level], incumbent.best().totalValue() - levelValue[level]);
+        }
+        return -1;
+    }
+
+    // O mesmo estoque já foi explorado a partir deste produto. Só poda quando o limite guardado fica
+    // estritamente abaixo da melhor solução, então o desempate não muda
+    private boolean isTransposedBelow(int productIndex, long priceTotalAtual, SharedIncumbent.Incumbent best) {
+        nodeKey[productIndex] = bound.primaryKey(productIndex);
+        nodeCheck[productIndex] = bound.checkKey(productIndex);
+
+        long remainingBound = table.lookup(nodeKey[productIndex], nodeCheck[productIndex]);
+        return remainingBound != TranspositionTable.NO_ENTRY && priceTotalAtual + remainingBound < best.totalValue();
+    }
+
+    private boolean withinBudget() {
+        if (stopped) {
+            return false;
+        }
+
+        if ((iterations & DEADLINE_CHECK_MASK) == 0 && !budget.checkDeadline()) {
+            stopped = true;
+            return false;
+        }
+
+        // Blocos crescem aos poucos para que tarefas curtas não prendam orçamento que outras usariam
+        while (iterations >= nodeLimit) {
+            int granted = budget.reserve(reservationSize);
+            if (granted == 0) {
+                stopped = true;
+                return false;
+            }
+            nodeLimit += granted;
+            reservationSize = Math.min(MAX_RESERVATION, reservationSize * 2);
+        }
+        return true;
+    }
+
+    // Limite do galho em que o produto do nível vai de 0 a maxQuantity, com o estoque atual
+    private void recordUnexplored(int productIndex, long priceTotalAtual, int maxQuantity) {
+        budget.recordUnexplored(priceTotalAtual + bound.upperBound(productIndex, maxQuantity));
+    }
+
+    // Desempate: maior quantidade total, depois vetor lexicograficamente maior. Todo vetor do galho começa
+    // pelo prefixo atual, então um prefixo menor que o da melhor solução não pode vencer com a mesma quantidade
+    private boolean cannotWinTie(int productIndex, int totalQuantityAtual, SharedIncumbent.Incumbent best) {
+        long quantityBound = totalQuantityAtual + bound.quantityBound();
+
+        if (quantityBound != best.totalQuantity()) {
+            return quantityBound < best.totalQuantity();
+        }
+        return Arrays.compare(currentQuantities, 0, productIndex, best.quantities(), 0, productIndex) < 0;
+    }
+
+    private void evaluateBestSolution(long priceTotalAtual, int totalQuantityAtual) {
+        if (incumbent.offer(priceTotalAtual, totalQuantityAtual, currentQuantities)) {
+            incumbentImprovements++;
+        }
+    }
+
+    // Contadores da busca: limites calculados, galhos podados pelo limite e pela memória de subproblemas e
+    // melhorias da melhor solução encontradas pela própria busca (as do ponto de partida não entram)
+    record SearchStatistics(
+            long boundEvaluations,
+            long boundPrunes,
+            long transpositionPrunes,
+            long incumbentImprovements
+    ) {
+
+        static final SearchStatistics EMPTY = new SearchStatistics(0L, 0L, 0L, 0L);
+
+        SearchStatistics plus(SearchStatistics other) {
+            return new SearchStatistics(
+                    boundEvaluations + other.boundEvaluations,
+                    boundPrunes + other.boundPrunes,
+                    transpositionPrunes + other.transpositionPrunes,
+                    incumbentImprovements + other.incumbentImprovements
+            );
+        }
+    }
+
+    record SearchResult(
+            int[] quantities,
+            long totalValue,
+            int totalQuantity,
+            long iterations,
+            SearchStatistics statistics,
+            boolean provenOptimal,
+            long bestBound
+    ) {
+
+        static SearchResult of(
+                SharedIncumbent.Incumbent best,
+                long iterations,
+                SearchStatistics statistics,
+                SearchBudget budget
+        ) {
+            boolean provenOptimal = !budget.isExhausted();
+            long bestBound = provenOptimal
+                    ? best.totalValue()
+                    : Math.max(best.totalValue(), budget.unexploredBound());
+
+            return new SearchResult(
+                    best.quantities(),
+                    best.totalValue(),
+                    best.totalQuantity(),
+                    iterations,
+                    statistics,
+                    provenOptimal,
+                    bestBound
+            );
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.project.inventory.service.optimization;
+
+import com.project.inventory.dto.planproduction.ProductionPlanSuggestionResponse;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Planejamento em andamento compartilhado pelas requisições iguais (mesma versão do catálogo e mesmo prazo) que
+// chegam enquanto ele roda. A busca só é cancelada quando todas as requisições que esperam por ela desistem
+final class InFlightPlan {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final CompletableFuture<ProductionPlanSuggestionResponse> result = new CompletableFuture<>();
+    private final SearchCancellation search = new SearchCancellation();
+
+    private int participants;
+    private boolean closed;
+
+    // Retorna false quando o planejamento já terminou ou foi abandonado; a requisição então começa outro
+    boolean join(SearchCancellation request) {
+        lock.lock();
+        try {
+            if (closed) {
+                return false;
+            }
+            participants++;
+        } finally {
+            lock.unlock();
+        }
+
+        request.onCancel(this::leave);
+        return true;
+    }
+
+    // Cancelamento da busca compartilhada, ligado ao orçamento por quem a executa
+    SearchCancellation search() {
+        return search;
+    }
+
+    void complete(ProductionPlanSuggestionResponse plan) {
+        close();
+        result.complete(plan);
+    }
+
+    void fail(RuntimeException error) {
+        close();
+        result.completeExceptionally(error);
+    }
+
+    // Nulo quando todas as requisições desistiram e a busca foi abandonada
+    ProductionPlanSuggestionResponse await() {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private void leave() {
+        boolean abandoned;
+        lock.lock();
+        try {
+            participants--;
+            abandoned = participants == 0 && !closed;
+            if (abandoned) {
+                closed = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (abandoned) {
+            search.cancel();
+        }
+    }
+
+    private void close() {
+        lock.lock();
+        try {
+            closed = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package com.project.inventory.service.optimization;
+
+// Limite superior do subproblema restante mantido de forma incremental sobre a composição esparsa do modelo.
+// Consumir ou devolver um produto só marca as matérias-primas da sua linha e os produtos das colunas delas; o
+// próximo limite recalcula apenas o que foi marcado, em vez de percorrer a matriz inteira a cada nó.
+// Os três limites são os mesmos da busca: máximo independente de cada produto, mochila fracionária de cada
+// matéria-prima (a mais apertada sai de uma árvore de máximos) e lagrangiano com os duais da raiz.
+// Por ser o único ponto em que o estoque da busca muda, também mantém as somas de hash do estoque usadas pela
+// memória de subproblemas
+final class IncrementalBound {
+
+    // O lagrangiano é somado em ponto fixo (1/1024 de centavo), com cada termo arredondado para cima: somas e
+    // subtrações repetidas ficam exatas e o limite continua válido
+    private static final double LAGRANGIAN_RESOLUTION = 1024.0;
+
+    private final PlanningModel model;
+    private final LinearRelaxation relaxation;
+    private final long[] stock;
+    private final boolean hashed;
+    private final int[] units;
+    private final int leafOffset;
+    private final long[] slackTree;
+
+    private final int[] dirtyProducts;
+    private final boolean[] productDirty;
+    private int dirtyProductCount;
+    private final int[] dirtyMaterials;
+    private final boolean[] materialDirty;
+    private int dirtyMaterialCount;
+
+    // Somas sobre os produtos a partir de `level` (os anteriores já estão fixados no caminho atual)
+    private int level;
+    private long independentTotal;
+    private long quantityTotal;
+    private long lagrangianStock;
+    private long lagrangianProducts;
+    private long primaryStockSum;
+    private long checkStockSum;
+
+    // relaxation: duais da raiz, ou nulo para limitar sem o lagrangiano. `stock` é o vetor da busca, alterado
+    // só por consume/release. hashed: mantém as somas de hash do estoque (só quando há memória de subproblemas)
+    IncrementalBound(PlanningModel model, LinearRelaxation relaxation, long[] stock, boolean hashed) {
+        this.model = model;
+        this.stock = stock;
+        this.hashed = hashed;
+        this.units = new int[model.productCount()];
+        this.dirtyProducts = new int[model.productCount()];
+        this.productDirty = new boolean[model.productCount()];
+        this.dirtyMaterials = new int[model.materialCount()];
+        this.materialDirty = new boolean[model.materialCount()];
+
+        int leaves = 1;
+        while (leaves < model.materialCount()) {
+            leaves <<= 1;
+        }
+        this.leafOffset = leaves;
+        this.slackTree = new long[2 * leaves];
+
+        for (int p = 0; p < model.productCount(); p++) {
+            units[p] = maxProducibleUnits(p);
+        }
+
+        this.relaxation = fitsFixedPoint(model, relaxation, stock, units) ? relaxation : null;
+        if (this.relaxation != null) {
+            for (int m = 0; m < model.materialCount(); m++) {
+                lagrangianStock += stockTerm(m);
+            }
+        }
+
+        if (hashed) {
+            for (int m = 0; m < model.materialCount(); m++) {
+                primaryStockSum += TranspositionTable.primaryTerm(m, stock[m]);
+                checkStockSum += TranspositionTable.checkTerm(m, stock[m]);
+            }
+        }
+
+        // Nenhum produto entra nas somas até o primeiro limite pedido
+        this.level = model.productCount();
+    }
+
+    // Os termos em ponto fixo só diminuem durante a busca (estoque e máximos só caem), então basta a soma da raiz caber
+    private static boolean fitsFixedPoint(PlanningModel model, LinearRelaxation relaxation, long[] stock, int[] units) {
+        if (relaxation == null) {
+            return false;
+        }
+
+        double total = model.productCount() + model.materialCount();
+        for (int m = 0; m < model.materialCount(); m++) {
+            total += relaxation.dual(m) * stock[m] * LAGRANGIAN_RESOLUTION;
+        }
+        for (int p = 0; p < model.productCount(); p++) {
+            total += Math.max(0.0, relaxation.reducedPrice(p)) * units[p] * LAGRANGIAN_RESOLUTION;
+        }
+        return total < Long.MAX_VALUE / 4.0;
+    }
+
+    void consume(int product, int quantity) {
+        for (int item = model.rowStart(product); item < model.rowEnd(product); item++) {
+            changeStock(model.materialAt(item), -model.requiredAt(item) * quantity);
+        }
+    }
+
+    void release(int product, int quantity) {
+        for (int item = model.rowStart(product); item < model.rowEnd(product); item++) {
+            changeStock(model.materialAt(item), model.requiredAt(item) * quantity);
+        }
+    }
+
+    // Limite do galho em que os produtos antes de `productIndex` estão fixados e ele vai de 0 a maxQuantityOfFirst
+    long upperBound(int productIndex, int maxQuantityOfFirst) {
+        refresh(productIndex);
+
+        if (productIndex == model.productCount() || maxQuantityOfFirst >= units[productIndex]) {
+            return currentBound();
+        }
+
+        // Só acontece ao registrar galhos não explorados: o máximo do produto é trocado e depois restaurado
+        int full = units[productIndex];
+        replaceUnits(productIndex, maxQuantityOfFirst);
+        long bound = currentBound();
+        replaceUnits(productIndex, full);
+        return bound;
+    }
+
+    // Máximo de unidades do produto com o estoque atual; válido depois de upperBound
+    int units(int product) {
+        return units[product];
+    }
+
+    // Soma dos máximos dos produtos a partir do nível do último limite
+    long quantityBound() {
+        return quantityTotal;
+    }
+
+    long primaryKey(int productIndex) {
+        return TranspositionTable.primaryHash(productIndex, primaryStockSum);
+    }
+
+    long checkKey(int productIndex) {
+        return TranspositionTable.checkHash(productIndex, checkStockSum);
+    }
+
+    private void changeStock(int material, long delta) {
+        if (relaxation != null) {
+            lagrangianStock -= stockTerm(material);
+        }
+        if (hashed) {
+            primaryStockSum -= TranspositionTable.primaryTerm(material, stock[material]);
+            checkStockSum -= TranspositionTable.checkTerm(material, stock[material]);
+        }
+
+        stock[material] += delta;
+
+        if (relaxation != null) {
+            lagrangianStock += stockTerm(material);
+        }
+        if (hashed) {
+            primaryStockSum += TranspositionTable.primaryTerm(material, stock[material]);
+            checkStockSum += TranspositionTable.checkTerm(material, stock[material]);
+        }
+
+        markMaterial(material);
+        for (int entry = model.columnStart(material); entry < model.columnEnd(material); entry++) {
+            int product = model.columnProductAt(entry);
+            if (!productDirty[product]) {
+                productDirty[product] = true;
+                dirtyProducts[dirtyProductCount++] = product;
+            }
+        }
+    }
+
+    private void markMaterial(int material) {
+        if (!materialDirty[material]) {
+            materialDirty[material] = true;
+            dirtyMaterials[dirtyMaterialCount++] = material;
+        }
+    }
+
+    private void refresh(int productIndex) {
+        for (int i = 0; i < dirtyProductCount; i++) {
+            int product = dirtyProducts[i];
+            productDirty[product] = false;
+
+            int updated = maxProducibleUnits(product);
+            if (updated != units[product]) {
+                if (product >= level) {
+                    replaceUnits(product, updated);
+                } else {
+                    units[product] = updated;
+                }
+            }
+        }
+        dirtyProductCount = 0;
+
+        while (level > productIndex) {
+            level--;
+            include(level, 1);
+        }
+        while (level < productIndex) {
+            include(level, -1);
+            level++;
+        }
+    }
+
+    private void replaceUnits(int product, int updated) {
+        include(product, -1);
+        units[product] = updated;
+        include(product, 1);
+    }
+
+    // Soma (sign = 1) ou retira (sign = -1) o produto das somas; as colunas das suas matérias-primas mudam
+    private void include(int product, int sign) {
+        int productUnits = units[product];
+        if (productUnits == 0) {
+            return;
+        }
+
+        independentTotal = Math.addExact(independentTotal, sign * Math.multiplyExact(model.price(product), productUnits));
+        quantityTotal += sign * productUnits;
+        if (relaxation != null) {
+            lagrangianProducts += sign * productTerm(product);
+        }
+
+        for (int item = model.rowStart(product); item < model.rowEnd(product); item++) {
+            markMaterial(model.materialAt(item));
+        }
+    }
+
+    private long currentBound() {
+        for (int i = 0; i < dirtyMaterialCount; i++) {
+            int material = dirtyMaterials[i];
+            materialDirty[material] = false;
+            updateSlack(material, calculateMaterialSlack(material));
+        }
+        dirtyMaterialCount = 0;
+
+        long bound = independentTotal - Math.max(0L, slackTree[1]);
+        if (relaxation != null) {
+            bound = Math.min(bound, calculateLagrangianBound());
+        }
+
+        // O restante também vale um múltiplo do MDC dos preços
+        return bound - Math.floorMod(bound, model.valueStep());
+    }
+
+    private int maxProducibleUnits(int product) {
+        if (model.isBlocked(product)) {
+            return 0;
+        }
+
+        int maximo = Integer.MAX_VALUE;
+
+        for (int item = model.rowStart(product); item < model.rowEnd(product); item++) {
+            // Divisão inteira trunca em direção a zero, como divide(..., 0, RoundingMode.DOWN).intValue()
+            int possivelComEssaRawMaterial = (int) (stock[model.materialAt(item)] / model.requiredAt(item));
+            maximo = Math.min(maximo, possivelComEssaRawMaterial);
+
+            if (maximo == 0) {
+                return 0;
+            }
+        }
+
+        return maximo == Integer.MAX_VALUE ? 0 : maximo;
+    }
+
+    // Quanto a mochila fracionária da matéria-prima tira do limite independente: o valor dos produtos da coluna
+    // menos o que cabe no estoque dela, pegando primeiro os de maior valor por unidade consumida
+    private long calculateMaterialSlack(int material) {
+        long capacity = stock[material];
+        long columnValue = 0L;
+        long knapsackValue = 0L;
+        boolean full = false;
+
+        for (int entry = model.columnStart(material); entry < model.columnEnd(material); entry++) {
+            int product = model.columnProductAt(entry);
+            if (product < level || units[product] <= 0) {
+                continue;
+            }
+
+            long price = model.price(product);
+            columnValue += price * units[product];
+
+            if (full) {
+                continue;
+            }
+
+            long required = model.columnRequiredAt(entry);
+            long productUnits = Math.min(units[product], capacity / required);
+            knapsackValue += price * productUnits;
+            capacity -= productUnits * required;
+
+            if (productUnits < units[product]) {
+                // Fração da próxima unidade; arredondar para cima mantém o limite válido
+                knapsackValue += (long) Math.ceil((double) price * capacity / required);
+                full = true;
+            }
+        }
+
+        return columnValue - knapsackValue;
+    }
+
+    private void updateSlack(int material, long slack) {
+        int node = leafOffset + material;
+        slackTree[node] = slack;
+        for (node >>= 1; node > 0; node >>= 1) {
+            slackTree[node] = Math.max(slackTree[2 * node], slackTree[2 * node + 1]);
+        }
+    }
+
+    // L(λ) = λ·estoque + Σ máximo_j · max(0, preço_j - λ·A_j) limita o subproblema para qualquer λ >= 0
+    private long calculateLagrangianBound() {
+        double value = (lagrangianStock + lagrangianProducts) / LAGRANGIAN_RESOLUTION;
+
+        // Folga para o erro de arredondamento em ponto flutuante; só afrouxa o limite
+        double margin = Math.abs(value) * 1e-10 + 1.0;
+        return value + margin >= Long.MAX_VALUE ? Long.MAX_VALUE : (long) Math.ceil(value + margin);
+    }
+
+    private long stockTerm(int material) {
+        return (long) Math.ceil(relaxation.dual(material) * stock[material] * LAGRANGIAN_RESOLUTION);
+    }
+
+    private long productTerm(int product) {
+        double reducedPrice = relaxation.reducedPrice(product);
+        return reducedPrice > 0.0 ? (long) Math.ceil(reducedPrice * units[product] * LAGRANGIAN_RESOLUTION) : 0L;
+    }
+}
@@ -0,0 +1,205 @@
+package com.project.inventory.service.optimization;
+
+// Simplex primal (tableau denso) para a relaxação linear max p·x, A·x <= estoque, x >= 0.
+// Os valores duais alimentam o limite lagrangiano da busca; qualquer dual não negativo gera um limite válido,
+// então imprecisões numéricas ou o corte por tamanho/pivôs nunca invalidam a poda.
+final class LinearRelaxation {
+
+    private static final double EPSILON = 1e-9;
+    private static final long MAX_TABLEAU_CELLS = 4_000_000L;
+    private static final int MAX_PIVOTS_PER_VARIABLE = 50;
+    private static final int MAX_DEGENERATE_PIVOTS = 16;
+
+    private final double[] duals;
+    private final double[] reducedPrices;
+    private final double objectiveValue;
+
+    private LinearRelaxation(PlanningModel model, double[] duals, double objectiveValue) {
+        this.duals = duals;
+        this.objectiveValue = objectiveValue;
+        this.reducedPrices = new double[model.productCount()];
+
+        for (int p = 0; p < model.productCount(); p++) {
+            double reduced = model.price(p);
+            for (int item = model.rowStart(p); item < model.rowEnd(p); item++) {
+                reduced -= duals[model.materialAt(item)] * model.requiredAt(item);
+            }
+            reducedPrices[p] = reduced;
+        }
+    }
+
+    // Retorna null quando o modelo é grande demais para o tableau denso
+    static LinearRelaxation solve(PlanningModel model, long[] stock) {
+        int materialCount = model.materialCount();
+        int productCount = model.productCount();
+
+        // Linhas com estoque zero são descartadas junto com os produtos que dependem delas
+        int[] rowOfMaterial = new int[materialCount];
+        int rows = 0;
+        for (int m = 0; m < materialCount; m++) {
+            rowOfMaterial[m] = stock[m] > 0 ? rows++ : -1;
+        }
+
+        int[] columnOfProduct = new int[productCount];
+        int columns = 0;
+        double maxPrice = 0.0;
+        for (int p = 0; p < productCount; p++) {
+            boolean usable = !model.isBlocked(p) && model.price(p) > 0 && model.rowEnd(p) > model.rowStart(p);
+            for (int item = model.rowStart(p); usable && item < model.rowEnd(p); item++) {
+                usable = rowOfMaterial[model.materialAt(item)] >= 0;
+            }
+            columnOfProduct[p] = usable ? columns++ : -1;
+            if (usable) {
+                maxPrice = Math.max(maxPrice, model.price(p));
+            }
+        }
+
+        if (rows == 0 || columns == 0) {
+            return new LinearRelaxation(model, new double[materialCount], 0.0);
+        }
+
+        int width = columns + rows;
+        if ((long) rows * (width + 1) > MAX_TABLEAU_CELLS) {
+            return null;
+        }
+
+        // Linhas normalizadas pelo estoque (lado direito = 1) e objetivo pelo maior preço, para estabilidade numérica
+        double[][] tableau = new double[rows][width + 1];
+        double[] reducedCost = new double[width];
+        int[] basis = new int[rows];
+
+        for (int m = 0; m < materialCount; m++) {
+            int row = rowOfMaterial[m];
+            if (row >= 0) {
+                tableau[row][columns + row] = 1.0;
+                tableau[row][width] = 1.0;
+                basis[row] = columns + row;
+            }
+        }
+
+        for (int p = 0; p < productCount; p++) {
+            int column = columnOfProduct[p];
+            if (column < 0) {
+                continue;
+            }
+            reducedCost[column] = model.price(p) / maxPrice;
+            for (int item = model.rowStart(p); item < model.rowEnd(p); item++) {
+                int m = model.materialAt(item);
+                tableau[rowOfMaterial[m]][column] += (double) model.requiredAt(item) / stock[m];
+            }
+        }
+
+        double objective = 0.0;
+        int[] nonZeroColumns = new int[width + 1];
+        int degeneratePivots = 0;
+        int maxPivots = MAX_PIVOTS_PER_VARIABLE * width;
+
+        for (int pivots = 0; pivots < maxPivots; pivots++) {
+            // Regra de Dantzig (maior custo reduzido) precisa de bem menos pivôs em modelos grandes; depois de uma
+            // sequência de pivôs degenerados passa para a regra de Bland (menor índice com custo reduzido
+            // positivo), que não cicla, até o objetivo voltar a subir
+            int entering = degeneratePivots < MAX_DEGENERATE_PIVOTS
+                    ? largestReducedCost(reducedCost, width)
+                    : firstPositiveReducedCost(reducedCost, width);
+            if (entering < 0) {
+                break;
+            }
+
+            int leaving = -1;
+            double bestRatio = Double.POSITIVE_INFINITY;
+            for (int row = 0; row < rows; row++) {
+                double coefficient = tableau[row][entering];
+                if (coefficient > EPSILON) {
+                    double ratio = tableau[row][width] / coefficient;
+                    if (ratio < bestRatio - EPSILON || (ratio <= bestRatio + EPSILON && leaving >= 0 && basis[row] < basis[leaving])) {
+                        bestRatio = ratio;
+                        leaving = row;
+                    }
+                }
+            }
+            if (leaving < 0) {
+                break; // ilimitado não ocorre com estoque finito, mas não arriscamos laço infinito
+            }
+
+            // A composição é esparsa: guardamos as colunas não nulas da linha do pivô e só elas são atualizadas
+            // nas demais linhas
+            double[] pivotRow = tableau[leaving];
+            double pivot = pivotRow[entering];
+            int nonZeroCount = 0;
+            for (int column = 0; column <= width; column++) {
+                if (pivotRow[column] != 0.0) {
+                    pivotRow[column] /= pivot;
+                    nonZeroColumns[nonZeroCount++] = column;
+                }
+            }
+
+            for (int row = 0; row < rows; row++) {
+                double factor = tableau[row][entering];
+                if (row != leaving && factor != 0.0) {
+                    double[] target = tableau[row];
+                    for (int k = 0; k < nonZeroCount; k++) {
+                        int column = nonZeroColumns[k];
+                        target[column] -= factor * pivotRow[column];
+                    }
+                }
+            }
+
+            double costFactor = reducedCost[entering];
+            for (int k = 0; k < nonZeroCount; k++) {
+                int column = nonZeroColumns[k];
+                if (column < width) {
+                    reducedCost[column] -= costFactor * pivotRow[column];
+                }
+            }
+            double step = costFactor * pivotRow[width];
+            objective += step;
+            basis[leaving] = entering;
+            degeneratePivots = step > EPSILON ? 0 : degeneratePivots + 1;
+        }
+
+        // Dual da linha m = -(custo reduzido da folga), desfeitas as normalizações de linha e de objetivo
+        double[] duals = new double[materialCount];
+        for (int m = 0; m < materialCount; m++) {
+            int row = rowOfMaterial[m];
+            if (row >= 0) {
+                duals[m] = Math.max(0.0, -reducedCost[columns + row]) * maxPrice / stock[m];
+            }
+        }
+
+        return new LinearRelaxation(model, duals, objective * maxPrice);
+    }
+
+    private static int largestReducedCost(double[] reducedCost, int width) {
+        int entering = -1;
+        double largest = EPSILON;
+        for (int column = 0; column < width; column++) {
+            if (reducedCost[column] > largest) {
+                largest = reducedCost[column];
+                entering = column;
+            }
+        }
+        return entering;
+    }
+
+    private static int firstPositiveReducedCost(double[] reducedCost, int width) {
+        for (int column = 0; column < width; column++) {
+            if (reducedCost[column] > EPSILON) {
+                return column;
+            }
+        }
+        return -1;
+    }
+
+    double dual(int material) {
+        return duals[material];
+    }
+
+    // Preço menos o custo dual dos insumos consumidos por uma unidade
+    double reducedPrice(int product) {
+        return reducedPrices[product];
+    }
+
+    double objectiveValue() {
+        return objectiveValue;
+    }
+}
@@ -0,0 +1,214 @@
+package com.project.inventory.service.optimization;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Branch-and-bound em fork-join: as faixas de quantidade dos primeiros produtos são divididas sob demanda, e cada
+// tarefa tem seu próprio vetor de estoque; todas podam contra a mesma SharedIncumbent. Uma tarefa percorre a faixa
+// com uma única busca e deixa o restante dela na fila como continuação; só quando outra thread a rouba o estoque e
+// as quantidades daquele nível passam a ser dela. Assim o número de tarefas acompanha os roubos, não a largura
+// das faixas. A memória de subproblemas, quando ligada, é uma por thread do pool: as entradas valem para o modelo
+// inteiro, então tarefas da mesma thread a compartilham sem sincronização
+final class ParallelBranchAndBound {
+
+    private static final int TASKS_PER_THREAD = 8;
+    // Faixa do nó da tarefa raiz, que ainda não foi expandido
+    private static final int UNEXPANDED = -1;
+    private static final int MAX_SPLIT_DEPTH = 4;
+
+    private final PlanningModel model;
+    private final LinearRelaxation relaxation;
+    private final SharedIncumbent incumbent;
+    private final SearchBudget budget;
+    private final int splitDepth;
+    private final Supplier<TranspositionTable> tableFactory;
+    private final Map<Thread, TranspositionTable> tables = new ConcurrentHashMap<>();
+    private final LongAdder iterations = new LongAdder();
+    private final AtomicReference<BranchAndBoundSearch.SearchStatistics> statistics =
+            new AtomicReference<>(BranchAndBoundSearch.SearchStatistics.EMPTY);
+
+    private ParallelBranchAndBound(
+            PlanningModel model,
+            LinearRelaxation relaxation,
+            SharedIncumbent incumbent,
+            SearchBudget budget,
+            int splitDepth,
+            Supplier<TranspositionTable> tableFactory
+    ) {
+        this.model = model;
+        this.relaxation = relaxation;
+        this.incumbent = incumbent;
+        this.budget = budget;
+        this.splitDepth = splitDepth;
+        this.tableFactory = tableFactory;
+    }
+
+    static BranchAndBoundSearch.SearchResult solve(PlanningModel model, SearchBudget budget, ForkJoinPool pool) {
+        return solve(model, budget, new SharedIncumbent(model.productCount()), pool);
+    }
+
+    static BranchAndBoundSearch.SearchResult solve(
+            PlanningModel model,
+            SearchBudget budget,
+            SharedIncumbent incumbent,
+            ForkJoinPool pool
+    ) {
+        return solve(model, budget, incumbent, pool, null);
+    }
+
+    // tableFactory: cria a memória de subproblemas de cada thread, ou nulo para buscar sem ela
+    static BranchAndBoundSearch.SearchResult solve(
+            PlanningModel model,
+            SearchBudget budget,
+            SharedIncumbent incumbent,
+            ForkJoinPool pool,
+            Supplier<TranspositionTable> tableFactory
+    ) {
+        long[] stock = model.copyInitialStock();
+        ParallelBranchAndBound search = new ParallelBranchAndBound(
+                model,
+                LinearRelaxation.solve(model, stock),
+                incumbent,
+                budget,
+                calculateSplitDepth(model, stock, pool.getParallelism()),
+                tableFactory
+        );
+
+        pool.invoke(search.new BranchTask(0, stock, new int[model.productCount()], 0L, 0, UNEXPANDED));
+        return BranchAndBoundSearch.SearchResult.of(incumbent.best(), search.iterations.sum(), search.statistics.get(), budget);
+    }
+
+    // Níveis em que a faixa de quantidades pode ser dividida: os primeiros produtos, até haver ramos suficientes
+    // para manter todas as threads ocupadas. A divisão é sob demanda, então um nível a mais só custa a consulta
+    // à fila em cada nó dele
+    private static int calculateSplitDepth(PlanningModel model, long[] stock, int parallelism) {
+        long targetTasks = (long) parallelism * TASKS_PER_THREAD;
+        long tasks = 1;
+        int depth = 0;
+
+        while (depth < Math.min(MAX_SPLIT_DEPTH, model.productCount()) && tasks < targetTasks) {
+            tasks *= 1L + Math.max(0, independentMaximum(model, stock, depth));
+            depth++;
+        }
+        return depth;
+    }
+
+    private static long independentMaximum(PlanningModel model, long[] stock, int product) {
+        if (model.isBlocked(product) || model.rowEnd(product) == model.rowStart(product)) {
+            return 0;
+        }
+
+        long maximo = Long.MAX_VALUE;
+        for (int item = model.rowStart(product); item < model.rowEnd(product); item++) {
+            maximo = Math.min(maximo, stock[model.materialAt(item)] / model.requiredAt(item));
+        }
+        return maximo;
+    }
+
+    // Quantidades de highestQuantity a 0 do produto productIndex, sobre o estoque e as quantidades recebidos,
+    // que passam a ser só desta tarefa
+    private final class BranchTask extends RecursiveAction {
+
+        private final int productIndex;
+        private final long[] stock;
+        private final int[] quantities;
+        private final long totalValue;
+        private final int totalQuantity;
+        private final int highestQuantity;
+        private final List<BranchTask> stolen = new ArrayList<>();
+
+        private BranchTask(
+                int productIndex,
+                long[] stock,
+                int[] quantities,
+                long totalValue,
+                int totalQuantity,
+                int highestQuantity
+        ) {
+            this.productIndex = productIndex;
+            this.stock = stock;
+            this.quantities = quantities;
+            this.totalValue = totalValue;
+            this.totalQuantity = totalQuantity;
+            this.highestQuantity = highestQuantity;
+        }
+
+        @Override
+        protected void compute() {
+            TranspositionTable table = tableFactory == null
+                    ? null
+                    : tables.computeIfAbsent(Thread.currentThread(), thread -> tableFactory.get());
+            BranchAndBoundSearch worker = new BranchAndBoundSearch(
+                    model, relaxation, incumbent, budget, table, stock, quantities);
+
+            if (highestQuantity == UNEXPANDED) {
+                branch(worker, productIndex, totalValue, totalQuantity);
+            } else {
+                explore(worker, productIndex, totalValue, totalQuantity, highestQuantity);
+            }
+            worker.releaseUnusedBudget();
+            collect(worker);
+
+            // As continuações roubadas rodam em outras threads; a tarefa só termina com elas
+            for (BranchTask task : stolen) {
+                task.join();
+            }
+        }
+
+        private void branch(BranchAndBoundSearch worker, int level, long value, int quantity) {
+            if (level >= splitDepth) {
+                worker.search(level, value, quantity);
+                return;
+            }
+
+            int maximoUnits = worker.expand(level, value, quantity);
+            if (maximoUnits >= 0) {
+                explore(worker, level, value, quantity, maximoUnits);
+            }
+        }
+
+        // Percorre a faixa do nível com o worker desta tarefa. Com a fila da thread vazia, o restante da faixa vai
+        // para a fila como continuação; se ninguém a roubou até o fim da quantidade atual, ela volta para cá e a
+        // cópia do estoque fica guardada para a próxima continuação do mesmo nível
+        private void explore(BranchAndBoundSearch worker, int level, long value, int quantity, int highest) {
+            long price = model.price(level);
+            long[] spareStock = null;
+            int[] spareQuantities = null;
+
+            for (int units = highest; units >= 0; units--) {
+                BranchTask rest = null;
+                if (units > 0 && getQueuedTaskCount() == 0) {
+                    if (spareStock == null) {
+                        spareStock = stock.clone();
+                        spareQuantities = quantities.clone();
+                    }
+                    rest = new BranchTask(level, spareStock, spareQuantities, value, quantity, units - 1);
+                    rest.fork();
+                }
+
+                worker.place(level, units);
+                branch(worker, level + 1, Math.addExact(value, Math.multiplyExact(price, units)), quantity + units);
+                worker.remove(level);
+
+                if (rest != null && !rest.tryUnfork()) {
+                    // Roubada: as quantidades restantes e as cópias agora são da outra thread
+                    stolen.add(rest);
+                    return;
+                }
+            }
+        }
+
+        // Uma vez por tarefa, então a soma dos contadores não disputa com a busca
+        private void collect(BranchAndBoundSearch worker) {
+            iterations.add(worker.iterations());
+            statistics.accumulateAndGet(worker.statistics(), BranchAndBoundSearch.SearchStatistics::plus);
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package com.project.inventory.service.optimization;
+
+import com.project.inventory.domain.enumtype.PlanJobStatus;
+import com.project.inventory.dto.planproduction.ProductionPlanJobResponse;
+import com.project.inventory.dto.planproduction.ProductionPlanSuggestionResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+// Estado de um planejamento assíncrono. Usa ReentrantLock em vez de synchronized porque o envio dos eventos
+// bloqueia em I/O dentro de virtual threads, e synchronized prenderia a thread portadora.
+// A busca só publica a melhor solução (offer, sem lock e sem I/O); uma virtual thread própria do job monta a
+// resposta e envia os eventos, juntando as melhorias que chegarem enquanto ela ainda envia a anterior. Assim um
+// cliente lento nunca segura a thread da busca nem consome o prazo dela.
+// lock: estado do job, nunca segurado durante I/O. sendLock: um envio por vez, para os eventos de um cliente
+// saírem em ordem (a última melhoria antes do evento final). Ordem dos locks: sendLock antes de lock
+@Slf4j
+final class PlanJob {
+
+    private final UUID id;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ReentrantLock sendLock = new ReentrantLock();
+    private final List<SseEmitter> emitters = new ArrayList<>();
+    private final AtomicReference<SharedIncumbent.Incumbent> latest = new AtomicReference<>();
+    private final Semaphore signal = new Semaphore(0);
+
+    private PlanJobStatus status = PlanJobStatus.QUEUED;
+    private ProductionPlanSuggestionResponse bestPlan;
+    private String errorMessage;
+    private SearchBudget budget;
+    private Future<?> future;
+    private boolean cancelRequested;
+    private long finishedAt;
+
+    PlanJob(UUID id) {
+        this.id = id;
+    }
+
+    UUID id() {
+        return id;
+    }
+
+    void setFuture(Future<?> future) {
+        this.future = future;
+    }
+
+    // Retorna false quando o job foi cancelado enquanto esperava vaga
+    boolean start() {
+        lock.lock();
+        try {
+            if (status != PlanJobStatus.QUEUED) {
+                return false;
+            }
+            status = PlanJobStatus.RUNNING;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void attach(SearchBudget budget) {
+        lock.lock();
+        try {
+            this.budget = budget;
+            if (cancelRequested) {
+                budget.cancel();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Ouvinte do SharedIncumbent, na thread da busca: guarda a melhoria e acorda o publicador. Com busca
+    // paralela as melhorias podem chegar fora de ordem, então só fica a melhor
+    void offer(SharedIncumbent.Incumbent incumbent) {
+        latest.accumulateAndGet(incumbent, PlanJob::better);
+        signal.release();
+    }
+
+    // Laço do publicador, numa virtual thread do job: a cada sinal monta a resposta da melhor solução guardada
+    // e a envia aos clientes. Termina quando o job termina. Uma falha ao montar ou enviar uma melhoria só perde
+    // aquela melhoria: o laço segue, e a próxima melhoria (ou o evento final) ainda chega aos clientes
+    void publishIncumbents(Function<SharedIncumbent.Incumbent, ProductionPlanSuggestionResponse> plan) {
+        SharedIncumbent.Incumbent published = null;
+        try {
+            while (true) {
+                signal.acquire();
+                // As melhorias que chegaram durante o último envio viram um único evento
+                signal.drainPermits();
+
+                if (!isRunning()) {
+                    return;
+                }
+                SharedIncumbent.Incumbent incumbent = latest.get();
+                if (incumbent == null || incumbent == published) {
+                    continue;
+                }
+
+                published = incumbent;
+                try {
+                    publish(plan.apply(incumbent));
+                } catch (RuntimeException e) {
+                    log.warn("Falha ao publicar melhoria do job de planejamento {}", id, e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    void complete(ProductionPlanSuggestionResponse plan) {
+        Delivery delivery;
+        lock.lock();
+        try {
+            bestPlan = plan;
+            delivery = finish(cancelRequested ? PlanJobStatus.CANCELLED : PlanJobStatus.COMPLETED);
+        } finally {
+            lock.unlock();
+        }
+        deliver(delivery);
+    }
+
+    void fail(String message) {
+        Delivery delivery;
+        lock.lock();
+        try {
+            errorMessage = message;
+            delivery = finish(PlanJobStatus.FAILED);
+        } finally {
+            lock.unlock();
+        }
+        deliver(delivery);
+    }
+
+    void cancel() {
+        Delivery delivery = null;
+        lock.lock();
+        try {
+            if (isFinished()) {
+                return;
+            }
+
+            cancelRequested = true;
+            if (status == PlanJobStatus.QUEUED) {
+                delivery = finish(PlanJobStatus.CANCELLED);
+                if (future != null) {
+                    future.cancel(true);
+                }
+            } else if (budget != null) {
+                budget.cancel();
+            }
+        } finally {
+            lock.unlock();
+        }
+        deliver(delivery);
+    }
+
+    void subscribe(SseEmitter emitter) {
+        sendLock.lock();
+        try {
+            ProductionPlanSuggestionResponse plan;
+            ProductionPlanJobResponse finalResponse = null;
+            lock.lock();
+            try {
+                plan = bestPlan;
+                if (isFinished()) {
+                    finalResponse = toResponse();
+                } else {
+                    emitters.add(emitter);
+                    emitter.onCompletion(() -> removeEmitter(emitter));
+                    emitter.onTimeout(() -> removeEmitter(emitter));
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (finalResponse != null) {
+                if (send(emitter, finalResponse.status().name().toLowerCase(), finalResponse)) {
+                    emitter.complete();
+                }
+                return;
+            }
+            if (plan != null && !send(emitter, "incumbent", plan)) {
+                removeEmitter(emitter);
+            }
+        } finally {
+            sendLock.unlock();
+        }
+    }
+
+    boolean isExpired(long now, long retentionMs) {
+        lock.lock();
+        try {
+            return isFinished() && now - finishedAt >= retentionMs;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    ProductionPlanJobResponse toResponse() {
+        lock.lock();
+        try {
+            return new ProductionPlanJobResponse(id, status, bestPlan, errorMessage);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Só aceita a melhoria enquanto o job roda; o envio acontece fora do lock do estado
+    private void publish(ProductionPlanSuggestionResponse plan) {
+        sendLock.lock();
+        try {
+            List<SseEmitter> targets;
+            lock.lock();
+            try {
+                if (status != PlanJobStatus.RUNNING) {
+                    return;
+                }
+                bestPlan = plan;
+                targets = List.copyOf(emitters);
+            } finally {
+                lock.unlock();
+            }
+
+            for (SseEmitter emitter : targets) {
+                if (!send(emitter, "incumbent", plan)) {
+                    removeEmitter(emitter);
+                }
+            }
+        } finally {
+            sendLock.unlock();
+        }
+    }
+
+    // Chamado com o lock: muda o estado, acorda o publicador para ele terminar e devolve o evento final, que
+    // é enviado depois de soltar o lock
+    private Delivery finish(PlanJobStatus finalStatus) {
+        status = finalStatus;
+        finishedAt = System.currentTimeMillis();
+        signal.release();
+
+        Delivery delivery = new Delivery(finalStatus.name().toLowerCase(), toResponse(), List.copyOf(emitters));
+        emitters.clear();
+        return delivery;
+    }
+
+    private void deliver(Delivery delivery) {
+        if (delivery == null || delivery.emitters().isEmpty()) {
+            return;
+        }
+
+        sendLock.lock();
+        try {
+            for (SseEmitter emitter : delivery.emitters()) {
+                if (send(emitter, delivery.event(), delivery.response())) {
+                    emitter.complete();
+                }
+            }
+        } finally {
+            sendLock.unlock();
+        }
+    }
+
+    private boolean isRunning() {
+        lock.lock();
+        try {
+            return status == PlanJobStatus.RUNNING;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isFinished() {
+        return status != PlanJobStatus.QUEUED && status != PlanJobStatus.RUNNING;
+    }
+
+    private void removeEmitter(SseEmitter emitter) {
+        lock.lock();
+        try {
+            emitters.remove(emitter);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Mesmo desempate do SharedIncumbent: maior valor, depois maior quantidade total, depois o vetor
+    private static SharedIncumbent.Incumbent better(SharedIncumbent.Incumbent current, SharedIncumbent.Incumbent candidate) {
+        if (current == null) {
+            return candidate;
+        }
+        if (candidate.totalValue() != current.totalValue()) {
+            return candidate.totalValue() > current.totalValue() ? candidate : current;
+        }
+        if (candidate.totalQuantity() != current.totalQuantity()) {
+            return candidate.totalQuantity() > current.totalQuantity() ? candidate : current;
+        }
+        return Arrays.compare(candidate.quantities(), current.quantities()) > 0 ? candidate : current;
+    }
+
+    // Cliente desconectado: o emissor é descartado sem afetar a busca
+    private static boolean send(SseEmitter emitter, String event, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(event).data(data));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    private record Delivery(String event, ProductionPlanJobResponse response, List<SseEmitter> emitters) {
+    }
+}
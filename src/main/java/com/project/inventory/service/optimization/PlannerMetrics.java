@@ -0,0 +1,187 @@
+package com.project.inventory.service.optimization;
+
+import com.project.inventory.dto.planproduction.PlanMetricsResponse;
+import com.project.inventory.dto.planproduction.PlannerMetricsResponse;
+import com.project.inventory.dto.planproduction.PlannerPhaseMetricsResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Instrumentação do planejamento, registrada no MeterRegistry (exposta em /actuator/metrics). Cada fase (carga do
+// catálogo, montagem do modelo, busca e montagem da resposta) é um Timer "planner.phase" com a fase como tag, e
+// os contadores da busca são Counters "planner.*". O endpoint de métricas do planejamento só lê esses medidores;
+// as durações de cada chamada também ficam na Recording, para o resumo opcional na resposta
+@Component
+public class PlannerMetrics {
+
+    static final String PHASE_TIMER = "planner.phase";
+
+    enum Phase {
+        LOAD("load"),
+        MODEL_BUILD("model-build"),
+        SEARCH("search"),
+        RESPONSE("response");
+
+        private final String tag;
+
+        Phase(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final Timer[] phaseTimers = new Timer[PHASES.length];
+    private final Counter searches;
+    private final Counter boundEvaluations;
+    private final Counter boundPrunes;
+    private final Counter transpositionPrunes;
+    private final Counter incumbentImprovements;
+    private final Counter budgetExhausted;
+    private final Counter coalescedRequests;
+    // Uma gravação por busca abandonada, com o prazo que ela deixou de gastar
+    private final Timer abandonedSearches;
+
+    public PlannerMetrics(MeterRegistry meterRegistry) {
+        for (Phase phase : PHASES) {
+            phaseTimers[phase.ordinal()] = Timer.builder(PHASE_TIMER)
+                    .description("Duração das fases do planejamento")
+                    .tag("phase", phase.tag)
+                    .register(meterRegistry);
+        }
+        searches = counter(meterRegistry, "planner.searches", "Buscas do plano executadas");
+        boundEvaluations = counter(meterRegistry, "planner.bound.evaluations", "Limites superiores calculados");
+        boundPrunes = counter(meterRegistry, "planner.bound.prunes", "Nós podados pelo limite superior");
+        transpositionPrunes = counter(meterRegistry, "planner.transposition.prunes", "Nós podados pela memória de subproblemas");
+        incumbentImprovements = counter(meterRegistry, "planner.incumbent.improvements", "Melhorias da melhor solução");
+        budgetExhausted = counter(meterRegistry, "planner.budget.exhausted", "Buscas que esgotaram o prazo");
+        coalescedRequests = counter(meterRegistry, "planner.requests.coalesced", "Requisições que esperaram uma busca igual");
+        abandonedSearches = Timer.builder("planner.searches.abandoned")
+                .description("Buscas canceladas porque o cliente desistiu, com o prazo que deixaram de gastar")
+                .register(meterRegistry);
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String name, String description) {
+        return Counter.builder(name).description(description).register(meterRegistry);
+    }
+
+    // Medições de uma chamada do planejamento
+    Recording start() {
+        return new Recording();
+    }
+
+    // Visão dos medidores registrados; o máximo de cada fase é o da janela recente do Micrometer
+    public PlannerMetricsResponse snapshot() {
+        List<PlannerPhaseMetricsResponse> phases = new ArrayList<>();
+        for (Phase phase : PHASES) {
+            Timer timer = phaseTimers[phase.ordinal()];
+            phases.add(new PlannerPhaseMetricsResponse(
+                    phase.tag,
+                    timer.count(),
+                    (long) timer.totalTime(TimeUnit.MILLISECONDS),
+                    (long) timer.max(TimeUnit.MILLISECONDS)
+            ));
+        }
+
+        return new PlannerMetricsResponse(
+                phases,
+                count(searches),
+                count(boundEvaluations),
+                count(boundPrunes),
+                count(transpositionPrunes),
+                count(incumbentImprovements),
+                count(budgetExhausted),
+                count(coalescedRequests),
+                abandonedSearches.count(),
+                (long) abandonedSearches.totalTime(TimeUnit.MILLISECONDS)
+        );
+    }
+
+    private static long count(Counter counter) {
+        return (long) counter.count();
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    // Guarda as durações e os contadores de uma única chamada e também os soma aos totais da instância.
+    // Usada só pela thread da chamada
+    final class Recording {
+
+        private final long[] nanos = new long[PHASES.length];
+        private BranchAndBoundSearch.SearchResult search;
+        private boolean cacheHit;
+        private boolean coalesced;
+
+        <T> T time(Phase phase, Supplier<T> step) {
+            long inicio = System.nanoTime();
+            try {
+                return step.get();
+            } finally {
+                long elapsed = System.nanoTime() - inicio;
+                nanos[phase.ordinal()] += elapsed;
+                phaseTimers[phase.ordinal()].record(elapsed, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        BranchAndBoundSearch.SearchResult search(Supplier<BranchAndBoundSearch.SearchResult> step) {
+            BranchAndBoundSearch.SearchResult result = time(Phase.SEARCH, step);
+
+            BranchAndBoundSearch.SearchStatistics statistics = result.statistics();
+            searches.increment();
+            boundEvaluations.increment(statistics.boundEvaluations());
+            boundPrunes.increment(statistics.boundPrunes());
+            transpositionPrunes.increment(statistics.transpositionPrunes());
+            incumbentImprovements.increment(statistics.incumbentImprovements());
+            if (!result.provenOptimal()) {
+                budgetExhausted.increment();
+            }
+
+            search = result;
+            return result;
+        }
+
+        // Busca cancelada porque o cliente desistiu da requisição; reclaimedNanos é o prazo que ela deixou de gastar
+        void abandoned(long reclaimedNanos) {
+            abandonedSearches.record(reclaimedNanos, TimeUnit.NANOSECONDS);
+        }
+
+        void cacheHit() {
+            cacheHit = true;
+        }
+
+        // Requisição que esperou a busca de outra igual, já em andamento, em vez de buscar de novo
+        void coalesced() {
+            coalesced = true;
+            coalescedRequests.increment();
+        }
+
+        // Sem busca própria (plano do cache, de outra requisição ou catálogo sem produção), os contadores saem zerados
+        PlanMetricsResponse summary() {
+            BranchAndBoundSearch.SearchStatistics statistics = search == null
+                    ? BranchAndBoundSearch.SearchStatistics.EMPTY
+                    : search.statistics();
+
+            return new PlanMetricsResponse(
+                    cacheHit,
+                    coalesced,
+                    toMillis(nanos[Phase.LOAD.ordinal()]),
+                    toMillis(nanos[Phase.MODEL_BUILD.ordinal()]),
+                    toMillis(nanos[Phase.SEARCH.ordinal()]),
+                    toMillis(nanos[Phase.RESPONSE.ordinal()]),
+                    statistics.boundEvaluations(),
+                    statistics.boundPrunes(),
+                    statistics.transpositionPrunes(),
+                    statistics.incumbentImprovements(),
+                    search != null && !search.provenOptimal()
+            );
+        }
+    }
+}
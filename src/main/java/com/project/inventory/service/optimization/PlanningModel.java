@@ -0,0 +1,339 @@
+package com.project.inventory.service.optimization;
+
+import com.project.inventory.domain.entity.Product;
+import com.project.inventory.domain.entity.RawMaterial;
+import com.project.inventory.exception.BusinessRuleException;
+import com.project.inventory.service.catalog.ProductionModel;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+// Modelo compilado do planejamento: índices densos, composição em CSR e valores em ponto fixo (long)
+final class PlanningModel {
+
+    static final int STOCK_SCALE = 4; // mesma escala de stock_quantity / required_quantity
+    static final int PRICE_SCALE = 2; // mesma escala de products.price
+
+    private final int productCount;
+    private final int materialCount;
+    private final long[] prices;
+    private final boolean[] blocked;
+    private final int[] rowStart;
+    private final int[] materialIndex;
+    private final long[] requiredQuantity;
+    private final long[] initialStock;
+    private final int[] columnStart;
+    private final int[] columnProduct;
+    private final long[] columnRequired;
+    private final long valueStep;
+
+    private PlanningModel(
+            int productCount,
+            int materialCount,
+            long[] prices,
+            boolean[] blocked,
+            int[] rowStart,
+            int[] materialIndex,
+            long[] requiredQuantity,
+            long[] initialStock,
+            int[] columnStart,
+            int[] columnProduct,
+            long[] columnRequired
+    ) {
+        this.productCount = productCount;
+        this.materialCount = materialCount;
+        this.prices = prices;
+        this.blocked = blocked;
+        this.rowStart = rowStart;
+        this.materialIndex = materialIndex;
+        this.requiredQuantity = requiredQuantity;
+        this.initialStock = initialStock;
+        this.columnStart = columnStart;
+        this.columnProduct = columnProduct;
+        this.columnRequired = columnRequired;
+        this.valueStep = calculateValueStep(prices, blocked);
+    }
+
+    // Todo plano vale um múltiplo do MDC dos preços produzíveis, então os limites podem ser arredondados para baixo
+    private static long calculateValueStep(long[] prices, boolean[] blocked) {
+        long step = 0L;
+        for (int p = 0; p < prices.length; p++) {
+            if (!blocked[p] && prices[p] != 0) {
+                step = BigInteger.valueOf(step).gcd(BigInteger.valueOf(prices[p])).longValueExact();
+            }
+        }
+        return step == 0L ? 1L : step;
+    }
+
+    static PlanningModel compile(List<Product> products, List<RawMaterial> rawMaterials) {
+        ProductionModel catalog = ProductionModel.of(0L, products, rawMaterials);
+        int[] all = new int[catalog.productCount()];
+        Arrays.setAll(all, p -> p);
+        return compile(catalog, all);
+    }
+
+    // Produtos do retrato na ordem de `products`; as matérias-primas mantêm os índices do retrato
+    static PlanningModel compile(ProductionModel catalog, int[] products) {
+        int materialCount = catalog.materialCount();
+        long[] initialStock = new long[materialCount];
+        for (int m = 0; m < materialCount; m++) {
+            initialStock[m] = toFixedPoint(catalog.materialStock(m), STOCK_SCALE);
+        }
+
+        int productCount = products.length;
+        long[] prices = new long[productCount];
+        boolean[] blocked = new boolean[productCount];
+        int[] rowStart = new int[productCount + 1];
+
+        int totalItems = 0;
+        for (int product : products) {
+            totalItems += catalog.compositionEnd(product) - catalog.compositionStart(product);
+        }
+
+        int[] materialIndex = new int[totalItems];
+        long[] requiredQuantity = new long[totalItems];
+        int cursor = 0;
+
+        for (int p = 0; p < productCount; p++) {
+            int product = products[p];
+            prices[p] = toFixedPoint(catalog.productPrice(product), PRICE_SCALE);
+            rowStart[p] = cursor;
+
+            for (int item = catalog.compositionStart(product); item < catalog.compositionEnd(product); item++) {
+                BigDecimal required = catalog.itemRequired(item);
+
+                // Quantidade nula ou não positiva torna o produto inviável (mesma regra do cálculo de máximo)
+                if (required == null || required.signum() <= 0) {
+                    blocked[p] = true;
+                    continue;
+                }
+
+                materialIndex[cursor] = catalog.itemMaterial(item);
+                requiredQuantity[cursor] = toFixedPoint(required, STOCK_SCALE);
+                cursor++;
+            }
+        }
+        rowStart[productCount] = cursor;
+
+        return assemble(productCount, materialCount, prices, blocked, rowStart, materialIndex, requiredQuantity, initialStock);
+    }
+
+    // Submodelo com os produtos e matérias-primas mantidos, na mesma ordem relativa do original
+    PlanningModel restrict(int[] keptProducts, int[] keptMaterials) {
+        int[] newMaterialIndex = new int[materialCount];
+        Arrays.fill(newMaterialIndex, -1);
+        long[] stock = new long[keptMaterials.length];
+        for (int m = 0; m < keptMaterials.length; m++) {
+            newMaterialIndex[keptMaterials[m]] = m;
+            stock[m] = initialStock[keptMaterials[m]];
+        }
+
+        int items = 0;
+        for (int product : keptProducts) {
+            for (int item = rowStart(product); item < rowEnd(product); item++) {
+                if (newMaterialIndex[materialIndex[item]] >= 0) {
+                    items++;
+                }
+            }
+        }
+
+        long[] newPrices = new long[keptProducts.length];
+        boolean[] newBlocked = new boolean[keptProducts.length];
+        int[] newRowStart = new int[keptProducts.length + 1];
+        int[] newItemMaterial = new int[items];
+        long[] newRequired = new long[items];
+        int cursor = 0;
+
+        for (int p = 0; p < keptProducts.length; p++) {
+            int product = keptProducts[p];
+            newPrices[p] = prices[product];
+            newBlocked[p] = blocked[product];
+            newRowStart[p] = cursor;
+
+            for (int item = rowStart(product); item < rowEnd(product); item++) {
+                int material = newMaterialIndex[materialIndex[item]];
+                if (material >= 0) {
+                    newItemMaterial[cursor] = material;
+                    newRequired[cursor] = requiredQuantity[item];
+                    cursor++;
+                }
+            }
+        }
+        newRowStart[keptProducts.length] = cursor;
+
+        return assemble(keptProducts.length, keptMaterials.length, newPrices, newBlocked, newRowStart,
+                newItemMaterial, newRequired, stock);
+    }
+
+    // Mesmo catálogo com outro estoque inicial (na ordem das matérias-primas do modelo); a estrutura é
+    // compartilhada, só o vetor de estoque é novo
+    PlanningModel withInitialStock(long[] stock) {
+        return new PlanningModel(
+                productCount,
+                materialCount,
+                prices,
+                blocked,
+                rowStart,
+                materialIndex,
+                requiredQuantity,
+                stock,
+                columnStart,
+                columnProduct,
+                columnRequired
+        );
+    }
+
+    static long stockToFixedPoint(BigDecimal quantity) {
+        return toFixedPoint(quantity, STOCK_SCALE);
+    }
+
+    private static PlanningModel assemble(
+            int productCount,
+            int materialCount,
+            long[] prices,
+            boolean[] blocked,
+            int[] rowStart,
+            int[] materialIndex,
+            long[] requiredQuantity,
+            long[] initialStock
+    ) {
+        int cursor = rowStart[productCount];
+
+        int[] productOfItem = new int[cursor];
+        for (int p = 0; p < productCount; p++) {
+            Arrays.fill(productOfItem, rowStart[p], rowStart[p + 1], p);
+        }
+
+        // Índice por coluna: produtos que usam cada matéria-prima, do maior para o menor valor por unidade consumida
+        // (itens de produtos inviáveis ficam de fora, por isso a coluna é compactada no final)
+        int[] columnStart = new int[materialCount + 1];
+        for (int item = 0; item < cursor; item++) {
+            columnStart[materialIndex[item] + 1]++;
+        }
+        for (int m = 0; m < materialCount; m++) {
+            columnStart[m + 1] += columnStart[m];
+        }
+
+        Integer[] columnItems = new Integer[cursor];
+        int[] fill = Arrays.copyOf(columnStart, materialCount);
+        for (int p = 0; p < productCount; p++) {
+            if (blocked[p]) {
+                continue;
+            }
+            for (int item = rowStart[p]; item < rowStart[p + 1]; item++) {
+                columnItems[fill[materialIndex[item]]++] = item;
+            }
+        }
+
+        Comparator<Integer> byValueDensity = Comparator
+                .comparingDouble((Integer item) -> (double) prices[productOfItem[item]] / requiredQuantity[item])
+                .reversed()
+                .thenComparingInt(item -> productOfItem[item]);
+
+        for (int m = 0; m < materialCount; m++) {
+            Arrays.sort(columnItems, columnStart[m], fill[m], byValueDensity);
+        }
+
+        int[] columnProduct = new int[cursor];
+        long[] columnRequired = new long[cursor];
+        int[] compactStart = new int[materialCount + 1];
+        int position = 0;
+        for (int m = 0; m < materialCount; m++) {
+            compactStart[m] = position;
+            for (int k = columnStart[m]; k < fill[m]; k++) {
+                columnProduct[position] = productOfItem[columnItems[k]];
+                columnRequired[position] = requiredQuantity[columnItems[k]];
+                position++;
+            }
+        }
+        compactStart[materialCount] = position;
+
+        return new PlanningModel(
+                productCount,
+                materialCount,
+                prices,
+                blocked,
+                rowStart,
+                materialIndex,
+                requiredQuantity,
+                initialStock,
+                compactStart,
+                columnProduct,
+                columnRequired
+        );
+    }
+
+    private static long toFixedPoint(BigDecimal value, int scale) {
+        if (value == null) {
+            return 0L;
+        }
+
+        try {
+            return value.setScale(scale, RoundingMode.UNNECESSARY).unscaledValue().longValueExact();
+        } catch (ArithmeticException ex) {
+            throw new BusinessRuleException(
+                    "Valor fora da precisao suportada pelo planejamento (escala " + scale + "): " + value
+            );
+        }
+    }
+
+    int productCount() {
+        return productCount;
+    }
+
+    int materialCount() {
+        return materialCount;
+    }
+
+    long price(int product) {
+        return prices[product];
+    }
+
+    boolean isBlocked(int product) {
+        return blocked[product];
+    }
+
+    int rowStart(int product) {
+        return rowStart[product];
+    }
+
+    int rowEnd(int product) {
+        return rowStart[product + 1];
+    }
+
+    int materialAt(int item) {
+        return materialIndex[item];
+    }
+
+    long requiredAt(int item) {
+        return requiredQuantity[item];
+    }
+
+    int columnStart(int material) {
+        return columnStart[material];
+    }
+
+    int columnEnd(int material) {
+        return columnStart[material + 1];
+    }
+
+    int columnProductAt(int entry) {
+        return columnProduct[entry];
+    }
+
+    long columnRequiredAt(int entry) {
+        return columnRequired[entry];
+    }
+
+    long valueStep() {
+        return valueStep;
+    }
+
+    long[] copyInitialStock() {
+        return initialStock.clone();
+    }
+}
@@ -0,0 +1,85 @@
+package com.project.inventory.service.optimization;
+
+import com.project.inventory.service.catalog.ProductionModel;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+// Catálogo de um planejamento: o retrato do catálogo, os índices (no retrato) dos produtos planejados na ordem
+// do modelo compilado, o estoque inicial por matéria-prima, o modelo compilado e o modelo já reduzido pelo
+// presolve (ambos nulos quando nenhum produto tem composição) e o valor marginal de cada matéria-prima.
+// Quantidades da busca estão na ordem do modelo reduzido; as da resposta, na ordem de plannedProducts
+record PlanningProblem(
+        ProductionModel catalog,
+        int[] plannedProducts,
+        Map<Long, BigDecimal> stockInicial,
+        PlanningModel compiled,
+        Presolve.Result presolved,
+        Map<Long, BigDecimal> marginalValues
+) {
+
+    static PlanningProblem of(ProductionModel catalog) {
+        // Produtos sem composição ficam fora do planejamento
+        int[] plannedProducts = IntStream.range(0, catalog.productCount())
+                .filter(catalog::hasComposition)
+                .toArray();
+
+        Map<Long, BigDecimal> stockInicial = new HashMap<>();
+        for (int m = 0; m < catalog.materialCount(); m++) {
+            stockInicial.put(catalog.materialId(m), catalog.materialStock(m));
+        }
+
+        PlanningModel compiled = plannedProducts.length == 0 ? null : PlanningModel.compile(catalog, plannedProducts);
+        return of(catalog, plannedProducts, stockInicial, compiled);
+    }
+
+    private static PlanningProblem of(
+            ProductionModel catalog,
+            int[] plannedProducts,
+            Map<Long, BigDecimal> stockInicial,
+            PlanningModel compiled
+    ) {
+        return new PlanningProblem(
+                catalog,
+                plannedProducts,
+                stockInicial,
+                compiled,
+                compiled == null ? null : Presolve.apply(compiled),
+                ShadowPrices.of(compiled, catalog)
+        );
+    }
+
+    // Mesmo catálogo com o estoque de algumas matérias-primas trocado (id -> quantidade), sem recompilar as
+    // composições. O presolve e os valores marginais são refeitos porque dependem do estoque
+    PlanningProblem withStock(Map<Long, BigDecimal> overrides) {
+        Map<Long, BigDecimal> stock = new HashMap<>(stockInicial);
+        stock.putAll(overrides);
+
+        if (compiled == null) {
+            return of(catalog, plannedProducts, stock, null);
+        }
+
+        // O modelo compilado usa os mesmos índices de matéria-prima do retrato
+        long[] initialStock = new long[catalog.materialCount()];
+        for (int m = 0; m < initialStock.length; m++) {
+            initialStock[m] = PlanningModel.stockToFixedPoint(stock.get(catalog.materialId(m)));
+        }
+
+        return of(catalog, plannedProducts, stock, compiled.withInitialStock(initialStock));
+    }
+
+    // Nulo quando o modelo é grande demais para calcular a relaxação linear
+    BigDecimal marginalValue(Long rawMaterialId) {
+        return marginalValues == null ? null : marginalValues.get(rawMaterialId);
+    }
+
+    boolean isEmpty() {
+        return presolved == null;
+    }
+
+    PlanningModel model() {
+        return presolved == null ? null : presolved.model();
+    }
+}
@@ -0,0 +1,278 @@
+package com.project.inventory.service.optimization;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Redução do modelo antes da busca. Todas as regras preservam o plano escolhido, inclusive o desempate
+// (maior quantidade total, depois vetor lexicograficamente maior na ordem do modelo):
+// - produto que nunca cabe no estoque ou que é inviável fica sempre em zero;
+// - produto dominado (outro usa no máximo o mesmo de cada matéria-prima e vale mais, ou vale o mesmo e vem
+//   antes na ordem) nunca aparece no plano escolhido, pois trocar suas unidades pelas do dominante não perde
+//   valor nem quantidade e gera um vetor maior. Composições idênticas são o caso mais comum e são agrupadas antes;
+// - matéria-prima que não limita nenhum plano viável com as demais restrições sai do modelo.
+final class Presolve {
+
+    private Presolve() {
+    }
+
+    static Result apply(PlanningModel model) {
+        int productCount = model.productCount();
+        int materialCount = model.materialCount();
+
+        if (hasRepeatedMaterials(model)) {
+            return identity(model);
+        }
+
+        long[] stock = model.copyInitialStock();
+        boolean[] keepProduct = new boolean[productCount];
+        boolean[] keepMaterial = new boolean[materialCount];
+        Arrays.fill(keepMaterial, true);
+
+        for (int p = 0; p < productCount; p++) {
+            keepProduct[p] = !model.isBlocked(p) && model.rowEnd(p) > model.rowStart(p) && cap(model, stock, p, keepMaterial, -1) > 0;
+        }
+
+        // Remover produtos pode liberar matérias-primas e vice-versa; repete até estabilizar
+        boolean changed = true;
+        while (changed) {
+            changed = removeIdenticalCompositions(model, keepProduct, keepMaterial);
+            changed |= removeDominatedProducts(model, keepProduct, keepMaterial);
+            changed |= removeNonBindingMaterials(model, stock, keepProduct, keepMaterial);
+        }
+
+        int[] keptProducts = indicesOf(keepProduct);
+        int[] keptMaterials = indicesOf(keepMaterial);
+        if (keptProducts.length == productCount && keptMaterials.length == materialCount) {
+            return identity(model);
+        }
+        return new Result(model.restrict(keptProducts, keptMaterials), keptProducts, productCount);
+    }
+
+    private static Result identity(PlanningModel model) {
+        int[] all = new int[model.productCount()];
+        Arrays.setAll(all, p -> p);
+        return new Result(model, all, model.productCount());
+    }
+
+    // Composições com a mesma matéria-prima repetida não seguem as regras de comparação por item
+    private static boolean hasRepeatedMaterials(PlanningModel model) {
+        int[] seenBy = new int[model.materialCount()];
+        Arrays.fill(seenBy, -1);
+
+        for (int p = 0; p < model.productCount(); p++) {
+            for (int item = model.rowStart(p); item < model.rowEnd(p); item++) {
+                if (seenBy[model.materialAt(item)] == p) {
+                    return true;
+                }
+                seenBy[model.materialAt(item)] = p;
+            }
+        }
+        return false;
+    }
+
+    // Máximo de unidades do produto considerando só as matérias-primas mantidas, ignorando `ignoredMaterial`.
+    // Long.MAX_VALUE quando nenhuma matéria-prima restante limita o produto
+    private static long cap(PlanningModel model, long[] stock, int product, boolean[] keepMaterial, int ignoredMaterial) {
+        long cap = Long.MAX_VALUE;
+        for (int item = model.rowStart(product); item < model.rowEnd(product); item++) {
+            int material = model.materialAt(item);
+            if (keepMaterial[material] && material != ignoredMaterial) {
+                cap = Math.min(cap, stock[material] / model.requiredAt(item));
+            }
+        }
+        return cap;
+    }
+
+    private static boolean removeIdenticalCompositions(PlanningModel model, boolean[] keepProduct, boolean[] keepMaterial) {
+        Map<List<Long>, Integer> bestByComposition = new HashMap<>();
+        boolean changed = false;
+
+        for (int p = 0; p < model.productCount(); p++) {
+            if (!keepProduct[p]) {
+                continue;
+            }
+
+            List<Long> composition = composition(model, p, keepMaterial);
+            Integer best = bestByComposition.putIfAbsent(composition, p);
+            if (best == null) {
+                continue;
+            }
+
+            // Percorremos em ordem crescente, então o já registrado vem antes e vence o empate de preço
+            if (model.price(p) > model.price(best)) {
+                keepProduct[best] = false;
+                bestByComposition.put(composition, p);
+            } else {
+                keepProduct[p] = false;
+            }
+            changed = true;
+        }
+        return changed;
+    }
+
+    // Pares (matéria-prima, quantidade) ordenados por matéria-prima, só com as matérias-primas mantidas
+    private static List<Long> composition(PlanningModel model, int product, boolean[] keepMaterial) {
+        List<long[]> pairs = new ArrayList<>();
+        for (int item = model.rowStart(product); item < model.rowEnd(product); item++) {
+            if (keepMaterial[model.materialAt(item)]) {
+                pairs.add(new long[] {model.materialAt(item), model.requiredAt(item)});
+            }
+        }
+        pairs.sort((a, b) -> Long.compare(a[0], b[0]));
+
+        List<Long> key = new ArrayList<>(pairs.size() * 2);
+        for (long[] pair : pairs) {
+            key.add(pair[0]);
+            key.add(pair[1]);
+        }
+        return key;
+    }
+
+    private static boolean removeDominatedProducts(PlanningModel model, boolean[] keepProduct, boolean[] keepMaterial) {
+        long[] need = new long[model.materialCount()];
+        int[] visitedBy = new int[model.productCount()];
+        Arrays.fill(visitedBy, -1);
+        boolean changed = false;
+
+        for (int b = 0; b < model.productCount(); b++) {
+            if (!keepProduct[b]) {
+                continue;
+            }
+
+            for (int item = model.rowStart(b); item < model.rowEnd(b); item++) {
+                if (keepMaterial[model.materialAt(item)]) {
+                    need[model.materialAt(item)] = model.requiredAt(item);
+                }
+            }
+
+            // Um dominante usa alguma das matérias-primas de b, então aparece em uma dessas colunas
+            search:
+            for (int item = model.rowStart(b); item < model.rowEnd(b); item++) {
+                int material = model.materialAt(item);
+                if (!keepMaterial[material]) {
+                    continue;
+                }
+
+                for (int entry = model.columnStart(material); entry < model.columnEnd(material); entry++) {
+                    int a = model.columnProductAt(entry);
+                    if (a == b || visitedBy[a] == b || !keepProduct[a]) {
+                        continue;
+                    }
+                    visitedBy[a] = b;
+
+                    if (dominates(model, a, b, need, keepMaterial)) {
+                        keepProduct[b] = false;
+                        changed = true;
+                        break search;
+                    }
+                }
+            }
+
+            for (int item = model.rowStart(b); item < model.rowEnd(b); item++) {
+                need[model.materialAt(item)] = 0L;
+            }
+        }
+        return changed;
+    }
+
+    private static boolean dominates(PlanningModel model, int a, int b, long[] needOfB, boolean[] keepMaterial) {
+        boolean betterOrFirst = model.price(a) > model.price(b) || (model.price(a) == model.price(b) && a < b);
+        if (!betterOrFirst) {
+            return false;
+        }
+
+        for (int item = model.rowStart(a); item < model.rowEnd(a); item++) {
+            int material = model.materialAt(item);
+            if (keepMaterial[material] && model.requiredAt(item) > needOfB[material]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Se cada produto, limitado só pelas outras matérias-primas, ainda couber junto com todos os demais no
+    // estoque desta, ela nunca restringe um plano viável
+    private static boolean removeNonBindingMaterials(
+            PlanningModel model,
+            long[] stock,
+            boolean[] keepProduct,
+            boolean[] keepMaterial
+    ) {
+        boolean changed = false;
+
+        for (int m = 0; m < model.materialCount(); m++) {
+            if (!keepMaterial[m]) {
+                continue;
+            }
+
+            long demand = 0L;
+            boolean binding = false;
+
+            for (int entry = model.columnStart(m); entry < model.columnEnd(m) && !binding; entry++) {
+                int product = model.columnProductAt(entry);
+                if (!keepProduct[product]) {
+                    continue;
+                }
+
+                long otherCap = cap(model, stock, product, keepMaterial, m);
+                long required = model.columnRequiredAt(entry);
+                if (otherCap > (stock[m] - demand) / required) {
+                    binding = true;
+                } else {
+                    demand += otherCap * required;
+                }
+            }
+
+            if (!binding) {
+                keepMaterial[m] = false;
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    private static int[] indicesOf(boolean[] keep) {
+        int count = 0;
+        for (boolean kept : keep) {
+            if (kept) {
+                count++;
+            }
+        }
+
+        int[] indices = new int[count];
+        int cursor = 0;
+        for (int i = 0; i < keep.length; i++) {
+            if (keep[i]) {
+                indices[cursor++] = i;
+            }
+        }
+        return indices;
+    }
+
+    // originalProduct[i] é o índice, no modelo compilado, do produto i do modelo reduzido
+    record Result(PlanningModel model, int[] originalProduct, int originalProductCount) {
+
+        int[] toOriginal(int[] reducedQuantities) {
+            int[] quantities = new int[originalProductCount];
+            for (int i = 0; i < originalProduct.length; i++) {
+                quantities[originalProduct[i]] = reducedQuantities[i];
+            }
+            return quantities;
+        }
+
+        int[] toReduced(int[] originalQuantities) {
+            if (originalQuantities == null) {
+                return null;
+            }
+
+            int[] quantities = new int[originalProduct.length];
+            for (int i = 0; i < originalProduct.length; i++) {
+                quantities[i] = originalQuantities[originalProduct[i]];
+            }
+            return quantities;
+        }
+    }
+}
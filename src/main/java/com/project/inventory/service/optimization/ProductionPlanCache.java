@@ -0,0 +1,78 @@
+package com.project.inventory.service.optimization;
+
+import com.project.inventory.dto.planproduction.ProductionPlanSuggestionResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+// Guarda só o plano da versão mais recente do catálogo: a versão nunca volta, então entradas antigas
+// jamais seriam consultadas de novo. Acertos e falhas são Counters do Micrometer (planner.cache.hits/misses), no
+// mesmo registro das demais métricas do planejamento
+@Component
+public class ProductionPlanCache {
+
+    private final boolean enabled;
+    private final AtomicReference<Entry> latest = new AtomicReference<>();
+    private final Counter hits;
+    private final Counter misses;
+
+    public ProductionPlanCache(MeterRegistry meterRegistry, @Value("${planner.cache.enabled:true}") boolean enabled) {
+        this.enabled = enabled;
+        this.hits = Counter.builder("planner.cache.hits")
+                .description("Planos servidos pelo cache")
+                .register(meterRegistry);
+        this.misses = Counter.builder("planner.cache.misses")
+                .description("Consultas ao cache de planos sem plano válido")
+                .register(meterRegistry);
+    }
+
+    ProductionPlanSuggestionResponse find(long catalogVersion, long timeBudgetMs) {
+        Entry entry = latest.get();
+        if (enabled && entry != null && entry.catalogVersion() == catalogVersion && entry.serves(timeBudgetMs)) {
+            hits.increment();
+            return entry.plan();
+        }
+
+        misses.increment();
+        return null;
+    }
+
+    // Guarda mesmo com o cache desativado: o último plano também serve de ponto de partida para a próxima busca
+    void store(long catalogVersion, long timeBudgetMs, ProductionPlanSuggestionResponse plan) {
+        Entry candidate = new Entry(catalogVersion, timeBudgetMs, plan);
+        latest.accumulateAndGet(candidate, (current, novo) -> novo.replaces(current) ? novo : current);
+    }
+
+    ProductionPlanSuggestionResponse previousPlan() {
+        Entry entry = latest.get();
+        return entry == null ? null : entry.plan();
+    }
+
+    long hits() {
+        return (long) hits.count();
+    }
+
+    long misses() {
+        return (long) misses.count();
+    }
+
+    private record Entry(long catalogVersion, long timeBudgetMs, ProductionPlanSuggestionResponse plan) {
+
+        // Um plano provado ótimo vale para qualquer prazo; um plano interrompido só para prazos iguais ou menores
+        boolean serves(long requestedMs) {
+            return Boolean.TRUE.equals(plan.provenOptimal()) || requestedMs <= timeBudgetMs;
+        }
+
+        boolean replaces(Entry current) {
+            if (current == null || catalogVersion > current.catalogVersion()) {
+                return true;
+            }
+            return catalogVersion == current.catalogVersion()
+                    && !Boolean.TRUE.equals(current.plan().provenOptimal())
+                    && (Boolean.TRUE.equals(plan.provenOptimal()) || timeBudgetMs > current.timeBudgetMs());
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.project.inventory.service.optimization;
+
+import com.project.inventory.dto.planproduction.ProductionPlanJobResponse;
+import com.project.inventory.dto.planproduction.ProductionPlanSuggestionRequest;
+import com.project.inventory.exception.ResourceNotFoundException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+// Planejamentos longos são acompanhados por virtual threads fora da thread da requisição, que só esperam a vaga e
+// a busca: a busca em si roda nas threads de plataforma do ProductionPlanSolver. O semáforo limita quantas
+// buscas rodam ao mesmo tempo e os demais jobs aguardam na fila como QUEUED
+@Service
+@Slf4j
+public class ProductionPlanJobService {
+
+    private final ProductionPlanService productionPlanService;
+    private final ProductionPlanSolver productionPlanSolver;
+    private final Semaphore permits;
+    private final long retentionMs;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<UUID, PlanJob> jobs = new ConcurrentHashMap<>();
+
+    public ProductionPlanJobService(
+            ProductionPlanService productionPlanService,
+            ProductionPlanSolver productionPlanSolver,
+            @Value("${planner.jobs.max-concurrent:2}") int maxConcurrent,
+            @Value("${planner.jobs.retention-ms:600000}") long retentionMs
+    ) {
+        this.productionPlanService = productionPlanService;
+        this.productionPlanSolver = productionPlanSolver;
+        this.permits = new Semaphore(maxConcurrent);
+        this.retentionMs = retentionMs;
+    }
+
+    public ProductionPlanJobResponse submit(ProductionPlanSuggestionRequest request) {
+        removeExpiredJobs();
+
+        PlanJob job = new PlanJob(UUID.randomUUID());
+        Long timeBudgetMs = request == null ? null : request.timeBudgetMs();
+
+        jobs.put(job.id(), job);
+        job.setFuture(executor.submit(() -> run(job, timeBudgetMs)));
+        return job.toResponse();
+    }
+
+    public ProductionPlanJobResponse find(UUID id) {
+        return findJob(id).toResponse();
+    }
+
+    public SseEmitter subscribe(UUID id) {
+        PlanJob job = findJob(id);
+
+        // A conexão de eventos não precisa durar mais que o próprio job fica guardado
+        SseEmitter emitter = new SseEmitter(retentionMs);
+        job.subscribe(emitter);
+        return emitter;
+    }
+
+    public ProductionPlanJobResponse cancel(UUID id) {
+        PlanJob job = findJob(id);
+        job.cancel();
+        return job.toResponse();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void run(PlanJob job, Long timeBudgetMs) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            // Cancelado enquanto aguardava vaga; cancel() já encerrou o job
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        try {
+            if (!job.start()) {
+                return;
+            }
+
+            long inicio = System.nanoTime();
+            PlanningProblem problem = productionPlanService.loadProblem();
+
+            if (problem.isEmpty()) {
+                job.complete(productionPlanService.montarRespostaSemProduction(problem, inicio));
+                return;
+            }
+
+            SearchBudget budget = productionPlanSolver.budgetFor(timeBudgetMs);
+            job.attach(budget);
+
+            // A busca só entrega as melhorias ao job; a montagem e o envio dos eventos ficam com o publicador
+            SharedIncumbent incumbent = new SharedIncumbent(problem.model().productCount(), job::offer);
+            executor.execute(() -> job.publishIncumbents(
+                    best -> productionPlanService.montarRespostaParcial(problem, best, inicio)));
+            int[] warmStart = productionPlanService.previousQuantities(problem);
+
+            BranchAndBoundSearch.SearchResult result = productionPlanService.search(
+                    () -> productionPlanSolver.solve(problem.model(), budget, incumbent, warmStart));
+            job.complete(productionPlanService.montarResposta(problem, result, inicio));
+        } catch (RuntimeException e) {
+            log.error("Falha no job de planejamento {}", job.id(), e);
+            job.fail(e.getMessage());
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void removeExpiredJobs() {
+        long now = System.currentTimeMillis();
+        jobs.values().removeIf(job -> job.isExpired(now, retentionMs));
+    }
+
+    private PlanJob findJob(UUID id) {
+        PlanJob job = jobs.get(id);
+        if (job == null) {
+            throw new ResourceNotFoundException("Plan job not found for id: " + id);
+        }
+        return job;
+    }
+}
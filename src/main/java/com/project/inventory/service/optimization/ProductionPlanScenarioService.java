@@ -0,0 +1,191 @@
+package com.project.inventory.service.optimization;
+
+import com.project.inventory.dto.planproduction.PlanScenarioRequest;
+import com.project.inventory.dto.planproduction.ProductionPlanScenarioResponse;
+import com.project.inventory.dto.planproduction.ProductionPlanScenariosRequest;
+import com.project.inventory.dto.planproduction.ProductionPlanSuggestionResponse;
+import com.project.inventory.dto.planproduction.StockOverrideRequest;
+import com.project.inventory.exception.ResourceNotFoundException;
+import com.project.inventory.service.catalog.ProductionModel;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Simulações "e se" de estoque: o catálogo é carregado e compilado uma única vez e cada cenário só troca o
+// vetor de estoque do modelo. Nada é gravado no banco; os cenários são resolvidos em paralelo nas threads de
+// plataforma do ProductionPlanSolver, e as virtual threads daqui só esperam por eles
+@Service
+@RequiredArgsConstructor
+public class ProductionPlanScenarioService {
+
+    private final ProductionPlanService productionPlanService;
+    private final ProductionPlanSolver productionPlanSolver;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public List<ProductionPlanScenarioResponse> evaluate(ProductionPlanScenariosRequest request) {
+        return evaluate(request, new SearchCancellation());
+    }
+
+    // Simulação da requisição HTTP, fora da thread do servlet; como na sugestão do plano, a requisição que expira
+    // ou perde a conexão cancela as buscas dos cenários em vez de deixá-las seguir até o fim do prazo
+    public DeferredResult<List<ProductionPlanScenarioResponse>> evaluateAsync(ProductionPlanScenariosRequest request) {
+        SearchCancellation cancellation = new SearchCancellation();
+        DeferredResult<List<ProductionPlanScenarioResponse>> result = new DeferredResult<>();
+        result.onTimeout(cancellation::cancel);
+        result.onError(error -> cancellation.cancel());
+
+        executor.execute(() -> {
+            try {
+                List<ProductionPlanScenarioResponse> responses = evaluate(request, cancellation);
+                if (responses != null) {
+                    result.setResult(responses);
+                }
+            } catch (RuntimeException e) {
+                result.setErrorResult(e);
+            }
+        });
+        return result;
+    }
+
+    // Retorna nulo quando a requisição foi abandonada durante as buscas
+    List<ProductionPlanScenarioResponse> evaluate(ProductionPlanScenariosRequest request, SearchCancellation cancellation) {
+        PlanningProblem base = productionPlanService.loadProblem();
+
+        // Valida todos os cenários antes de começar qualquer busca
+        List<PlanningProblem> problems = new ArrayList<>();
+        for (PlanScenarioRequest scenario : request.scenarios()) {
+            problems.add(base.withStock(overridesOf(scenario, base.catalog())));
+        }
+
+        SharedDeadline deadline = new SharedDeadline(
+                TimeUnit.MILLISECONDS.toNanos(productionPlanSolver.effectiveTimeBudgetMs(request.timeBudgetMs())),
+                problems.size(),
+                productionPlanSolver.searchThreads()
+        );
+        cancellation.onCancel(deadline::cancel);
+
+        List<Future<ProductionPlanSuggestionResponse>> plans = new ArrayList<>();
+        for (PlanningProblem problem : problems) {
+            plans.add(executor.submit(() -> solve(problem, deadline, cancellation)));
+        }
+
+        List<ProductionPlanScenarioResponse> responses = new ArrayList<>();
+        for (int i = 0; i < plans.size(); i++) {
+            responses.add(new ProductionPlanScenarioResponse(request.scenarios().get(i).name(), await(plans, i)));
+        }
+
+        // Planos interrompidos pelo cancelamento não valem para o prazo pedido
+        return cancellation.finish() ? null : responses;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Cada cenário recebe a fatia do prazo da requisição que cabe à sua leva e parte do último plano calculado
+    private ProductionPlanSuggestionResponse solve(
+            PlanningProblem problem,
+            SharedDeadline deadline,
+            SearchCancellation cancellation
+    ) throws InterruptedException {
+        if (problem.isEmpty()) {
+            return productionPlanService.montarRespostaSemProduction(problem, System.nanoTime());
+        }
+
+        SearchBudget budget = deadline.start();
+        try {
+            // Cancelamento que chegou antes do registro do orçamento: a busca já nasce cancelada
+            if (cancellation.isCancelled()) {
+                budget.cancel();
+            }
+
+            long inicio = System.nanoTime();
+            BranchAndBoundSearch.SearchResult result = productionPlanService.search(() -> productionPlanSolver.solve(
+                    problem.model(),
+                    budget,
+                    productionPlanService.previousQuantities(problem)
+            ));
+            return productionPlanService.montarResposta(problem, result, inicio);
+        } finally {
+            deadline.finish();
+        }
+    }
+
+    private Map<Long, BigDecimal> overridesOf(PlanScenarioRequest scenario, ProductionModel catalog) {
+        Map<Long, BigDecimal> overrides = new HashMap<>();
+        for (StockOverrideRequest override : scenario.stockOverrides()) {
+            if (catalog.materialIndex(override.rawMaterialId()) < 0) {
+                throw new ResourceNotFoundException("Raw material not found for id: " + override.rawMaterialId());
+            }
+            overrides.put(override.rawMaterialId(), override.stockQuantity());
+        }
+        return overrides;
+    }
+
+    private ProductionPlanSuggestionResponse await(List<Future<ProductionPlanSuggestionResponse>> plans, int index) {
+        try {
+            return plans.get(index).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            plans.forEach(plan -> plan.cancel(true));
+            throw new CancellationException("Simulação de cenários interrompida");
+        } catch (ExecutionException e) {
+            plans.forEach(plan -> plan.cancel(true));
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // Prazo único da requisição. Os cenários rodam em levas do tamanho do pool de busca do solver e cada leva
+    // recebe uma fatia igual do prazo, sem passar do fim dele: 100 cenários levam um timeBudgetMs, não cem
+    private static final class SharedDeadline {
+
+        private final long deadlineNanos;
+        private final long sliceNanos;
+        private final Semaphore lanes;
+        private final List<SearchBudget> budgets = new CopyOnWriteArrayList<>();
+
+        SharedDeadline(long budgetNanos, int scenarios, int searchThreads) {
+            int lanes = Math.max(1, Math.min(scenarios, searchThreads));
+            int waves = (scenarios + lanes - 1) / lanes;
+            this.deadlineNanos = System.nanoTime() + budgetNanos;
+            this.sliceNanos = budgetNanos / Math.max(1, waves);
+            this.lanes = new Semaphore(lanes);
+        }
+
+        // Espera a vez do cenário; a fatia começa a contar quando ele de fato vai para a busca
+        SearchBudget start() throws InterruptedException {
+            lanes.acquire();
+            long now = System.nanoTime();
+            SearchBudget budget = SearchBudget.until(deadlineNanos - now < sliceNanos ? deadlineNanos : now + sliceNanos);
+            budgets.add(budget);
+            return budget;
+        }
+
+        void finish() {
+            lanes.release();
+        }
+
+        void cancel() {
+            budgets.forEach(SearchBudget::cancel);
+        }
+    }
+}
@@ -1,319 +1,355 @@
 package com.project.inventory.service.optimization;
 
-import com.project.inventory.domain.entity.ProductCompositionItem;
-import com.project.inventory.domain.entity.RawMaterial;
-import com.project.inventory.domain.entity.Product;
-import com.project.inventory.domain.repository.RawMaterialRepository;
-import com.project.inventory.domain.repository.ProductRepository;
 import com.project.inventory.dto.planproduction.ConsumoRawMaterialResponse;
+import com.project.inventory.dto.planproduction.PlanCacheStatsResponse;
+import com.project.inventory.dto.planproduction.PlanMetricsResponse;
+import com.project.inventory.dto.planproduction.PlannerMetricsResponse;
 import com.project.inventory.dto.planproduction.ProductionPlanItemResponse;
 import com.project.inventory.dto.planproduction.SaldoRawMaterialResponse;
+import com.project.inventory.dto.planproduction.ProductionPlanSuggestionRequest;
 import com.project.inventory.dto.planproduction.ProductionPlanSuggestionResponse;
+import com.project.inventory.service.CatalogVersion;
+import com.project.inventory.service.catalog.ProductionModel;
+import com.project.inventory.service.catalog.ProductionModelRegistry;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
 public class ProductionPlanService {
 
     private static final BigDecimal ZERO = BigDecimal.ZERO;
-    private static final int MAX_ITERATIONS = 50000; // Limite de segurança para evitar loops infinitos
 
-    private final ProductRepository productRepository;
-    private final RawMaterialRepository rawMaterialRepository;
+    private final ProductionModelRegistry productionModelRegistry;
+    private final ProductionPlanSolver productionPlanSolver;
+    private final ProductionPlanCache productionPlanCache;
+    private final CatalogVersion catalogVersion;
+    private final PlannerMetrics plannerMetrics;
+    // Só esperam a busca, que roda nas threads de plataforma do ProductionPlanSolver, e completam o DeferredResult
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<PlanKey, InFlightPlan> inFlight = new ConcurrentHashMap<>();
 
-    @Transactional(readOnly = true)
     public ProductionPlanSuggestionResponse suggestOptimalPlan() {
-        List<Product> products = productRepository.findAll()
-                .stream()
-                .filter(this::productTemCompositionValida)
-                .sorted(Comparator
-                        .comparing(Product::getPrice).reversed()
-                        .thenComparing(Product::getCode))
-                .toList();
-
-        List<RawMaterial> rawMaterials = rawMaterialRepository.findAll()
-                .stream()
-                .sorted(Comparator.comparing(RawMaterial::getCode))
-                .toList();
-
-        Map<Long, BigDecimal> stockInicial = createMapaStockInicial(rawMaterials);
-
-        if (products.isEmpty()) {
-            return montarRespostaSemProduction(rawMaterials, stockInicial);
-        }
-
-        SearchState state = new SearchState(products.size());
-        Map<Long, BigDecimal> availableStock = new HashMap<>(stockInicial);
-
-        findBestCombination(
-                0,
-                products,
-                availableStock,
-                state,
-                ZERO,
-                0
-        );
-
-        return montarResposta(products, rawMaterials, stockInicial, state.bestQuantities);
+        return suggestOptimalPlan(null);
     }
 
-    private boolean productTemCompositionValida(Product product) {
-        return product.getCompositionItems() != null && !product.getCompositionItems().isEmpty();
+    public ProductionPlanSuggestionResponse suggestOptimalPlan(ProductionPlanSuggestionRequest request) {
+        return suggestOptimalPlan(request, new SearchCancellation());
     }
 
-    private Map<Long, BigDecimal> createMapaStockInicial(List<RawMaterial> rawMaterials) {
-        Map<Long, BigDecimal> stockInicial = new HashMap<>();
-
-        for (RawMaterial rawMaterial : rawMaterials) {
-            stockInicial.put(
-                    rawMaterial.getId(),
-                    priceNaoNulo(rawMaterial.getStockQuantity())
-            );
-        }
-
-        return stockInicial;
+    // Planejamento da requisição HTTP, fora da thread do servlet. Quando a requisição expira
+    // (spring.mvc.async.request-timeout) ou o contêiner reporta erro na conexão, a busca é cancelada em vez de
+    // seguir até o fim do prazo para um plano que ninguém vai ler
+    public DeferredResult<ProductionPlanSuggestionResponse> suggestOptimalPlanAsync(ProductionPlanSuggestionRequest request) {
+        SearchCancellation cancellation = new SearchCancellation();
+        DeferredResult<ProductionPlanSuggestionResponse> result = new DeferredResult<>();
+        result.onTimeout(cancellation::cancel);
+        result.onError(error -> cancellation.cancel());
+
+        executor.execute(() -> {
+            try {
+                ProductionPlanSuggestionResponse plan = suggestOptimalPlan(request, cancellation);
+                if (plan != null) {
+                    result.setResult(plan);
+                }
+            } catch (RuntimeException e) {
+                result.setErrorResult(e);
+            }
+        });
+        return result;
     }
 
-    private ProductionPlanSuggestionResponse montarRespostaSemProduction(
-            List<RawMaterial> rawMaterials,
-            Map<Long, BigDecimal> stockInicial
-    ) {
-        List<SaldoRawMaterialResponse> saldos = rawMaterials.stream()
-                .map(rawMaterial -> new SaldoRawMaterialResponse(
-                        rawMaterial.getId(),
-                        rawMaterial.getCode(),
-                        rawMaterial.getName(),
-                        rawMaterial.getUnitOfMeasurement(),
-                        stockInicial.getOrDefault(rawMaterial.getId(), ZERO),
-                        ZERO,
-                        stockInicial.getOrDefault(rawMaterial.getId(), ZERO)
-                ))
-                .toList();
-
-        return new ProductionPlanSuggestionResponse(
-                ZERO.setScale(2, RoundingMode.HALF_UP),
-                0,
-                List.of(),
-                List.of(),
-                saldos
-        );
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
     }
 
-    private void findBestCombination(
-            int productIndex,
-            List<Product> products,
-            Map<Long, BigDecimal> availableStock,
-            SearchState state,
-            BigDecimal priceTotalAtual,
-            int totalQuantityAtual
+    // Retorna nulo quando a requisição foi abandonada durante a busca
+    ProductionPlanSuggestionResponse suggestOptimalPlan(
+            ProductionPlanSuggestionRequest request,
+            SearchCancellation cancellation
     ) {
-        state.iterations++;
-        
-        // Caso base: chegamos ao fim da lista de produtos ou atingimos o limite de segurança
-        if (productIndex == products.size() || state.iterations >= MAX_ITERATIONS) {
-            evaluateBestSolution(state, priceTotalAtual, totalQuantityAtual);
-            return;
-        }
-
-        // PODA: Se o valor máximo possível deste galho não puder superar o melhor valor já encontrado, pulamos.
-        // Como a lista está ordenada por preço decrescente, o "upper bound" é agressivo.
-        BigDecimal potentialRemainingValue = calculateUpperBound(productIndex, products, availableStock);
-        if (priceTotalAtual.add(potentialRemainingValue).compareTo(state.bestTotalValue) < 0) {
-            return;
+        long inicio = System.nanoTime();
+        Long requestedBudgetMs = request == null ? null : request.timeBudgetMs();
+        boolean includeMetrics = request != null && Boolean.TRUE.equals(request.includeMetrics());
+        PlannerMetrics.Recording recording = plannerMetrics.start();
+
+        // A versão é lida antes de carregar o catálogo, para nunca associar dados novos a uma versão antiga
+        long version = catalogVersion.current();
+        long timeBudgetMs = productionPlanSolver.effectiveTimeBudgetMs(requestedBudgetMs);
+
+        ProductionPlanSuggestionResponse cached = productionPlanCache.find(version, timeBudgetMs);
+        if (cached != null) {
+            recording.cacheHit();
+            // Nenhuma busca nesta chamada: nós e tempo são os dela, não os da busca que calculou o plano guardado
+            return forCall(cached, 0L, inicio, includeMetrics ? recording.summary() : null);
         }
 
-        Product productAtual = products.get(productIndex);
-        int maximoUnits = calculateMaxProducibleUnits(productAtual, availableStock);
-
-        // Tentamos do máximo para o mínimo para encontrar soluções boas mais rápido (ajuda na poda)
-        for (int quantity = maximoUnits; quantity >= 0; quantity--) {
-            state.currentQuantities[productIndex] = quantity;
-
-            if (quantity > 0) {
-                consumeRawMaterials(productAtual, quantity, availableStock);
+        // Requisições iguais que chegam durante uma busca esperam por ela em vez de repetir o mesmo trabalho
+        PlanKey key = new PlanKey(version, timeBudgetMs);
+        ProductionPlanSuggestionResponse response;
+        while (true) {
+            InFlightPlan flight = new InFlightPlan();
+            InFlightPlan running = inFlight.putIfAbsent(key, flight);
+
+            if (running == null) {
+                flight.join(cancellation);
+                response = plan(key, flight, requestedBudgetMs, recording, inicio);
+                break;
             }
-
-            BigDecimal novoPriceTotal = priceTotalAtual.add(
-                    productAtual.getPrice().multiply(BigDecimal.valueOf(quantity))
-            );
-            int novaQuantityTotal = totalQuantityAtual + quantity;
-
-            findBestCombination(
-                    productIndex + 1,
-                    products,
-                    availableStock,
-                    state,
-                    novoPriceTotal,
-                    novaQuantityTotal
-            );
-
-            if (quantity > 0) {
-                returnRawMaterials(productAtual, quantity, availableStock);
+            if (running.join(cancellation)) {
+                recording.coalesced();
+                response = running.await();
+                break;
             }
-            
-            // Se atingimos o limite durante a recursão, paramos de tentar outras quantidades para este nível
-            if (state.iterations >= MAX_ITERATIONS) break;
+
+            // A busca encontrada já terminou ou foi abandonada por todos; sai do mapa e a requisição começa outra
+            inFlight.remove(key, running);
         }
 
-        state.currentQuantities[productIndex] = 0;
+        // Quem esperou a busca de outra requisição recebe o tempo da própria espera
+        return response == null ? null
+                : forCall(response, response.nodesExplored(), inicio, includeMetrics ? recording.summary() : null);
     }
 
-    private int calculateMaxProducibleUnits(Product product, Map<Long, BigDecimal> availableStock) {
-        int maximo = Integer.MAX_VALUE;
-
-        for (ProductCompositionItem item : product.getCompositionItems()) {
-            Long rawMaterialId = item.getRawMaterial().getId();
-            BigDecimal quantityDisponivel = availableStock.getOrDefault(rawMaterialId, ZERO);
-            BigDecimal requiredQuantity = item.getRequiredQuantity();
-
-            if (requiredQuantity == null || requiredQuantity.compareTo(ZERO) <= 0) {
-                return 0;
+    private ProductionPlanSuggestionResponse plan(
+            PlanKey key,
+            InFlightPlan flight,
+            Long requestedBudgetMs,
+            PlannerMetrics.Recording recording,
+            long inicio
+    ) {
+        try {
+            ProductionPlanSuggestionResponse response = plan(flight.search(), requestedBudgetMs, recording, inicio);
+            if (response != null) {
+                productionPlanCache.store(key.catalogVersion(), key.timeBudgetMs(), response);
             }
+            flight.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            flight.fail(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    private ProductionPlanSuggestionResponse plan(
+            SearchCancellation cancellation,
+            Long requestedBudgetMs,
+            PlannerMetrics.Recording recording,
+            long inicio
+    ) {
+        PlanningProblem problem = loadProblem(recording);
+        if (problem.isEmpty()) {
+            return montarRespostaSemProduction(problem, inicio);
+        }
 
-            int possivelComEssaRawMaterial = quantityDisponivel
-                    .divide(requiredQuantity, 0, RoundingMode.DOWN)
-                    .intValue();
+        SearchBudget budget = productionPlanSolver.budgetFor(requestedBudgetMs);
+        cancellation.attach(budget);
 
-            maximo = Math.min(maximo, possivelComEssaRawMaterial);
+        // Cancelada ainda na carga do catálogo, a busca nem começa
+        BranchAndBoundSearch.SearchResult result = cancellation.isCancelled() ? null : recording.search(
+                () -> productionPlanSolver.solve(problem.model(), budget, previousQuantities(problem)));
 
-            if (maximo == 0) {
-                return 0;
-            }
+        // Um plano interrompido pelo cancelamento não vale para o prazo pedido, então também não vai para o cache
+        if (cancellation.finish()) {
+            recording.abandoned(cancellation.reclaimedNanos());
+            return null;
         }
+        return recording.time(PlannerMetrics.Phase.RESPONSE, () -> montarResposta(problem, result, inicio));
+    }
 
-        return maximo == Integer.MAX_VALUE ? 0 : maximo;
+    public PlannerMetricsResponse metrics() {
+        return plannerMetrics.snapshot();
     }
 
-    private void consumeRawMaterials(
-            Product product,
-            int quantityProduct,
-            Map<Long, BigDecimal> availableStock
-    ) {
-        BigDecimal multiplicador = BigDecimal.valueOf(quantityProduct);
+    public PlanCacheStatsResponse cacheStats() {
+        return new PlanCacheStatsResponse(
+                catalogVersion.current(),
+                productionPlanCache.hits(),
+                productionPlanCache.misses(),
+                productionPlanSolver.transpositionHits(),
+                productionPlanSolver.transpositionMisses()
+        );
+    }
 
-        for (ProductCompositionItem item : product.getCompositionItems()) {
-            Long rawMaterialId = item.getRawMaterial().getId();
-            BigDecimal consumo = item.getRequiredQuantity().multiply(multiplicador);
+    // Compila o retrato da versão atual do catálogo; nenhuma entidade é lida aqui. O planejamento não abre
+    // transação: só a remontagem do retrato usa o banco, numa transação curta dentro do ProductionModelRegistry,
+    // e a busca roda sem conexão nem contexto de persistência
+    PlanningProblem loadProblem() {
+        return loadProblem(plannerMetrics.start());
+    }
 
-            BigDecimal atual = availableStock.getOrDefault(rawMaterialId, ZERO);
-            availableStock.put(rawMaterialId, atual.subtract(consumo));
-        }
+    // Busca dos jobs e dos cenários, medida e contada como a do planejamento síncrono
+    BranchAndBoundSearch.SearchResult search(Supplier<BranchAndBoundSearch.SearchResult> search) {
+        return plannerMetrics.start().search(search);
     }
 
-    private void returnRawMaterials(
-            Product product,
-            int quantityProduct,
-            Map<Long, BigDecimal> availableStock
+    private PlanningProblem loadProblem(PlannerMetrics.Recording recording) {
+        ProductionModel catalog = recording.time(PlannerMetrics.Phase.LOAD, productionModelRegistry::current);
+        return recording.time(PlannerMetrics.Phase.MODEL_BUILD, () -> PlanningProblem.of(catalog));
+    }
+
+    ProductionPlanSuggestionResponse montarResposta(
+            PlanningProblem problem,
+            BranchAndBoundSearch.SearchResult result,
+            long inicio
     ) {
-        BigDecimal multiplicador = BigDecimal.valueOf(quantityProduct);
+        return montarResposta(
+                problem,
+                problem.presolved().toOriginal(result.quantities()),
+                result.provenOptimal(),
+                // Distância entre o melhor limite superior dos galhos não explorados e o plano devolvido
+                BigDecimal.valueOf(result.bestBound() - result.totalValue(), PlanningModel.PRICE_SCALE)
+                        .setScale(2, RoundingMode.HALF_UP),
+                result.iterations(),
+                inicio
+        );
+    }
 
-        for (ProductCompositionItem item : product.getCompositionItems()) {
-            Long rawMaterialId = item.getRawMaterial().getId();
-            BigDecimal devolucao = item.getRequiredQuantity().multiply(multiplicador);
+    // Quantidades do último plano calculado, na ordem do modelo reduzido do catálogo atual (nulo se não houver)
+    int[] previousQuantities(PlanningProblem problem) {
+        ProductionPlanSuggestionResponse previous = productionPlanCache.previousPlan();
+        if (previous == null || previous.suggestedItems().isEmpty()) {
+            return null;
+        }
 
-            BigDecimal atual = availableStock.getOrDefault(rawMaterialId, ZERO);
-            availableStock.put(rawMaterialId, atual.add(devolucao));
+        Map<Long, Integer> quantityPorProduct = new HashMap<>();
+        for (ProductionPlanItemResponse item : previous.suggestedItems()) {
+            quantityPorProduct.put(item.productId(), item.suggestedQuantity());
         }
-    }
 
-    private BigDecimal calculateUpperBound(int productIndex, List<Product> products, Map<Long, BigDecimal> availableStock) {
-        BigDecimal totalPotential = ZERO;
-        for (int i = productIndex; i < products.size(); i++) {
-            Product p = products.get(i);
-            int maxPossible = calculateMaxProducibleUnits(p, availableStock);
-            totalPotential = totalPotential.add(p.getPrice().multiply(BigDecimal.valueOf(maxPossible)));
+        int[] quantities = new int[problem.plannedProducts().length];
+        for (int i = 0; i < quantities.length; i++) {
+            quantities[i] = quantityPorProduct.getOrDefault(problem.catalog().productId(problem.plannedProducts()[i]), 0);
         }
-        return totalPotential;
+        return problem.presolved().toReduced(quantities);
     }
 
-    private void evaluateBestSolution(
-            SearchState state,
-            BigDecimal priceTotalAtual,
-            int totalQuantityAtual
+    // Plano intermediário de uma busca em andamento: ainda não há limite nem contagem de nós
+    ProductionPlanSuggestionResponse montarRespostaParcial(
+            PlanningProblem problem,
+            SharedIncumbent.Incumbent incumbent,
+            long inicio
     ) {
-        int valueComparison = priceTotalAtual.compareTo(state.bestTotalValue);
+        int[] quantities = problem.presolved().toOriginal(incumbent.quantities());
+        return montarResposta(problem, quantities, false, null, null, inicio);
+    }
 
-        boolean shouldReplaceBest = valueComparison > 0
-                || (valueComparison == 0 && totalQuantityAtual > state.bestTotalQuantity);
+    ProductionPlanSuggestionResponse montarRespostaSemProduction(PlanningProblem problem, long inicio) {
+        ProductionModel catalog = problem.catalog();
+        Map<Long, BigDecimal> stockInicial = problem.stockInicial();
 
-        if (shouldReplaceBest) {
-            state.bestTotalValue = priceTotalAtual;
-            state.bestTotalQuantity = totalQuantityAtual;
-            state.bestQuantities = Arrays.copyOf(state.currentQuantities, state.currentQuantities.length);
+        List<SaldoRawMaterialResponse> saldos = new ArrayList<>();
+        for (int m = 0; m < catalog.materialCount(); m++) {
+            Long id = catalog.materialId(m);
+            saldos.add(new SaldoRawMaterialResponse(
+                    id,
+                    catalog.materialCode(m),
+                    catalog.materialName(m),
+                    catalog.materialUnit(m),
+                    stockInicial.getOrDefault(id, ZERO),
+                    ZERO,
+                    stockInicial.getOrDefault(id, ZERO),
+                    problem.marginalValue(id)
+            ));
         }
+
+        return new ProductionPlanSuggestionResponse(
+                ZERO.setScale(2, RoundingMode.HALF_UP),
+                0,
+                List.of(),
+                List.of(),
+                saldos,
+                true,
+                ZERO.setScale(2, RoundingMode.HALF_UP),
+                0L,
+                elapsedMs(inicio),
+                null
+        );
     }
 
     private ProductionPlanSuggestionResponse montarResposta(
-            List<Product> products,
-            List<RawMaterial> rawMaterials,
-            Map<Long, BigDecimal> stockInicial,
-            int[] quantitysSugeridas
+            PlanningProblem problem,
+            int[] quantitysSugeridas,
+            Boolean provenOptimal,
+            BigDecimal optimalityGap,
+            Long nodesExplored,
+            long inicio
     ) {
+        ProductionModel catalog = problem.catalog();
+        Map<Long, BigDecimal> stockInicial = problem.stockInicial();
         Map<Long, BigDecimal> stockFinal = new HashMap<>(stockInicial);
 
         List<ProductionPlanItemResponse> suggestedItems = new ArrayList<>();
         BigDecimal totalSalesValue = ZERO;
         int totalProducedQuantity = 0;
 
-        for (int i = 0; i < products.size(); i++) {
+        for (int i = 0; i < problem.plannedProducts().length; i++) {
             int quantity = quantitysSugeridas[i];
 
             if (quantity <= 0) {
                 continue;
             }
 
-            Product product = products.get(i);
+            int product = problem.plannedProducts()[i];
 
-            BigDecimal totalItemValue = product.getPrice().multiply(BigDecimal.valueOf(quantity));
+            BigDecimal totalItemValue = catalog.productPrice(product).multiply(BigDecimal.valueOf(quantity));
             totalSalesValue = totalSalesValue.add(totalItemValue);
             totalProducedQuantity += quantity;
 
             suggestedItems.add(new ProductionPlanItemResponse(
-                    product.getId(),
-                    product.getCode(),
-                    product.getName(),
+                    catalog.productId(product),
+                    catalog.productCode(product),
+                    catalog.productName(product),
                     quantity,
-                    product.getPrice(),
+                    catalog.productPrice(product),
                     totalItemValue
             ));
 
-            aplicarConsumoNoMapaStockFinal(product, quantity, stockFinal);
+            aplicarConsumoNoMapaStockFinal(catalog, product, quantity, stockFinal);
         }
 
         List<ConsumoRawMaterialResponse> consumos = new ArrayList<>();
         List<SaldoRawMaterialResponse> saldos = new ArrayList<>();
 
-        for (RawMaterial rawMaterial : rawMaterials) {
-            Long id = rawMaterial.getId();
+        for (int m = 0; m < catalog.materialCount(); m++) {
+            Long id = catalog.materialId(m);
             BigDecimal initialQuantity = stockInicial.getOrDefault(id, ZERO);
             BigDecimal balanceQuantity = stockFinal.getOrDefault(id, ZERO);
             BigDecimal consumedQuantity = initialQuantity.subtract(balanceQuantity);
 
             if (consumedQuantity.compareTo(ZERO) > 0) {
                 consumos.add(new ConsumoRawMaterialResponse(
-                        rawMaterial.getId(),
-                        rawMaterial.getCode(),
-                        rawMaterial.getName(),
-                        rawMaterial.getUnitOfMeasurement(),
+                        id,
+                        catalog.materialCode(m),
+                        catalog.materialName(m),
+                        catalog.materialUnit(m),
                         consumedQuantity
                 ));
             }
 
             saldos.add(new SaldoRawMaterialResponse(
-                    rawMaterial.getId(),
-                    rawMaterial.getCode(),
-                    rawMaterial.getName(),
-                    rawMaterial.getUnitOfMeasurement(),
+                    id,
+                    catalog.materialCode(m),
+                    catalog.materialName(m),
+                    catalog.materialUnit(m),
                     initialQuantity,
                     consumedQuantity.max(ZERO),
-                    balanceQuantity
+                    balanceQuantity,
+                    problem.marginalValue(id)
             ));
         }
 
@@ -322,43 +358,58 @@ public class ProductionPlanService {
                 totalProducedQuantity,
                 suggestedItems,
                 consumos,
-                saldos
+                saldos,
+                provenOptimal,
+                optimalityGap,
+                nodesExplored,
+                elapsedMs(inicio),
+                null
+        );
+    }
+
+    // O plano guardado no cache e o compartilhado entre requisições iguais descrevem a busca; a resposta leva o
+    // tempo desta chamada e, quando pedido, o resumo dela
+    private ProductionPlanSuggestionResponse forCall(
+            ProductionPlanSuggestionResponse plan,
+            Long nodesExplored,
+            long inicio,
+            PlanMetricsResponse metrics
+    ) {
+        return new ProductionPlanSuggestionResponse(
+                plan.totalSalesValue(),
+                plan.totalProducedQuantity(),
+                plan.suggestedItems(),
+                plan.rawMaterialConsumptions(),
+                plan.rawMaterialBalances(),
+                plan.provenOptimal(),
+                plan.optimalityGap(),
+                nodesExplored,
+                elapsedMs(inicio),
+                metrics
         );
     }
 
     private void aplicarConsumoNoMapaStockFinal(
-            Product product,
+            ProductionModel catalog,
+            int product,
             int quantityProduct,
             Map<Long, BigDecimal> stockFinal
     ) {
         BigDecimal multiplicador = BigDecimal.valueOf(quantityProduct);
 
-        for (ProductCompositionItem item : product.getCompositionItems()) {
-            Long rawMaterialId = item.getRawMaterial().getId();
-            BigDecimal consumo = item.getRequiredQuantity().multiply(multiplicador);
+        for (int item = catalog.compositionStart(product); item < catalog.compositionEnd(product); item++) {
+            Long rawMaterialId = catalog.materialId(catalog.itemMaterial(item));
+            BigDecimal consumo = catalog.itemRequired(item).multiply(multiplicador);
 
             BigDecimal atual = stockFinal.getOrDefault(rawMaterialId, ZERO);
             stockFinal.put(rawMaterialId, atual.subtract(consumo));
         }
     }
 
-    private BigDecimal priceNaoNulo(BigDecimal price) {
-        return price == null ? ZERO : price;
+    private long elapsedMs(long inicio) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
     }
 
-    private static class SearchState {
-        private final int[] currentQuantities;
-        private int[] bestQuantities;
-        private BigDecimal bestTotalValue;
-        private int bestTotalQuantity;
-        private int iterations;
-
-        private SearchState(int quantityProducts) {
-            this.currentQuantities = new int[quantityProducts];
-            this.bestQuantities = new int[quantityProducts];
-            this.bestTotalValue = ZERO;
-            this.bestTotalQuantity = 0;
-            this.iterations = 0;
-        }
+    private record PlanKey(long catalogVersion, long timeBudgetMs) {
     }
 }
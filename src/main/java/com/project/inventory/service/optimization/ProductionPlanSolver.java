@@ -0,0 +1,184 @@
+package com.project.inventory.service.optimization;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+@Component
+public class ProductionPlanSolver {
+
+    private final ForkJoinPool pool;
+    // Threads de plataforma, uma por núcleo, onde cada busca começa: a busca não cede a CPU e prenderia a
+    // thread portadora de uma virtual thread, então quem pede o plano só espera o resultado
+    private final ExecutorService searchExecutor;
+    private final int searchThreads;
+    private final long defaultTimeBudgetMs;
+    private final long maxTimeBudgetMs;
+    private final int transpositionTableEntries;
+    private final SearchMode searchMode;
+    private final int maxOpenNodes;
+    // Consultas à memória de subproblemas, somadas ao fim de cada busca (planner.transposition.hits/misses)
+    private final Counter transpositionHits;
+    private final Counter transpositionMisses;
+
+    public ProductionPlanSolver(
+            MeterRegistry meterRegistry,
+            @Value("${planner.parallelism:1}") int parallelism,
+            @Value("${planner.default-time-budget-ms:2000}") long defaultTimeBudgetMs,
+            @Value("${planner.max-time-budget-ms:30000}") long maxTimeBudgetMs,
+            @Value("${planner.transposition-table.max-entries:65536}") int transpositionTableEntries,
+            @Value("${planner.search-mode:depth-first}") SearchMode searchMode,
+            @Value("${planner.best-first.max-open-nodes:100000}") int maxOpenNodes
+    ) {
+        // Com uma única thread a busca roda inteira na thread do searchExecutor, sem fork-join
+        this.pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        this.searchThreads = Runtime.getRuntime().availableProcessors();
+        this.searchExecutor = Executors.newFixedThreadPool(
+                searchThreads,
+                Thread.ofPlatform().name("planner-search-", 0).daemon(true).factory()
+        );
+        this.defaultTimeBudgetMs = defaultTimeBudgetMs;
+        this.maxTimeBudgetMs = maxTimeBudgetMs;
+        this.transpositionTableEntries = transpositionTableEntries;
+        this.searchMode = searchMode;
+        this.maxOpenNodes = maxOpenNodes;
+        this.transpositionHits = Counter.builder("planner.transposition.hits")
+                .description("Subproblemas encontrados na memória de subproblemas")
+                .register(meterRegistry);
+        this.transpositionMisses = Counter.builder("planner.transposition.misses")
+                .description("Subproblemas consultados e ausentes da memória de subproblemas")
+                .register(meterRegistry);
+    }
+
+    // Busca até provar o ótimo ou até o prazo; sem prazo informado usa o padrão, e nunca passa do máximo
+    BranchAndBoundSearch.SearchResult solve(PlanningModel model, Long timeBudgetMs) {
+        return solve(model, timeBudgetMs, null);
+    }
+
+    // warmStart: quantidades do plano anterior na ordem do modelo (ou nulo), usadas como solução inicial
+    BranchAndBoundSearch.SearchResult solve(PlanningModel model, Long timeBudgetMs, int[] warmStart) {
+        return solve(model, budgetFor(timeBudgetMs), warmStart);
+    }
+
+    BranchAndBoundSearch.SearchResult solve(PlanningModel model, SearchBudget budget, int[] warmStart) {
+        return solve(model, budget, new SharedIncumbent(model.productCount()), warmStart);
+    }
+
+    // O ponto de partida e a busca rodam no searchExecutor; a thread chamadora fica só esperando o resultado
+    BranchAndBoundSearch.SearchResult solve(
+            PlanningModel model,
+            SearchBudget budget,
+            SharedIncumbent incumbent,
+            int[] warmStart
+    ) {
+        Future<BranchAndBoundSearch.SearchResult> search = searchExecutor.submit(() -> {
+            WarmStart.seed(model, warmStart, incumbent, budget);
+            return search(model, budget, incumbent);
+        });
+
+        try {
+            return search.get();
+        } catch (InterruptedException e) {
+            // A busca não atende interrupção; o orçamento cancelado a encerra na próxima consulta
+            budget.cancel();
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Busca do plano de produção interrompida");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // O prazo começa a contar aqui, então o orçamento deve ser criado logo antes do ponto de partida e da busca
+    SearchBudget budgetFor(Long timeBudgetMs) {
+        long budgetMs = effectiveTimeBudgetMs(timeBudgetMs);
+        return SearchBudget.until(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMs));
+    }
+
+    long effectiveTimeBudgetMs(Long timeBudgetMs) {
+        return Math.min(timeBudgetMs == null ? defaultTimeBudgetMs : timeBudgetMs, maxTimeBudgetMs);
+    }
+
+    // Buscas que o solver consegue rodar ao mesmo tempo sem que uma espere na fila pela outra
+    int searchThreads() {
+        return searchThreads;
+    }
+
+    private BranchAndBoundSearch.SearchResult search(PlanningModel model, SearchBudget budget, SharedIncumbent incumbent) {
+        // Uma única matéria-prima restante: a mochila limitada resolve na hora e já dá o ótimo provado
+        int[] knapsackPlan = BoundedKnapsack.solve(model);
+        if (knapsackPlan != null) {
+            long totalValue = 0L;
+            for (int p = 0; p < knapsackPlan.length; p++) {
+                totalValue += model.price(p) * knapsackPlan[p];
+            }
+            incumbent.offer(totalValue, Arrays.stream(knapsackPlan).sum(), knapsackPlan);
+            return BranchAndBoundSearch.SearchResult.of(
+                    incumbent.best(),
+                    0L,
+                    BranchAndBoundSearch.SearchStatistics.EMPTY,
+                    budget
+            );
+        }
+
+        // As entradas da memória de subproblemas só valem para este modelo, então cada busca começa com tabelas novas
+        List<TranspositionTable> tables = new CopyOnWriteArrayList<>();
+        Supplier<TranspositionTable> tableFactory = transpositionTableEntries <= 0 ? null : () -> {
+            TranspositionTable table = new TranspositionTable(transpositionTableEntries);
+            tables.add(table);
+            return table;
+        };
+
+        try {
+            // A busca pelo melhor limite é sempre sequencial, mesmo com planner.parallelism maior que 1
+            if (searchMode == SearchMode.BEST_FIRST) {
+                TranspositionTable table = tableFactory == null ? null : tableFactory.get();
+                return BestFirstSearch.solve(model, budget, incumbent, table, maxOpenNodes);
+            }
+            if (pool == null) {
+                return BranchAndBoundSearch.solve(model, budget, incumbent, tableFactory == null ? null : tableFactory.get());
+            }
+            return ParallelBranchAndBound.solve(model, budget, incumbent, pool, tableFactory);
+        } finally {
+            for (TranspositionTable table : tables) {
+                transpositionHits.increment(table.hits());
+                transpositionMisses.increment(table.misses());
+            }
+        }
+    }
+
+    long transpositionHits() {
+        return (long) transpositionHits.count();
+    }
+
+    long transpositionMisses() {
+        return (long) transpositionMisses.count();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        searchExecutor.shutdownNow();
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+    }
+}
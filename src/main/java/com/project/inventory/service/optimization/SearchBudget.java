@@ -0,0 +1,80 @@
+package com.project.inventory.service.optimization;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Orçamento da busca (prazo e, opcionalmente, número de nós) compartilhado; cada tarefa reserva blocos de nós
+// para não disputar o contador a cada nó. Quando o orçamento acaba, guarda o maior limite superior entre os
+// galhos que ficaram sem explorar, que é o que separa a melhor solução encontrada do ótimo provado
+final class SearchBudget {
+
+    private final long maxNodes;
+    private final long deadlineNanos;
+    private final boolean hasDeadline;
+    private final AtomicLong reserved = new AtomicLong();
+    private final AtomicLong unexploredBound = new AtomicLong(Long.MIN_VALUE);
+    private volatile boolean exhausted;
+
+    private SearchBudget(long maxNodes, long deadlineNanos, boolean hasDeadline) {
+        this.maxNodes = maxNodes;
+        this.deadlineNanos = deadlineNanos;
+        this.hasDeadline = hasDeadline;
+    }
+
+    static SearchBudget until(long deadlineNanos) {
+        return new SearchBudget(Long.MAX_VALUE, deadlineNanos, true);
+    }
+
+    static SearchBudget ofNodes(long maxNodes) {
+        return new SearchBudget(maxNodes, 0L, false);
+    }
+
+    int reserve(int requested) {
+        if (exhausted) {
+            return 0;
+        }
+
+        long start = reserved.getAndAdd(requested);
+        if (start >= maxNodes) {
+            exhausted = true;
+            return 0;
+        }
+
+        return (int) Math.min(requested, maxNodes - start);
+    }
+
+    // Devolve a sobra de uma tarefa que terminou antes de gastar o bloco reservado
+    void release(long unused) {
+        if (unused > 0) {
+            reserved.addAndGet(-unused);
+        }
+    }
+
+    boolean checkDeadline() {
+        if (hasDeadline && System.nanoTime() - deadlineNanos >= 0) {
+            exhausted = true;
+        }
+        return !exhausted;
+    }
+
+    // Interrompe todas as tarefas na próxima consulta ao relógio ou na próxima reserva
+    void cancel() {
+        exhausted = true;
+    }
+
+    // Quanto ainda faltava do prazo; sem prazo, zero
+    long remainingNanos() {
+        return hasDeadline ? Math.max(0L, deadlineNanos - System.nanoTime()) : 0L;
+    }
+
+    boolean isExhausted() {
+        return exhausted;
+    }
+
+    void recordUnexplored(long bound) {
+        unexploredBound.accumulateAndGet(bound, Math::max);
+    }
+
+    long unexploredBound() {
+        return unexploredBound.get();
+    }
+}
@@ -0,0 +1,100 @@
+package com.project.inventory.service.optimization;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+// Cancelamento de um planejamento síncrono pedido de fora da busca: fim do prazo da requisição ou erro na conexão
+// com o cliente. Se chega antes da busca, o orçamento já nasce cancelado; se chega depois que ela terminou, não
+// tem efeito e o plano segue normalmente
+final class SearchCancellation {
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private SearchBudget budget;
+    private Runnable listener;
+    private boolean cancelled;
+    private boolean finished;
+    private long reclaimedNanos;
+
+    void attach(SearchBudget budget) {
+        lock.lock();
+        try {
+            this.budget = budget;
+            if (cancelled) {
+                reclaimedNanos = budget.remainingNanos();
+                budget.cancel();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Ação executada uma única vez no cancelamento, ou na hora se ele já aconteceu
+    void onCancel(Runnable listener) {
+        boolean alreadyCancelled;
+        lock.lock();
+        try {
+            this.listener = listener;
+            alreadyCancelled = cancelled && !finished;
+        } finally {
+            lock.unlock();
+        }
+
+        if (alreadyCancelled) {
+            listener.run();
+        }
+    }
+
+    void cancel() {
+        Runnable action;
+        lock.lock();
+        try {
+            if (cancelled || finished) {
+                return;
+            }
+
+            cancelled = true;
+            if (budget != null) {
+                reclaimedNanos = budget.remainingNanos();
+                budget.cancel();
+            }
+            action = listener;
+        } finally {
+            lock.unlock();
+        }
+
+        // Fora do lock: a ação pode cancelar outra busca, com o lock dela
+        if (action != null) {
+            action.run();
+        }
+    }
+
+    boolean isCancelled() {
+        lock.lock();
+        try {
+            return cancelled;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Marca o fim da busca; retorna true quando ela foi abandonada antes de terminar
+    boolean finish() {
+        lock.lock();
+        try {
+            finished = true;
+            return cancelled;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Parte do prazo que a busca deixou de gastar por ter sido cancelada
+    long reclaimedNanos() {
+        lock.lock();
+        try {
+            return reclaimedNanos;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.project.inventory.service.optimization;
+
+// Ordem em que a busca explora os galhos (planner.search-mode)
+public enum SearchMode {
+    // Profundidade na ordem dos produtos, do máximo de unidades para zero; pode usar o fork-join
+    DEPTH_FIRST,
+    // Sempre o nó aberto de maior limite superior, com teto de nós abertos; sempre sequencial
+    BEST_FIRST
+}
@@ -0,0 +1,53 @@
+package com.project.inventory.service.optimization;
+
+import com.project.inventory.service.catalog.ProductionModel;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.HashMap;
+import java.util.Map;
+
+// Valor marginal de uma unidade a mais de cada matéria-prima: o dual da sua linha na relaxação linear do
+// modelo compilado (antes do presolve, para que toda matéria-prima tenha a sua linha). É uma única solução do
+// simplex em vez de um planejamento por matéria-prima com o estoque aumentado, e mede a relaxação: o plano
+// inteiro pode ganhar menos que isso com uma unidade só
+final class ShadowPrices {
+
+    static final int SCALE = 4;
+
+    private ShadowPrices() {
+    }
+
+    // Nulo quando o modelo é grande demais para o simplex; sem produtos, toda matéria-prima vale zero
+    static Map<Long, BigDecimal> of(PlanningModel compiled, ProductionModel catalog) {
+        Map<Long, BigDecimal> values = new HashMap<>();
+        if (compiled == null) {
+            for (int m = 0; m < catalog.materialCount(); m++) {
+                values.put(catalog.materialId(m), BigDecimal.ZERO.setScale(SCALE));
+            }
+            return values;
+        }
+
+        // Estoque zerado tira a linha do simplex; com a menor quantidade representável o dual passa a medir o
+        // ganho da primeira unidade recebida
+        long[] stock = compiled.copyInitialStock();
+        for (int m = 0; m < stock.length; m++) {
+            stock[m] = Math.max(stock[m], 1L);
+        }
+
+        LinearRelaxation relaxation = LinearRelaxation.solve(compiled, stock);
+        if (relaxation == null) {
+            return null;
+        }
+
+        // Dual em (centavos de preço) por (décimo de milésimo de estoque); convertemos para preço por unidade
+        BigDecimal unitScale = BigDecimal.TEN.pow(PlanningModel.STOCK_SCALE - PlanningModel.PRICE_SCALE);
+        for (int m = 0; m < catalog.materialCount(); m++) {
+            values.put(
+                    catalog.materialId(m),
+                    BigDecimal.valueOf(relaxation.dual(m)).multiply(unitScale).setScale(SCALE, RoundingMode.HALF_UP)
+            );
+        }
+        return values;
+    }
+}
@@ -0,0 +1,63 @@
+package com.project.inventory.service.optimization;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+// Melhor solução conhecida, compartilhada entre as tarefas da busca sem locks (CAS sobre um registro imutável)
+final class SharedIncumbent {
+
+    private final AtomicReference<Incumbent> best;
+    private final Consumer<Incumbent> listener;
+
+    SharedIncumbent(int productCount) {
+        this(productCount, incumbent -> { });
+    }
+
+    // O ouvinte roda na thread da busca que encontrou a melhoria; com várias threads, pode receber
+    // melhorias fora de ordem
+    SharedIncumbent(int productCount, Consumer<Incumbent> listener) {
+        this.best = new AtomicReference<>(new Incumbent(0L, 0, new int[productCount]));
+        this.listener = listener;
+    }
+
+    long bestValue() {
+        return best.get().totalValue();
+    }
+
+    Incumbent best() {
+        return best.get();
+    }
+
+    // Só aloca quando a candidata realmente supera a atual
+    boolean offer(long totalValue, int totalQuantity, int[] quantities) {
+        Incumbent current = best.get();
+
+        while (isBetter(totalValue, totalQuantity, quantities, current)) {
+            Incumbent candidate = new Incumbent(totalValue, totalQuantity, quantities.clone());
+            if (best.compareAndSet(current, candidate)) {
+                listener.accept(candidate);
+                return true;
+            }
+            current = best.get();
+        }
+
+        return false;
+    }
+
+    // Mesmo desempate de evaluateBestSolution: maior valor, depois maior quantidade total. O último critério
+    // (vetor lexicograficamente maior) é a ordem em que a busca sequencial encontra as soluções, o que torna
+    // o resultado paralelo idêntico ao sequencial
+    private static boolean isBetter(long totalValue, int totalQuantity, int[] quantities, Incumbent current) {
+        if (totalValue != current.totalValue()) {
+            return totalValue > current.totalValue();
+        }
+        if (totalQuantity != current.totalQuantity()) {
+            return totalQuantity > current.totalQuantity();
+        }
+        return Arrays.compare(quantities, current.quantities()) > 0;
+    }
+
+    record Incumbent(long totalValue, int totalQuantity, int[] quantities) {
+    }
+}
@@ -0,0 +1,133 @@
+package com.project.inventory.service.optimization;
+
+// Memória de subproblemas já explorados: a chave é (produto do nível, estoque restante) e o valor é um limite
+// superior do que os produtos restantes ainda podem render com aquele estoque. Depois de explorar um galho por
+// inteiro, nenhuma folha dele passa da melhor solução ao final, então melhor - valor do prefixo limita o
+// restante. Quando outra combinação dos produtos anteriores chega ao mesmo estoque com valor menor, o galho é
+// podado sem recalcular a relaxação.
+// Tamanho fixo em conjuntos de 4 posições com substituição pelo relógio (bit de referência); usada por uma
+// única thread por vez
+final class TranspositionTable {
+
+    static final long NO_ENTRY = Long.MIN_VALUE;
+
+    private static final int WAYS = 4;
+    private static final long PRIMARY_SEED = 0x9E3779B97F4A7C15L;
+    private static final long CHECK_SEED = 0xC2B2AE3D27D4EB4FL;
+
+    private final long[] keys;
+    private final long[] checks;
+    private final long[] bounds;
+    private final boolean[] used;
+    private final boolean[] referenced;
+    private final int[] hands;
+    private final int setMask;
+    private long hits;
+    private long misses;
+
+    TranspositionTable(int maxEntries) {
+        int sets = Integer.highestOneBit(Math.max(1, maxEntries / WAYS));
+        this.keys = new long[sets * WAYS];
+        this.checks = new long[sets * WAYS];
+        this.bounds = new long[sets * WAYS];
+        this.used = new boolean[sets * WAYS];
+        this.referenced = new boolean[sets * WAYS];
+        this.hands = new int[sets];
+        this.setMask = sets - 1;
+    }
+
+    // Duas sementes independentes: a primeira escolhe a posição, a segunda confirma a chave. O estoque entra
+    // como soma de um termo por matéria-prima (como no hash de Zobrist), então a busca mantém a soma ao consumir
+    // e devolver sem percorrer o vetor inteiro a cada nó
+    static long primaryHash(int productIndex, long stockSum) {
+        return mix(stockSum ^ mix(PRIMARY_SEED + productIndex));
+    }
+
+    static long checkHash(int productIndex, long stockSum) {
+        return mix(stockSum ^ mix(CHECK_SEED + productIndex));
+    }
+
+    static long primaryTerm(int material, long quantity) {
+        return term(PRIMARY_SEED, material, quantity);
+    }
+
+    static long checkTerm(int material, long quantity) {
+        return term(CHECK_SEED, material, quantity);
+    }
+
+    private static long term(long seed, int material, long quantity) {
+        return mix(mix(seed ^ material) + quantity * seed);
+    }
+
+    // Finalizador do SplitMix64
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    long lookup(long key, long check) {
+        int start = (int) (key & setMask) * WAYS;
+        for (int slot = start; slot < start + WAYS; slot++) {
+            if (used[slot] && keys[slot] == key && checks[slot] == check) {
+                referenced[slot] = true;
+                hits++;
+                return bounds[slot];
+            }
+        }
+        misses++;
+        return NO_ENTRY;
+    }
+
+    void store(long key, long check, long bound) {
+        int set = (int) (key & setMask);
+        int start = set * WAYS;
+
+        int free = -1;
+        for (int slot = start; slot < start + WAYS; slot++) {
+            if (used[slot] && keys[slot] == key && checks[slot] == check) {
+                // Dois limites válidos para o mesmo subproblema: fica o mais apertado
+                bounds[slot] = Math.min(bounds[slot], bound);
+                referenced[slot] = true;
+                return;
+            }
+            if (!used[slot] && free < 0) {
+                free = slot;
+            }
+        }
+
+        if (free < 0) {
+            free = evict(set);
+        }
+        keys[free] = key;
+        checks[free] = check;
+        bounds[free] = bound;
+        used[free] = true;
+        referenced[free] = false;
+    }
+
+    // Relógio: posições consultadas desde a última volta ganham mais uma chance
+    private int evict(int set) {
+        int start = set * WAYS;
+        while (true) {
+            int slot = start + hands[set];
+            hands[set] = (hands[set] + 1) % WAYS;
+            if (!referenced[slot]) {
+                return slot;
+            }
+            referenced[slot] = false;
+        }
+    }
+
+    long hits() {
+        return hits;
+    }
+
+    long misses() {
+        return misses;
+    }
+
+    int capacity() {
+        return keys.length;
+    }
+}
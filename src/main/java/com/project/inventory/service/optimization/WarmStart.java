@@ -0,0 +1,227 @@
+package com.project.inventory.service.optimization;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+// Ponto de partida da busca a partir do plano anterior: reparado para caber no estoque atual e completado
+// com o que ainda couber. Como a poda é estrita, semear a melhor solução não muda o plano final, só
+// antecipa o limiar de poda
+final class WarmStart {
+
+    private static final int DEADLINE_CHECK_MASK = 63; // consulta o relógio a cada 64 tentativas
+
+    private WarmStart() {
+    }
+
+    static void seed(PlanningModel model, int[] previousQuantities, SharedIncumbent incumbent) {
+        seed(model, previousQuantities, incumbent, null);
+    }
+
+    // budget: a busca local para no prazo da busca (nulo para ir até o fim); o plano completado já é viável
+    static void seed(PlanningModel model, int[] previousQuantities, SharedIncumbent incumbent, SearchBudget budget) {
+        int[] quantities = repair(model, previousQuantities, budget);
+
+        int totalQuantity = 0;
+        for (int quantity : quantities) {
+            totalQuantity += quantity;
+        }
+
+        incumbent.offer(value(model, quantities), totalQuantity, quantities);
+    }
+
+    // Mantém as quantidades anteriores na ordem do modelo (maior preço primeiro) enquanto couberem,
+    // depois completa cada produto com o máximo que o estoque restante permite
+    static int[] repair(PlanningModel model, int[] previousQuantities) {
+        return repair(model, previousQuantities, null);
+    }
+
+    private static int[] repair(PlanningModel model, int[] previousQuantities, SearchBudget budget) {
+        long[] stock = model.copyInitialStock();
+        int[] quantities = new int[model.productCount()];
+
+        for (int p = 0; p < model.productCount(); p++) {
+            int previous = previousQuantities == null ? 0 : previousQuantities[p];
+            if (previous > 0) {
+                quantities[p] = take(model, stock, p, previous);
+            }
+        }
+
+        fill(model, stock, quantities);
+        improve(model, stock, quantities, budget);
+        return quantities;
+    }
+
+    private static void fill(PlanningModel model, long[] stock, int[] quantities) {
+        for (int p = 0; p < model.productCount(); p++) {
+            quantities[p] += take(model, stock, p, Integer.MAX_VALUE);
+        }
+    }
+
+    // Busca local: devolve uma unidade de um produto e completa de novo; fica com a troca quando o valor sobe,
+    // sempre tentando a partir do primeiro produto. O resultado de uma tentativa só depende do estoque das
+    // matérias-primas do produto e dos que dividem alguma com ele, então depois de uma troca só os produtos
+    // perto das matérias-primas alteradas voltam para a lista de tentativas; os demais falhariam de novo
+    private static void improve(PlanningModel model, long[] stock, int[] quantities, SearchBudget budget) {
+        int productCount = model.productCount();
+        int[] neighbours = new int[productCount];
+        boolean[] isNeighbour = new boolean[productCount];
+        int[] taken = new int[productCount];
+        BitSet pending = new BitSet(productCount);
+        pending.set(0, productCount);
+
+        int improvements = 0;
+        int trials = 0;
+        for (int p = pending.nextSetBit(0); p >= 0 && improvements < productCount; p = pending.nextSetBit(0)) {
+            if ((++trials & DEADLINE_CHECK_MASK) == 0 && budget != null && !budget.checkDeadline()) {
+                return;
+            }
+
+            pending.clear(p);
+            if (quantities[p] == 0) {
+                continue;
+            }
+
+            int neighbourCount = collectNeighbours(model, p, neighbours, isNeighbour);
+            if (exchange(model, stock, quantities, p, neighbours, neighbourCount, taken)) {
+                improvements++;
+                reopenAround(model, p, neighbours, neighbourCount, taken, pending);
+            }
+        }
+    }
+
+    // Depois de completar, nenhum produto cabe no estoque restante, então só os que usam alguma matéria-prima do
+    // produto devolvido (pelas colunas do modelo) podem ganhar unidades. A tentativa mexe só nesses produtos e é
+    // desfeita no próprio estoque, sem copiar vetores do tamanho do catálogo
+    private static boolean exchange(
+            PlanningModel model,
+            long[] stock,
+            int[] quantities,
+            int product,
+            int[] neighbours,
+            int neighbourCount,
+            int[] taken
+    ) {
+        quantities[product]--;
+        move(model, stock, product, -1);
+        long gain = -model.price(product);
+
+        // O produto devolvido só volta a ser completado depois dos outros
+        for (int i = 0; i < neighbourCount; i++) {
+            int neighbour = neighbours[i];
+            taken[i] = take(model, stock, neighbour, Integer.MAX_VALUE);
+            quantities[neighbour] += taken[i];
+            gain += model.price(neighbour) * taken[i];
+        }
+        int retaken = take(model, stock, product, Integer.MAX_VALUE);
+        quantities[product] += retaken;
+        gain += model.price(product) * retaken;
+
+        if (gain > 0) {
+            return true;
+        }
+
+        quantities[product] -= retaken;
+        move(model, stock, product, -retaken);
+        for (int i = 0; i < neighbourCount; i++) {
+            quantities[neighbours[i]] -= taken[i];
+            move(model, stock, neighbours[i], -taken[i]);
+        }
+        quantities[product]++;
+        move(model, stock, product, 1);
+        return false;
+    }
+
+    // Matérias-primas alteradas pela troca: as do produto devolvido e as dos vizinhos que ganharam unidades.
+    // Volta para a lista todo produto que usa, ou tem vizinho que usa, alguma delas
+    private static void reopenAround(
+            PlanningModel model,
+            int product,
+            int[] neighbours,
+            int neighbourCount,
+            int[] taken,
+            BitSet pending
+    ) {
+        BitSet changed = new BitSet(model.materialCount());
+        markRow(model, product, changed);
+        for (int i = 0; i < neighbourCount; i++) {
+            if (taken[i] > 0) {
+                markRow(model, neighbours[i], changed);
+            }
+        }
+
+        BitSet users = new BitSet(model.productCount());
+        for (int material = changed.nextSetBit(0); material >= 0; material = changed.nextSetBit(material + 1)) {
+            for (int entry = model.columnStart(material); entry < model.columnEnd(material); entry++) {
+                users.set(model.columnProductAt(entry));
+            }
+        }
+
+        for (int user = users.nextSetBit(0); user >= 0; user = users.nextSetBit(user + 1)) {
+            pending.set(user);
+            for (int item = model.rowStart(user); item < model.rowEnd(user); item++) {
+                int material = model.materialAt(item);
+                for (int entry = model.columnStart(material); entry < model.columnEnd(material); entry++) {
+                    pending.set(model.columnProductAt(entry));
+                }
+            }
+        }
+    }
+
+    private static void markRow(PlanningModel model, int product, BitSet materials) {
+        for (int item = model.rowStart(product); item < model.rowEnd(product); item++) {
+            materials.set(model.materialAt(item));
+        }
+    }
+
+    // Produtos que dividem alguma matéria-prima com `product`, em ordem crescente e sem ele mesmo
+    private static int collectNeighbours(PlanningModel model, int product, int[] neighbours, boolean[] isNeighbour) {
+        int count = 0;
+        for (int item = model.rowStart(product); item < model.rowEnd(product); item++) {
+            int material = model.materialAt(item);
+            for (int entry = model.columnStart(material); entry < model.columnEnd(material); entry++) {
+                int neighbour = model.columnProductAt(entry);
+                if (neighbour != product && !isNeighbour[neighbour]) {
+                    isNeighbour[neighbour] = true;
+                    neighbours[count++] = neighbour;
+                }
+            }
+        }
+
+        Arrays.sort(neighbours, 0, count);
+        for (int i = 0; i < count; i++) {
+            isNeighbour[neighbours[i]] = false;
+        }
+        return count;
+    }
+
+    // Consome (units > 0) ou devolve (units < 0) unidades do produto no estoque
+    private static void move(PlanningModel model, long[] stock, int product, int units) {
+        for (int item = model.rowStart(product); item < model.rowEnd(product); item++) {
+            stock[model.materialAt(item)] -= model.requiredAt(item) * units;
+        }
+    }
+
+    private static long value(PlanningModel model, int[] quantities) {
+        long total = 0L;
+        for (int p = 0; p < model.productCount(); p++) {
+            total = Math.addExact(total, Math.multiplyExact(model.price(p), quantities[p]));
+        }
+        return total;
+    }
+
+    private static int take(PlanningModel model, long[] stock, int product, int wanted) {
+        if (model.isBlocked(product) || model.rowEnd(product) == model.rowStart(product)) {
+            return 0;
+        }
+
+        long units = wanted;
+        for (int item = model.rowStart(product); item < model.rowEnd(product); item++) {
+            units = Math.min(units, stock[model.materialAt(item)] / model.requiredAt(item));
+        }
+
+        for (int item = model.rowStart(product); item < model.rowEnd(product); item++) {
+            stock[model.materialAt(item)] -= model.requiredAt(item) * units;
+        }
+        return (int) units;
+    }
+}
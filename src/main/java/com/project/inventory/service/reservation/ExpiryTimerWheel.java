@@ -0,0 +1,114 @@
+package com.project.inventory.service.reservation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Roda de tempo (hashed timing wheel) com os prazos das reservas ativas. O tempo é dividido em ticks, e cada
+// reserva entra na casa do tick do seu prazo, módulo o tamanho da roda; prazos além de uma volta dividem a casa
+// com prazos mais próximos e só vencem quando o tick chega. Agendar e cancelar são O(1) (lista duplamente ligada
+// por casa, com um mapa do id para o nó); avançar visita só as casas dos ticks decorridos, nunca a roda inteira
+// nem a tabela de reservas. Não é thread-safe: quem chama serializa
+final class ExpiryTimerWheel {
+
+    private final long tickMs;
+    private final Entry[] slots;
+    private final int mask;
+    private final Map<Long, Entry> entries = new HashMap<>();
+
+    // Último tick já processado pelo advance
+    private long currentTick;
+
+    ExpiryTimerWheel(long tickMs, int size, long nowMs) {
+        this.tickMs = Math.max(1, tickMs);
+        // Potência de 2, para a casa sair de uma máscara
+        this.slots = new Entry[Integer.highestOneBit(Math.max(1, size - 1)) << 1];
+        this.mask = slots.length - 1;
+        this.currentTick = nowMs / this.tickMs;
+    }
+
+    // Agenda (ou reagenda) o prazo da reserva. Um prazo já vencido entra no próximo tick
+    void schedule(long id, long deadlineMs) {
+        cancel(id);
+
+        // Arredonda para cima: a reserva nunca vence antes do prazo
+        long deadlineTick = Math.floorDiv(deadlineMs + tickMs - 1, tickMs);
+        long slotTick = Math.max(deadlineTick, currentTick + 1);
+
+        Entry entry = new Entry(id, deadlineTick, (int) (slotTick & mask));
+        entry.next = slots[entry.slot];
+        if (entry.next != null) {
+            entry.next.previous = entry;
+        }
+        slots[entry.slot] = entry;
+        entries.put(id, entry);
+    }
+
+    boolean cancel(long id) {
+        Entry entry = entries.remove(id);
+        if (entry == null) {
+            return false;
+        }
+        unlink(entry);
+        return true;
+    }
+
+    // Processa os ticks decorridos até agora e devolve os ids vencidos, que saem da roda. Depois de uma pausa
+    // maior que uma volta, cada casa é visitada uma única vez
+    List<Long> advance(long nowMs) {
+        List<Long> expired = new ArrayList<>();
+        long nowTick = nowMs / tickMs;
+        if (nowTick <= currentTick) {
+            return expired;
+        }
+
+        long ticks = Math.min(nowTick - currentTick, slots.length);
+        for (long tick = currentTick + 1; tick <= currentTick + ticks; tick++) {
+            Entry entry = slots[(int) (tick & mask)];
+            while (entry != null) {
+                Entry next = entry.next;
+                if (entry.deadlineTick <= nowTick) {
+                    unlink(entry);
+                    entries.remove(entry.id);
+                    expired.add(entry.id);
+                }
+                entry = next;
+            }
+        }
+
+        currentTick = nowTick;
+        return expired;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private void unlink(Entry entry) {
+        if (entry.previous != null) {
+            entry.previous.next = entry.next;
+        } else {
+            slots[entry.slot] = entry.next;
+        }
+        if (entry.next != null) {
+            entry.next.previous = entry.previous;
+        }
+        entry.previous = null;
+        entry.next = null;
+    }
+
+    private static final class Entry {
+        private final long id;
+        private final long deadlineTick;
+        private final int slot;
+        private Entry previous;
+        private Entry next;
+
+        private Entry(long id, long deadlineTick, int slot) {
+            this.id = id;
+            this.deadlineTick = deadlineTick;
+            this.slot = slot;
+        }
+    }
+}
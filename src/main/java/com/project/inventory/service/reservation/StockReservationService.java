@@ -0,0 +1,394 @@
+package com.project.inventory.service.reservation;
+
+import com.project.inventory.domain.entity.StockReservation;
+import com.project.inventory.domain.entity.StockReservationItem;
+import com.project.inventory.domain.enumtype.StockReservationStatus;
+import com.project.inventory.domain.repository.RawMaterialRepository;
+import com.project.inventory.domain.repository.StockReservationRepository;
+import com.project.inventory.dto.production.ProductionRequest;
+import com.project.inventory.dto.reservation.CreateStockReservationRequest;
+import com.project.inventory.dto.reservation.StockReservationItemResponse;
+import com.project.inventory.dto.reservation.StockReservationResponse;
+import com.project.inventory.exception.BusinessRuleException;
+import com.project.inventory.exception.ResourceNotFoundException;
+import com.project.inventory.service.CatalogVersion;
+import com.project.inventory.service.ConcurrencyRetry;
+import com.project.inventory.service.catalog.ProductionModel;
+import com.project.inventory.service.catalog.ProductionModelRegistry;
+import com.project.inventory.service.ledger.StockLedger;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Reservas de estoque para produções planejadas. Criar uma reserva soma a demanda da composição em
+// raw_materials.held_quantity com a mesma baixa condicional da produção, então a disponibilidade (estoque menos o
+// que está preso) continua sendo lida da própria linha da matéria-prima, sem somar a tabela de reservas.
+// Confirmar consome o que foi preso; liberar ou expirar só solta. Os prazos ficam numa roda de tempo em memória,
+// varrida a cada tick; o banco continua sendo a referência: a confirmação recusa uma reserva vencida mesmo antes
+// da varredura, e a roda é remontada com as reservas ativas na subida
+@Slf4j
+@Service
+public class StockReservationService {
+
+    static final String CREATE_OPERATION = "stock-reservation";
+    static final String COMMIT_OPERATION = "stock-reservation-commit";
+    static final String RELEASE_OPERATION = "stock-reservation-release";
+    static final String EXPIRE_OPERATION = "stock-reservation-expiry";
+
+    private final ProductionModelRegistry productionModelRegistry;
+    private final RawMaterialRepository rawMaterialRepository;
+    private final StockReservationRepository stockReservationRepository;
+    private final CatalogVersion catalogVersion;
+    private final ConcurrencyRetry concurrencyRetry;
+    private final StockLedger stockLedger;
+    private final Clock clock;
+    private final long tickMs;
+    private final Duration defaultTtl;
+    private final Duration maxTtl;
+
+    private final ReentrantLock wheelLock = new ReentrantLock();
+    private final ExpiryTimerWheel wheel;
+
+    private ScheduledExecutorService sweeper;
+
+    @Autowired
+    public StockReservationService(
+            ProductionModelRegistry productionModelRegistry,
+            RawMaterialRepository rawMaterialRepository,
+            StockReservationRepository stockReservationRepository,
+            CatalogVersion catalogVersion,
+            ConcurrencyRetry concurrencyRetry,
+            StockLedger stockLedger,
+            @Value("${inventory.reservations.wheel.tick-ms:1000}") long tickMs,
+            @Value("${inventory.reservations.wheel.size:512}") int wheelSize,
+            @Value("${inventory.reservations.default-ttl-seconds:900}") long defaultTtlSeconds,
+            @Value("${inventory.reservations.max-ttl-seconds:86400}") long maxTtlSeconds
+    ) {
+        this(productionModelRegistry, rawMaterialRepository, stockReservationRepository, catalogVersion,
+                concurrencyRetry, stockLedger, Clock.systemUTC(), tickMs, wheelSize, defaultTtlSeconds, maxTtlSeconds);
+    }
+
+    public StockReservationService(
+            ProductionModelRegistry productionModelRegistry,
+            RawMaterialRepository rawMaterialRepository,
+            StockReservationRepository stockReservationRepository,
+            CatalogVersion catalogVersion,
+            ConcurrencyRetry concurrencyRetry,
+            StockLedger stockLedger,
+            Clock clock,
+            long tickMs,
+            int wheelSize,
+            long defaultTtlSeconds,
+            long maxTtlSeconds
+    ) {
+        this.productionModelRegistry = productionModelRegistry;
+        this.rawMaterialRepository = rawMaterialRepository;
+        this.stockReservationRepository = stockReservationRepository;
+        this.catalogVersion = catalogVersion;
+        this.concurrencyRetry = concurrencyRetry;
+        this.stockLedger = stockLedger;
+        this.clock = clock;
+        this.tickMs = Math.max(1, tickMs);
+        this.defaultTtl = Duration.ofSeconds(defaultTtlSeconds);
+        this.maxTtl = Duration.ofSeconds(maxTtlSeconds);
+        this.wheel = new ExpiryTimerWheel(this.tickMs, wheelSize, clock.millis());
+    }
+
+    // Remonta a roda com as reservas ativas e começa a varredura. As vencidas durante a parada saem no primeiro tick
+    @PostConstruct
+    public void start() {
+        List<StockReservationRepository.ReservationDeadline> deadlines =
+                stockReservationRepository.findDeadlinesByStatus(StockReservationStatus.ACTIVE);
+        for (StockReservationRepository.ReservationDeadline deadline : deadlines) {
+            schedule(deadline.getId(), deadline.getExpiresAt());
+        }
+        if (!deadlines.isEmpty()) {
+            log.info("Reservas de estoque: {} reservas ativas agendadas para expirar", deadlines.size());
+        }
+
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stock-reservation-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweepQuietly, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (sweeper == null) {
+            return;
+        }
+
+        sweeper.shutdown();
+        try {
+            sweeper.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // O livro de estoque em memória guarda o saldo disponível e não enxerga as quantidades presas depois de
+    // carregado; com ele ativo, reservas novas são recusadas (as já existentes ainda podem ser encerradas)
+    public StockReservationResponse create(CreateStockReservationRequest request) {
+        if (stockLedger.isEnabled()) {
+            throw new BusinessRuleException("Reservas de estoque não estão disponíveis com o livro de estoque em memória ativo.");
+        }
+
+        Duration ttl = ttl(request.ttlSeconds());
+        // A estrutura do catálogo é resolvida antes da transação de escrita: uma remontagem usa outra conexão
+        ProductionModel catalog = productionModelRegistry.structure();
+        StockReservation reservation = concurrencyRetry.execute(CREATE_OPERATION, () -> createOnce(catalog, request, ttl));
+        schedule(reservation.getId(), reservation.getExpiresAt());
+        return toResponse(reservation);
+    }
+
+    @Transactional(readOnly = true)
+    public StockReservationResponse findById(Long id) {
+        return toResponse(findEntityById(id));
+    }
+
+    // Consome do estoque o que a reserva prendeu: a produção planejada aconteceu
+    public StockReservationResponse commit(Long id) {
+        StockReservation reservation = concurrencyRetry.execute(COMMIT_OPERATION, () -> {
+            Instant now = clock.instant();
+            if (stockReservationRepository.commitActive(id, now) == 0) {
+                throw notActive(id, now);
+            }
+
+            StockReservation committed = findEntityById(id);
+            rawMaterialRepository.consumeHeldStock(quantities(committed));
+            afterClose(committed);
+            return committed;
+        });
+        unschedule(id);
+        return toResponse(reservation);
+    }
+
+    // Solta o que a reserva prendeu, sem consumir
+    public StockReservationResponse release(Long id) {
+        StockReservation reservation = concurrencyRetry.execute(RELEASE_OPERATION, () -> {
+            Instant now = clock.instant();
+            if (stockReservationRepository.releaseActive(id, now) == 0) {
+                throw notActive(id, now);
+            }
+
+            StockReservation released = findEntityById(id);
+            rawMaterialRepository.releaseHeldStock(quantities(released));
+            afterClose(released);
+            return released;
+        });
+        unschedule(id);
+        return toResponse(reservation);
+    }
+
+    // Avança a roda até agora e expira as reservas vencidas. Retorna quantas foram expiradas; uma reserva que
+    // já tinha sido encerrada (por outra instância, por exemplo) só sai da roda
+    public int sweep() {
+        List<Long> due;
+        wheelLock.lock();
+        try {
+            due = wheel.advance(clock.millis());
+        } finally {
+            wheelLock.unlock();
+        }
+
+        int expired = 0;
+        for (Long id : due) {
+            try {
+                if (expire(id)) {
+                    expired++;
+                }
+            } catch (RuntimeException e) {
+                // Volta para o próximo tick: a reserva continua ativa no banco até a expiração dar certo
+                log.warn("Falha ao expirar a reserva de estoque {}", id, e);
+                schedule(id, clock.instant());
+            }
+        }
+        return expired;
+    }
+
+    private void sweepQuietly() {
+        try {
+            sweep();
+        } catch (RuntimeException e) {
+            log.warn("Falha na varredura das reservas de estoque", e);
+        }
+    }
+
+    private boolean expire(Long id) {
+        return concurrencyRetry.execute(EXPIRE_OPERATION, () -> {
+            if (stockReservationRepository.expireActive(id, clock.instant()) == 0) {
+                return false;
+            }
+
+            StockReservation expired = findEntityById(id);
+            rawMaterialRepository.releaseHeldStock(quantities(expired));
+            afterClose(expired);
+            return true;
+        });
+    }
+
+    private StockReservation createOnce(ProductionModel catalog, CreateStockReservationRequest request, Duration ttl) {
+        // Demanda somada por matéria-prima, na ordem da composição dos itens
+        Map<Integer, BigDecimal> demand = new LinkedHashMap<>();
+        List<ProductionRequest> items = request.items();
+        for (int i = 0; i < items.size(); i++) {
+            ProductionRequest item = items.get(i);
+            int product = productToReserve(catalog, item, i);
+
+            BigDecimal multiplier = BigDecimal.valueOf(item.quantity());
+            for (int entry = catalog.compositionStart(product); entry < catalog.compositionEnd(product); entry++) {
+                demand.merge(catalog.itemMaterial(entry), catalog.itemRequired(entry).multiply(multiplier), BigDecimal::add);
+            }
+        }
+
+        Map<Long, BigDecimal> quantities = new LinkedHashMap<>();
+        demand.forEach((material, quantity) -> quantities.put(catalog.materialId(material), quantity));
+
+        // Mesma condição da baixa da produção: só prende o que está disponível na linha agora
+        List<Long> notHeld = rawMaterialRepository.holdStock(quantities);
+        if (!notHeld.isEmpty()) {
+            throw shortage(catalog, quantities, notHeld.get(0));
+        }
+
+        Instant now = clock.instant();
+        StockReservation reservation = StockReservation.builder()
+                .reference(request.reference())
+                .status(StockReservationStatus.ACTIVE)
+                .createdAt(now)
+                .expiresAt(now.plus(ttl))
+                .build();
+        demand.forEach((material, quantity) -> reservation.adicionarItem(StockReservationItem.builder()
+                .rawMaterialId(catalog.materialId(material))
+                .rawMaterialCode(catalog.materialCode(material))
+                .quantity(quantity)
+                .build()));
+
+        StockReservation saved = stockReservationRepository.save(reservation);
+        catalogVersion.advance();
+        return saved;
+    }
+
+    private int productToReserve(ProductionModel catalog, ProductionRequest item, int index) {
+        if (item.quantity() == null || item.quantity() <= 0) {
+            throw new BusinessRuleException("Item " + index + " da reserva: A quantidade a ser produzida deve ser maior que zero.");
+        }
+
+        int product = catalog.productIndex(item.productId());
+        if (product < 0) {
+            throw new ResourceNotFoundException("Produto não encontrado para o id: " + item.productId());
+        }
+        if (!catalog.hasComposition(product)) {
+            throw new BusinessRuleException("Item " + index + " da reserva: O produto não possui uma composição definida para produção.");
+        }
+        return product;
+    }
+
+    // Só na falha: relê o disponível da linha para informar a falta
+    private RuntimeException shortage(ProductionModel catalog, Map<Long, BigDecimal> quantities, Long id) {
+        BigDecimal available = rawMaterialRepository.findAvailableQuantities(List.of(id)).get(id);
+        if (available == null) {
+            return new ResourceNotFoundException("Matéria-prima não encontrada para o id: " + id);
+        }
+
+        int material = catalog.materialIndex(id);
+        return new BusinessRuleException(String.format(
+                "Estoque insuficiente para a matéria-prima '%s' (%s). Necessário: %s, Disponível: %s",
+                catalog.materialName(material), catalog.materialCode(material), quantities.get(id), available));
+    }
+
+    private RuntimeException notActive(Long id, Instant now) {
+        StockReservation reservation = stockReservationRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Reserva de estoque não encontrada para o id: " + id));
+
+        if (reservation.getStatus() == StockReservationStatus.ACTIVE && !reservation.getExpiresAt().isAfter(now)) {
+            return new BusinessRuleException("A reserva de estoque " + id + " expirou em " + reservation.getExpiresAt() + ".");
+        }
+        return new BusinessRuleException("A reserva de estoque " + id + " já está " + reservation.getStatus() + ".");
+    }
+
+    // A disponibilidade das matérias-primas mudou: planos em cache e saldos do livro de estoque são relidos
+    private void afterClose(StockReservation reservation) {
+        catalogVersion.advance();
+        for (StockReservationItem item : reservation.getItems()) {
+            stockLedger.evict(item.getRawMaterialId());
+        }
+    }
+
+    private Duration ttl(Long ttlSeconds) {
+        if (ttlSeconds == null) {
+            return defaultTtl;
+        }
+
+        Duration ttl = Duration.ofSeconds(ttlSeconds);
+        if (ttl.compareTo(maxTtl) > 0) {
+            throw new BusinessRuleException("A validade da reserva deve ser de no máximo " + maxTtl.toSeconds() + " segundos.");
+        }
+        return ttl;
+    }
+
+    private void schedule(Long id, Instant expiresAt) {
+        wheelLock.lock();
+        try {
+            wheel.schedule(id, expiresAt.toEpochMilli());
+        } finally {
+            wheelLock.unlock();
+        }
+    }
+
+    private void unschedule(Long id) {
+        wheelLock.lock();
+        try {
+            wheel.cancel(id);
+        } finally {
+            wheelLock.unlock();
+        }
+    }
+
+    private StockReservation findEntityById(Long id) {
+        return stockReservationRepository.findByIdWithItems(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Reserva de estoque não encontrada para o id: " + id));
+    }
+
+    private Map<Long, BigDecimal> quantities(StockReservation reservation) {
+        Map<Long, BigDecimal> quantities = new LinkedHashMap<>();
+        for (StockReservationItem item : reservation.getItems()) {
+            quantities.merge(item.getRawMaterialId(), item.getQuantity(), BigDecimal::add);
+        }
+        return quantities;
+    }
+
+    private StockReservationResponse toResponse(StockReservation reservation) {
+        List<StockReservationItemResponse> items = reservation.getItems()
+                .stream()
+                .map(item -> new StockReservationItemResponse(item.getRawMaterialId(), item.getRawMaterialCode(), item.getQuantity()))
+                .toList();
+
+        return new StockReservationResponse(
+                reservation.getId(),
+                reservation.getReference(),
+                reservation.getStatus(),
+                reservation.getCreatedAt(),
+                reservation.getExpiresAt(),
+                reservation.getClosedAt(),
+                items
+        );
+    }
+}
@@ -9,12 +9,16 @@ import com.project.inventory.dto.product.*;
 import com.project.inventory.exception.ResourceNotFoundException;
 import com.project.inventory.exception.BusinessRuleException;
 import com.project.inventory.mapper.ProductMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionOperations;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
@@ -38,6 +42,12 @@ class ProductServiceTest {
     @Mock
     private ProductMapper productMapper;
 
+    @Mock
+    private CatalogVersion catalogVersion;
+
+    @Spy
+    private ConcurrencyRetry concurrencyRetry = new ConcurrencyRetry(TransactionOperations.withoutTransaction(), new SimpleMeterRegistry(), 3, 0L, 0L);
+
     @InjectMocks
     private ProductService productService;
 
@@ -63,7 +73,7 @@ class ProductServiceTest {
     }
 
     private ProductResponse createResponse(Long id, String code, String name) {
-        return new ProductResponse(id, code, name, new BigDecimal("50.00"), List.of());
+        return new ProductResponse(id, code, name, new BigDecimal("50.00"), List.of(), 0L);
     }
 
 
@@ -189,7 +199,7 @@ class ProductServiceTest {
         Product productExistente = createProduct(1L, "P-001", "Bolo", new BigDecimal("50.00"));
         UpdateProductRequest request = new UpdateProductRequest(
                 "P-001-EDIT", "Bolo Premium", new BigDecimal("80.00"),
-                List.of(new ProductCompositionItemRequest(10L, new BigDecimal("3")))
+                List.of(new ProductCompositionItemRequest(10L, new BigDecimal("3"))), null
         );
         ProductResponse response = createResponse(1L, "P-001-EDIT", "Bolo Premium");
 
@@ -205,6 +215,26 @@ class ProductServiceTest {
         assertThat(result.code()).isEqualTo("P-001-EDIT");
     }
 
+    @Test
+    @DisplayName("update: deve recusar quando a versão informada está desatualizada")
+    void update_deveRecusar_quandoVersaoDesatualizada() {
+        Product productExistente = createProduct(1L, "P-001", "Bolo", new BigDecimal("50.00"));
+        productExistente.setVersion(5L);
+        UpdateProductRequest request = new UpdateProductRequest(
+                "P-001", "Bolo", new BigDecimal("50.00"),
+                List.of(new ProductCompositionItemRequest(10L, new BigDecimal("3"))), 4L
+        );
+
+        when(productRepository.findByIdWithComposition(1L)).thenReturn(Optional.of(productExistente));
+
+        assertThatThrownBy(() -> productService.update(1L, request))
+                .isInstanceOf(ObjectOptimisticLockingFailureException.class);
+
+        verify(productRepository, never()).saveAndFlush(any());
+        verify(catalogVersion, never()).advanceStructure();
+        assertThat(concurrencyRetry.conflictsByOperation()).containsEntry(ProductService.UPDATE_OPERATION, 1L);
+    }
+
 
     @Test
     @DisplayName("delete: deve deletar product existente")
@@ -5,20 +5,30 @@ import com.project.inventory.domain.entity.ProductCompositionItem;
 import com.project.inventory.domain.entity.RawMaterial;
 import com.project.inventory.domain.repository.ProductRepository;
 import com.project.inventory.domain.repository.RawMaterialRepository;
+import com.project.inventory.domain.enumtype.ProductionBatchMode;
+import com.project.inventory.dto.production.ProductionBatchConsumptionResponse;
+import com.project.inventory.dto.production.ProductionBatchItemResponse;
+import com.project.inventory.dto.production.ProductionBatchRequest;
+import com.project.inventory.dto.production.ProductionBatchResponse;
 import com.project.inventory.dto.production.ProductionRequest;
 import com.project.inventory.exception.BusinessRuleException;
 import com.project.inventory.exception.ResourceNotFoundException;
+import com.project.inventory.service.catalog.ProductionModelRegistry;
+import com.project.inventory.service.ledger.StockLedger;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionOperations;
 
 import java.math.BigDecimal;
-import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -33,7 +43,12 @@ class ProductionServiceTest {
     @Mock
     private RawMaterialRepository rawMaterialRepository;
 
-    @InjectMocks
+    @Mock
+    private CatalogVersion catalogVersion;
+
+    @Mock
+    private StockLedger stockLedger;
+
     private ProductionService productionService;
 
     private Product product;
@@ -42,6 +57,19 @@ class ProductionServiceTest {
 
     @BeforeEach
     void setUp() {
+        productionService = new ProductionService(
+                new ProductionModelRegistry(
+                        productRepository,
+                        rawMaterialRepository,
+                        catalogVersion,
+                        TransactionOperations.withoutTransaction()
+                ),
+                rawMaterialRepository,
+                catalogVersion,
+                new ConcurrencyRetry(TransactionOperations.withoutTransaction(), new SimpleMeterRegistry(), 3, 0L, 0L),
+                stockLedger
+        );
+
         roloMassa = RawMaterial.builder()
                 .id(1L)
                 .code("RM01")
@@ -60,6 +88,7 @@ class ProductionServiceTest {
                 .id(10L)
                 .code("PROD01")
                 .name("Pastel de Queijo")
+                .price(new BigDecimal("8.00"))
                 .build();
 
         ProductCompositionItem comp1 = ProductCompositionItem.builder()
@@ -83,21 +112,22 @@ class ProductionServiceTest {
         // Arrange
         ProductionRequest request = new ProductionRequest(10L, 10); // Produce 10 units
         
-        when(productRepository.findByIdWithComposition(10L)).thenReturn(Optional.of(product));
-        when(rawMaterialRepository.saveAll(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(productRepository.findAll()).thenReturn(List.of(product));
+        when(rawMaterialRepository.findAll()).thenReturn(List.of(roloMassa, queijo));
+        when(rawMaterialRepository.deductStock(any())).thenReturn(List.of());
 
         // Act
         assertDoesNotThrow(() -> productionService.produce(request));
 
         // Assert
-        verify(productRepository, times(1)).findByIdWithComposition(10L);
-        verify(rawMaterialRepository, times(1)).saveAll(any());
-        
-        // Initial stock roloMassa: 100.00, required: 1.50 * 10 = 15.00 -> Remaining: 85.00
-        assertEquals(new BigDecimal("85.00"), roloMassa.getStockQuantity());
-        
-        // Initial stock queijo: 50.00, required: 2.00 * 10 = 20.00 -> Remaining: 30.00
-        assertEquals(new BigDecimal("30.00"), queijo.getStockQuantity());
+        verify(productRepository, times(1)).findAll();
+        verify(catalogVersion, times(1)).advance();
+
+        // One guarded decrement per raw material, without loading the rows:
+        // roloMassa 1.50 * 10 = 15.00 and queijo 2.00 * 10 = 20.00
+        verify(rawMaterialRepository, times(1)).deductStock(Map.of(1L, new BigDecimal("15.00"), 2L, new BigDecimal("20.00")));
+        verify(rawMaterialRepository, never()).findAllById(any());
+        verify(rawMaterialRepository, never()).saveAll(any());
     }
 
     @Test
@@ -108,7 +138,11 @@ class ProductionServiceTest {
         // queijo required = 40 * 2.00 = 80.00 -> (Available 50) INSUFICIENT!
         ProductionRequest request = new ProductionRequest(10L, 40); 
         
-        when(productRepository.findByIdWithComposition(10L)).thenReturn(Optional.of(product));
+        when(productRepository.findAll()).thenReturn(List.of(product));
+        when(rawMaterialRepository.findAll()).thenReturn(List.of(roloMassa, queijo));
+        // The guarded decrement is the authority: the queijo row does not have the stock and is not touched
+        when(rawMaterialRepository.deductStock(any())).thenReturn(List.of(2L));
+        when(rawMaterialRepository.findAllById(List.of(2L))).thenReturn(List.of(queijo));
 
         // Act & Assert
         BusinessRuleException exception = assertThrows(BusinessRuleException.class, () -> {
@@ -116,15 +150,129 @@ class ProductionServiceTest {
         });
 
         assertTrue(exception.getMessage().contains("Estoque insuficiente para a matéria-prima"));
-        
-        verify(productRepository, times(1)).findByIdWithComposition(10L);
-        verify(rawMaterialRepository, never()).saveAll(any());
+        assertTrue(exception.getMessage().contains("Necessário: 80.00, Disponível: 50.00"));
+
+        verify(catalogVersion, never()).advance();
         
         // Stock should remain unchanged
         assertEquals(new BigDecimal("100.00"), roloMassa.getStockQuantity());
         assertEquals(new BigDecimal("50.00"), queijo.getStockQuantity());
     }
 
+    @Test
+    void shouldNotConsumeStockHeldByActiveReservations() {
+        // Arrange
+        // queijo has 50.00 in stock, but 35.00 are held by reservations: 10 units need 20.00 and only 15.00 are free
+        queijo.setHeldQuantity(new BigDecimal("35.00"));
+        ProductionRequest request = new ProductionRequest(10L, 10);
+
+        when(productRepository.findAll()).thenReturn(List.of(product));
+        when(rawMaterialRepository.findAll()).thenReturn(List.of(roloMassa, queijo));
+        when(rawMaterialRepository.deductStock(any())).thenReturn(List.of(2L));
+        when(rawMaterialRepository.findAllById(List.of(2L))).thenReturn(List.of(queijo));
+
+        // Act & Assert
+        BusinessRuleException exception = assertThrows(BusinessRuleException.class, () -> productionService.produce(request));
+
+        assertTrue(exception.getMessage().contains("Disponível: 15.00"));
+        verify(catalogVersion, never()).advance();
+    }
+
+    @Test
+    void shouldFailWhenGuardedDecrementFindsLessStockThanSnapshot() {
+        // Snapshot says queijo has 50.00, but the row was consumed meanwhile, so its guarded decrement matches no row
+        ProductionRequest request = new ProductionRequest(10L, 10);
+        RawMaterial queijoAtual = RawMaterial.builder()
+                .id(2L)
+                .code("RM02")
+                .name("Queijo")
+                .stockQuantity(new BigDecimal("5.00"))
+                .build();
+
+        when(productRepository.findAll()).thenReturn(List.of(product));
+        when(rawMaterialRepository.findAll()).thenReturn(List.of(roloMassa, queijo));
+        when(rawMaterialRepository.deductStock(any())).thenReturn(List.of(2L));
+        when(rawMaterialRepository.findAllById(List.of(2L))).thenReturn(List.of(queijoAtual));
+
+        BusinessRuleException exception = assertThrows(BusinessRuleException.class, () -> {
+            productionService.produce(request);
+        });
+
+        assertTrue(exception.getMessage().contains("Necessário: 20.00, Disponível: 5.00"));
+        verify(catalogVersion, never()).advance();
+    }
+
+    @Test
+    void shouldRetryProductionWhenLockConflictOccurs() {
+        // Arrange: the first attempt loses a lock race on the raw material rows, the second one goes through
+        ProductionRequest request = new ProductionRequest(10L, 10);
+
+        when(productRepository.findAll()).thenReturn(List.of(product));
+        when(rawMaterialRepository.findAll()).thenReturn(List.of(roloMassa, queijo));
+        when(rawMaterialRepository.deductStock(any()))
+                .thenThrow(new CannotAcquireLockException("deadlock detected"))
+                .thenReturn(List.of());
+
+        // Act
+        assertDoesNotThrow(() -> productionService.produce(request));
+
+        // Assert
+        verify(rawMaterialRepository, times(2)).deductStock(Map.of(1L, new BigDecimal("15.00"), 2L, new BigDecimal("20.00")));
+        verify(catalogVersion, times(1)).advance();
+    }
+
+    @Test
+    void shouldGiveUpProductionAfterMaxAttempts() {
+        // Arrange
+        ProductionRequest request = new ProductionRequest(10L, 10);
+
+        when(productRepository.findAll()).thenReturn(List.of(product));
+        when(rawMaterialRepository.findAll()).thenReturn(List.of(roloMassa, queijo));
+        when(rawMaterialRepository.deductStock(any())).thenThrow(new CannotAcquireLockException("deadlock detected"));
+
+        // Act & Assert
+        assertThrows(CannotAcquireLockException.class, () -> productionService.produce(request));
+
+        verify(rawMaterialRepository, times(3)).deductStock(any());
+        verify(catalogVersion, never()).advance();
+    }
+
+    @Test
+    void shouldDeductInStockLedgerWhenEnabled() {
+        // Arrange: the ledger holds the balances, so no transaction and no SQL decrement
+        ProductionRequest request = new ProductionRequest(10L, 10);
+
+        when(stockLedger.isEnabled()).thenReturn(true);
+        when(productRepository.findAll()).thenReturn(List.of(product));
+        when(rawMaterialRepository.findAll()).thenReturn(List.of(roloMassa, queijo));
+        when(stockLedger.apply(any())).thenReturn(new StockLedger.Movement(null, null, Map.of()));
+
+        // Act
+        assertDoesNotThrow(() -> productionService.produce(request));
+
+        // Assert
+        verify(stockLedger, times(1)).apply(Map.of(1L, new BigDecimal("-15.00"), 2L, new BigDecimal("-20.00")));
+        verify(rawMaterialRepository, never()).deductStock(any());
+        verify(catalogVersion, never()).advance();
+    }
+
+    @Test
+    void shouldReportShortageFromStockLedger() {
+        // Arrange
+        ProductionRequest request = new ProductionRequest(10L, 10);
+
+        when(stockLedger.isEnabled()).thenReturn(true);
+        when(productRepository.findAll()).thenReturn(List.of(product));
+        when(rawMaterialRepository.findAll()).thenReturn(List.of(roloMassa, queijo));
+        when(stockLedger.apply(any())).thenReturn(new StockLedger.Movement(2L, new BigDecimal("7.0000"), Map.of()));
+
+        // Act & Assert
+        BusinessRuleException exception = assertThrows(BusinessRuleException.class, () -> productionService.produce(request));
+
+        assertTrue(exception.getMessage().contains("'Queijo' (RM02). Necessário: 20.00, Disponível: 7.0000"));
+        verify(rawMaterialRepository, never()).deductStock(any());
+    }
+
     @Test
     void shouldThrowExceptionWhenQuantityIsZeroOrLess() {
         ProductionRequest request = new ProductionRequest(10L, 0);
@@ -134,35 +282,242 @@ class ProductionServiceTest {
         });
 
         assertEquals("A quantidade a ser produzida deve ser maior que zero.", exception.getMessage());
-        verify(productRepository, never()).findByIdWithComposition(any());
+        verify(productRepository, never()).findAll();
     }
 
     @Test
     void shouldThrowExceptionWhenProductNotFound() {
         ProductionRequest request = new ProductionRequest(99L, 10);
         
-        when(productRepository.findByIdWithComposition(99L)).thenReturn(Optional.empty());
+        when(productRepository.findAll()).thenReturn(List.of(product));
+        when(rawMaterialRepository.findAll()).thenReturn(List.of(roloMassa, queijo));
 
         ResourceNotFoundException exception = assertThrows(ResourceNotFoundException.class, () -> {
             productionService.produce(request);
         });
 
         assertTrue(exception.getMessage().contains("Produto não encontrado"));
-        verify(rawMaterialRepository, never()).saveAll(any());
+        verify(rawMaterialRepository, never()).deductStock(any());
     }
 
     @Test
     void shouldThrowExceptionWhenProductHasNoComposition() {
-        Product emptyProduct = Product.builder().id(20L).build();
+        Product emptyProduct = Product.builder().id(20L).code("PROD02").price(new BigDecimal("5.00")).build();
         ProductionRequest request = new ProductionRequest(20L, 10);
 
-        when(productRepository.findByIdWithComposition(20L)).thenReturn(Optional.of(emptyProduct));
+        when(productRepository.findAll()).thenReturn(List.of(product, emptyProduct));
+        when(rawMaterialRepository.findAll()).thenReturn(List.of(roloMassa, queijo));
 
         BusinessRuleException exception = assertThrows(BusinessRuleException.class, () -> {
             productionService.produce(request);
         });
 
         assertEquals("O produto não possui uma composição definida para produção.", exception.getMessage());
-        verify(rawMaterialRepository, never()).saveAll(any());
+        verify(rawMaterialRepository, never()).deductStock(any());
+    }
+
+    @Test
+    void shouldDeductSummedDemandOnceForBatch() {
+        // Arrange
+        // 10 + 5 units: roloMassa 1.50 * 15 = 22.50, queijo 2.00 * 15 = 30.00
+        ProductionBatchRequest request = new ProductionBatchRequest(
+                List.of(new ProductionRequest(10L, 10), new ProductionRequest(10L, 5)),
+                null
+        );
+
+        when(productRepository.findAll()).thenReturn(List.of(product));
+        when(rawMaterialRepository.findAll()).thenReturn(List.of(roloMassa, queijo));
+        when(rawMaterialRepository.findAllById(any())).thenReturn(List.of(roloMassa, queijo));
+
+        // Act
+        ProductionBatchResponse response = productionService.produceBatch(request);
+
+        // Assert
+        assertEquals(ProductionBatchMode.ALL_OR_NOTHING, response.mode());
+        assertEquals(2, response.producedItems());
+        assertEquals(0, response.rejectedItems());
+        assertEquals(2, response.rawMaterialConsumptions().size());
+
+        verify(rawMaterialRepository, times(1)).findAllById(any());
+        verify(rawMaterialRepository, times(1)).deductStock(Map.of(1L, new BigDecimal("22.50"), 2L, new BigDecimal("30.00")));
+        verify(catalogVersion, times(1)).advance();
+
+        assertEquals(
+                List.of(new BigDecimal("77.50"), new BigDecimal("20.00")),
+                response.rawMaterialConsumptions().stream().map(ProductionBatchConsumptionResponse::remainingQuantity).toList()
+        );
+    }
+
+    @Test
+    void shouldRollBackBatchWhenGuardedDecrementFails() {
+        // The rows were read with enough stock, but a concurrent production consumed queijo before the decrement
+        ProductionBatchRequest request = new ProductionBatchRequest(
+                List.of(new ProductionRequest(10L, 10)),
+                ProductionBatchMode.PER_ITEM
+        );
+        RawMaterial queijoAtual = RawMaterial.builder()
+                .id(2L)
+                .code("RM02")
+                .name("Queijo")
+                .stockQuantity(new BigDecimal("3.00"))
+                .build();
+
+        when(productRepository.findAll()).thenReturn(List.of(product));
+        when(rawMaterialRepository.findAll()).thenReturn(List.of(roloMassa, queijo));
+        when(rawMaterialRepository.findAllById(any())).thenReturn(List.of(roloMassa, queijo));
+        when(rawMaterialRepository.deductStock(any())).thenReturn(List.of(2L));
+        when(rawMaterialRepository.findAllById(List.of(2L))).thenReturn(List.of(queijoAtual));
+
+        BusinessRuleException exception = assertThrows(BusinessRuleException.class, () -> {
+            productionService.produceBatch(request);
+        });
+
+        assertTrue(exception.getMessage().contains("Disponível: 3.00"));
+        verify(catalogVersion, never()).advance();
+    }
+
+    @Test
+    void shouldRejectWholeBatchWhenSummedDemandExceedsStock() {
+        // Each lot fits on its own (queijo 20.00 and 40.00), but together they need 60.00 of 50.00
+        ProductionBatchRequest request = new ProductionBatchRequest(
+                List.of(new ProductionRequest(10L, 10), new ProductionRequest(10L, 20)),
+                ProductionBatchMode.ALL_OR_NOTHING
+        );
+
+        when(productRepository.findAll()).thenReturn(List.of(product));
+        when(rawMaterialRepository.findAll()).thenReturn(List.of(roloMassa, queijo));
+        when(rawMaterialRepository.findAllById(any())).thenReturn(List.of(roloMassa, queijo));
+
+        BusinessRuleException exception = assertThrows(BusinessRuleException.class, () -> {
+            productionService.produceBatch(request);
+        });
+
+        assertTrue(exception.getMessage().startsWith("Item 1 do lote: Estoque insuficiente para a matéria-prima 'Queijo'"));
+        verify(rawMaterialRepository, never()).deductStock(any());
+        verify(catalogVersion, never()).advance();
+    }
+
+    @Test
+    void shouldReportPerItemResultsAndProduceAcceptedItems() {
+        // Arrange
+        // queijo: 20.00 accepted, 40.00 refused (30.00 left), unknown product, 10.00 accepted -> 20.00 left
+        ProductionBatchRequest request = new ProductionBatchRequest(
+                List.of(
+                        new ProductionRequest(10L, 10),
+                        new ProductionRequest(10L, 20),
+                        new ProductionRequest(99L, 1),
+                        new ProductionRequest(10L, 5)
+                ),
+                ProductionBatchMode.PER_ITEM
+        );
+
+        when(productRepository.findAll()).thenReturn(List.of(product));
+        when(rawMaterialRepository.findAll()).thenReturn(List.of(roloMassa, queijo));
+        when(rawMaterialRepository.findAllById(any())).thenReturn(List.of(roloMassa, queijo));
+
+        // Act
+        ProductionBatchResponse response = productionService.produceBatch(request);
+
+        // Assert
+        assertEquals(2, response.producedItems());
+        assertEquals(2, response.rejectedItems());
+        assertEquals(
+                List.of(true, false, false, true),
+                response.items().stream().map(ProductionBatchItemResponse::produced).toList()
+        );
+        assertTrue(response.items().get(1).errorMessage().contains("Disponível: 30.00"));
+        assertEquals("Produto não encontrado para o id: 99", response.items().get(2).errorMessage());
+
+        verify(rawMaterialRepository, times(1)).deductStock(Map.of(1L, new BigDecimal("22.50"), 2L, new BigDecimal("30.00")));
+    }
+
+    @Test
+    void shouldRecheckSummedDemandAgainstLoadedRawMaterialsPerItem() {
+        // Snapshot says queijo has 50.00, but the row only has 25.00: the second lot no longer fits
+        ProductionBatchRequest request = new ProductionBatchRequest(
+                List.of(new ProductionRequest(10L, 10), new ProductionRequest(10L, 5)),
+                ProductionBatchMode.PER_ITEM
+        );
+        RawMaterial queijoAtual = RawMaterial.builder()
+                .id(2L)
+                .code("RM02")
+                .name("Queijo")
+                .stockQuantity(new BigDecimal("25.00"))
+                .build();
+
+        when(productRepository.findAll()).thenReturn(List.of(product));
+        when(rawMaterialRepository.findAll()).thenReturn(List.of(roloMassa, queijo));
+        when(rawMaterialRepository.findAllById(any())).thenReturn(List.of(roloMassa, queijoAtual));
+
+        ProductionBatchResponse response = productionService.produceBatch(request);
+
+        assertEquals(1, response.producedItems());
+        assertTrue(response.items().get(1).errorMessage().contains("Disponível: 5.00"));
+        verify(rawMaterialRepository, times(1)).deductStock(Map.of(1L, new BigDecimal("15.00"), 2L, new BigDecimal("20.00")));
+    }
+
+    @Test
+    void shouldAcceptItemsPerItemWhenSnapshotIsBehindTheRows() {
+        // Snapshot says queijo has only 5.00, but the row was restocked to 50.00: both lots fit the row
+        ProductionBatchRequest request = new ProductionBatchRequest(
+                List.of(new ProductionRequest(10L, 10), new ProductionRequest(10L, 5)),
+                ProductionBatchMode.PER_ITEM
+        );
+        RawMaterial queijoDesatualizado = RawMaterial.builder()
+                .id(2L)
+                .code("RM02")
+                .name("Queijo")
+                .stockQuantity(new BigDecimal("5.00"))
+                .build();
+
+        when(productRepository.findAll()).thenReturn(List.of(product));
+        when(rawMaterialRepository.findAll()).thenReturn(List.of(roloMassa, queijoDesatualizado));
+        when(rawMaterialRepository.findAllById(any())).thenReturn(List.of(roloMassa, queijo));
+
+        ProductionBatchResponse response = productionService.produceBatch(request);
+
+        assertEquals(2, response.producedItems());
+        assertEquals(0, response.rejectedItems());
+        verify(rawMaterialRepository, times(1)).deductStock(Map.of(1L, new BigDecimal("22.50"), 2L, new BigDecimal("30.00")));
+    }
+
+    @Test
+    void shouldLoadCatalogBeforeOpeningTheWriteTransaction() {
+        // A snapshot rebuild uses a connection of its own, so it must never wait for one inside an attempt
+        boolean[] inTransaction = {false};
+        TransactionOperations transaction = new TransactionOperations() {
+            @Override
+            public <T> T execute(TransactionCallback<T> action) {
+                inTransaction[0] = true;
+                try {
+                    return action.doInTransaction(new SimpleTransactionStatus());
+                } finally {
+                    inTransaction[0] = false;
+                }
+            }
+        };
+        ProductionService service = new ProductionService(
+                new ProductionModelRegistry(
+                        productRepository,
+                        rawMaterialRepository,
+                        catalogVersion,
+                        TransactionOperations.withoutTransaction()
+                ),
+                rawMaterialRepository,
+                catalogVersion,
+                new ConcurrencyRetry(transaction, new SimpleMeterRegistry(), 3, 0L, 0L),
+                stockLedger
+        );
+
+        when(productRepository.findAll()).thenAnswer(invocation -> {
+            assertFalse(inTransaction[0], "catalog loaded inside the write transaction");
+            return List.of(product);
+        });
+        when(rawMaterialRepository.findAll()).thenReturn(List.of(roloMassa, queijo));
+        when(rawMaterialRepository.deductStock(any())).thenReturn(List.of());
+
+        service.produce(new ProductionRequest(10L, 1));
+
+        verify(rawMaterialRepository, times(1)).deductStock(any());
     }
 }
@@ -3,21 +3,29 @@ package com.project.inventory.service;
 import com.project.inventory.domain.entity.RawMaterial;
 import com.project.inventory.domain.enumtype.UnitOfMeasurement;
 import com.project.inventory.domain.repository.RawMaterialRepository;
+import com.project.inventory.dto.rawmaterial.RawMaterialConflictsResponse;
+import com.project.inventory.dto.rawmaterial.StockAdjustmentRequest;
 import com.project.inventory.dto.rawmaterial.UpdateRawMaterialRequest;
 import com.project.inventory.dto.rawmaterial.CreateRawMaterialRequest;
 import com.project.inventory.dto.rawmaterial.RawMaterialResponse;
 import com.project.inventory.exception.ResourceNotFoundException;
 import com.project.inventory.exception.BusinessRuleException;
 import com.project.inventory.mapper.RawMaterialMapper;
+import com.project.inventory.service.ledger.StockLedger;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionOperations;
 
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.*;
@@ -35,6 +43,17 @@ class RawMaterialServiceTest {
     @Mock
     private RawMaterialMapper rawMaterialMapper;
 
+    @Mock
+    private CatalogVersion catalogVersion;
+
+    @Mock
+    private StockLedger stockLedger;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private ConcurrencyRetry concurrencyRetry = new ConcurrencyRetry(TransactionOperations.withoutTransaction(), meterRegistry, 3, 0L, 0L);
+
     @InjectMocks
     private RawMaterialService rawMaterialService;
 
@@ -50,7 +69,7 @@ class RawMaterialServiceTest {
     }
 
     private RawMaterialResponse createResponse(long id, String code, String name) {
-        return new RawMaterialResponse(id, code, name, new BigDecimal("100"), UnitOfMeasurement.KILOGRAM);
+        return new RawMaterialResponse(id, code, name, new BigDecimal("100"), BigDecimal.ZERO, UnitOfMeasurement.KILOGRAM, 0L);
     }
 
 
@@ -113,6 +132,7 @@ class RawMaterialServiceTest {
 
         assertThat(result).isEqualTo(response);
         verify(rawMaterialRepository).save(entidade);
+        verify(catalogVersion).advanceStructure();
     }
 
     @Test
@@ -129,6 +149,7 @@ class RawMaterialServiceTest {
                 .hasMessageContaining("code");
 
         verify(rawMaterialRepository, never()).save(any());
+        verify(catalogVersion, never()).advanceStructure();
     }
 
 
@@ -137,19 +158,19 @@ class RawMaterialServiceTest {
     void update_deveAtualizarERetornar() {
         RawMaterial entidadeExistente = createEntity(1L, "MP-001", "Farinha");
         UpdateRawMaterialRequest request = new UpdateRawMaterialRequest(
-                "MP-001-EDIT", "Farinha Especial", new BigDecimal("200"), UnitOfMeasurement.KILOGRAM
+                "MP-001-EDIT", "Farinha Especial", new BigDecimal("200"), UnitOfMeasurement.KILOGRAM, null
         );
         RawMaterialResponse response = createResponse(1L, "MP-001-EDIT", "Farinha Especial");
 
         when(rawMaterialRepository.findById(1L)).thenReturn(Optional.of(entidadeExistente));
         when(rawMaterialRepository.existsAllByCodeAndIdNot("MP-001-EDIT", 1L)).thenReturn(false);
-        when(rawMaterialRepository.save(entidadeExistente)).thenReturn(entidadeExistente);
+        when(rawMaterialRepository.saveAndFlush(entidadeExistente)).thenReturn(entidadeExistente);
         when(rawMaterialMapper.toResponse(entidadeExistente)).thenReturn(response);
 
         RawMaterialResponse result = rawMaterialService.update(1L, request);
 
         assertThat(result.code()).isEqualTo("MP-001-EDIT");
-        verify(rawMaterialRepository).save(entidadeExistente);
+        verify(rawMaterialRepository).saveAndFlush(entidadeExistente);
     }
 
     @Test
@@ -157,7 +178,7 @@ class RawMaterialServiceTest {
     void update_deveLancarExcecao_quandoCodigoDuplicado() {
         RawMaterial entidadeExistente = createEntity(1L, "MP-001", "Farinha");
         UpdateRawMaterialRequest request = new UpdateRawMaterialRequest(
-                "MP-002", "Farinha", new BigDecimal("100"), UnitOfMeasurement.KILOGRAM
+                "MP-002", "Farinha", new BigDecimal("100"), UnitOfMeasurement.KILOGRAM, null
         );
 
         when(rawMaterialRepository.findById(1L)).thenReturn(Optional.of(entidadeExistente));
@@ -166,7 +187,169 @@ class RawMaterialServiceTest {
         assertThatThrownBy(() -> rawMaterialService.update(1L, request))
                 .isInstanceOf(BusinessRuleException.class);
 
-        verify(rawMaterialRepository, never()).save(any());
+        verify(rawMaterialRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    @DisplayName("update: deve recusar sem repetir quando a versão informada está desatualizada")
+    void update_deveRecusar_quandoVersaoDesatualizada() {
+        RawMaterial entidadeExistente = createEntity(1L, "MP-001", "Farinha");
+        entidadeExistente.setVersion(3L);
+        UpdateRawMaterialRequest request = new UpdateRawMaterialRequest(
+                "MP-001", "Farinha", new BigDecimal("100"), UnitOfMeasurement.KILOGRAM, 2L
+        );
+
+        when(rawMaterialRepository.findById(1L)).thenReturn(Optional.of(entidadeExistente));
+
+        assertThatThrownBy(() -> rawMaterialService.update(1L, request))
+                .isInstanceOf(ObjectOptimisticLockingFailureException.class);
+
+        verify(rawMaterialRepository, times(1)).findById(1L);
+        verify(rawMaterialRepository, never()).saveAndFlush(any());
+        verify(catalogVersion, never()).advanceStructure();
+        assertThat(concurrencyRetry.conflictsByOperation())
+                .containsEntry(RawMaterialService.UPDATE_OPERATION, 1L);
+        assertThat(concurrencyRetry.retries()).isZero();
+    }
+
+    @Test
+    @DisplayName("adjustStock: deve somar o delta ao estoque atual")
+    void adjustStock_deveSomarDelta() {
+        RawMaterial entidade = createEntity(1L, "MP-001", "Farinha");
+        RawMaterialResponse response = createResponse(1L, "MP-001", "Farinha");
+
+        when(rawMaterialRepository.findById(1L)).thenReturn(Optional.of(entidade));
+        when(rawMaterialRepository.saveAndFlush(entidade)).thenReturn(entidade);
+        when(rawMaterialMapper.toResponse(entidade)).thenReturn(response);
+
+        rawMaterialService.adjustStock(1L, new StockAdjustmentRequest(new BigDecimal("-40")));
+
+        assertThat(entidade.getStockQuantity()).isEqualByComparingTo("60");
+        verify(catalogVersion).advance();
+    }
+
+    @Test
+    @DisplayName("adjustStock: deve lançar exceção quando o estoque ficaria negativo")
+    void adjustStock_deveLancarExcecao_quandoEstoqueNegativo() {
+        RawMaterial entidade = createEntity(1L, "MP-001", "Farinha");
+        when(rawMaterialRepository.findById(1L)).thenReturn(Optional.of(entidade));
+
+        assertThatThrownBy(() -> rawMaterialService.adjustStock(1L, new StockAdjustmentRequest(new BigDecimal("-100.01"))))
+                .isInstanceOf(BusinessRuleException.class);
+
+        verify(rawMaterialRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    @DisplayName("adjustStock: deve lançar exceção quando o estoque ficaria abaixo do que está reservado")
+    void adjustStock_deveLancarExcecao_quandoAbaixoDoReservado() {
+        RawMaterial entidade = createEntity(1L, "MP-001", "Farinha");
+        entidade.setHeldQuantity(new BigDecimal("30"));
+        when(rawMaterialRepository.findById(1L)).thenReturn(Optional.of(entidade));
+
+        assertThatThrownBy(() -> rawMaterialService.adjustStock(1L, new StockAdjustmentRequest(new BigDecimal("-70.01"))))
+                .isInstanceOf(BusinessRuleException.class)
+                .hasMessageContaining("held by active reservations");
+
+        verify(rawMaterialRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    @DisplayName("adjustStock: deve reler a linha e aplicar o delta de novo quando perde a corrida pela versão")
+    void adjustStock_deveRepetir_quandoConflitoDeVersao() {
+        RawMaterial lidaAntes = createEntity(1L, "MP-001", "Farinha");
+        RawMaterial relida = createEntity(1L, "MP-001", "Farinha");
+        relida.setStockQuantity(new BigDecimal("85"));
+        RawMaterialResponse response = createResponse(1L, "MP-001", "Farinha");
+
+        when(rawMaterialRepository.findById(1L)).thenReturn(Optional.of(lidaAntes)).thenReturn(Optional.of(relida));
+        when(rawMaterialRepository.saveAndFlush(lidaAntes))
+                .thenThrow(new ObjectOptimisticLockingFailureException(RawMaterial.class, 1L));
+        when(rawMaterialRepository.saveAndFlush(relida)).thenReturn(relida);
+        when(rawMaterialMapper.toResponse(relida)).thenReturn(response);
+
+        rawMaterialService.adjustStock(1L, new StockAdjustmentRequest(new BigDecimal("10")));
+
+        assertThat(relida.getStockQuantity()).isEqualByComparingTo("95");
+        assertThat(concurrencyRetry.conflicts()).isEqualTo(1L);
+        assertThat(concurrencyRetry.retries()).isEqualTo(1L);
+        assertThat(concurrencyRetry.exhaustedRetries()).isZero();
+    }
+
+    @Test
+    @DisplayName("adjustStock: deve desistir depois do número máximo de tentativas")
+    void adjustStock_deveDesistir_quandoConflitosSeguidos() {
+        RawMaterial entidade = createEntity(1L, "MP-001", "Farinha");
+        when(rawMaterialRepository.findById(1L)).thenReturn(Optional.of(entidade));
+        when(rawMaterialRepository.saveAndFlush(entidade))
+                .thenThrow(new ObjectOptimisticLockingFailureException(RawMaterial.class, 1L));
+
+        assertThatThrownBy(() -> rawMaterialService.adjustStock(1L, new StockAdjustmentRequest(BigDecimal.ONE)))
+                .isInstanceOf(ObjectOptimisticLockingFailureException.class);
+
+        verify(rawMaterialRepository, times(3)).saveAndFlush(entidade);
+        assertThat(concurrencyRetry.conflicts()).isEqualTo(3L);
+        assertThat(concurrencyRetry.retries()).isEqualTo(2L);
+        assertThat(concurrencyRetry.exhaustedRetries()).isEqualTo(1L);
+    }
+
+    @Test
+    @DisplayName("adjustStock: deve passar pelo livro de estoque quando ele está ligado")
+    void adjustStock_deveUsarLivroDeEstoque_quandoLigado() {
+        RawMaterial entidade = createEntity(1L, "MP-001", "Farinha");
+        RawMaterialResponse response = createResponse(1L, "MP-001", "Farinha");
+
+        when(stockLedger.isEnabled()).thenReturn(true);
+        when(rawMaterialRepository.findById(1L)).thenReturn(Optional.of(entidade));
+        when(stockLedger.apply(Map.of(1L, new BigDecimal("25"))))
+                .thenReturn(new StockLedger.Movement(null, null, Map.of(1L, new BigDecimal("125.0000"))));
+        when(rawMaterialMapper.toResponse(entidade)).thenReturn(response);
+
+        rawMaterialService.adjustStock(1L, new StockAdjustmentRequest(new BigDecimal("25")));
+
+        assertThat(entidade.getStockQuantity()).isEqualByComparingTo("125");
+        verify(rawMaterialRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    @DisplayName("conflicts: deve listar as matérias-primas mais disputadas primeiro, com o código")
+    void conflicts_deveOrdenarPorConflitos() {
+        RawMaterial agua = createEntity(7L, "RM-107", "Água Industrial");
+        RawMaterial diesel = createEntity(8L, "RM-108", "Diesel");
+        when(rawMaterialRepository.findById(7L)).thenReturn(Optional.of(agua));
+        when(rawMaterialRepository.findById(8L)).thenReturn(Optional.of(diesel));
+        when(rawMaterialRepository.saveAndFlush(agua))
+                .thenThrow(new ObjectOptimisticLockingFailureException(RawMaterial.class, 7L));
+        when(rawMaterialRepository.saveAndFlush(diesel))
+                .thenThrow(new ObjectOptimisticLockingFailureException(RawMaterial.class, 8L));
+        when(rawMaterialRepository.findAllById(any())).thenReturn(List.of(agua, diesel));
+
+        StockAdjustmentRequest request = new StockAdjustmentRequest(BigDecimal.ONE);
+        assertThatThrownBy(() -> rawMaterialService.adjustStock(8L, request));
+        assertThatThrownBy(() -> rawMaterialService.adjustStock(7L, request));
+        UpdateRawMaterialRequest update = new UpdateRawMaterialRequest(
+                "RM-107", "Água Industrial", new BigDecimal("100"), UnitOfMeasurement.LITER, null
+        );
+        assertThatThrownBy(() -> rawMaterialService.update(7L, update));
+
+        RawMaterialConflictsResponse result = rawMaterialService.conflicts();
+
+        assertThat(result.conflicts()).isEqualTo(7L);
+        assertThat(result.rawMaterials())
+                .extracting(conflict -> conflict.code() + "=" + conflict.conflicts())
+                .containsExactly("RM-107=4", "RM-108=3");
+        assertThat(result.conflictsByOperation())
+                .containsEntry(RawMaterialService.STOCK_ADJUSTMENT_OPERATION, 6L)
+                .containsEntry(RawMaterialService.UPDATE_OPERATION, 1L);
+        // Os mesmos números ficam no registro do Micrometer, por caso de uso e por matéria-prima
+        assertThat(meterRegistry.get("inventory.concurrency.conflicts")
+                .tag("operation", RawMaterialService.STOCK_ADJUSTMENT_OPERATION)
+                .tag("entity", "RawMaterial")
+                .tag("id", "7")
+                .counter().count()).isEqualTo(3.0);
+        assertThat(meterRegistry.get("inventory.concurrency.retries.exhausted")
+                .tag("operation", RawMaterialService.STOCK_ADJUSTMENT_OPERATION)
+                .counter().count()).isEqualTo(2.0);
     }
 
 
@@ -179,6 +362,20 @@ class RawMaterialServiceTest {
         rawMaterialService.delete(1L);
 
         verify(rawMaterialRepository).delete(entidade);
+        verify(catalogVersion).advanceStructure();
+    }
+
+    @Test
+    @DisplayName("delete: deve recusar matéria-prima com estoque preso em reservas ativas")
+    void delete_deveRecusar_quandoHaReserva() {
+        RawMaterial entidade = createEntity(1L, "MP-001", "Farinha");
+        entidade.setHeldQuantity(BigDecimal.ONE);
+        when(rawMaterialRepository.findById(1L)).thenReturn(Optional.of(entidade));
+
+        assertThatThrownBy(() -> rawMaterialService.delete(1L))
+                .isInstanceOf(BusinessRuleException.class);
+
+        verify(rawMaterialRepository, never()).delete(any());
     }
 
     @Test
@@ -0,0 +1,157 @@
+package com.project.inventory.service.catalog;
+
+import com.project.inventory.domain.entity.Product;
+import com.project.inventory.domain.entity.ProductCompositionItem;
+import com.project.inventory.domain.entity.RawMaterial;
+import com.project.inventory.domain.enumtype.UnitOfMeasurement;
+import com.project.inventory.domain.repository.ProductRepository;
+import com.project.inventory.domain.repository.RawMaterialRepository;
+import com.project.inventory.service.CatalogVersion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ProductionModelRegistry — Retrato do catálogo")
+class ProductionModelRegistryTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private RawMaterialRepository rawMaterialRepository;
+
+    private CatalogVersion catalogVersion;
+
+    private ProductionModelRegistry registry;
+
+    private RawMaterial farinha;
+    private RawMaterial acucar;
+    private Product bolo;
+    private Product pao;
+
+    @BeforeEach
+    void setUp() {
+        catalogVersion = new CatalogVersion();
+        registry = new ProductionModelRegistry(
+                productRepository,
+                rawMaterialRepository,
+                catalogVersion,
+                TransactionOperations.withoutTransaction()
+        );
+
+        farinha = RawMaterial.builder().id(1L).code("MP-002").name("Farinha")
+                .stockQuantity(new BigDecimal("10")).unitOfMeasurement(UnitOfMeasurement.KILOGRAM).build();
+        acucar = RawMaterial.builder().id(2L).code("MP-001").name("Açúcar")
+                .stockQuantity(null).unitOfMeasurement(UnitOfMeasurement.KILOGRAM).build();
+
+        bolo = Product.builder().id(10L).code("P-002").name("Bolo")
+                .price(new BigDecimal("20.00")).compositionItems(new ArrayList<>()).build();
+        bolo.adicionarItemComposition(ProductCompositionItem.builder()
+                .rawMaterial(farinha).requiredQuantity(new BigDecimal("2")).build());
+        bolo.adicionarItemComposition(ProductCompositionItem.builder()
+                .rawMaterial(acucar).requiredQuantity(new BigDecimal("1")).build());
+
+        pao = Product.builder().id(20L).code("P-001").name("Pão")
+                .price(new BigDecimal("5.00")).compositionItems(new ArrayList<>()).build();
+    }
+
+    @Test
+    @DisplayName("Deve montar o retrato com produtos por preço, matérias-primas por código e composição em CSR")
+    void deveMontarRetratoOrdenado() {
+        catalogVersion.advanceStructure();
+        catalogVersion.advance();
+        catalogVersion.advance();
+        when(productRepository.findAll()).thenReturn(List.of(pao, bolo));
+        when(rawMaterialRepository.findAll()).thenReturn(List.of(farinha, acucar));
+
+        ProductionModel model = registry.current();
+
+        assertThat(model.version()).isEqualTo(3L);
+        assertThat(model.structureVersion()).isEqualTo(1L);
+        assertThat(model.productCount()).isEqualTo(2);
+        assertThat(model.productIndex(10L)).isZero();
+        assertThat(model.productIndex(20L)).isEqualTo(1);
+        assertThat(model.productIndex(99L)).isEqualTo(-1);
+        assertThat(model.materialIndex(2L)).isZero();
+        assertThat(model.materialIndex(1L)).isEqualTo(1);
+
+        assertThat(model.hasComposition(0)).isTrue();
+        assertThat(model.hasComposition(1)).isFalse();
+        assertThat(model.compositionEnd(0) - model.compositionStart(0)).isEqualTo(2);
+        assertThat(model.itemMaterial(model.compositionStart(0))).isEqualTo(1);
+        assertThat(model.itemRequired(model.compositionStart(0))).isEqualByComparingTo("2");
+        assertThat(model.materialStock(0)).isEqualByComparingTo("0");
+    }
+
+    @Test
+    @DisplayName("Deve reutilizar o retrato enquanto a versão não muda e remontá-lo após uma escrita na estrutura")
+    void deveRemontarRetrato_quandoEstruturaMuda() {
+        when(productRepository.findAll()).thenReturn(List.of(bolo));
+        when(rawMaterialRepository.findAll()).thenReturn(List.of(farinha, acucar));
+
+        ProductionModel primeiro = registry.current();
+        ProductionModel segundo = registry.current();
+        catalogVersion.advanceStructure();
+        ProductionModel aposEscrita = registry.current();
+
+        assertThat(segundo).isSameAs(primeiro);
+        assertThat(aposEscrita).isNotSameAs(primeiro);
+        assertThat(aposEscrita.version()).isEqualTo(1L);
+        assertThat(aposEscrita.structureVersion()).isEqualTo(1L);
+        verify(productRepository, times(2)).findAll();
+        verify(rawMaterialRepository, never()).findAllAvailableQuantities();
+    }
+
+    @Test
+    @DisplayName("Deve reler só os estoques, sem recarregar produtos, quando a escrita mexe apenas no estoque")
+    void deveRelerSoEstoques_quandoSoEstoqueMuda() {
+        when(productRepository.findAll()).thenReturn(List.of(bolo));
+        when(rawMaterialRepository.findAll()).thenReturn(List.of(farinha, acucar));
+        when(rawMaterialRepository.findAllAvailableQuantities()).thenReturn(Map.of(1L, new BigDecimal("4")));
+
+        ProductionModel primeiro = registry.current();
+        catalogVersion.advance();
+        ProductionModel aposBaixa = registry.current();
+
+        assertThat(aposBaixa.version()).isEqualTo(1L);
+        assertThat(aposBaixa.structureVersion()).isZero();
+        assertThat(aposBaixa.productIndex(10L)).isEqualTo(primeiro.productIndex(10L));
+        assertThat(aposBaixa.materialStock(aposBaixa.materialIndex(1L))).isEqualByComparingTo("4");
+        // Sem linha na consulta: estoque zero
+        assertThat(aposBaixa.materialStock(aposBaixa.materialIndex(2L))).isEqualByComparingTo("0");
+        verify(productRepository, times(1)).findAll();
+        verify(rawMaterialRepository, times(1)).findAll();
+    }
+
+    @Test
+    @DisplayName("structure: não deve tocar o banco quando só o estoque mudou")
+    void structure_naoDeveTocarBanco_quandoSoEstoqueMuda() {
+        when(productRepository.findAll()).thenReturn(List.of(bolo));
+        when(rawMaterialRepository.findAll()).thenReturn(List.of(farinha, acucar));
+
+        ProductionModel primeiro = registry.structure();
+        catalogVersion.advance();
+        catalogVersion.advance();
+        ProductionModel aposBaixas = registry.structure();
+
+        assertThat(aposBaixas).isSameAs(primeiro);
+        verify(productRepository, times(1)).findAll();
+        verify(rawMaterialRepository, never()).findAllAvailableQuantities();
+    }
+}
@@ -0,0 +1,288 @@
+package com.project.inventory.service.ledger;
+
+import com.project.inventory.domain.entity.StockLedgerCheckpoint;
+import com.project.inventory.domain.repository.RawMaterialRepository;
+import com.project.inventory.domain.repository.StockLedgerCheckpointRepository;
+import com.project.inventory.exception.ResourceNotFoundException;
+import com.project.inventory.service.CatalogVersion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("StockLedger — Livro de estoque em memória")
+class StockLedgerTest {
+
+    private static final long AGUA = 107L;
+    private static final long DIESEL = 108L;
+
+    @Mock
+    private RawMaterialRepository rawMaterialRepository;
+
+    @Mock
+    private StockLedgerCheckpointRepository checkpointRepository;
+
+    @Mock
+    private CatalogVersion catalogVersion;
+
+    @TempDir
+    private Path journalDirectory;
+
+    // Linhas de raw_materials e pontos de controle simulados
+    private final Map<Long, BigDecimal> rows = new ConcurrentHashMap<>();
+    private final Map<String, Long> checkpoints = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        rows.put(AGUA, new BigDecimal("100.0000"));
+        rows.put(DIESEL, new BigDecimal("50.0000"));
+
+        lenient().when(rawMaterialRepository.findAvailableQuantities(any())).thenAnswer(invocation -> {
+            Map<Long, BigDecimal> found = new HashMap<>();
+            for (Long id : (Collection<Long>) invocation.getArgument(0)) {
+                if (rows.containsKey(id)) {
+                    found.put(id, rows.get(id));
+                }
+            }
+            return found;
+        });
+        lenient().when(rawMaterialRepository.applyStockDeltas(anyMap())).thenAnswer(invocation -> {
+            List<Long> missing = new ArrayList<>();
+            ((Map<Long, BigDecimal>) invocation.getArgument(0)).forEach((id, delta) -> {
+                if (rows.computeIfPresent(id, (key, stock) -> stock.add(delta)) == null) {
+                    missing.add(id);
+                }
+            });
+            return missing;
+        });
+        lenient().when(checkpointRepository.findById(anyString())).thenAnswer(invocation -> Optional
+                .ofNullable(checkpoints.get((String) invocation.getArgument(0)))
+                .map(sequence -> new StockLedgerCheckpoint(invocation.getArgument(0), sequence)));
+        lenient().when(checkpointRepository.save(any())).thenAnswer(invocation -> {
+            StockLedgerCheckpoint checkpoint = invocation.getArgument(0);
+            checkpoints.put(checkpoint.getNodeId(), checkpoint.getLastSequence());
+            return checkpoint;
+        });
+    }
+
+    private StockLedger startLedger() {
+        StockLedger ledger = new StockLedger(
+                rawMaterialRepository,
+                checkpointRepository,
+                catalogVersion,
+                TransactionOperations.withoutTransaction(),
+                true,
+                journalDirectory,
+                "test",
+                16,
+                0L,
+                Integer.MAX_VALUE
+        );
+        ledger.start();
+        return ledger;
+    }
+
+    @Test
+    @DisplayName("apply: deve baixar o saldo carregado do banco sem escrever na linha")
+    void apply_deveBaixarSaldo() {
+        StockLedger ledger = startLedger();
+
+        StockLedger.Movement movement = ledger.apply(Map.of(AGUA, new BigDecimal("-30"), DIESEL, new BigDecimal("-5.5")));
+
+        assertThat(movement.isApplied()).isTrue();
+        assertThat(movement.balances().get(AGUA)).isEqualByComparingTo("70");
+        assertThat(movement.balances().get(DIESEL)).isEqualByComparingTo("44.5");
+        assertThat(rows.get(AGUA)).isEqualByComparingTo("100");
+        verify(rawMaterialRepository, never()).applyStockDeltas(anyMap());
+    }
+
+    @Test
+    @DisplayName("apply: deve recusar a movimentação inteira quando uma matéria-prima não tem estoque")
+    void apply_deveRecusarTudo_quandoFaltaEstoque() {
+        StockLedger ledger = startLedger();
+
+        StockLedger.Movement movement = ledger.apply(Map.of(AGUA, new BigDecimal("-30"), DIESEL, new BigDecimal("-60")));
+
+        assertThat(movement.isApplied()).isFalse();
+        assertThat(movement.shortageRawMaterialId()).isEqualTo(DIESEL);
+        assertThat(movement.shortageAvailable()).isEqualByComparingTo("50");
+        assertThat(ledger.available(List.of(AGUA, DIESEL)))
+                .containsEntry(AGUA, new BigDecimal("100.0000"))
+                .containsEntry(DIESEL, new BigDecimal("50.0000"));
+    }
+
+    @Test
+    @DisplayName("apply: deve lançar exceção quando a matéria-prima não existe")
+    void apply_deveLancarExcecao_quandoMateriaPrimaNaoExiste() {
+        StockLedger ledger = startLedger();
+
+        assertThatThrownBy(() -> ledger.apply(Map.of(999L, BigDecimal.ONE.negate())))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    @DisplayName("flush: deve levar ao banco os deltas somados por matéria-prima e o ponto de controle")
+    void flush_deveAplicarDeltasSomados() {
+        StockLedger ledger = startLedger();
+        ledger.apply(Map.of(AGUA, new BigDecimal("-10")));
+        ledger.apply(Map.of(AGUA, new BigDecimal("-15"), DIESEL, new BigDecimal("-5")));
+        ledger.apply(Map.of(DIESEL, new BigDecimal("20")));
+
+        ledger.flush();
+
+        assertThat(rows.get(AGUA)).isEqualByComparingTo("75");
+        assertThat(rows.get(DIESEL)).isEqualByComparingTo("65");
+        assertThat(checkpoints).containsEntry("test", 3L);
+        verify(rawMaterialRepository).applyStockDeltas(Map.of(
+                AGUA, new BigDecimal("-25.0000"),
+                DIESEL, new BigDecimal("15.0000")
+        ));
+        verify(catalogVersion).advance();
+    }
+
+    @Test
+    @DisplayName("start: deve aplicar uma única vez as movimentações do diário posteriores ao ponto de controle")
+    void start_deveRecuperarDiarioDepoisDeQueda() {
+        StockLedger antes = startLedger();
+        antes.apply(Map.of(AGUA, new BigDecimal("-10")));
+        antes.flush();
+        antes.apply(Map.of(AGUA, new BigDecimal("-20"), DIESEL, new BigDecimal("-5")));
+        antes.apply(Map.of(DIESEL, new BigDecimal("-5")));
+        // Queda: as duas últimas movimentações só estão no diário
+
+        StockLedger depois = startLedger();
+
+        assertThat(rows.get(AGUA)).isEqualByComparingTo("70");
+        assertThat(rows.get(DIESEL)).isEqualByComparingTo("40");
+        assertThat(checkpoints).containsEntry("test", 3L);
+        assertThat(depois.available(List.of(AGUA))).containsEntry(AGUA, new BigDecimal("70.0000"));
+
+        // Uma nova subida não reaplica nada
+        startLedger();
+        assertThat(rows.get(AGUA)).isEqualByComparingTo("70");
+    }
+
+    @Test
+    @DisplayName("start: deve ignorar o registro cortado no fim do diário")
+    void start_deveIgnorarRegistroCortado() throws IOException {
+        StockLedger antes = startLedger();
+        antes.apply(Map.of(AGUA, new BigDecimal("-10")));
+
+        Path segment;
+        try (Stream<Path> files = Files.list(journalDirectory)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        Files.write(segment, new byte[]{0, 0, 0, 0, 0, 0, 0, 2, 0, 0}, StandardOpenOption.APPEND);
+
+        startLedger();
+
+        assertThat(rows.get(AGUA)).isEqualByComparingTo("90");
+        assertThat(checkpoints).containsEntry("test", 1L);
+    }
+
+    @Test
+    @DisplayName("apply: deve manter o saldo e parar o livro quando o diário não consegue gravar")
+    void apply_deveManterSaldoEPararLivro_quandoDiarioFalha() {
+        StockLedger ledger = startLedger();
+        ledger.apply(Map.of(AGUA, new BigDecimal("-10")));
+        // Canal do diário fechado: a próxima gravação falha sem conseguir desfazer o registro
+        ledger.shutdown();
+
+        assertThatThrownBy(() -> ledger.apply(Map.of(AGUA, new BigDecimal("-30"))))
+                .isInstanceOf(UncheckedIOException.class);
+
+        assertThat(ledger.available(List.of(AGUA))).containsEntry(AGUA, new BigDecimal("90.0000"));
+        assertThatThrownBy(() -> ledger.apply(Map.of(DIESEL, new BigDecimal("-1"))))
+                .isInstanceOf(IllegalStateException.class);
+        ledger.flush();
+        assertThat(rows.get(AGUA)).isEqualByComparingTo("90");
+    }
+
+    @Test
+    @DisplayName("evict: deve reler a linha editada mantendo os deltas ainda não descarregados")
+    void evict_deveRelerLinhaComDeltasPendentes() {
+        StockLedger ledger = startLedger();
+        ledger.apply(Map.of(AGUA, new BigDecimal("-10")));
+
+        // Edição direta da linha, depois de uma descarga, com uma movimentação no meio
+        ledger.flush();
+        ledger.apply(Map.of(AGUA, new BigDecimal("-5")));
+        rows.put(AGUA, new BigDecimal("500.0000"));
+        ledger.evict(AGUA);
+
+        assertThat(ledger.available(List.of(AGUA))).containsEntry(AGUA, new BigDecimal("495.0000"));
+        ledger.flush();
+        assertThat(rows.get(AGUA)).isEqualByComparingTo("495");
+    }
+
+    @Test
+    @DisplayName("apply: não deve baixar mais do que o saldo com muitas threads nas mesmas matérias-primas")
+    void apply_naoDeveVenderAlemDoSaldo_quandoConcorrente() throws Exception {
+        rows.put(AGUA, new BigDecimal("3000"));
+        rows.put(DIESEL, new BigDecimal("1500"));
+        StockLedger ledger = startLedger();
+        AtomicInteger accepted = new AtomicInteger();
+        Map<Long, BigDecimal> consumption = Map.of(AGUA, new BigDecimal("-2"), DIESEL, BigDecimal.ONE.negate());
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 250; i++) {
+                        if (ledger.apply(consumption).isApplied()) {
+                            accepted.incrementAndGet();
+                        }
+                        if (i % 50 == 0) {
+                            ledger.flush();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        ledger.flush();
+
+        assertThat(accepted.get()).isEqualTo(1500);
+        assertThat(rows.get(AGUA)).isEqualByComparingTo("0");
+        assertThat(rows.get(DIESEL)).isEqualByComparingTo("0");
+    }
+}
@@ -0,0 +1,537 @@
+package com.project.inventory.service.optimization;
+
+import com.project.inventory.domain.entity.Product;
+import com.project.inventory.domain.entity.ProductCompositionItem;
+import com.project.inventory.domain.entity.RawMaterial;
+import com.project.inventory.domain.enumtype.UnitOfMeasurement;
+import com.project.inventory.service.catalog.ProductionModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("BranchAndBoundSearch — Núcleo da busca")
+class BranchAndBoundSearchTest {
+
+    private static final int MAX_ITERATIONS = 50000;
+
+    private RawMaterial createRawMaterial(long id, String code, String stock) {
+        return RawMaterial.builder()
+                .id(id)
+                .code(code)
+                .name(code)
+                .stockQuantity(new BigDecimal(stock))
+                .unitOfMeasurement(UnitOfMeasurement.KILOGRAM)
+                .build();
+    }
+
+    private Product createProduct(long id, String price, List<RawMaterial> rawMaterials, long... required) {
+        Product product = Product.builder()
+                .id(id)
+                .code("P-" + id)
+                .name("Produto " + id)
+                .price(new BigDecimal(price))
+                .compositionItems(new ArrayList<>())
+                .build();
+
+        for (int i = 0; i < required.length; i++) {
+            product.adicionarItemComposition(ProductCompositionItem.builder()
+                    .rawMaterial(rawMaterials.get(i))
+                    .requiredQuantity(BigDecimal.valueOf(required[i]))
+                    .build());
+        }
+        return product;
+    }
+
+    private List<Product> competingCatalog(List<RawMaterial> rawMaterials) {
+        List<Product> products = new ArrayList<>(List.of(
+                createProduct(1L, "91.00", rawMaterials, 40, 10),
+                createProduct(2L, "87.00", rawMaterials, 30, 25),
+                createProduct(3L, "83.00", rawMaterials, 25, 30),
+                createProduct(4L, "62.00", rawMaterials, 20, 20),
+                createProduct(5L, "70.00", rawMaterials, 15, 35),
+                createProduct(6L, "69.00", rawMaterials, 10, 40),
+                createProduct(7L, "47.00", rawMaterials, 12, 18),
+                createProduct(8L, "43.00", rawMaterials, 22, 9)
+        ));
+        products.sort(Comparator.comparing(Product::getPrice).reversed().thenComparing(Product::getCode));
+        return products;
+    }
+
+    @Test
+    @DisplayName("Deve provar o ótimo antes do limite de iterações quando produtos disputam as mesmas matérias-primas")
+    void shouldProveOptimum_whenProductsCompeteForSharedMaterials() {
+        List<RawMaterial> rawMaterials = List.of(
+                createRawMaterial(1L, "MP-001", "1000"),
+                createRawMaterial(2L, "MP-002", "800")
+        );
+        PlanningModel model = PlanningModel.compile(competingCatalog(rawMaterials), rawMaterials);
+
+        BranchAndBoundSearch.SearchResult result = BranchAndBoundSearch.solve(model, SearchBudget.ofNodes(MAX_ITERATIONS));
+
+        // Limite independente por produto precisava de ~13,8 milhões de nós para provar este ótimo
+        assertThat(result.iterations()).isLessThan(MAX_ITERATIONS);
+        assertThat(result.provenOptimal()).isTrue();
+        assertThat(result.bestBound()).isEqualTo(result.totalValue());
+        assertThat(result.totalValue()).isEqualTo(298400L);
+        assertThat(result.totalQuantity()).isEqualTo(48);
+    }
+
+    @Test
+    @DisplayName("Deve devolver plano viável e limite superior válido quando o orçamento acaba antes da prova")
+    void shouldReportBoundAboveOptimum_whenBudgetRunsOut() {
+        List<RawMaterial> rawMaterials = List.of(
+                createRawMaterial(1L, "MP-001", "1000"),
+                createRawMaterial(2L, "MP-002", "800")
+        );
+        PlanningModel model = PlanningModel.compile(competingCatalog(rawMaterials), rawMaterials);
+
+        BranchAndBoundSearch.SearchResult sequential = BranchAndBoundSearch.solve(model, SearchBudget.ofNodes(200));
+        BranchAndBoundSearch.SearchResult expired = BranchAndBoundSearch.solve(model, SearchBudget.until(System.nanoTime()));
+
+        for (BranchAndBoundSearch.SearchResult result : List.of(sequential, expired)) {
+            assertThat(result.provenOptimal()).isFalse();
+            assertThat(result.totalValue()).isLessThanOrEqualTo(298400L);
+            assertThat(result.bestBound()).isGreaterThanOrEqualTo(298400L);
+        }
+    }
+
+    @Test
+    @DisplayName("Deve calcular duais não negativos e valor da relaxação linear acima do ótimo inteiro")
+    void shouldComputeDualsAndRelaxationValue() {
+        List<RawMaterial> rawMaterials = List.of(
+                createRawMaterial(1L, "MP-001", "1000"),
+                createRawMaterial(2L, "MP-002", "800")
+        );
+        PlanningModel model = PlanningModel.compile(competingCatalog(rawMaterials), rawMaterials);
+
+        LinearRelaxation relaxation = LinearRelaxation.solve(model, model.copyInitialStock());
+
+        assertThat(relaxation).isNotNull();
+        assertThat(relaxation.dual(0)).isPositive();
+        assertThat(relaxation.dual(1)).isPositive();
+        assertThat(relaxation.objectiveValue()).isGreaterThanOrEqualTo(298400.0);
+    }
+
+    @Test
+    @DisplayName("Deve encontrar no modo paralelo o mesmo plano da busca sequencial")
+    void shouldMatchSequentialResult_whenSearchingInParallel() {
+        List<RawMaterial> rawMaterials = List.of(
+                createRawMaterial(1L, "MP-001", "1000"),
+                createRawMaterial(2L, "MP-002", "800")
+        );
+        PlanningModel model = PlanningModel.compile(competingCatalog(rawMaterials), rawMaterials);
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        try {
+            BranchAndBoundSearch.SearchResult sequential = BranchAndBoundSearch.solve(model, SearchBudget.ofNodes(Long.MAX_VALUE));
+            BranchAndBoundSearch.SearchResult parallel = ParallelBranchAndBound.solve(model, SearchBudget.ofNodes(Long.MAX_VALUE), pool);
+
+            assertThat(parallel.totalValue()).isEqualTo(sequential.totalValue());
+            assertThat(parallel.totalQuantity()).isEqualTo(sequential.totalQuantity());
+            assertThat(parallel.quantities()).containsExactly(sequential.quantities());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Deve rodar a busca numa thread de plataforma do solver quando chamada de uma virtual thread")
+    void shouldSearchOnPlatformThread_whenCalledFromVirtualThread() throws Exception {
+        List<RawMaterial> rawMaterials = List.of(
+                createRawMaterial(1L, "MP-001", "1000"),
+                createRawMaterial(2L, "MP-002", "800")
+        );
+        PlanningModel model = PlanningModel.compile(competingCatalog(rawMaterials), rawMaterials);
+        ProductionPlanSolver solver =
+                new ProductionPlanSolver(new SimpleMeterRegistry(), 1, 2000, 30000, 65536, SearchMode.DEPTH_FIRST, 100000);
+        List<Thread> searchThreads = new CopyOnWriteArrayList<>();
+        SharedIncumbent incumbent = new SharedIncumbent(model.productCount(), best -> searchThreads.add(Thread.currentThread()));
+
+        try {
+            Thread caller = Thread.ofVirtual().start(
+                    () -> solver.solve(model, SearchBudget.ofNodes(Long.MAX_VALUE), incumbent, null));
+            caller.join();
+
+            assertThat(searchThreads).isNotEmpty().noneMatch(Thread::isVirtual);
+        } finally {
+            solver.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Deve manter o desempate determinístico no modo paralelo quando há vários planos ótimos")
+    void shouldKeepDeterministicTieBreak_whenSeveralPlansAreOptimal() {
+        Random random = new Random(7);
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        try {
+            for (int round = 0; round < 50; round++) {
+                List<RawMaterial> rawMaterials = List.of(
+                        createRawMaterial(1L, "MP-001", String.valueOf(20 + random.nextInt(60))),
+                        createRawMaterial(2L, "MP-002", String.valueOf(20 + random.nextInt(60)))
+                );
+
+                // Preços e consumos repetidos geram muitos empates de valor e de quantidade
+                List<Product> products = new ArrayList<>();
+                for (long id = 1; id <= 5; id++) {
+                    products.add(createProduct(id, (1 + random.nextInt(3)) + "0.00", rawMaterials,
+                            1 + random.nextInt(3), 1 + random.nextInt(3)));
+                }
+                products.sort(Comparator.comparing(Product::getPrice).reversed().thenComparing(Product::getCode));
+                PlanningModel model = PlanningModel.compile(products, rawMaterials);
+
+                BranchAndBoundSearch.SearchResult sequential = BranchAndBoundSearch.solve(model, SearchBudget.ofNodes(Long.MAX_VALUE));
+                BranchAndBoundSearch.SearchResult parallel = ParallelBranchAndBound.solve(model, SearchBudget.ofNodes(Long.MAX_VALUE), pool);
+
+                assertThat(parallel.quantities()).containsExactly(sequential.quantities());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Deve dividir sob demanda as faixas largas de quantidade no modo paralelo com o plano da busca sequencial")
+    void shouldMatchSequentialResult_whenQuantityRangesAreWide() {
+        List<RawMaterial> rawMaterials = List.of(
+                createRawMaterial(1L, "MP-001", "100000"),
+                createRawMaterial(2L, "MP-002", "60")
+        );
+        // 100001 quantidades possíveis do primeiro produto, que antes viravam uma subtarefa cada
+        List<Product> products = new ArrayList<>(List.of(
+                createProduct(1L, "30.00", rawMaterials.subList(0, 1), 1),
+                createProduct(2L, "20.00", rawMaterials, 1, 3),
+                createProduct(3L, "9.00", rawMaterials.subList(1, 2), 1)
+        ));
+        PlanningModel model = PlanningModel.compile(products, rawMaterials);
+        ForkJoinPool pool = new ForkJoinPool(4);
+
+        try {
+            BranchAndBoundSearch.SearchResult sequential = BranchAndBoundSearch.solve(model, SearchBudget.ofNodes(Long.MAX_VALUE));
+            BranchAndBoundSearch.SearchResult parallel = ParallelBranchAndBound.solve(model, SearchBudget.ofNodes(Long.MAX_VALUE), pool);
+
+            assertThat(parallel.provenOptimal()).isTrue();
+            assertThat(parallel.quantities()).containsExactly(sequential.quantities());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Deve partir do plano anterior reparado e explorar menos nós após uma produção parcial")
+    void shouldExploreFewerNodes_whenWarmStartedFromPreviousPlan() {
+        Random random = new Random(11);
+        int rounds = 20;
+        int muchFaster = 0;
+
+        for (int round = 0; round < rounds; round++) {
+            long catalogSeed = random.nextLong();
+            int materialCount = 2 + random.nextInt(3);
+            int productCount = 6 + random.nextInt(8);
+
+            long[] stock = new long[materialCount];
+            for (int m = 0; m < materialCount; m++) {
+                stock[m] = 200 + random.nextInt(800);
+            }
+            List<RawMaterial> before = randomMaterials(stock);
+            List<Product> catalog = randomCatalog(new Random(catalogSeed), before, productCount);
+            int[] previousPlan = BranchAndBoundSearch.solve(
+                    PlanningModel.compile(catalog, before), SearchBudget.ofNodes(Long.MAX_VALUE)).quantities();
+
+            // Produz algumas unidades de um dos produtos sugeridos, como faria o ProductionService
+            int produced = 0;
+            while (previousPlan[produced] == 0) {
+                produced++;
+            }
+            int units = Math.min(previousPlan[produced], 1 + random.nextInt(3));
+            for (int m = 0; m < materialCount; m++) {
+                stock[m] -= catalog.get(produced).getCompositionItems().get(m).getRequiredQuantity().longValue() * units;
+            }
+            List<RawMaterial> after = randomMaterials(stock);
+            PlanningModel model = PlanningModel.compile(randomCatalog(new Random(catalogSeed), after, productCount), after);
+
+            BranchAndBoundSearch.SearchResult cold = BranchAndBoundSearch.solve(model, SearchBudget.ofNodes(Long.MAX_VALUE));
+
+            SharedIncumbent incumbent = new SharedIncumbent(model.productCount());
+            WarmStart.seed(model, previousPlan, incumbent);
+            BranchAndBoundSearch.SearchResult warm = BranchAndBoundSearch.solve(model, SearchBudget.ofNodes(Long.MAX_VALUE), incumbent);
+
+            // Semear só antecipa a poda: o plano é o mesmo e a busca nunca fica maior
+            assertThat(warm.quantities()).containsExactly(cold.quantities());
+            assertThat(warm.iterations()).isLessThanOrEqualTo(cold.iterations());
+            if (warm.iterations() * 4 <= cold.iterations()) {
+                muchFaster++;
+            }
+        }
+
+        assertThat(muchFaster).isGreaterThanOrEqualTo(rounds / 4);
+    }
+
+    @Test
+    @DisplayName("Deve reduzir o modelo no pré-processamento sem mudar o plano escolhido")
+    void shouldKeepSamePlan_whenModelIsPresolved() {
+        Random random = new Random(23);
+        int reduced = 0;
+
+        for (int round = 0; round < 40; round++) {
+            // A última matéria-prima sobra para qualquer plano; preços e quantidades repetidos geram dominância
+            long[] stock = {20 + random.nextInt(40), 20 + random.nextInt(40), 1_000_000};
+            List<RawMaterial> rawMaterials = randomMaterials(stock);
+            int productCount = 4 + random.nextInt(5);
+            List<Product> products = new ArrayList<>();
+            for (long id = 1; id <= productCount; id++) {
+                products.add(createProduct(id, String.valueOf(10 * (1 + random.nextInt(3))), rawMaterials,
+                        1 + random.nextInt(3), 1 + random.nextInt(3), 1 + random.nextInt(3)));
+            }
+            products.sort(Comparator.comparing(Product::getPrice).reversed().thenComparing(Product::getCode));
+            PlanningModel model = PlanningModel.compile(products, rawMaterials);
+
+            Presolve.Result presolved = Presolve.apply(model);
+            BranchAndBoundSearch.SearchResult full = BranchAndBoundSearch.solve(model, SearchBudget.ofNodes(Long.MAX_VALUE));
+            BranchAndBoundSearch.SearchResult result = BranchAndBoundSearch.solve(
+                    presolved.model(), SearchBudget.ofNodes(Long.MAX_VALUE));
+
+            assertThat(presolved.model().materialCount()).isLessThan(model.materialCount());
+            assertThat(presolved.toOriginal(result.quantities())).containsExactly(full.quantities());
+            assertThat(result.totalValue()).isEqualTo(full.totalValue());
+            if (presolved.model().productCount() < model.productCount()) {
+                reduced++;
+            }
+        }
+
+        assertThat(reduced).isGreaterThan(0);
+    }
+
+    @Test
+    @DisplayName("Deve resolver por programação dinâmica o catálogo com uma única matéria-prima com o mesmo plano da busca")
+    void shouldMatchSearch_whenSingleRawMaterialIsSolvedByKnapsack() {
+        Random random = new Random(31);
+
+        for (int round = 0; round < 60; round++) {
+            List<RawMaterial> rawMaterials = List.of(createRawMaterial(1L, "MP-110", String.valueOf(5 + random.nextInt(60))));
+            int productCount = 2 + random.nextInt(8);
+            List<Product> products = new ArrayList<>();
+            for (long id = 1; id <= productCount; id++) {
+                products.add(createProduct(id, String.valueOf(5 * (1 + random.nextInt(6))), rawMaterials,
+                        1 + random.nextInt(6)));
+            }
+            products.sort(Comparator.comparing(Product::getPrice).reversed().thenComparing(Product::getCode));
+            PlanningModel model = PlanningModel.compile(products, rawMaterials);
+
+            int[] knapsackPlan = BoundedKnapsack.solve(model);
+            BranchAndBoundSearch.SearchResult search = BranchAndBoundSearch.solve(model, SearchBudget.ofNodes(Long.MAX_VALUE));
+
+            assertThat(knapsackPlan).containsExactly(search.quantities());
+        }
+    }
+
+    @Test
+    @DisplayName("Deve deixar para a busca o catálogo com mais de uma matéria-prima limitante")
+    void shouldSkipKnapsack_whenMoreThanOneRawMaterialRemains() {
+        List<RawMaterial> rawMaterials = List.of(
+                createRawMaterial(1L, "MP-1", "1000"),
+                createRawMaterial(2L, "MP-2", "800")
+        );
+
+        assertThat(BoundedKnapsack.solve(PlanningModel.compile(competingCatalog(rawMaterials), rawMaterials))).isNull();
+    }
+
+    @Test
+    @DisplayName("Deve podar estados de estoque repetidos pela memória de subproblemas sem mudar o plano")
+    void shouldPruneRepeatedStockStates_whenTranspositionTableIsUsed() {
+        Random random = new Random(47);
+        long withoutTable = 0L;
+        long withTable = 0L;
+        long hits = 0L;
+
+        for (int round = 0; round < 20; round++) {
+            // Composições em números redondos: combinações diferentes dos primeiros produtos gastam o mesmo estoque
+            long[] stock = {100 + 10L * random.nextInt(20), 100 + 10L * random.nextInt(20)};
+            List<RawMaterial> rawMaterials = randomMaterials(stock);
+            List<Product> products = new ArrayList<>();
+            for (long id = 1; id <= 8; id++) {
+                products.add(createProduct(id, BigDecimal.valueOf(1000 + random.nextInt(9000), 2).toPlainString(),
+                        rawMaterials, 5L << random.nextInt(3), 5L << random.nextInt(3)));
+            }
+            products.sort(Comparator.comparing(Product::getPrice).reversed().thenComparing(Product::getCode));
+            PlanningModel model = PlanningModel.compile(products, rawMaterials);
+
+            TranspositionTable table = new TranspositionTable(1 << 12);
+            BranchAndBoundSearch.SearchResult plain = BranchAndBoundSearch.solve(model, SearchBudget.ofNodes(Long.MAX_VALUE));
+            BranchAndBoundSearch.SearchResult memo = BranchAndBoundSearch.solve(
+                    model, SearchBudget.ofNodes(Long.MAX_VALUE), new SharedIncumbent(model.productCount()), table);
+
+            // A memória só corta galhos estritamente piores: mesmo plano, nunca mais nós
+            assertThat(memo.quantities()).containsExactly(plain.quantities());
+            assertThat(memo.iterations()).isLessThanOrEqualTo(plain.iterations());
+            withoutTable += plain.iterations();
+            withTable += memo.iterations();
+            hits += table.hits();
+        }
+
+        assertThat(hits).isPositive();
+        assertThat(withTable).isLessThan(withoutTable);
+    }
+
+    @Test
+    @DisplayName("Deve manter a memória de subproblemas no tamanho fixo preservando entradas consultadas")
+    void shouldEvictUnreferencedEntries_whenTranspositionTableIsFull() {
+        TranspositionTable table = new TranspositionTable(4);
+        assertThat(table.capacity()).isEqualTo(4);
+
+        for (long key = 0; key < 4; key++) {
+            table.store(key << 8, key, key * 10);
+        }
+        assertThat(table.lookup(2L << 8, 2L)).isEqualTo(20L);
+
+        // Cinco chaves no mesmo conjunto: sai a primeira não consultada, e a consultada continua
+        table.store(4L << 8, 4L, 40L);
+        table.store(3L << 8, 3L, 25L);
+
+        assertThat(table.lookup(0L, 0L)).isEqualTo(TranspositionTable.NO_ENTRY);
+        assertThat(table.lookup(2L << 8, 2L)).isEqualTo(20L);
+        assertThat(table.lookup(4L << 8, 4L)).isEqualTo(40L);
+        assertThat(table.lookup(3L << 8, 3L)).isEqualTo(25L);
+        assertThat(table.hits()).isEqualTo(4L);
+        assertThat(table.misses()).isEqualTo(1L);
+    }
+
+    @Test
+    @DisplayName("Deve manter o limite incremental igual ao recalculado do zero ao consumir e devolver produtos")
+    void shouldMatchFreshBound_whenStockChangesIncrementally() {
+        for (long seed = 1; seed <= 20; seed++) {
+            ProductionModel catalog = SyntheticCatalog.generate(seed, 12, 6);
+            int[] all = IntStream.range(0, catalog.productCount()).toArray();
+            PlanningModel model = PlanningModel.compile(catalog, all);
+            LinearRelaxation relaxation = LinearRelaxation.solve(model, model.copyInitialStock());
+
+            long[] stock = model.copyInitialStock();
+            IncrementalBound bound = new IncrementalBound(model, relaxation, stock, true);
+            Random random = new Random(seed);
+            int[] consumed = new int[model.productCount()];
+            int level = 0;
+
+            // Caminho aleatório de descidas (consumindo uma quantidade do produto do nível) e subidas (devolvendo)
+            for (int step = 0; step < 200; step++) {
+                long incremental = bound.upperBound(level, Integer.MAX_VALUE);
+                IncrementalBound fresh = new IncrementalBound(model, relaxation, stock.clone(), true);
+
+                assertThat(incremental).isEqualTo(fresh.upperBound(level, Integer.MAX_VALUE));
+                assertThat(bound.quantityBound()).isEqualTo(fresh.quantityBound());
+                assertThat(bound.primaryKey(level)).isEqualTo(fresh.primaryKey(level));
+                if (level < model.productCount()) {
+                    assertThat(bound.units(level)).isEqualTo(fresh.units(level));
+                    int cap = bound.units(level) / 2;
+                    assertThat(bound.upperBound(level, cap)).isEqualTo(fresh.upperBound(level, cap));
+                }
+
+                if (level < model.productCount() && (level == 0 || random.nextInt(3) > 0)) {
+                    consumed[level] = random.nextInt(bound.units(level) + 1);
+                    bound.consume(level, consumed[level]);
+                    level++;
+                } else if (level > 0) {
+                    level--;
+                    bound.release(level, consumed[level]);
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Deve encontrar na busca pelo melhor limite o mesmo plano da busca em profundidade, mesmo com a fila cheia")
+    void shouldMatchDepthFirstResult_whenSearchingBestFirst() {
+        Random random = new Random(53);
+
+        for (int round = 0; round < 40; round++) {
+            long[] stock = {200 + random.nextInt(800), 200 + random.nextInt(800), 200 + random.nextInt(800)};
+            List<RawMaterial> rawMaterials = randomMaterials(stock);
+            PlanningModel model = PlanningModel.compile(randomCatalog(random, rawMaterials, 4 + random.nextInt(5)), rawMaterials);
+
+            BranchAndBoundSearch.SearchResult depthFirst = BranchAndBoundSearch.solve(model, SearchBudget.ofNodes(Long.MAX_VALUE));
+
+            // Com teto 1 quase todo nó vira mergulho em profundidade; com teto alto a fila nunca enche
+            for (int maxOpenNodes : new int[]{1, 8, 100000}) {
+                BranchAndBoundSearch.SearchResult bestFirst = BestFirstSearch.solve(
+                        model, SearchBudget.ofNodes(Long.MAX_VALUE), maxOpenNodes);
+
+                assertThat(bestFirst.provenOptimal()).isTrue();
+                assertThat(bestFirst.totalValue()).isEqualTo(depthFirst.totalValue());
+                assertThat(bestFirst.quantities()).containsExactly(depthFirst.quantities());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Deve manter a fila da busca pelo melhor limite no teto quando um produto abre muitos filhos")
+    void shouldKeepOpenNodesWithinCap_whenProductHasManyUnits() {
+        List<RawMaterial> rawMaterials = List.of(
+                createRawMaterial(1L, "MP-001", "100000"),
+                createRawMaterial(2L, "MP-002", "60")
+        );
+        // O primeiro produto sozinho abriria 100001 filhos de uma vez
+        List<Product> products = new ArrayList<>(List.of(
+                createProduct(1L, "30.00", rawMaterials.subList(0, 1), 1),
+                createProduct(2L, "20.00", rawMaterials, 1, 3),
+                createProduct(3L, "9.00", rawMaterials.subList(1, 2), 1)
+        ));
+        PlanningModel model = PlanningModel.compile(products, rawMaterials);
+
+        BranchAndBoundSearch.SearchResult depthFirst = BranchAndBoundSearch.solve(model, SearchBudget.ofNodes(Long.MAX_VALUE));
+        BestFirstSearch bestFirst = BestFirstSearch.create(
+                model, SearchBudget.ofNodes(Long.MAX_VALUE), new SharedIncumbent(model.productCount()), null, 16);
+        BranchAndBoundSearch.SearchResult result = bestFirst.search();
+
+        assertThat(bestFirst.peakOpenNodes()).isLessThanOrEqualTo(16);
+        assertThat(result.provenOptimal()).isTrue();
+        assertThat(result.quantities()).containsExactly(depthFirst.quantities());
+    }
+
+    @Test
+    @DisplayName("Deve devolver na busca pelo melhor limite plano viável e limite válido quando o orçamento acaba")
+    void shouldReportBoundAboveOptimum_whenBestFirstBudgetRunsOut() {
+        List<RawMaterial> rawMaterials = List.of(
+                createRawMaterial(1L, "MP-001", "1000"),
+                createRawMaterial(2L, "MP-002", "800")
+        );
+        PlanningModel model = PlanningModel.compile(competingCatalog(rawMaterials), rawMaterials);
+
+        BranchAndBoundSearch.SearchResult result = BestFirstSearch.solve(model, SearchBudget.ofNodes(20), 100000);
+
+        assertThat(result.provenOptimal()).isFalse();
+        assertThat(result.totalValue()).isLessThanOrEqualTo(298400L);
+        assertThat(result.bestBound()).isGreaterThanOrEqualTo(298400L);
+    }
+
+    private List<RawMaterial> randomMaterials(long[] stock) {
+        List<RawMaterial> rawMaterials = new ArrayList<>();
+        for (int m = 0; m < stock.length; m++) {
+            rawMaterials.add(createRawMaterial(m + 1L, "MP-" + (m + 1), String.valueOf(stock[m])));
+        }
+        return rawMaterials;
+    }
+
+    private List<Product> randomCatalog(Random random, List<RawMaterial> rawMaterials, int productCount) {
+        List<Product> products = new ArrayList<>();
+        for (long id = 1; id <= productCount; id++) {
+            long[] required = new long[rawMaterials.size()];
+            for (int m = 0; m < required.length; m++) {
+                required[m] = 1 + random.nextInt(30);
+            }
+            products.add(createProduct(id, BigDecimal.valueOf(1000 + random.nextInt(9000), 2).toPlainString(),
+                    rawMaterials, required));
+        }
+        products.sort(Comparator.comparing(Product::getPrice).reversed().thenComparing(Product::getCode));
+        return products;
+    }
+}
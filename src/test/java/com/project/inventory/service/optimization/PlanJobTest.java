@@ -0,0 +1,140 @@
+package com.project.inventory.service.optimization;
+
+import com.project.inventory.domain.enumtype.PlanJobStatus;
+import com.project.inventory.dto.planproduction.ProductionPlanJobResponse;
+import com.project.inventory.dto.planproduction.ProductionPlanSuggestionResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.awaitility.Awaitility.await;
+
+@DisplayName("PlanJob — Publicação das melhorias do job")
+class PlanJobTest {
+
+    @Test
+    @DisplayName("offer: não deve esperar um cliente lento e deve juntar as melhorias num único evento")
+    void offer_naoDeveEsperarClienteLento() throws Exception {
+        PlanJob job = new PlanJob(UUID.randomUUID());
+        job.start();
+
+        CountDownLatch liberar = new CountDownLatch(1);
+        RecordingEmitter lento = new RecordingEmitter(liberar);
+        job.subscribe(lento);
+
+        AtomicInteger montagens = new AtomicInteger();
+        Thread publicador = Thread.ofVirtual().start(() -> job.publishIncumbents(best -> {
+            montagens.incrementAndGet();
+            return plan(best.totalValue());
+        }));
+
+        // A primeira melhoria prende o publicador no cliente lento; as seguintes só são guardadas
+        job.offer(incumbent(10L));
+        await().atMost(Duration.ofSeconds(5)).until(() -> lento.sending.get() == 1);
+        assertThatCode(() -> {
+            for (long value = 11L; value <= 500L; value++) {
+                job.offer(incumbent(value));
+            }
+        }).doesNotThrowAnyException();
+
+        liberar.countDown();
+        await().atMost(Duration.ofSeconds(5)).until(() -> lento.received.size() == 2);
+        job.complete(plan(500L));
+        publicador.join(TimeUnit.SECONDS.toMillis(5));
+
+        // Melhoria inicial, a última das 490 seguintes (uma só montagem) e o evento final
+        assertThat(publicador.isAlive()).isFalse();
+        assertThat(montagens.get()).isEqualTo(2);
+        assertThat(lento.received).hasSize(3);
+        assertThat(((ProductionPlanSuggestionResponse) lento.received.get(1)).totalSalesValue()).isEqualByComparingTo("500");
+        assertThat(((ProductionPlanJobResponse) lento.received.get(2)).status()).isEqualTo(PlanJobStatus.COMPLETED);
+    }
+
+    @Test
+    @DisplayName("offer: deve manter a melhor solução quando as melhorias chegam fora de ordem")
+    void offer_deveManterMelhorForaDeOrdem() throws Exception {
+        PlanJob job = new PlanJob(UUID.randomUUID());
+        job.start();
+        job.offer(incumbent(30L));
+        job.offer(incumbent(20L));
+
+        Thread publicador = Thread.ofVirtual().start(() -> job.publishIncumbents(best -> plan(best.totalValue())));
+        await().atMost(Duration.ofSeconds(5)).until(() -> job.toResponse().bestPlan() != null);
+        job.fail("falha");
+        publicador.join(TimeUnit.SECONDS.toMillis(5));
+
+        assertThat(publicador.isAlive()).isFalse();
+        assertThat(job.toResponse().bestPlan().totalSalesValue()).isEqualByComparingTo("30");
+    }
+
+    @Test
+    @DisplayName("publishIncumbents: deve seguir publicando depois de uma falha ao montar uma melhoria")
+    void publishIncumbents_deveSeguirDepoisDeFalha() throws Exception {
+        PlanJob job = new PlanJob(UUID.randomUUID());
+        job.start();
+        AtomicInteger montagens = new AtomicInteger();
+
+        Thread publicador = Thread.ofVirtual().start(() -> job.publishIncumbents(best -> {
+            if (montagens.incrementAndGet() == 1) {
+                throw new IllegalStateException("falha na montagem");
+            }
+            return plan(best.totalValue());
+        }));
+
+        job.offer(incumbent(10L));
+        await().atMost(Duration.ofSeconds(5)).until(() -> montagens.get() == 1);
+        job.offer(incumbent(20L));
+        await().atMost(Duration.ofSeconds(5)).until(() -> job.toResponse().bestPlan() != null);
+        job.fail("fim");
+        publicador.join(TimeUnit.SECONDS.toMillis(5));
+
+        assertThat(publicador.isAlive()).isFalse();
+        assertThat(job.toResponse().bestPlan().totalSalesValue()).isEqualByComparingTo("20");
+    }
+
+    private static SharedIncumbent.Incumbent incumbent(long value) {
+        return new SharedIncumbent.Incumbent(value, 1, new int[]{1});
+    }
+
+    private static ProductionPlanSuggestionResponse plan(long value) {
+        return new ProductionPlanSuggestionResponse(BigDecimal.valueOf(value), 1, List.of(), List.of(), List.of(),
+                false, null, 0L, 0L, null);
+    }
+
+    // Emissor sem conexão: guarda os dados enviados; o primeiro envio espera o latch, como um cliente lento
+    private static final class RecordingEmitter extends SseEmitter {
+        private final CountDownLatch release;
+        private final AtomicInteger sending = new AtomicInteger();
+        private final List<Object> received = new CopyOnWriteArrayList<>();
+
+        private RecordingEmitter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            if (sending.incrementAndGet() == 1) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            builder.build().stream()
+                    .map(DataWithMediaType::getData)
+                    .filter(data -> !(data instanceof String))
+                    .forEach(received::add);
+        }
+    }
+}
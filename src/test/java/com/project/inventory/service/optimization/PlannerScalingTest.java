@@ -0,0 +1,48 @@
+package com.project.inventory.service.optimization;
+
+import com.project.inventory.service.catalog.ProductionModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Planejamento — Escala do catálogo")
+class PlannerScalingTest {
+
+    private static final long TIME_BUDGET_MS = 500;
+
+    // Sem relógio de parede no teste: montagem do modelo e pré-processamento variam com a carga da máquina. O que
+    // se confere é o próprio prazo da busca: ela termina provando o ótimo ou porque o prazo acabou, e o plano é
+    // viável e nunca vale mais que o limite informado
+    @ParameterizedTest(name = "{0} produtos x {1} matérias-primas")
+    @CsvSource({"10, 5", "100, 50", "1000, 500", "10000, 5000"})
+    @DisplayName("Deve devolver um plano viável dentro do prazo do catálogo pequeno ao de 10 mil produtos")
+    void shouldReturnFeasiblePlanWithinBudget_whenCatalogGrows(int productCount, int materialCount) {
+        ProductionModel catalog = SyntheticCatalog.generate(productCount, productCount, materialCount);
+        ProductionPlanSolver solver =
+                new ProductionPlanSolver(new SimpleMeterRegistry(), 1, TIME_BUDGET_MS, TIME_BUDGET_MS, 65536, SearchMode.DEPTH_FIRST, 100000);
+
+        PlanningProblem problem = PlanningProblem.of(catalog);
+        SearchBudget budget = solver.budgetFor(TIME_BUDGET_MS);
+        BranchAndBoundSearch.SearchResult result = solver.solve(problem.model(), budget, (int[]) null);
+
+        assertThat(result.provenOptimal() || budget.isExhausted()).isTrue();
+        assertThat(result.totalValue()).isPositive();
+        assertThat(result.bestBound()).isGreaterThanOrEqualTo(result.totalValue());
+
+        // O plano, de volta aos produtos do catálogo compilado, respeita o estoque de todas as matérias-primas
+        PlanningModel compiled = problem.compiled();
+        int[] quantities = problem.presolved().toOriginal(result.quantities());
+        long[] stock = compiled.copyInitialStock();
+        for (int p = 0; p < compiled.productCount(); p++) {
+            for (int item = compiled.rowStart(p); item < compiled.rowEnd(p); item++) {
+                stock[compiled.materialAt(item)] -= compiled.requiredAt(item) * quantities[p];
+            }
+        }
+        assertThat(Arrays.stream(stock).min().orElse(0L)).isNotNegative();
+    }
+}
@@ -0,0 +1,153 @@
+package com.project.inventory.service.optimization;
+
+import com.project.inventory.domain.entity.Product;
+import com.project.inventory.domain.entity.ProductCompositionItem;
+import com.project.inventory.domain.entity.RawMaterial;
+import com.project.inventory.domain.enumtype.PlanJobStatus;
+import com.project.inventory.domain.enumtype.UnitOfMeasurement;
+import com.project.inventory.domain.repository.ProductRepository;
+import com.project.inventory.domain.repository.RawMaterialRepository;
+import com.project.inventory.dto.planproduction.ProductionPlanJobResponse;
+import com.project.inventory.dto.planproduction.ProductionPlanSuggestionRequest;
+import com.project.inventory.exception.ResourceNotFoundException;
+import com.project.inventory.service.CatalogVersion;
+import com.project.inventory.service.catalog.ProductionModelRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ProductionPlanJobService — Planejamento Assíncrono")
+class ProductionPlanJobServiceTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private RawMaterialRepository rawMaterialRepository;
+
+    private final ProductionPlanSolver productionPlanSolver =
+
+            new ProductionPlanSolver(new SimpleMeterRegistry(), 1, 2000, 30000, 65536, SearchMode.DEPTH_FIRST, 100000);
+
+    private ProductionPlanJobService jobService;
+
+    @AfterEach
+    void tearDown() {
+        if (jobService != null) {
+            jobService.shutdown();
+        }
+    }
+
+    private ProductionPlanJobService createJobService(int maxConcurrent) {
+        CatalogVersion catalogVersion = new CatalogVersion();
+        ProductionPlanService planService = new ProductionPlanService(
+                new ProductionModelRegistry(
+                        productRepository,
+                        rawMaterialRepository,
+                        catalogVersion,
+                        TransactionOperations.withoutTransaction()
+                ),
+                productionPlanSolver,
+                new ProductionPlanCache(new SimpleMeterRegistry(), false),
+                catalogVersion,
+                new PlannerMetrics(new SimpleMeterRegistry())
+        );
+        jobService = new ProductionPlanJobService(planService, productionPlanSolver, maxConcurrent, 60000);
+        return jobService;
+    }
+
+    private void mockCatalog() {
+        RawMaterial farinha = RawMaterial.builder()
+                .id(1L)
+                .code("MP-001")
+                .name("Farinha")
+                .stockQuantity(new BigDecimal("10"))
+                .unitOfMeasurement(UnitOfMeasurement.KILOGRAM)
+                .build();
+
+        Product bolo = createProduct(1L, "P-001", "Bolo", "50.00", farinha, "5");
+        Product pao = createProduct(2L, "P-002", "Pão", "15.00", farinha, "2");
+
+        when(productRepository.findAll()).thenReturn(List.of(bolo, pao));
+        when(rawMaterialRepository.findAll()).thenReturn(List.of(farinha));
+    }
+
+    private Product createProduct(Long id, String code, String name, String price, RawMaterial mp, String required) {
+        Product product = Product.builder()
+                .id(id)
+                .code(code)
+                .name(name)
+                .price(new BigDecimal(price))
+                .compositionItems(new ArrayList<>())
+                .build();
+
+        product.getCompositionItems().add(ProductCompositionItem.builder()
+                .rawMaterial(mp)
+                .requiredQuantity(new BigDecimal(required))
+                .product(product)
+                .build());
+        return product;
+    }
+
+    @Test
+    @DisplayName("Deve concluir o job em segundo plano com o mesmo plano da sugestão síncrona")
+    void deveConcluirJobComPlanoOtimo() {
+        mockCatalog();
+        ProductionPlanJobService service = createJobService(1);
+
+        ProductionPlanJobResponse submitted = service.submit(new ProductionPlanSuggestionRequest(1000L, null));
+
+        await().atMost(Duration.ofSeconds(5))
+                .until(() -> service.find(submitted.jobId()).status() == PlanJobStatus.COMPLETED);
+
+        ProductionPlanJobResponse job = service.find(submitted.jobId());
+        assertThat(job.bestPlan().totalSalesValue()).isEqualByComparingTo(new BigDecimal("100.00"));
+        assertThat(job.bestPlan().totalProducedQuantity()).isEqualTo(2);
+        assertThat(job.bestPlan().provenOptimal()).isTrue();
+        assertThat(job.errorMessage()).isNull();
+    }
+
+    @Test
+    @DisplayName("Deve cancelar job que ainda aguarda vaga sem carregar o catálogo")
+    void deveCancelarJobNaFila() {
+        ProductionPlanJobService service = createJobService(0);
+
+        ProductionPlanJobResponse submitted = service.submit(null);
+        assertThat(submitted.status()).isEqualTo(PlanJobStatus.QUEUED);
+
+        ProductionPlanJobResponse cancelled = service.cancel(submitted.jobId());
+
+        assertThat(cancelled.status()).isEqualTo(PlanJobStatus.CANCELLED);
+        assertThat(cancelled.bestPlan()).isNull();
+        verifyNoInteractions(productRepository, rawMaterialRepository);
+    }
+
+    @Test
+    @DisplayName("Deve lançar ResourceNotFoundException para job inexistente")
+    void deveLancarExcecaoParaJobInexistente() {
+        ProductionPlanJobService service = createJobService(1);
+        UUID id = UUID.randomUUID();
+
+        assertThatThrownBy(() -> service.find(id))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessageContaining(id.toString());
+    }
+}
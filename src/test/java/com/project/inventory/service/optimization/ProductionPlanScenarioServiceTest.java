@@ -0,0 +1,182 @@
+package com.project.inventory.service.optimization;
+
+import com.project.inventory.domain.entity.Product;
+import com.project.inventory.domain.entity.ProductCompositionItem;
+import com.project.inventory.domain.entity.RawMaterial;
+import com.project.inventory.domain.enumtype.UnitOfMeasurement;
+import com.project.inventory.domain.repository.ProductRepository;
+import com.project.inventory.domain.repository.RawMaterialRepository;
+import com.project.inventory.dto.planproduction.PlanScenarioRequest;
+import com.project.inventory.dto.planproduction.ProductionPlanScenarioResponse;
+import com.project.inventory.dto.planproduction.ProductionPlanScenariosRequest;
+import com.project.inventory.dto.planproduction.StockOverrideRequest;
+import com.project.inventory.exception.ResourceNotFoundException;
+import com.project.inventory.service.CatalogVersion;
+import com.project.inventory.service.catalog.ProductionModelRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ProductionPlanScenarioService — Simulação de Cenários")
+class ProductionPlanScenarioServiceTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private RawMaterialRepository rawMaterialRepository;
+
+    private final ProductionPlanSolver productionPlanSolver =
+
+            new ProductionPlanSolver(new SimpleMeterRegistry(), 1, 2000, 30000, 65536, SearchMode.DEPTH_FIRST, 100000);
+
+    private ProductionPlanScenarioService scenarioService;
+
+    @BeforeEach
+    void setUp() {
+        CatalogVersion catalogVersion = new CatalogVersion();
+        ProductionPlanService planService = new ProductionPlanService(
+                new ProductionModelRegistry(
+                        productRepository,
+                        rawMaterialRepository,
+                        catalogVersion,
+                        TransactionOperations.withoutTransaction()
+                ),
+                productionPlanSolver,
+                new ProductionPlanCache(new SimpleMeterRegistry(), false),
+                catalogVersion,
+                new PlannerMetrics(new SimpleMeterRegistry())
+        );
+        scenarioService = new ProductionPlanScenarioService(planService, productionPlanSolver);
+    }
+
+    @AfterEach
+    void tearDown() {
+        scenarioService.shutdown();
+    }
+
+    private RawMaterial createRawMaterial(Long id, String code, String stock) {
+        return RawMaterial.builder()
+                .id(id)
+                .code(code)
+                .name(code)
+                .stockQuantity(new BigDecimal(stock))
+                .unitOfMeasurement(UnitOfMeasurement.KILOGRAM)
+                .build();
+    }
+
+    private Product createProduct(Long id, String price, RawMaterial minerio, String required, RawMaterial diesel, String dieselRequired) {
+        Product product = Product.builder()
+                .id(id)
+                .code("P-00" + id)
+                .name("Produto " + id)
+                .price(new BigDecimal(price))
+                .compositionItems(new ArrayList<>())
+                .build();
+
+        product.adicionarItemComposition(ProductCompositionItem.builder()
+                .rawMaterial(minerio)
+                .requiredQuantity(new BigDecimal(required))
+                .build());
+        product.adicionarItemComposition(ProductCompositionItem.builder()
+                .rawMaterial(diesel)
+                .requiredQuantity(new BigDecimal(dieselRequired))
+                .build());
+        return product;
+    }
+
+    private void mockCatalog() {
+        RawMaterial minerio = createRawMaterial(1L, "MP-001", "100");
+        RawMaterial diesel = createRawMaterial(2L, "MP-002", "40");
+
+        Product tarugo = createProduct(1L, "90.00", minerio, "10", diesel, "8");
+        Product chapa = createProduct(2L, "50.00", minerio, "4", diesel, "5");
+
+        when(productRepository.findAll()).thenReturn(List.of(tarugo, chapa));
+        when(rawMaterialRepository.findAll()).thenReturn(List.of(minerio, diesel));
+    }
+
+    @Test
+    @DisplayName("Deve resolver cada cenário de estoque sobre o catálogo carregado uma única vez, sem gravar no banco")
+    void deveResolverCenariosComCatalogoCarregadoUmaVez() {
+        mockCatalog();
+
+        List<ProductionPlanScenarioResponse> responses = scenarioService.evaluate(new ProductionPlanScenariosRequest(
+                List.of(
+                        new PlanScenarioRequest("Base", List.of()),
+                        new PlanScenarioRequest("Sem diesel", List.of(new StockOverrideRequest(2L, BigDecimal.ZERO))),
+                        new PlanScenarioRequest("Diesel em dobro", List.of(new StockOverrideRequest(2L, new BigDecimal("80"))))
+                ),
+                1000L
+        ));
+
+        assertThat(responses).extracting(ProductionPlanScenarioResponse::name)
+                .containsExactly("Base", "Sem diesel", "Diesel em dobro");
+
+        // Base: 5 tarugos consomem 40 de diesel (450,00); 8 chapas também cabem, mas valem 400,00
+        assertThat(responses.get(0).plan().totalSalesValue()).isEqualByComparingTo(new BigDecimal("450.00"));
+        assertThat(responses.get(1).plan().totalProducedQuantity()).isZero();
+        assertThat(responses.get(1).plan().rawMaterialBalances())
+                .filteredOn(saldo -> saldo.rawMaterialId().equals(2L))
+                .singleElement()
+                .satisfies(saldo -> assertThat(saldo.initialQuantity()).isEqualByComparingTo(BigDecimal.ZERO));
+        // Com o dobro de diesel o minério passa a limitar: 10 tarugos
+        assertThat(responses.get(2).plan().totalSalesValue()).isEqualByComparingTo(new BigDecimal("900.00"));
+        assertThat(responses).allSatisfy(response -> assertThat(response.plan().provenOptimal()).isTrue());
+
+        verify(productRepository, times(1)).findAll();
+        verify(rawMaterialRepository, times(1)).findAll();
+        verifyNoMoreInteractions(productRepository, rawMaterialRepository);
+    }
+
+    @Test
+    @DisplayName("Deve abandonar as buscas dos cenários quando a requisição é cancelada")
+    void deveAbandonarCenariosQuandoRequisicaoCancelada() {
+        mockCatalog();
+        SearchCancellation cancellation = new SearchCancellation();
+        cancellation.cancel();
+
+        List<ProductionPlanScenarioResponse> responses = scenarioService.evaluate(new ProductionPlanScenariosRequest(
+                List.of(
+                        new PlanScenarioRequest("Base", List.of()),
+                        new PlanScenarioRequest("Sem diesel", List.of(new StockOverrideRequest(2L, BigDecimal.ZERO)))
+                ),
+                30000L
+        ), cancellation);
+
+        assertThat(responses).isNull();
+    }
+
+    @Test
+    @DisplayName("Deve lançar ResourceNotFoundException para matéria-prima inexistente no cenário")
+    void deveLancarExcecaoParaMateriaPrimaInexistente() {
+        mockCatalog();
+
+        ProductionPlanScenariosRequest request = new ProductionPlanScenariosRequest(
+                List.of(new PlanScenarioRequest("Fornecedor novo", List.of(new StockOverrideRequest(99L, BigDecimal.TEN)))),
+                null
+        );
+
+        assertThatThrownBy(() -> scenarioService.evaluate(request))
+                .isInstanceOf(ResourceNotFoundException.class)
+                .hasMessageContaining("99");
+    }
+}
@@ -7,22 +7,49 @@ import com.project.inventory.domain.enumtype.UnitOfMeasurement;
 import com.project.inventory.domain.repository.RawMaterialRepository;
 import com.project.inventory.domain.repository.ProductRepository;
 import com.project.inventory.dto.planproduction.ConsumoRawMaterialResponse;
+import com.project.inventory.dto.planproduction.PlanMetricsResponse;
+import com.project.inventory.dto.planproduction.PlannerMetricsResponse;
+import com.project.inventory.dto.planproduction.PlannerPhaseMetricsResponse;
 import com.project.inventory.dto.planproduction.ProductionPlanItemResponse;
 import com.project.inventory.dto.planproduction.SaldoRawMaterialResponse;
+import com.project.inventory.dto.planproduction.ProductionPlanSuggestionRequest;
 import com.project.inventory.dto.planproduction.ProductionPlanSuggestionResponse;
+import com.project.inventory.service.CatalogVersion;
+import com.project.inventory.service.catalog.ProductionModelRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -35,9 +62,36 @@ class ProductionPlanServiceTest {
     @Mock
     private RawMaterialRepository rawMaterialRepository;
 
-    @InjectMocks
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private ProductionPlanSolver productionPlanSolver =
+            new ProductionPlanSolver(meterRegistry, 1, 2000, 30000, 65536, SearchMode.DEPTH_FIRST, 100000);
+
+    @Spy
+    private ProductionPlanCache productionPlanCache = new ProductionPlanCache(meterRegistry, true);
+
+    @Mock
+    private CatalogVersion catalogVersion;
+
     private ProductionPlanService productionPlanService;
 
+    @BeforeEach
+    void setUp() {
+        productionPlanService = new ProductionPlanService(
+                new ProductionModelRegistry(
+                        productRepository,
+                        rawMaterialRepository,
+                        catalogVersion,
+                        TransactionOperations.withoutTransaction()
+                ),
+                productionPlanSolver,
+                productionPlanCache,
+                catalogVersion,
+                new PlannerMetrics(meterRegistry)
+        );
+    }
+
     private RawMaterial createRawMaterial(long id, String code, String name,
                                           BigDecimal stock, UnitOfMeasurement unit) {
         return RawMaterial.builder()
@@ -161,10 +215,51 @@ class ProductionPlanServiceTest {
         when(productRepository.findAll()).thenReturn(List.of(bolo, pao));
         when(rawMaterialRepository.findAll()).thenReturn(List.of(farinha));
 
-        ProductionPlanSuggestionResponse response = productionPlanService.suggestOptimalPlan();
+        ProductionPlanSuggestionResponse response = productionPlanService.suggestOptimalPlan(
+                new ProductionPlanSuggestionRequest(500L, null)
+        );
 
         assertThat(response.totalSalesValue()).isEqualByComparingTo(new BigDecimal("100.00"));
         assertThat(response.totalProducedQuantity()).isEqualTo(2);
+        assertThat(response.provenOptimal()).isTrue();
+        assertThat(response.optimalityGap()).isEqualByComparingTo(BigDecimal.ZERO);
+        // Uma única matéria-prima vai para a mochila por programação dinâmica, sem nós de branch-and-bound
+        assertThat(response.nodesExplored()).isZero();
+    }
+
+    @Test
+    @DisplayName("Deve informar o valor marginal de cada matéria-prima pelos duais da relaxação linear")
+    void deveInformarValorMarginalDasMateriasPrimas() {
+        RawMaterial farinha = createRawMaterial(1L, "MP-001", "Farinha", new BigDecimal("10"), UnitOfMeasurement.KILOGRAM);
+        RawMaterial ovos = createRawMaterial(2L, "MP-002", "Ovos", new BigDecimal("100"), UnitOfMeasurement.UNIT);
+        RawMaterial fermento = createRawMaterial(3L, "MP-003", "Fermento", BigDecimal.ZERO, UnitOfMeasurement.KILOGRAM);
+
+        Product bolo = createProduct(1L, "P-001", "Bolo", new BigDecimal("50.00"));
+        adicionarComposition(bolo, farinha, new BigDecimal("5"));
+        adicionarComposition(bolo, ovos, BigDecimal.ONE);
+
+        Product paoEspecial = createProduct(2L, "P-002", "Pão Especial", new BigDecimal("30.00"));
+        adicionarComposition(paoEspecial, farinha, BigDecimal.ONE);
+        adicionarComposition(paoEspecial, fermento, BigDecimal.ONE);
+
+        when(productRepository.findAll()).thenReturn(List.of(bolo, paoEspecial));
+        when(rawMaterialRepository.findAll()).thenReturn(List.of(farinha, ovos, fermento));
+
+        ProductionPlanSuggestionResponse response = productionPlanService.suggestOptimalPlan();
+
+        assertThat(response.totalSalesValue()).isEqualByComparingTo(new BigDecimal("100.00"));
+        // Farinha rende 10,00 por kg no bolo; ovos sobram; o primeiro kg de fermento troca 1 kg de farinha
+        // do bolo (10,00) por um pão especial (30,00)
+        assertThat(response.rawMaterialBalances())
+                .extracting(
+                        SaldoRawMaterialResponse::codeRawMaterial,
+                        saldo -> saldo.marginalValue().setScale(2, RoundingMode.HALF_UP)
+                )
+                .containsExactly(
+                        tuple("MP-001", new BigDecimal("10.00")),
+                        tuple("MP-002", new BigDecimal("0.00")),
+                        tuple("MP-003", new BigDecimal("20.00"))
+                );
     }
 
     @Test
@@ -250,4 +345,406 @@ class ProductionPlanServiceTest {
         assertThat(saldoAcucar.consumedQuantity()).isEqualByComparingTo(new BigDecimal("5"));
         assertThat(saldoAcucar.balanceQuantity()).isEqualByComparingTo(BigDecimal.ZERO);
     }
+
+    @Test
+    @DisplayName("Deve truncar unidades com quantidades fracionárias na escala 4 do stock")
+    void shouldTruncateUnits_whenCompositionHasFractionalQuantities() {
+        RawMaterial oleo = createRawMaterial(1L, "MP-001", "Óleo", new BigDecimal("10.0000"), UnitOfMeasurement.LITER);
+        RawMaterial sal = createRawMaterial(2L, "MP-002", "Sal", new BigDecimal("1.0001"), UnitOfMeasurement.KILOGRAM);
+
+        Product molho = createProduct(1L, "P-001", "Molho", new BigDecimal("7.35"));
+        adicionarComposition(molho, oleo, new BigDecimal("0.3333"));
+        adicionarComposition(molho, sal, new BigDecimal("0.0250"));
+
+        Product tempero = createProduct(2L, "P-002", "Tempero", new BigDecimal("2.10"));
+        adicionarComposition(tempero, sal, new BigDecimal("0.0125"));
+
+        when(productRepository.findAll()).thenReturn(List.of(molho, tempero));
+        when(rawMaterialRepository.findAll()).thenReturn(List.of(oleo, sal));
+
+        ProductionPlanSuggestionResponse response = productionPlanService.suggestOptimalPlan();
+
+        // 30 molhos (10 / 0,3333) consomem 0,75 de sal; o restante (0,2501) rende 20 temperos
+        assertThat(response.totalSalesValue()).isEqualByComparingTo(new BigDecimal("262.50"));
+        assertThat(response.totalProducedQuantity()).isEqualTo(50);
+
+        SaldoRawMaterialResponse saldoSal = response.rawMaterialBalances().stream()
+                .filter(s -> s.codeRawMaterial().equals("MP-002"))
+                .findFirst().orElseThrow();
+        assertThat(saldoSal.balanceQuantity()).isEqualByComparingTo(new BigDecimal("0.0001"));
+    }
+
+    @Test
+    @DisplayName("Deve tratar matéria-prima ausente da lista de estoque como stock zero")
+    void shouldTreatUnknownRawMaterialAsZeroStock() {
+        RawMaterial farinha = createRawMaterial(1L, "MP-001", "Farinha", new BigDecimal("10"), UnitOfMeasurement.KILOGRAM);
+        RawMaterial fermento = createRawMaterial(2L, "MP-002", "Fermento", new BigDecimal("10"), UnitOfMeasurement.KILOGRAM);
+
+        Product pao = createProduct(1L, "P-001", "Pão", new BigDecimal("40.00"));
+        adicionarComposition(pao, farinha, new BigDecimal("1"));
+        adicionarComposition(pao, fermento, new BigDecimal("1"));
+
+        Product bolo = createProduct(2L, "P-002", "Bolo", new BigDecimal("10.00"));
+        adicionarComposition(bolo, farinha, new BigDecimal("2"));
+
+        when(productRepository.findAll()).thenReturn(List.of(pao, bolo));
+        when(rawMaterialRepository.findAll()).thenReturn(List.of(farinha));
+
+        ProductionPlanSuggestionResponse response = productionPlanService.suggestOptimalPlan();
+
+        assertThat(response.totalSalesValue()).isEqualByComparingTo(new BigDecimal("50.00"));
+        assertThat(response.suggestedItems()).extracting(ProductionPlanItemResponse::codeProduct).containsExactly("P-002");
+    }
+
+    @Test
+    @DisplayName("Deve reutilizar o plano em cache enquanto a versão do catálogo não muda")
+    void deveReutilizarPlanoEmCache_quandoVersaoNaoMuda() {
+        RawMaterial farinha = createRawMaterial(1L, "MP-001", "Farinha", new BigDecimal("10"), UnitOfMeasurement.KILOGRAM);
+
+        Product bolo = createProduct(1L, "P-001", "Bolo", new BigDecimal("50.00"));
+        adicionarComposition(bolo, farinha, new BigDecimal("5"));
+
+        when(productRepository.findAll()).thenReturn(List.of(bolo));
+        when(rawMaterialRepository.findAll()).thenReturn(List.of(farinha));
+        when(rawMaterialRepository.findAllAvailableQuantities()).thenReturn(Map.of(1L, new BigDecimal("15")));
+        AtomicLong versao = new AtomicLong(7L);
+        when(catalogVersion.current()).thenAnswer(invocation -> versao.get());
+
+        ProductionPlanSuggestionResponse primeira = productionPlanService.suggestOptimalPlan();
+        ProductionPlanSuggestionResponse segunda = productionPlanService.suggestOptimalPlan();
+        // Escrita só de estoque: o plano é refeito, mas a estrutura do retrato é reaproveitada
+        versao.set(8L);
+        ProductionPlanSuggestionResponse aposEscrita = productionPlanService.suggestOptimalPlan();
+
+        // Do cache: o mesmo plano, mas sem busca nesta chamada
+        assertThat(segunda.suggestedItems()).isSameAs(primeira.suggestedItems());
+        assertThat(segunda.nodesExplored()).isZero();
+        assertThat(aposEscrita.suggestedItems()).isNotSameAs(primeira.suggestedItems());
+        assertThat(primeira.totalSalesValue()).isEqualByComparingTo(new BigDecimal("100.00"));
+        assertThat(aposEscrita.totalSalesValue()).isEqualByComparingTo(new BigDecimal("150.00"));
+        verify(productRepository, times(1)).findAll();
+        verify(rawMaterialRepository, times(1)).findAllAvailableQuantities();
+        assertThat(productionPlanCache.hits()).isEqualTo(1);
+        // /cache é só uma visão dos contadores do registro
+        assertThat(meterRegistry.get("planner.cache.hits").counter().count()).isEqualTo(1.0);
+        assertThat(productionPlanService.cacheStats().misses()).isEqualTo(2L);
+        assertThat(productionPlanCache.misses()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Deve resumir fases e contadores da busca na resposta quando pedido e somá-los nas métricas")
+    void deveResumirMetricasDaBusca_quandoPedido() {
+        RawMaterial farinha = createRawMaterial(1L, "MP-001", "Farinha", new BigDecimal("10"), UnitOfMeasurement.KILOGRAM);
+        RawMaterial ovos = createRawMaterial(2L, "MP-002", "Ovos", new BigDecimal("7"), UnitOfMeasurement.UNIT);
+
+        Product bolo = createProduct(1L, "P-001", "Bolo", new BigDecimal("50.00"));
+        adicionarComposition(bolo, farinha, new BigDecimal("3"));
+        adicionarComposition(bolo, ovos, new BigDecimal("2"));
+
+        Product pao = createProduct(2L, "P-002", "Pão", new BigDecimal("15.00"));
+        adicionarComposition(pao, farinha, BigDecimal.ONE);
+        adicionarComposition(pao, ovos, BigDecimal.ONE);
+
+        when(productRepository.findAll()).thenReturn(List.of(bolo, pao));
+        when(rawMaterialRepository.findAll()).thenReturn(List.of(farinha, ovos));
+
+        ProductionPlanSuggestionResponse semResumo = productionPlanService.suggestOptimalPlan();
+        ProductionPlanSuggestionResponse comResumo = productionPlanService.suggestOptimalPlan(
+                new ProductionPlanSuggestionRequest(null, true)
+        );
+
+        assertThat(semResumo.metrics()).isNull();
+        // A segunda chamada sai do cache: o resumo descreve só ela, sem busca
+        PlanMetricsResponse resumo = comResumo.metrics();
+        assertThat(resumo.cacheHit()).isTrue();
+        assertThat(resumo.boundEvaluations()).isZero();
+        assertThat(resumo.budgetExhausted()).isFalse();
+        assertThat(comResumo.totalSalesValue()).isEqualByComparingTo(semResumo.totalSalesValue());
+
+        PlannerMetricsResponse metricas = productionPlanService.metrics();
+        assertThat(metricas.searches()).isEqualTo(1);
+        assertThat(metricas.boundEvaluations()).isPositive();
+        assertThat(metricas.budgetExhausted()).isZero();
+        assertThat(metricas.phases())
+                .extracting(PlannerPhaseMetricsResponse::phase, PlannerPhaseMetricsResponse::count)
+                .containsExactly(
+                        tuple("load", 1L),
+                        tuple("model-build", 1L),
+                        tuple("search", 1L),
+                        tuple("response", 1L)
+                );
+        // O endpoint é só uma visão dos medidores do registro
+        assertThat(meterRegistry.get("planner.phase").tag("phase", "search").timer().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("planner.searches").counter().count()).isEqualTo(1.0);
+        assertThat((long) meterRegistry.get("planner.bound.evaluations").counter().count())
+                .isEqualTo(metricas.boundEvaluations());
+    }
+
+    @Test
+    @DisplayName("Deve concluir a requisição assíncrona com o plano calculado")
+    void deveConcluirRequisicaoAssincrona_quandoBuscaTermina() throws Exception {
+        RawMaterial farinha = createRawMaterial(1L, "MP-001", "Farinha", new BigDecimal("10"), UnitOfMeasurement.KILOGRAM);
+        Product bolo = createProduct(1L, "P-001", "Bolo", new BigDecimal("50.00"));
+        adicionarComposition(bolo, farinha, new BigDecimal("5"));
+
+        when(productRepository.findAll()).thenReturn(List.of(bolo));
+        when(rawMaterialRepository.findAll()).thenReturn(List.of(farinha));
+
+        DeferredResult<ProductionPlanSuggestionResponse> result = productionPlanService.suggestOptimalPlanAsync(null);
+
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!result.hasResult() && System.nanoTime() < limite) {
+            Thread.sleep(10);
+        }
+        assertThat(result.getResult()).isInstanceOfSatisfying(ProductionPlanSuggestionResponse.class,
+                plan -> assertThat(plan.totalSalesValue()).isEqualByComparingTo(new BigDecimal("100.00")));
+        productionPlanService.shutdown();
+    }
+
+    @Test
+    @DisplayName("Deve interromper a busca e não guardar o plano quando a requisição é abandonada")
+    void deveInterromperBusca_quandoRequisicaoAbandonada() {
+        RawMaterial farinha = createRawMaterial(1L, "MP-001", "Farinha", new BigDecimal("10"), UnitOfMeasurement.KILOGRAM);
+        RawMaterial ovos = createRawMaterial(2L, "MP-002", "Ovos", new BigDecimal("7"), UnitOfMeasurement.UNIT);
+
+        Product bolo = createProduct(1L, "P-001", "Bolo", new BigDecimal("50.00"));
+        adicionarComposition(bolo, farinha, new BigDecimal("3"));
+        adicionarComposition(bolo, ovos, new BigDecimal("2"));
+
+        Product pao = createProduct(2L, "P-002", "Pão", new BigDecimal("15.00"));
+        adicionarComposition(pao, farinha, BigDecimal.ONE);
+        adicionarComposition(pao, ovos, BigDecimal.ONE);
+
+        when(productRepository.findAll()).thenReturn(List.of(bolo, pao));
+        when(rawMaterialRepository.findAll()).thenReturn(List.of(farinha, ovos));
+
+        // O cliente desiste com a busca já em andamento
+        SearchCancellation cancellation = new SearchCancellation();
+        doAnswer(invocation -> {
+            cancellation.cancel();
+            return invocation.callRealMethod();
+        }).doCallRealMethod()
+                .when(productionPlanSolver).solve(any(PlanningModel.class), any(SearchBudget.class), nullable(int[].class));
+
+        ProductionPlanSuggestionResponse abandonado = productionPlanService.suggestOptimalPlan(null, cancellation);
+        ProductionPlanSuggestionResponse seguinte = productionPlanService.suggestOptimalPlan();
+
+        assertThat(abandonado).isNull();
+        // O plano interrompido não foi para o cache: a chamada seguinte busca de novo
+        assertThat(productionPlanCache.hits()).isZero();
+        assertThat(seguinte.provenOptimal()).isTrue();
+
+        PlannerMetricsResponse metricas = productionPlanService.metrics();
+        assertThat(metricas.searches()).isEqualTo(2);
+        assertThat(metricas.abandonedSearches()).isEqualTo(1);
+        // Cancelada logo no início, a busca devolve quase todo o prazo padrão de 2 s
+        assertThat(metricas.reclaimedSearchMs()).isGreaterThan(1000);
+    }
+
+    @Test
+    @DisplayName("Não deve iniciar a busca quando a requisição já foi abandonada durante a carga")
+    void naoDeveIniciarBusca_quandoRequisicaoAbandonadaAntes() {
+        RawMaterial farinha = createRawMaterial(1L, "MP-001", "Farinha", new BigDecimal("10"), UnitOfMeasurement.KILOGRAM);
+        Product bolo = createProduct(1L, "P-001", "Bolo", new BigDecimal("50.00"));
+        adicionarComposition(bolo, farinha, new BigDecimal("5"));
+
+        when(productRepository.findAll()).thenReturn(List.of(bolo));
+        when(rawMaterialRepository.findAll()).thenReturn(List.of(farinha));
+
+        SearchCancellation cancellation = new SearchCancellation();
+        cancellation.cancel();
+
+        assertThat(productionPlanService.suggestOptimalPlan(null, cancellation)).isNull();
+        verify(productionPlanSolver, never()).solve(any(PlanningModel.class), any(SearchBudget.class), nullable(int[].class));
+
+        PlannerMetricsResponse metricas = productionPlanService.metrics();
+        assertThat(metricas.searches()).isZero();
+        assertThat(metricas.abandonedSearches()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve executar uma única busca para requisições iguais que chegam enquanto ela roda")
+    void deveCompartilharBusca_quandoRequisicoesIguaisSimultaneas() throws Exception {
+        RawMaterial farinha = createRawMaterial(1L, "MP-001", "Farinha", new BigDecimal("10"), UnitOfMeasurement.KILOGRAM);
+        RawMaterial ovos = createRawMaterial(2L, "MP-002", "Ovos", new BigDecimal("7"), UnitOfMeasurement.UNIT);
+
+        Product bolo = createProduct(1L, "P-001", "Bolo", new BigDecimal("50.00"));
+        adicionarComposition(bolo, farinha, new BigDecimal("3"));
+        adicionarComposition(bolo, ovos, new BigDecimal("2"));
+
+        Product pao = createProduct(2L, "P-002", "Pão", new BigDecimal("15.00"));
+        adicionarComposition(pao, farinha, BigDecimal.ONE);
+        adicionarComposition(pao, ovos, BigDecimal.ONE);
+
+        when(productRepository.findAll()).thenReturn(List.of(bolo, pao));
+        when(rawMaterialRepository.findAll()).thenReturn(List.of(farinha, ovos));
+
+        // A primeira busca só termina depois que todas as outras requisições estão esperando por ela
+        CountDownLatch allJoined = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            allJoined.await(5, TimeUnit.SECONDS);
+            return invocation.callRealMethod();
+        }).when(productionPlanSolver).solve(any(PlanningModel.class), any(SearchBudget.class), nullable(int[].class));
+
+        int requests = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(requests);
+        try {
+            List<Future<ProductionPlanSuggestionResponse>> plans = new ArrayList<>();
+            for (int i = 0; i < requests; i++) {
+                plans.add(executor.submit(() -> productionPlanService.suggestOptimalPlan()));
+            }
+
+            long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (productionPlanService.metrics().coalescedRequests() < requests - 1 && System.nanoTime() < limite) {
+                Thread.sleep(5);
+            }
+            allJoined.countDown();
+
+            ProductionPlanSuggestionResponse first = plans.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<ProductionPlanSuggestionResponse> plan : plans) {
+                // O mesmo plano da busca compartilhada; só o tempo é o de cada requisição
+                assertThat(plan.get(5, TimeUnit.SECONDS).suggestedItems()).isSameAs(first.suggestedItems());
+            }
+        } finally {
+            allJoined.countDown();
+            executor.shutdownNow();
+        }
+
+        verify(productionPlanSolver, times(1)).solve(any(PlanningModel.class), any(SearchBudget.class), nullable(int[].class));
+        PlannerMetricsResponse metricas = productionPlanService.metrics();
+        assertThat(metricas.searches()).isEqualTo(1);
+        assertThat(metricas.coalescedRequests()).isEqualTo(requests - 1);
+    }
+
+    @Test
+    @DisplayName("Deve manter a busca compartilhada enquanto alguma requisição ainda espera por ela")
+    void deveManterBuscaCompartilhada_quandoSoUmaRequisicaoDesiste() throws Exception {
+        RawMaterial farinha = createRawMaterial(1L, "MP-001", "Farinha", new BigDecimal("10"), UnitOfMeasurement.KILOGRAM);
+        RawMaterial ovos = createRawMaterial(2L, "MP-002", "Ovos", new BigDecimal("7"), UnitOfMeasurement.UNIT);
+
+        Product bolo = createProduct(1L, "P-001", "Bolo", new BigDecimal("50.00"));
+        adicionarComposition(bolo, farinha, new BigDecimal("3"));
+        adicionarComposition(bolo, ovos, new BigDecimal("2"));
+
+        Product pao = createProduct(2L, "P-002", "Pão", new BigDecimal("15.00"));
+        adicionarComposition(pao, farinha, BigDecimal.ONE);
+        adicionarComposition(pao, ovos, BigDecimal.ONE);
+
+        when(productRepository.findAll()).thenReturn(List.of(bolo, pao));
+        when(rawMaterialRepository.findAll()).thenReturn(List.of(farinha, ovos));
+
+        CountDownLatch searching = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            searching.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return invocation.callRealMethod();
+        }).when(productionPlanSolver).solve(any(PlanningModel.class), any(SearchBudget.class), nullable(int[].class));
+
+        SearchCancellation primeira = new SearchCancellation();
+        SearchCancellation segunda = new SearchCancellation();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<ProductionPlanSuggestionResponse> abandonada =
+                    executor.submit(() -> productionPlanService.suggestOptimalPlan(null, primeira));
+            assertThat(searching.await(5, TimeUnit.SECONDS)).isTrue();
+
+            Future<ProductionPlanSuggestionResponse> aguardando =
+                    executor.submit(() -> productionPlanService.suggestOptimalPlan(null, segunda));
+            long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (productionPlanService.metrics().coalescedRequests() < 1 && System.nanoTime() < limite) {
+                Thread.sleep(5);
+            }
+
+            // Quem começou a busca desiste, mas a segunda requisição ainda quer o plano
+            primeira.cancel();
+            release.countDown();
+
+            assertThat(aguardando.get(5, TimeUnit.SECONDS).totalSalesValue()).isPositive();
+            assertThat(abandonada.get(5, TimeUnit.SECONDS)).isNotNull();
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+
+        assertThat(productionPlanService.metrics().abandonedSearches()).isZero();
+        assertThat(productionPlanCache.previousPlan()).isNotNull();
+    }
+
+    @Test
+    @DisplayName("Deve devolver a conexão antes da busca, sem travar o CRUD enquanto os planejamentos rodam")
+    void deveLiberarConexaoAntesDaBusca_quandoPlanejamentosConcorrentes() throws Exception {
+        RawMaterial farinha = createRawMaterial(1L, "MP-001", "Farinha", new BigDecimal("10"), UnitOfMeasurement.KILOGRAM);
+        Product bolo = createProduct(1L, "P-001", "Bolo", new BigDecimal("50.00"));
+        adicionarComposition(bolo, farinha, new BigDecimal("5"));
+
+        when(productRepository.findAll()).thenReturn(List.of(bolo));
+        when(rawMaterialRepository.findAll()).thenReturn(List.of(farinha));
+
+        // Pool com uma única conexão: cada transação a ocupa do início ao fim
+        Semaphore connections = new Semaphore(1);
+        TransactionOperations pool = new TransactionOperations() {
+            @Override
+            public <T> T execute(TransactionCallback<T> action) {
+                try {
+                    if (!connections.tryAcquire(2, TimeUnit.SECONDS)) {
+                        throw new IllegalStateException("Pool de conexões esgotado");
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(e);
+                }
+                try {
+                    return action.doInTransaction(new SimpleTransactionStatus());
+                } finally {
+                    connections.release();
+                }
+            }
+        };
+
+        ProductionPlanService planService = new ProductionPlanService(
+                new ProductionModelRegistry(productRepository, rawMaterialRepository, catalogVersion, pool),
+                productionPlanSolver,
+                new ProductionPlanCache(new SimpleMeterRegistry(), false),
+                catalogVersion,
+                new PlannerMetrics(new SimpleMeterRegistry())
+        );
+
+        // Os planejamentos ficam presos na busca até o CRUD terminar
+        int planners = 4;
+        CountDownLatch searching = new CountDownLatch(planners);
+        CountDownLatch crudDone = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            assertThat(connections.availablePermits()).isEqualTo(1);
+            searching.countDown();
+            crudDone.await(5, TimeUnit.SECONDS);
+            return invocation.callRealMethod();
+        }).when(productionPlanSolver).solve(any(PlanningModel.class), any(SearchBudget.class), nullable(int[].class));
+
+        ExecutorService executor = Executors.newFixedThreadPool(planners);
+        try {
+            List<Future<ProductionPlanSuggestionResponse>> plans = new ArrayList<>();
+            // Prazos diferentes: cada requisição tem a sua busca, sem esperar a de outra
+            for (int i = 0; i < planners; i++) {
+                ProductionPlanSuggestionRequest request = new ProductionPlanSuggestionRequest(1000L + i, null);
+                plans.add(executor.submit(() -> planService.suggestOptimalPlan(request)));
+            }
+            assertThat(searching.await(5, TimeUnit.SECONDS)).isTrue();
+
+            long inicio = System.nanoTime();
+            for (int i = 0; i < 20; i++) {
+                pool.execute(status -> rawMaterialRepository.findAll());
+            }
+            long crudMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+            crudDone.countDown();
+
+            assertThat(crudMs).isLessThan(500);
+            for (Future<ProductionPlanSuggestionResponse> plan : plans) {
+                assertThat(plan.get(5, TimeUnit.SECONDS).totalSalesValue()).isEqualByComparingTo(new BigDecimal("100.00"));
+            }
+        } finally {
+            crudDone.countDown();
+            executor.shutdownNow();
+        }
+    }
 }
@@ -0,0 +1,66 @@
+package com.project.inventory.service.optimization;
+
+import com.project.inventory.domain.entity.Product;
+import com.project.inventory.domain.entity.ProductCompositionItem;
+import com.project.inventory.domain.entity.RawMaterial;
+import com.project.inventory.domain.enumtype.UnitOfMeasurement;
+import com.project.inventory.service.catalog.ProductionModel;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+// Catálogo sintético para testes de escala: cada produto usa de 2 a 5 matérias-primas sorteadas, como num
+// catálogo real em que a matriz de composição é quase toda vazia
+final class SyntheticCatalog {
+
+    private SyntheticCatalog() {
+    }
+
+    static ProductionModel generate(long seed, int productCount, int materialCount) {
+        Random random = new Random(seed);
+
+        List<RawMaterial> rawMaterials = new ArrayList<>();
+        for (int m = 0; m < materialCount; m++) {
+            rawMaterials.add(RawMaterial.builder()
+                    .id(m + 1L)
+                    .code(String.format("MP-%05d", m + 1))
+                    .name("Matéria-prima " + (m + 1))
+                    .stockQuantity(BigDecimal.valueOf(100 + random.nextInt(900)))
+                    .unitOfMeasurement(UnitOfMeasurement.KILOGRAM)
+                    .build());
+        }
+
+        List<Product> products = new ArrayList<>();
+        for (int p = 0; p < productCount; p++) {
+            Product product = Product.builder()
+                    .id(p + 1L)
+                    .code(String.format("P-%05d", p + 1))
+                    .name("Produto " + (p + 1))
+                    .price(BigDecimal.valueOf(100 + random.nextInt(9900), 2))
+                    .compositionItems(new ArrayList<>())
+                    .build();
+
+            Set<Integer> materials = new LinkedHashSet<>();
+            int itemCount = Math.min(materialCount, 2 + random.nextInt(4));
+            while (materials.size() < itemCount) {
+                materials.add(random.nextInt(materialCount));
+            }
+            for (int material : materials) {
+                product.adicionarItemComposition(ProductCompositionItem.builder()
+                        .rawMaterial(rawMaterials.get(material))
+                        .requiredQuantity(BigDecimal.valueOf(1 + random.nextInt(20)))
+                        .build());
+            }
+            products.add(product);
+        }
+
+        // Mesma ordem do retrato do catálogo: maior preço primeiro, depois código
+        products.sort(Comparator.comparing(Product::getPrice).reversed().thenComparing(Product::getCode));
+        return ProductionModel.of(seed, products, rawMaterials);
+    }
+}
@@ -0,0 +1,73 @@
+package com.project.inventory.service.reservation;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("ExpiryTimerWheel — Roda de expiração das reservas")
+class ExpiryTimerWheelTest {
+
+    @Test
+    @DisplayName("advance: deve devolver os prazos vencidos só quando o tick deles chega")
+    void advance_deveDevolverPrazosVencidos() {
+        ExpiryTimerWheel wheel = new ExpiryTimerWheel(100L, 8, 0L);
+        wheel.schedule(1L, 250L);
+        wheel.schedule(2L, 500L);
+
+        assertThat(wheel.advance(200L)).isEmpty();
+        assertThat(wheel.advance(300L)).containsExactly(1L);
+        assertThat(wheel.advance(499L)).isEmpty();
+        assertThat(wheel.advance(500L)).containsExactly(2L);
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("advance: deve manter prazos além de uma volta na casa até o tick certo")
+    void advance_deveManterPrazosAlemDeUmaVolta() {
+        ExpiryTimerWheel wheel = new ExpiryTimerWheel(100L, 8, 0L);
+        // Tick 3 e tick 11 caem na mesma casa de uma roda de 8
+        wheel.schedule(1L, 300L);
+        wheel.schedule(2L, 1100L);
+
+        assertThat(wheel.advance(300L)).containsExactly(1L);
+        assertThat(wheel.advance(1000L)).isEmpty();
+        assertThat(wheel.advance(1100L)).containsExactly(2L);
+    }
+
+    @Test
+    @DisplayName("advance: deve expirar tudo o que venceu depois de uma pausa maior que a roda")
+    void advance_deveExpirarDepoisDePausaLonga() {
+        ExpiryTimerWheel wheel = new ExpiryTimerWheel(100L, 8, 0L);
+        for (long id = 1; id <= 20; id++) {
+            wheel.schedule(id, id * 100L);
+        }
+
+        assertThat(wheel.advance(1_500L)).hasSize(15);
+        assertThat(wheel.size()).isEqualTo(5);
+        assertThat(wheel.advance(10_000L)).containsExactlyInAnyOrder(16L, 17L, 18L, 19L, 20L);
+    }
+
+    @Test
+    @DisplayName("cancel: deve tirar o prazo da roda")
+    void cancel_deveTirarPrazo() {
+        ExpiryTimerWheel wheel = new ExpiryTimerWheel(100L, 8, 0L);
+        wheel.schedule(1L, 300L);
+        wheel.schedule(2L, 300L);
+        wheel.schedule(3L, 300L);
+
+        assertThat(wheel.cancel(2L)).isTrue();
+        assertThat(wheel.cancel(2L)).isFalse();
+        assertThat(wheel.advance(300L)).containsExactlyInAnyOrder(1L, 3L);
+    }
+
+    @Test
+    @DisplayName("schedule: deve vencer no próximo tick um prazo que já passou")
+    void schedule_deveVencerPrazoPassadoNoProximoTick() {
+        ExpiryTimerWheel wheel = new ExpiryTimerWheel(100L, 8, 1_000L);
+        wheel.schedule(1L, 200L);
+
+        assertThat(wheel.advance(1_050L)).isEmpty();
+        assertThat(wheel.advance(1_100L)).containsExactly(1L);
+    }
+}
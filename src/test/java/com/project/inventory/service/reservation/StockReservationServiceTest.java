@@ -0,0 +1,345 @@
+package com.project.inventory.service.reservation;
+
+import com.project.inventory.domain.entity.Product;
+import com.project.inventory.domain.entity.ProductCompositionItem;
+import com.project.inventory.domain.entity.RawMaterial;
+import com.project.inventory.domain.entity.StockReservation;
+import com.project.inventory.domain.enumtype.StockReservationStatus;
+import com.project.inventory.domain.repository.RawMaterialRepository;
+import com.project.inventory.domain.repository.StockReservationRepository;
+import com.project.inventory.dto.production.ProductionRequest;
+import com.project.inventory.dto.reservation.CreateStockReservationRequest;
+import com.project.inventory.dto.reservation.StockReservationResponse;
+import com.project.inventory.exception.BusinessRuleException;
+import com.project.inventory.exception.ResourceNotFoundException;
+import com.project.inventory.service.CatalogVersion;
+import com.project.inventory.service.ConcurrencyRetry;
+import com.project.inventory.service.catalog.ProductionModel;
+import com.project.inventory.service.catalog.ProductionModelRegistry;
+import com.project.inventory.service.ledger.StockLedger;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("StockReservationService — Reservas de estoque com validade")
+class StockReservationServiceTest {
+
+    private static final Instant INICIO = Instant.parse("2026-01-01T08:00:00Z");
+
+    @Mock
+    private ProductionModelRegistry productionModelRegistry;
+
+    @Mock
+    private RawMaterialRepository rawMaterialRepository;
+
+    @Mock
+    private StockReservationRepository stockReservationRepository;
+
+    @Mock
+    private CatalogVersion catalogVersion;
+
+    @Mock
+    private StockLedger stockLedger;
+
+    private final MutableClock clock = new MutableClock(INICIO);
+
+    // Reservas gravadas, simulando a tabela e os updates condicionais de status
+    private final Map<Long, StockReservation> reservations = new HashMap<>();
+
+    private StockReservationService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new StockReservationService(
+                productionModelRegistry,
+                rawMaterialRepository,
+                stockReservationRepository,
+                catalogVersion,
+                new ConcurrencyRetry(TransactionOperations.withoutTransaction(), new SimpleMeterRegistry(), 3, 0L, 0L),
+                stockLedger,
+                clock,
+                1000L,
+                64,
+                900L,
+                3600L
+        );
+
+        RawMaterial farinha = RawMaterial.builder().id(1L).code("MP-001").name("Farinha")
+                .stockQuantity(new BigDecimal("100")).build();
+        RawMaterial queijo = RawMaterial.builder().id(2L).code("MP-002").name("Queijo")
+                .stockQuantity(new BigDecimal("50")).build();
+        Product pastel = Product.builder().id(10L).code("PROD-01").name("Pastel").price(new BigDecimal("8")).build();
+        pastel.adicionarItemComposition(ProductCompositionItem.builder()
+                .rawMaterial(farinha).requiredQuantity(new BigDecimal("1.5")).build());
+        pastel.adicionarItemComposition(ProductCompositionItem.builder()
+                .rawMaterial(queijo).requiredQuantity(new BigDecimal("2")).build());
+
+        lenient().when(productionModelRegistry.structure())
+                .thenReturn(ProductionModel.of(1L, List.of(pastel), List.of(farinha, queijo)));
+
+        lenient().when(stockReservationRepository.save(any())).thenAnswer(invocation -> {
+            StockReservation reservation = invocation.getArgument(0);
+            reservation.setId((long) reservations.size() + 1);
+            reservations.put(reservation.getId(), reservation);
+            return reservation;
+        });
+        lenient().when(stockReservationRepository.findByIdWithItems(anyLong()))
+                .thenAnswer(invocation -> Optional.ofNullable(reservations.get((Long) invocation.getArgument(0))));
+        lenient().when(stockReservationRepository.findById(anyLong()))
+                .thenAnswer(invocation -> Optional.ofNullable(reservations.get((Long) invocation.getArgument(0))));
+        lenient().when(stockReservationRepository.commitActive(anyLong(), any())).thenAnswer(invocation ->
+                close(invocation.getArgument(0), StockReservationStatus.COMMITTED, invocation.getArgument(1), true));
+        lenient().when(stockReservationRepository.releaseActive(anyLong(), any())).thenAnswer(invocation ->
+                close(invocation.getArgument(0), StockReservationStatus.RELEASED, invocation.getArgument(1), null));
+        lenient().when(stockReservationRepository.expireActive(anyLong(), any())).thenAnswer(invocation ->
+                close(invocation.getArgument(0), StockReservationStatus.EXPIRED, invocation.getArgument(1), false));
+    }
+
+    // inTime: true exige o prazo em dia, false exige o prazo vencido, null não olha o prazo
+    private int close(Long id, StockReservationStatus status, Instant now, Boolean inTime) {
+        StockReservation reservation = reservations.get(id);
+        if (reservation == null || reservation.getStatus() != StockReservationStatus.ACTIVE) {
+            return 0;
+        }
+        if (inTime != null && reservation.getExpiresAt().isAfter(now) != inTime) {
+            return 0;
+        }
+        reservation.setStatus(status);
+        reservation.setClosedAt(now);
+        return 1;
+    }
+
+    private StockReservationResponse reservar(int quantidade, Long ttlSeconds) {
+        when(rawMaterialRepository.holdStock(anyMap())).thenReturn(List.of());
+        return service.create(new CreateStockReservationRequest("OP-42", List.of(new ProductionRequest(10L, quantidade)), ttlSeconds));
+    }
+
+    @Test
+    @DisplayName("create: deve prender a demanda somada da composição e agendar a validade")
+    void create_devePrenderDemandaSomada() {
+        when(rawMaterialRepository.holdStock(anyMap())).thenReturn(List.of());
+
+        StockReservationResponse response = service.create(new CreateStockReservationRequest(
+                "OP-42",
+                List.of(new ProductionRequest(10L, 4), new ProductionRequest(10L, 6)),
+                null
+        ));
+
+        verify(rawMaterialRepository).holdStock(Map.of(1L, new BigDecimal("15.0"), 2L, new BigDecimal("20")));
+        verify(catalogVersion).advance();
+        assertThat(response.status()).isEqualTo(StockReservationStatus.ACTIVE);
+        assertThat(response.reference()).isEqualTo("OP-42");
+        assertThat(response.expiresAt()).isEqualTo(INICIO.plusSeconds(900));
+        assertThat(response.items()).extracting("code").containsExactly("MP-001", "MP-002");
+    }
+
+    @Test
+    @DisplayName("create: deve informar o disponível da linha quando não consegue prender o estoque")
+    void create_deveLancarExcecao_quandoFaltaEstoque() {
+        when(rawMaterialRepository.holdStock(anyMap())).thenReturn(List.of(2L));
+        when(rawMaterialRepository.findAvailableQuantities(List.of(2L))).thenReturn(Map.of(2L, new BigDecimal("12.0000")));
+
+        assertThatThrownBy(() -> service.create(new CreateStockReservationRequest(null, List.of(new ProductionRequest(10L, 10)), null)))
+                .isInstanceOf(BusinessRuleException.class)
+                .hasMessageContaining("Queijo")
+                .hasMessageContaining("Disponível: 12.0000");
+
+        verify(stockReservationRepository, never()).save(any());
+        verify(catalogVersion, never()).advance();
+    }
+
+    @Test
+    @DisplayName("create: deve lançar exceção quando o produto não existe")
+    void create_deveLancarExcecao_quandoProdutoNaoExiste() {
+        assertThatThrownBy(() -> service.create(new CreateStockReservationRequest(null, List.of(new ProductionRequest(99L, 1)), null)))
+                .isInstanceOf(ResourceNotFoundException.class);
+
+        verify(rawMaterialRepository, never()).holdStock(anyMap());
+    }
+
+    @Test
+    @DisplayName("create: deve recusar validade acima do máximo")
+    void create_deveRecusarValidadeAcimaDoMaximo() {
+        assertThatThrownBy(() -> service.create(new CreateStockReservationRequest(null, List.of(new ProductionRequest(10L, 1)), 3601L)))
+                .isInstanceOf(BusinessRuleException.class);
+
+        verify(rawMaterialRepository, never()).holdStock(anyMap());
+    }
+
+    @Test
+    @DisplayName("create: deve recusar reservas com o livro de estoque em memória ligado")
+    void create_deveRecusar_quandoLivroDeEstoqueLigado() {
+        when(stockLedger.isEnabled()).thenReturn(true);
+
+        assertThatThrownBy(() -> service.create(new CreateStockReservationRequest(null, List.of(new ProductionRequest(10L, 1)), null)))
+                .isInstanceOf(BusinessRuleException.class);
+
+        verify(rawMaterialRepository, never()).holdStock(anyMap());
+    }
+
+    @Test
+    @DisplayName("commit: deve consumir do estoque exatamente o que foi preso")
+    void commit_deveConsumirEstoquePreso() {
+        StockReservationResponse criada = reservar(10, 60L);
+
+        StockReservationResponse response = service.commit(criada.id());
+
+        assertThat(response.status()).isEqualTo(StockReservationStatus.COMMITTED);
+        verify(rawMaterialRepository).consumeHeldStock(Map.of(1L, new BigDecimal("15.0"), 2L, new BigDecimal("20")));
+        verify(rawMaterialRepository, never()).releaseHeldStock(anyMap());
+        verify(stockLedger).evict(1L);
+        verify(stockLedger).evict(2L);
+
+        // A reserva saiu da roda: a varredura depois do prazo não a toca
+        clock.advance(Duration.ofMinutes(5));
+        assertThat(service.sweep()).isZero();
+    }
+
+    @Test
+    @DisplayName("commit: deve recusar a reserva vencida mesmo antes da varredura")
+    void commit_deveRecusar_quandoVencida() {
+        StockReservationResponse criada = reservar(1, 60L);
+        clock.advance(Duration.ofSeconds(60));
+
+        assertThatThrownBy(() -> service.commit(criada.id()))
+                .isInstanceOf(BusinessRuleException.class)
+                .hasMessageContaining("expirou");
+
+        verify(rawMaterialRepository, never()).consumeHeldStock(anyMap());
+    }
+
+    @Test
+    @DisplayName("release: deve soltar o estoque uma única vez")
+    void release_deveSoltarEstoqueUmaVez() {
+        StockReservationResponse criada = reservar(2, null);
+
+        service.release(criada.id());
+
+        assertThatThrownBy(() -> service.release(criada.id()))
+                .isInstanceOf(BusinessRuleException.class)
+                .hasMessageContaining("RELEASED");
+        verify(rawMaterialRepository, times(1)).releaseHeldStock(Map.of(1L, new BigDecimal("3.0"), 2L, new BigDecimal("4")));
+    }
+
+    @Test
+    @DisplayName("release: deve lançar exceção quando a reserva não existe")
+    void release_deveLancarExcecao_quandoNaoExiste() {
+        assertThatThrownBy(() -> service.release(999L))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    @DisplayName("sweep: deve expirar só as reservas vencidas e soltar o estoque delas")
+    void sweep_deveExpirarReservasVencidas() {
+        StockReservationResponse curta = reservar(1, 30L);
+        StockReservationResponse longa = reservar(1, 120L);
+
+        clock.advance(Duration.ofSeconds(29));
+        assertThat(service.sweep()).isZero();
+
+        clock.advance(Duration.ofSeconds(2));
+        assertThat(service.sweep()).isEqualTo(1);
+        assertThat(reservations.get(curta.id()).getStatus()).isEqualTo(StockReservationStatus.EXPIRED);
+        assertThat(reservations.get(longa.id()).getStatus()).isEqualTo(StockReservationStatus.ACTIVE);
+        verify(rawMaterialRepository, times(1)).releaseHeldStock(anyMap());
+
+        // Mais de uma volta da roda depois: a longa vence, e nada é expirado duas vezes
+        clock.advance(Duration.ofMinutes(10));
+        assertThat(service.sweep()).isEqualTo(1);
+        assertThat(service.sweep()).isZero();
+        verify(rawMaterialRepository, times(2)).releaseHeldStock(anyMap());
+    }
+
+    @Test
+    @DisplayName("start: deve agendar as reservas ativas gravadas antes da subida")
+    void start_deveAgendarReservasAtivas() {
+        StockReservation antiga = StockReservation.builder()
+                .id(7L)
+                .status(StockReservationStatus.ACTIVE)
+                .createdAt(INICIO.minusSeconds(600))
+                .expiresAt(INICIO.minusSeconds(1))
+                .build();
+        reservations.put(7L, antiga);
+        when(stockReservationRepository.findDeadlinesByStatus(StockReservationStatus.ACTIVE)).thenReturn(List.of(deadline(7L, antiga.getExpiresAt())));
+
+        service.start();
+        try {
+            clock.advance(Duration.ofSeconds(1));
+            service.sweep();
+
+            assertThat(antiga.getStatus()).isEqualTo(StockReservationStatus.EXPIRED);
+            verify(rawMaterialRepository, times(1)).releaseHeldStock(anyMap());
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    private static StockReservationRepository.ReservationDeadline deadline(Long id, Instant expiresAt) {
+        return new StockReservationRepository.ReservationDeadline() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Instant getExpiresAt() {
+                return expiresAt;
+            }
+        };
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        private MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        private void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}